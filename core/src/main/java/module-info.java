@@ -8,6 +8,7 @@ module ninja.javahacker.jpasimpletransactions.core {
     requires transitive jakarta.persistence;
     requires transitive jakarta.inject;
     requires transitive java.sql;
+    requires java.instrument;
     requires transitive static lombok;
     requires transitive static com.github.spotbugs.annotations;
     requires transitive ninja.javahacker.reifiedgeneric;
@@ -0,0 +1,90 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.NonNull;
+import lombok.Synchronized;
+import lombok.experimental.PackagePrivate;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Process-wide registry of the known {@link ProviderAdapter}s.
+ *
+ * <p>The {@link ServiceLoader} lookup is done only once per class loader and the adapter that recognizes
+ * each {@link jakarta.persistence.EntityManagerFactory} or {@link jakarta.persistence.EntityManager} class
+ * is remembered. Both caches are weakly keyed and, since the adapters strongly reference their own class loaders (and so do the
+ * classes that they recognize), they hold their values through soft references. Thus, they don't keep class loaders from
+ * being unloaded, and the adapters are only forgotten when memory runs short, not on every garbage collection.
+ * Adapters might also be explicitly registered, which gives them precedence over the loaded ones.</p>
+ *
+ * @author Victor Williams Stafusa da Silva
+ */
+@UtilityClass
+@PackagePrivate
+class AdapterRegistry {
+    private static final Map<ClassLoader, SoftReference<List<Maybe<ProviderAdapter>>>> LOADED = new WeakHashMap<>();
+    private static final Map<Class<?>, SoftReference<ProviderAdapter>> RECOGNIZED = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final List<ProviderAdapter> REGISTERED = new CopyOnWriteArrayList<>();
+
+    @Synchronized
+    private List<Maybe<ProviderAdapter>> loaded() {
+        var ccl = Thread.currentThread().getContextClassLoader();
+        var cl = ccl == null ? ClassLoader.getSystemClassLoader() : ccl;
+        var ref = LOADED.get(cl);
+        var known = ref == null ? null : ref.get();
+        if (known != null) return known;
+        var found = ServiceLoader.load(ProviderAdapter.class, cl)
+                .stream()
+                .map(Maybe::wrap)
+                .map(Supplier::get)
+                .collect(Collectors.toUnmodifiableList());
+        LOADED.put(cl, new SoftReference<>(found));
+        return found;
+    }
+
+    public Stream<Maybe<ProviderAdapter>> all() {
+        var registered = List.copyOf(REGISTERED);
+        var loaded = loaded().stream().filter(m -> m.success().map(a -> !registered.contains(a)).orElse(true));
+        return Stream.concat(registered.stream().map(Maybe::success), loaded);
+    }
+
+    @Nullable
+    public ProviderAdapter find(@NonNull Class<?> key, @NonNull Predicate<ProviderAdapter> recognizer) {
+        var ref = RECOGNIZED.get(key);
+        var known = ref == null ? null : ref.get();
+        if (known != null) return known;
+        var found = all()
+                .map(Maybe::success)
+                .flatMap(Optional::stream)
+                .filter(recognizer)
+                .findFirst()
+                .orElse(null);
+        if (found != null) RECOGNIZED.put(key, new SoftReference<>(found));
+        return found;
+    }
+
+    @Synchronized
+    public void register(@NonNull ProviderAdapter adapter) {
+        REGISTERED.remove(adapter);
+        REGISTERED.add(0, adapter);
+        RECOGNIZED.clear();
+    }
+
+    @Synchronized
+    public boolean unregister(@NonNull ProviderAdapter adapter) {
+        var removed = REGISTERED.remove(adapter);
+        if (removed) RECOGNIZED.clear();
+        return removed;
+    }
+}
@@ -1,9 +1,11 @@
 package ninja.javahacker.jpasimpletransactions;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.BiConsumer;
 import lombok.NonNull;
+import lombok.Synchronized;
 
 /**
  * An implementation of a {@link ConnectorListener} that broadcasts its call to others {@link ConnectorListener}.
@@ -14,6 +16,8 @@ public final class Broadcaster implements ConnectorListener {
     @NonNull
     private final List<ConnectorListener> list;
 
+    private volatile boolean observingQueries;
+
     @FunctionalInterface
     private static interface Register {
         public void accept(ConnectorListener listener, String persistenceUnit, boolean defaultConnector);
@@ -44,6 +48,16 @@ public final class Broadcaster implements ConnectorListener {
         broadcast(ConnectorListener::connectorRegistered, persistenceUnit, defaultConnector);
     }
 
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param bootTime {@inheritDoc}
+     */
+    @Override
+    public void connectorMaterialized(@NonNull String persistenceUnit, @NonNull Duration bootTime) {
+        list.forEach(listener -> listener.connectorMaterialized(persistenceUnit, bootTime));
+    }
+
     /**
      * {@inheritDoc}
      * @param persistenceUnit {@inheritDoc}
@@ -71,6 +85,15 @@ public final class Broadcaster implements ConnectorListener {
         broadcast(ConnectorListener::renewedConnection, persistenceUnit);
     }
 
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     */
+    @Override
+    public void finishingTransaction(@NonNull String persistenceUnit) {
+        broadcast(ConnectorListener::finishingTransaction, persistenceUnit);
+    }
+
     /**
      * {@inheritDoc}
      * @param persistenceUnit {@inheritDoc}
@@ -98,6 +121,109 @@ public final class Broadcaster implements ConnectorListener {
         broadcast(ConnectorListener::operationFinished, persistenceUnit);
     }
 
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param waited {@inheritDoc}
+     * @param statistics {@inheritDoc}
+     */
+    @Override
+    public void connectionAcquired(@NonNull String persistenceUnit, @NonNull Duration waited, @NonNull PoolStatistics statistics) {
+        list.forEach(listener -> listener.connectionAcquired(persistenceUnit, waited, statistics));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param held {@inheritDoc}
+     * @param statistics {@inheritDoc}
+     */
+    @Override
+    public void connectionReleased(@NonNull String persistenceUnit, @NonNull Duration held, @NonNull PoolStatistics statistics) {
+        list.forEach(listener -> listener.connectionReleased(persistenceUnit, held, statistics));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param statistics {@inheritDoc}
+     */
+    @Override
+    public void connectionAcquisitionTimedOut(@NonNull String persistenceUnit, @NonNull PoolStatistics statistics) {
+        list.forEach(listener -> listener.connectionAcquisitionTimedOut(persistenceUnit, statistics));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param held {@inheritDoc}
+     * @param statistics {@inheritDoc}
+     */
+    @Override
+    public void connectionLeakSuspected(@NonNull String persistenceUnit, @NonNull Duration held, @NonNull PoolStatistics statistics) {
+        list.forEach(listener -> listener.connectionLeakSuspected(persistenceUnit, held, statistics));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param replica {@inheritDoc}
+     * @param cause {@inheritDoc}
+     */
+    @Override
+    public void replicaFailed(@NonNull String persistenceUnit, int replica, @NonNull Throwable cause) {
+        list.forEach(listener -> listener.replicaFailed(persistenceUnit, replica, cause));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param replica {@inheritDoc}
+     */
+    @Override
+    public void replicaRecovered(@NonNull String persistenceUnit, int replica) {
+        list.forEach(listener -> listener.replicaRecovered(persistenceUnit, replica));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param timeout {@inheritDoc}
+     */
+    @Override
+    public void transactionTimedOut(@NonNull String persistenceUnit, @NonNull Duration timeout) {
+        list.forEach(listener -> listener.transactionTimedOut(persistenceUnit, timeout));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param execution {@inheritDoc}
+     */
+    @Override
+    public void queryExecuted(@NonNull String persistenceUnit, @NonNull QueryExecution execution) {
+        list.forEach(listener -> listener.queryExecuted(persistenceUnit, execution));
+    }
+
+    /**
+     * Tells if some registered {@link ConnectorListener} was observing queries when it was registered.
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isObservingQueries() {
+        return observingQueries;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param report {@inheritDoc}
+     */
+    @Override
+    public void repeatedStatementsDetected(@NonNull String persistenceUnit, @NonNull StatementReport report) {
+        list.forEach(listener -> listener.repeatedStatementsDetected(persistenceUnit, report));
+    }
+
     /**
      * {@inheritDoc}
      * @param persistenceUnit {@inheritDoc}
@@ -112,23 +238,34 @@ public final class Broadcaster implements ConnectorListener {
      * Register a {@link ConnectorListener} that will receive notification of database events.
      * @param listener The {@link ConnectorListener} that will receive notification of database events.
      */
+    @Synchronized
     public void add(@NonNull ConnectorListener listener) {
         list.add(listener);
+        refreshObservingQueries();
     }
 
     /**
      * Unregister a {@link ConnectorListener}, so it won't receive notification of database events anymore.
      * @param listener The {@link ConnectorListener} that won't receive notification of database events anymore.
      */
+    @Synchronized
     public void remove(@NonNull ConnectorListener listener) {
         list.remove(listener);
+        refreshObservingQueries();
     }
 
     /**
      * Unregister all the registered {@link ConnectorListener}s.
      */
+    @Synchronized
     public void clear() {
         list.clear();
+        refreshObservingQueries();
+    }
+
+    // Always recomputed from the whole list while holding the lock, so concurrent changes can't leave it stale.
+    private void refreshObservingQueries() {
+        observingQueries = list.stream().anyMatch(ConnectorListener::isObservingQueries);
     }
 
     /**
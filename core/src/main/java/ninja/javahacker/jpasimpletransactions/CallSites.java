@@ -0,0 +1,43 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.experimental.PackagePrivate;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Finds out which code of the application caused some database operation, by walking the call stack of the current thread
+ * while leaving out the frames of this library, of the persistence providers and of reflection.
+ * @author Victor Williams Stafusa da Silva
+ */
+@UtilityClass
+@PackagePrivate
+class CallSites {
+    private static final List<String> HIDDEN_FRAMES = List.of(
+            "ninja.javahacker.jpasimpletransactions.",
+            "org.hibernate.",
+            "org.eclipse.persistence.",
+            "org.apache.openjpa.",
+            "net.bytebuddy.",
+            "jakarta.persistence.",
+            "java.lang.reflect.",
+            "jdk.internal.reflect.",
+            "jdk.proxy",
+            "com.sun.proxy.",
+            "lombok."
+    );
+
+    /**
+     * Gives the innermost frames of the call stack of the current thread that belong to the application.
+     * @param depth The maximum number of frames.
+     * @return An immutable list with the innermost frames of the call stack of the current thread that belong to the application.
+     */
+    public List<StackTraceElement> capture(int depth) {
+        if (depth == 0) return List.of();
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> HIDDEN_FRAMES.stream().noneMatch(f.getClassName()::startsWith))
+                .limit(depth)
+                .map(StackWalker.StackFrame::toStackTraceElement)
+                .collect(Collectors.toUnmodifiableList()));
+    }
+}
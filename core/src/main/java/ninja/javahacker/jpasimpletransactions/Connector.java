@@ -4,11 +4,33 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.RollbackException;
+import jakarta.persistence.TransactionRequiredException;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
+import lombok.Synchronized;
 import ninja.javahacker.reifiedgeneric.ReifiedGeneric;
 
 /**
@@ -25,6 +47,12 @@ import ninja.javahacker.reifiedgeneric.ReifiedGeneric;
  */
 public final class Connector implements AutoCloseable {
 
+    /**
+     * For how long a replica is left unused after a transaction couldn't be started on it, when no other time is given.
+     * @see ninja.javahacker.jpasimpletransactions.config.StandardConnectorFactory#connectWithReplicas(List, ReplicaBalancing)
+     */
+    public static final Duration DEFAULT_REPLICA_RETRY = Duration.ofSeconds(30);
+
     /**
      * The name of the persistence unit used by this {@code Connector}.
      * -- GETTER --
@@ -34,35 +62,178 @@ public final class Connector implements AutoCloseable {
     @Getter
     private final String persistenceUnitName;
 
+    private final ThreadLocal<SpecialEntityManager> managers;
+
+    private final Supplier<Engine> builder;
+
+    private final boolean delegating;
+
+    private volatile Engine engine;
+
+    private final Routing routing;
+
     /**
-     * The {@link EntityManagerFactory} used for creating {@link EntityManager}s within this {@code Connector}.
+     * If the transactions of this {@code Connector} are begun lazily.
      * -- GETTER --
-     * Gives the {@link EntityManagerFactory} used for creating {@link EntityManager}s within this {@code Connector}.
-     * @return The {@link EntityManagerFactory} used for creating {@link EntityManager}s within this {@code Connector}.
+     * Tells if the transactions of this {@code Connector} are begun lazily.
+     * @return If the transactions of this {@code Connector} are begun lazily.
+     * -- SETTER --
+     * Defines if the transactions of this {@code Connector} are begun lazily. When they are, the {@link EntityManager} is only
+     * created, a connection only acquired and the transaction only begun when the {@link #getEntityManager()} is first used
+     * within the transaction. If it is never used, there is nothing to commit nor to roll back, so no BEGIN, COMMIT or ROLLBACK
+     * reaches the database and no {@link ConnectorListener#startedTransaction(String) startedTransaction},
+     * {@link ConnectorListener#finishedWithCommit(String) finishedWithCommit} or
+     * {@link ConnectorListener#finishedWithRollback(String) finishedWithRollback} event is fired.
+     * <p>This also holds for the read-only transactions sent to
+     * {@linkplain #withReplicas(Connector, List, ReplicaBalancing, Duration) replicas}. If beginning one of them fails when it is
+     * first used, the replica is taken as failed, just like when beginning it eagerly fails, and the transaction is begun in the
+     * primary database instead. Transactions of a {@link TransactionCoordinator} are always begun eagerly.</p>
+     * @param lazyBegin If the transactions of this {@code Connector} are begun lazily.
      */
     @Getter
-    private final EntityManagerFactory entityManagerFactory;
+    @Setter
+    private volatile boolean lazyBegin;
 
-    private final ThreadLocal<SpecialEntityManager> managers;
+    /**
+     * The maximum time that the transactions of this {@code Connector} might take.
+     * -- GETTER --
+     * Gives the maximum time that the transactions of this {@code Connector} might take, unless some other is given by a
+     * {@link TransactionTimeout} annotation. Zero means that there is no limit.
+     * @return The maximum time that the transactions of this {@code Connector} might take.
+     */
+    @Getter
+    private volatile Duration transactionTimeout = Duration.ZERO;
 
     /**
-     * The persistence provider used by this {@code Connector}.
+     * How many times the same SQL statement might be issued within a transaction without being reported.
      * -- GETTER --
-     * Gives the persistence provider used by this {@code Connector}.
-     * @return The persistence provider used by this {@code Connector}.
+     * Tells how many times the same SQL statement might be issued within a transaction without being reported. Zero means that
+     * the statements aren't counted.
+     * @return How many times the same SQL statement might be issued within a transaction without being reported.
      */
     @Getter
-    private final ProviderAdapter adapter;
+    private volatile int repeatedStatementThreshold;
+
+    private boolean closed;
+
+    /**
+     * The {@link EntityManagerFactory} and the persistence provider used by a {@code Connector}, and how to release them.
+     */
+    private static final class Engine {
+        private final EntityManagerFactory emf;
+        private final ProviderAdapter adapter;
+        private final Runnable closer;
+
+        public Engine(@NonNull EntityManagerFactory emf, @NonNull ProviderAdapter adapter, @NonNull Runnable closer) {
+            this.emf = emf;
+            this.adapter = adapter;
+            this.closer = closer;
+        }
+
+        public static Engine closing(@NonNull EntityManagerFactory emf, @NonNull ProviderAdapter adapter, @NonNull Runnable onClose) {
+            return new Engine(emf, adapter, () -> {
+                try {
+                    emf.close();
+                } finally {
+                    onClose.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * A replica database of a {@code Connector} and its health.
+     */
+    private static final class Replica {
+        private final int index;
+        private final Connector connector;
+        private final AtomicInteger inFlight;
+        private final AtomicInteger failures;
+        private volatile long downUntil;
+
+        public Replica(int index, @NonNull Connector connector) {
+            this.index = index;
+            this.connector = connector;
+            this.inFlight = new AtomicInteger();
+            this.failures = new AtomicInteger();
+        }
+
+        public boolean isHealthy(long now) {
+            return failures.get() == 0 || now - downUntil >= 0;
+        }
+    }
+
+    /**
+     * How the read-only transactions of a {@code Connector} are routed to its replicas.
+     */
+    private static final class Routing {
+        private static final Routing NONE = new Routing(List.of(), ReplicaBalancing.ROUND_ROBIN, Duration.ZERO);
+
+        private final List<Replica> replicas;
+        private final ReplicaBalancing balancing;
+        private final long retryAfter;
+        private final AtomicInteger next;
+
+        public Routing(@NonNull List<Connector> replicas, @NonNull ReplicaBalancing balancing, @NonNull Duration retryAfter) {
+            this.replicas = IntStream.range(0, replicas.size())
+                    .mapToObj(i -> new Replica(i, replicas.get(i)))
+                    .collect(Collectors.toUnmodifiableList());
+            this.balancing = balancing;
+            this.retryAfter = retryAfter.toNanos();
+            this.next = new AtomicInteger();
+        }
+
+        public Optional<Replica> pick() {
+            if (replicas.isEmpty()) return Optional.empty();
+            var now = System.nanoTime();
+            var healthy = replicas.stream().filter(r -> r.isHealthy(now)).collect(Collectors.toUnmodifiableList());
+            if (healthy.isEmpty()) return Optional.empty();
+            if (balancing == ReplicaBalancing.LEAST_IN_FLIGHT) {
+                return healthy.stream().min(Comparator.comparingInt(r -> r.inFlight.get()));
+            }
+            return Optional.of(healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size())));
+        }
+
+        public void close() {
+            replicas.forEach(r -> r.connector.close());
+        }
+    }
+
+    /**
+     * Thrown when a transaction can't be started in a replica, so it should be started in the primary database instead.
+     */
+    private static final class ReplicaUnavailableException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public ReplicaUnavailableException(@NonNull RuntimeException cause) {
+            super(cause);
+        }
+    }
 
     private Connector(
             @NonNull String persistenceUnitName,
-            @NonNull EntityManagerFactory emf,
-            @NonNull ProviderAdapter adapter)
+            @NonNull Supplier<Engine> builder,
+            @NonNull Routing routing,
+            boolean delegating)
     {
         this.persistenceUnitName = persistenceUnitName;
-        this.entityManagerFactory = emf;
         this.managers = new ThreadLocal<>();
-        this.adapter = adapter;
+        this.builder = builder;
+        this.routing = routing;
+        this.delegating = delegating;
+    }
+
+    private Connector(@NonNull String persistenceUnitName, @NonNull Supplier<Engine> builder) {
+        this(persistenceUnitName, builder, Routing.NONE, false);
+    }
+
+    private Connector(@NonNull String persistenceUnitName, @NonNull Engine engine, @NonNull Routing routing) {
+        this(persistenceUnitName, () -> engine, routing, false);
+        this.engine = engine;
+    }
+
+    private Connector(@NonNull String persistenceUnitName, @NonNull Engine engine) {
+        this(persistenceUnitName, engine, Routing.NONE);
     }
 
     /**
@@ -79,7 +250,157 @@ public final class Connector implements AutoCloseable {
             @NonNull EntityManagerFactory emf,
             @NonNull ProviderAdapter adapter)
     {
-        return new Connector(persistenceUnitName, emf, adapter);
+        return new Connector(persistenceUnitName, Engine.closing(emf, adapter, () -> { }));
+    }
+
+    /**
+     * Creates a connector which wraps a given {@link EntityManagerFactory} with a given persistence provider (wrapped by the
+     * {@link ProviderAdapter} with the specified name of a persistence unit, also releasing some other resource when closed.
+     * This is useful for releasing resources that the {@link EntityManagerFactory} depends on, like a connection pool.
+     * @param persistenceUnitName The name of the persistence unit.
+     * @param emf The {@link EntityManagerFactory} responsible for creating {@link EntityManager}s.
+     * @param adapter The persistence provider wrapped into a {@link ProviderAdapter}.
+     * @param onClose What should be run after the {@link EntityManagerFactory} is closed when this connector is
+     *     {@linkplain #close() closed}.
+     * @return An instance of this class.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public static Connector create(
+            @NonNull String persistenceUnitName,
+            @NonNull EntityManagerFactory emf,
+            @NonNull ProviderAdapter adapter,
+            @NonNull Runnable onClose)
+    {
+        return new Connector(persistenceUnitName, Engine.closing(emf, adapter, onClose));
+    }
+
+    /**
+     * Creates a connector which defers the creation of its {@link EntityManagerFactory} until it is first needed. The given
+     * {@code builder} is called only once, when a transaction is first started, when the {@link EntityManagerFactory} or the
+     * {@link ProviderAdapter} are first requested or when the connector is {@linkplain #prewarm(Executor) prewarmed}. If it fails,
+     * it is called again the next time.
+     * <p>This allows the connector to be registered in the {@link Database} right away without paying for the bootstrap of the
+     * persistence unit if it is never used.</p>
+     * @param persistenceUnitName The name of the persistence unit.
+     * @param builder Creates the {@code Connector} whose {@link EntityManagerFactory} and {@link ProviderAdapter} are used.
+     * @return An instance of this class.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     * @see ninja.javahacker.jpasimpletransactions.config.ConnectorFactory#connectLazily()
+     */
+    public static Connector lazy(@NonNull String persistenceUnitName, @NonNull Supplier<Connector> builder) {
+        return new Connector(persistenceUnitName, () -> {
+            var inner = builder.get();
+            if (!persistenceUnitName.equals(inner.getPersistenceUnitName())) {
+                inner.close();
+                throw new IllegalStateException("Wrong persistence unit name: " + inner.getPersistenceUnitName() + ".");
+            }
+            return new Engine(inner.getEntityManagerFactory(), inner.getAdapter(), inner::close);
+        });
+    }
+
+    /**
+     * Creates a connector that sends read-only transactions to replica databases and everything else to a primary database.
+     * <p>The transactions of methods annotated with {@link ReadOnly} go to some healthy replica, chosen according to the
+     * given {@link ReplicaBalancing}. A replica where a transaction can't be started is considered unhealthy for the
+     * {@code retryAfter} duration and the transaction is started in the primary database instead. The same happens when no replica
+     * is healthy. Any replica where a transaction is successfully started, including after having its connection
+     * {@linkplain ConnectorListener#renewedConnection(String) renewed}, is considered healthy again.</p>
+     * <p>The replicas are expected to be copies of the primary database, kept up to date by the database itself, so they might
+     * lag behind it. The JDBC connections of the transactions sent to them are {@linkplain java.sql.Connection#setReadOnly(boolean)
+     * made read-only}, so writes made by mistake are refused by the database, and they aren't made writable again, so the replica
+     * connectors shouldn't be used for anything else. Closing the returned connector also closes the primary and the replicas
+     * connectors.</p>
+     * @param primary The connector of the primary database.
+     * @param replicas The connectors of the replica databases, all of them with the same persistence unit name of the primary.
+     * @param balancing How the read-only transactions are spread among the replicas.
+     * @param retryAfter For how long a replica is left unused after a transaction couldn't be started on it.
+     * @return An instance of this class.
+     * @throws IllegalArgumentException If any parameter is {@code null}, if {@code replicas} contains {@code null}, if some replica
+     *     has a persistence unit name different than the one of the primary or if {@code retryAfter} is negative.
+     * @see ninja.javahacker.jpasimpletransactions.config.StandardConnectorFactory#connectWithReplicas(List, ReplicaBalancing)
+     */
+    public static Connector withReplicas(
+            @NonNull Connector primary,
+            @NonNull List<Connector> replicas,
+            @NonNull ReplicaBalancing balancing,
+            @NonNull Duration retryAfter)
+    {
+        if (retryAfter.isNegative()) throw new IllegalArgumentException("Negative retry time.");
+        var pu = primary.getPersistenceUnitName();
+        for (var r : replicas) {
+            if (r == null) throw new IllegalArgumentException("Null replica.");
+            if (!pu.equals(r.getPersistenceUnitName())) {
+                throw new IllegalArgumentException("Wrong persistence unit name: " + r.getPersistenceUnitName() + ".");
+            }
+        }
+        var routing = new Routing(List.copyOf(replicas), balancing, retryAfter);
+        if (!primary.isMaterialized()) {
+            // The primary fires the connectorMaterialized event itself, so this connector doesn't fire it again.
+            Supplier<Engine> fromPrimary = () -> new Engine(primary.getEntityManagerFactory(), primary.getAdapter(), primary::close);
+            return new Connector(pu, fromPrimary, routing, true);
+        }
+        return new Connector(pu, new Engine(primary.getEntityManagerFactory(), primary.getAdapter(), primary::close), routing);
+    }
+
+    private Engine engine() {
+        var e = engine;
+        return e != null ? e : materialize();
+    }
+
+    @Synchronized
+    private Engine materialize() {
+        if (engine != null) return engine;
+        if (closed) throw new IllegalStateException("The connector is closed.");
+        var start = System.nanoTime();
+        var e = builder.get();
+        engine = e;
+        if (delegating) return e;
+        Database.getListener().connectorMaterialized(persistenceUnitName, Duration.ofNanos(System.nanoTime() - start));
+        return e;
+    }
+
+    /**
+     * Tells if the {@link EntityManagerFactory} of this connector was already created. Always {@code true} unless this connector
+     * was created through the {@link #lazy(String, Supplier)} method or has a lazy
+     * {@linkplain #withReplicas(Connector, List, ReplicaBalancing, Duration) primary}.
+     * @return If the {@link EntityManagerFactory} of this connector was already created.
+     */
+    public boolean isMaterialized() {
+        return engine != null;
+    }
+
+    /**
+     * Creates the {@link EntityManagerFactory} of this connector in background, if it isn't created yet.
+     * @param executor The {@link Executor} responsible for creating the {@link EntityManagerFactory}.
+     * @return A {@link CompletableFuture} that completes with {@code this} when the {@link EntityManagerFactory} is created.
+     * @throws IllegalArgumentException If {@code executor} is {@code null}.
+     */
+    public CompletableFuture<Connector> prewarm(@NonNull Executor executor) {
+        if (isMaterialized()) return CompletableFuture.completedFuture(this);
+        return CompletableFuture.supplyAsync(() -> {
+            materialize();
+            return this;
+        }, executor);
+    }
+
+    /**
+     * Gives the {@link EntityManagerFactory} used for creating {@link EntityManager}s within this {@code Connector}.
+     * If this connector is {@linkplain #lazy(String, Supplier) lazy}, it is created if it wasn't yet.
+     * @return The {@link EntityManagerFactory} used for creating {@link EntityManager}s within this {@code Connector}.
+     * @throws IllegalStateException If this connector is lazy and was closed before creating it.
+     */
+    public EntityManagerFactory getEntityManagerFactory() {
+        return engine().emf;
+    }
+
+    /**
+     * Gives the persistence provider used by this {@code Connector}.
+     * If this connector is {@linkplain #lazy(String, Supplier) lazy}, its {@link EntityManagerFactory} is created if it wasn't yet.
+     * @return The persistence provider used by this {@code Connector}.
+     * @throws IllegalStateException If this connector is lazy and was closed before creating its {@link EntityManagerFactory}.
+     */
+    public ProviderAdapter getAdapter() {
+        return engine().adapter;
     }
 
     /**
@@ -94,9 +415,70 @@ public final class Connector implements AutoCloseable {
         return em;
     }
 
-    private SpecialEntityManager createNewEntityManager() {
-        var em = new SpecialEntityManager(adapter, persistenceUnitName, entityManagerFactory);
-        managers.set(em);
+    /**
+     * Tells how many replicas this connector has.
+     * @return How many replicas this connector has. Zero unless it was created through the
+     *     {@link #withReplicas(Connector, List, ReplicaBalancing, Duration)} method.
+     */
+    public int getReplicaCount() {
+        return routing.replicas.size();
+    }
+
+    /**
+     * Defines the maximum time that the transactions of this {@code Connector} might take, unless some other is given by a
+     * {@link TransactionTimeout} annotation. Zero means that there is no limit.
+     * <p>Queries executed within a transaction with a time limit get a timeout of the remaining time, in milliseconds and
+     * computed anew for each execution, and once that time is over, the transaction is marked for rollback and new queries, or
+     * new executions of the existing ones, are refused with a {@link TransactionTimedOutException}.</p>
+     * @param transactionTimeout The maximum time that the transactions of this {@code Connector} might take.
+     * @throws IllegalArgumentException If {@code transactionTimeout} is {@code null} or negative.
+     */
+    public void setTransactionTimeout(@NonNull Duration transactionTimeout) {
+        if (transactionTimeout.isNegative()) throw new IllegalArgumentException("Negative timeout.");
+        this.transactionTimeout = transactionTimeout;
+    }
+
+    /**
+     * Defines how many times the same SQL statement might be issued within a transaction without being reported. Zero means that
+     * the statements aren't counted.
+     * <p>The statements issued within the outermost transaction of a thread are counted by their shape, as given by
+     * {@link StatementCounter#normalize(String)}, and when it finishes, those issued more times than this are reported through
+     * {@link ConnectorListener#repeatedStatementsDetected(String, StatementReport)}, along with the application code that issued
+     * them once too many. That is the mark of N+1 query problems, like lazily loading some relationship of each entity in a list.
+     * Statements of other connectors used within that transaction are counted in it too.</p>
+     * <p>The statements are only seen if the {@code Connector} was created with the
+     * {@linkplain ninja.javahacker.jpasimpletransactions.config.ProviderConnectorFactory#withStatementInspection(boolean)
+     * statement inspection} turned on.</p>
+     * @param repeatedStatementThreshold How many times the same SQL statement might be issued within a transaction without
+     *     being reported.
+     * @throws IllegalArgumentException If {@code repeatedStatementThreshold} is negative.
+     */
+    public void setRepeatedStatementThreshold(int repeatedStatementThreshold) {
+        if (repeatedStatementThreshold < 0) throw new IllegalArgumentException("Negative threshold.");
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+    }
+
+    private SpecialEntityManager begin(@NonNull Engine e, boolean lazy, @NonNull Duration timeout) {
+        return begin(e, lazy, false, timeout);
+    }
+
+    private SpecialEntityManager begin(@NonNull Engine e, boolean lazy, boolean readOnly, @NonNull Duration timeout) {
+        var em = new SpecialEntityManager(e.adapter, persistenceUnitName, e.emf, lazy);
+        var t = timeout.isZero() ? transactionTimeout : timeout;
+        if (!t.isZero()) em.setDeadline(OptionalLong.of(System.nanoTime() + t.toNanos()), t);
+        if (lazy) return em;
+        try {
+            em.getTransaction().begin();
+            if (readOnly) em.enforceReadOnly();
+        } catch (RuntimeException x) {
+            try {
+                end(em, false);
+            } catch (RuntimeException y) {
+                x.addSuppressed(y);
+            }
+            em.close();
+            throw x;
+        }
         return em;
     }
 
@@ -113,7 +495,11 @@ public final class Connector implements AutoCloseable {
      */
     public <A> A transact(@NonNull Class<A> iface, @NonNull A impl) {
         if (!iface.isInterface()) throw new IllegalArgumentException();
-        InvocationHandler ih = (p, m, args) -> execute(() -> m.invoke(impl, args));
+        var definitions = new ConcurrentHashMap<Method, Definition>();
+        InvocationHandler ih = (p, m, args) -> {
+            var definition = definitions.computeIfAbsent(m, x -> Definition.of(iface, x));
+            return execute(definition, () -> m.invoke(impl, args));
+        };
         ClassLoader ccl = Thread.currentThread().getContextClassLoader();
         return iface.cast(Proxy.newProxyInstance(ccl, new Class<?>[] {iface}, ih));
     }
@@ -137,7 +523,7 @@ public final class Connector implements AutoCloseable {
      * Used as a {@link Supplier} that declares that any {@link Throwable} might
      * be thrown without needing wrapping and unwrapping.
      * @param <E> The type of the supplied object.
-     * @see #execute(XSupplier)
+     * @see #execute(Definition, XSupplier)
      */
     private static interface XSupplier<E> {
         public E get() throws InvocationTargetException, IllegalAccessException;
@@ -152,9 +538,223 @@ public final class Connector implements AutoCloseable {
     }
 
     /**
-     * Executes the given lambda inside a transaction context.
+     * How the transactions of a method should be, as defined by its annotations.
+     */
+    private static final class Definition {
+        private final boolean readOnly;
+        private final Propagation propagation;
+        private final Duration timeout;
+
+        public Definition(boolean readOnly, @NonNull Propagation propagation, @NonNull Duration timeout) {
+            if (timeout.isNegative()) throw new IllegalArgumentException("Negative timeout.");
+            this.readOnly = readOnly;
+            this.propagation = propagation;
+            this.timeout = timeout;
+        }
+
+        private static <X extends Annotation> X find(@NonNull Class<?> iface, @NonNull Method m, @NonNull Class<X> type) {
+            var a = m.getAnnotation(type);
+            if (a == null) a = m.getDeclaringClass().getAnnotation(type);
+            if (a == null) a = iface.getAnnotation(type);
+            return a;
+        }
+
+        public static Definition of(@NonNull Class<?> iface, @NonNull Method m) {
+            var readOnly = find(iface, m, ReadOnly.class) != null;
+            var p = find(iface, m, Propagate.class);
+            var t = find(iface, m, TransactionTimeout.class);
+            var timeout = t == null ? Duration.ZERO : Duration.of(t.value(), t.unit().toChronoUnit());
+            return new Definition(readOnly, p == null ? Propagation.REQUIRED : p.value(), timeout);
+        }
+    }
+
+    /**
+     * Executes the given work according to the given {@link Propagation}, just like a method of an interface given to
+     * {@link #transact(Class, Object)} annotated with {@link Propagate} would be. Within the transaction, if there is one, the
+     * persistence context is provided by the {@link #getEntityManager()} method.
+     * @param <E> The type of the result of the work.
+     * @param propagation How the work relates to the active transaction in the current thread, if there is one.
+     * @param work The work to be executed.
+     * @return The result of the work.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     * @throws jakarta.persistence.TransactionRequiredException If {@code propagation} is {@link Propagation#MANDATORY} and there
+     *     is no active transaction.
+     */
+    public <E> E execute(@NonNull Propagation propagation, @NonNull Supplier<E> work) {
+        return execute(propagation, Duration.ZERO, work);
+    }
+
+    /**
+     * Executes the given work according to the given {@link Propagation} and with the given timeout, just like a method of an
+     * interface given to {@link #transact(Class, Object)} annotated with {@link Propagate} and {@link TransactionTimeout} would
+     * be. Within the transaction, if there is one, the persistence context is provided by the {@link #getEntityManager()} method.
+     * @param <E> The type of the result of the work.
+     * @param propagation How the work relates to the active transaction in the current thread, if there is one.
+     * @param timeout The maximum time that the work might take within a transaction. Zero means the
+     *     {@linkplain #getTransactionTimeout() timeout of this connector}.
+     * @param work The work to be executed.
+     * @return The result of the work.
+     * @throws IllegalArgumentException If any parameter is {@code null} or if {@code timeout} is negative.
+     * @throws jakarta.persistence.TransactionRequiredException If {@code propagation} is {@link Propagation#MANDATORY} and there
+     *     is no active transaction.
+     * @see TransactionTimeout
+     */
+    public <E> E execute(@NonNull Propagation propagation, @NonNull Duration timeout, @NonNull Supplier<E> work) {
+        var definition = new Definition(false, propagation, timeout);
+        try {
+            return execute(definition, work::get);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e); // Should never happen, since a Supplier can't throw checked exceptions.
+        }
+    }
+
+    /**
+     * Executes the given lambda according to the given {@link Definition}, either within the active transaction, within a
+     * new transaction or without any transaction.
+     * @param definition How the transaction should be.
+     * @param trans The lambda to execute.
+     * @throws IllegalArgumentException If {@code definition} or {@code trans} are {@code null}.
+     * @throws TransactionRequiredException If the propagation is {@link Propagation#MANDATORY} and there is no active
+     *     transaction.
+     * @throws Throwable Whatever is thrown by the lambda. Forces a rollback in the transaction, if it was started for it.
+     */
+    private <E> E execute(@NonNull Definition definition, @NonNull XSupplier<E> trans) throws Throwable {
+        SpecialEntityManager active = managers.get();
+        var readOnly = definition.readOnly;
+        var timeout = definition.timeout;
+        switch (definition.propagation) {
+            case REQUIRED:
+                return active == null ? execute(readOnly, timeout, trans) : joined(active, timeout, false, trans);
+            case REQUIRES_NESTED:
+                return active == null ? execute(readOnly, timeout, trans) : joined(active, timeout, true, trans);
+            case SUPPORTS:
+                return active == null ? trans.getOrRethrow() : joined(active, timeout, false, trans);
+            case MANDATORY:
+                if (active == null) throw new TransactionRequiredException("No active transaction for " + persistenceUnitName + ".");
+                return joined(active, timeout, false, trans);
+            case REQUIRES_NEW:
+            case NOT_SUPPORTED:
+                if (active != null) managers.remove();
+                try {
+                    return definition.propagation == Propagation.REQUIRES_NEW ? execute(readOnly, timeout, trans) : trans.getOrRethrow();
+                } finally {
+                    if (active != null) managers.set(active);
+                }
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    /**
+     * Executes the given lambda within the active transaction, possibly tightening its deadline meanwhile.
+     * @param active The {@link SpecialEntityManager} of the active transaction.
+     * @param timeout The maximum time that the lambda might take. Zero means that the deadline is kept unchanged.
+     * @param nested If the lambda should run within a savepoint.
+     * @param trans The lambda to execute.
+     * @throws IllegalArgumentException If {@code active}, {@code timeout} or {@code trans} are {@code null}.
+     * @throws Throwable Whatever is thrown by the lambda.
+     */
+    private <E> E joined(
+            @NonNull SpecialEntityManager active,
+            @NonNull Duration timeout,
+            boolean nested,
+            @NonNull XSupplier<E> trans)
+            throws Throwable
+    {
+        var previous = active.getDeadline();
+        var previousTimeout = active.getTimeout();
+        if (!timeout.isZero()) {
+            var deadline = System.nanoTime() + timeout.toNanos();
+            if (previous.isEmpty() || deadline - previous.getAsLong() < 0) active.setDeadline(OptionalLong.of(deadline), timeout);
+        }
+        try {
+            return nested ? nested(active, trans) : trans.getOrRethrow();
+        } finally {
+            active.setDeadline(previous, previousTimeout);
+        }
+    }
+
+    /**
+     * Executes the given lambda inside a new transaction context, which is started in some replica if it is read-only and there
+     * is some healthy replica, or in the primary database otherwise.
+     * @param readOnly If the transaction is read-only.
+     * @param timeout The maximum time that the transaction might take. Zero means the
+     *     {@linkplain #getTransactionTimeout() timeout of this connector}.
      * @param trans The lambda to execute inside the transaction context.
-     * @throws IllegalArgumentException If {@code trans} is {@code null}.
+     * @throws IllegalArgumentException If {@code timeout} or {@code trans} are {@code null}.
+     * @throws Throwable Whatever is thrown by the lambda. Forces a rollback in the transaction.
+     */
+    private <E> E execute(boolean readOnly, @NonNull Duration timeout, @NonNull XSupplier<E> trans) throws Throwable {
+        Database.getListener().operationStarted(persistenceUnitName);
+        var threshold = repeatedStatementThreshold;
+        var counting = threshold != 0 && StatementCounter.start(threshold);
+        try {
+            var replica = readOnly ? routing.pick() : Optional.<Replica>empty();
+            if (replica.isPresent()) {
+                var r = replica.get();
+                r.inFlight.incrementAndGet();
+                try {
+                    return execute(r, timeout, trans);
+                } catch (ReplicaUnavailableException e) {
+                    replicaFailed(r, (RuntimeException) e.getCause());
+                } finally {
+                    r.inFlight.decrementAndGet();
+                }
+            }
+            return execute(begin(engine(), lazyBegin, timeout), trans);
+        } finally {
+            if (counting) {
+                StatementCounter.finish().ifPresent(r -> Database.getListener().repeatedStatementsDetected(persistenceUnitName, r));
+            }
+            Database.getListener().operationFinished(persistenceUnitName);
+        }
+    }
+
+    private <E> E execute(@NonNull Replica r, @NonNull Duration timeout, @NonNull XSupplier<E> trans) throws Throwable {
+        var lazy = lazyBegin;
+        SpecialEntityManager em;
+        try {
+            em = begin(r.connector.engine(), lazy, true, timeout);
+        } catch (RuntimeException e) {
+            throw new ReplicaUnavailableException(e);
+        }
+        if (!lazy) {
+            replicaBegun(r);
+            return execute(em, trans);
+        }
+        em.beginInReplica(new SpecialEntityManager.Failover() {
+            @Override
+            public void begun() {
+                replicaBegun(r);
+            }
+
+            @Override
+            public SpecialEntityManager failed(@NonNull RuntimeException failure) {
+                replicaFailed(r, failure);
+                var primary = engine();
+                return new SpecialEntityManager(primary.adapter, persistenceUnitName, primary.emf, true);
+            }
+        });
+        return execute(em, trans);
+    }
+
+    private void replicaBegun(@NonNull Replica r) {
+        if (r.failures.getAndSet(0) != 0) Database.getListener().replicaRecovered(persistenceUnitName, r.index);
+    }
+
+    private void replicaFailed(@NonNull Replica r, @NonNull RuntimeException cause) {
+        r.failures.incrementAndGet();
+        r.downUntil = System.nanoTime() + routing.retryAfter;
+        Database.getListener().replicaFailed(persistenceUnitName, r.index, cause);
+    }
+
+    /**
+     * Executes the given lambda inside the already started transaction of the given {@link SpecialEntityManager}.
+     * @param actual The {@link SpecialEntityManager} whose transaction was already started.
+     * @param trans The lambda to execute inside the transaction context.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
      * @throws Throwable Whatever is thrown by the lambda. Forces a rollback in the transaction.
      */
     @SuppressFBWarnings(
@@ -162,29 +762,141 @@ public final class Connector implements AutoCloseable {
             justification = "try-with-resources - It's either SpotBugs fault or javac fault, but definitely not our fault."
     )
     @SuppressWarnings({"PMD.CloseResource"})
-    private <E> E execute(@NonNull XSupplier<E> trans) throws Throwable {
-        SpecialEntityManager alreadyExists = managers.get();
-        if (alreadyExists != null) return trans.get();
-
+    private <E> E execute(@NonNull SpecialEntityManager actual, @NonNull XSupplier<E> trans) throws Throwable {
         boolean ok = false;
-        try (var actual = createNewEntityManager()) {
-            Database.getListener().operationStarted(persistenceUnitName);
+        try (actual) {
             managers.set(actual);
-            EntityTransaction et = actual.getTransaction();
             try {
-                et.begin();
                 E result = trans.getOrRethrow();
                 ok = true;
                 return result;
             } finally {
-                if (ok) {
-                    et.commit();
-                    Database.getListener().finishedWithCommit(persistenceUnitName);
-                } else {
-                    et.rollback();
-                    Database.getListener().finishedWithRollback(persistenceUnitName);
-                }
+                end(actual, ok);
+            }
+        } finally {
+            managers.remove();
+        }
+    }
+
+    /**
+     * Commits or rolls back the transaction of the given {@link SpecialEntityManager}. Does nothing if it is lazy and was never
+     * used, since its transaction was never begun.
+     * @param actual The {@link SpecialEntityManager} whose transaction is finished.
+     * @param commit If the transaction should be committed instead of rolled back.
+     * @throws IllegalArgumentException If {@code actual} is {@code null}.
+     * @throws TransactionTimedOutException If the transaction should be committed, but its deadline is over. It is rolled back.
+     */
+    private void end(@NonNull SpecialEntityManager actual, boolean commit) {
+        if (!actual.isTouched()) return;
+        Database.getListener().finishingTransaction(persistenceUnitName);
+        EntityTransaction et = actual.getTransaction();
+        if (!commit) {
+            rollback(et);
+            return;
+        }
+        try {
+            actual.checkDeadline();
+        } catch (TransactionTimedOutException e) {
+            rollback(et);
+            throw e;
+        }
+        et.commit();
+        Database.getListener().finishedWithCommit(persistenceUnitName);
+    }
+
+    private void rollback(@NonNull EntityTransaction et) {
+        if (!et.isActive()) return;
+        et.rollback();
+        Database.getListener().finishedWithRollback(persistenceUnitName);
+    }
+
+    /**
+     * Executes the given lambda within a savepoint of the active transaction, rolling back to it if the lambda fails. The
+     * persistence context is then brought back to how it was at the savepoint, as told in
+     * {@link SpecialEntityManager#finishNested(boolean)}.
+     * @param actual The {@link SpecialEntityManager} of the active transaction.
+     * @param trans The lambda to execute inside the savepoint.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     * @throws PersistenceException If the savepoint can't be set or released.
+     * @throws RollbackException If the lambda failed and the persistence provider marked the whole transaction for rollback,
+     *     which the savepoint can't undo. Its cause is what was thrown by the lambda.
+     * @throws Throwable Whatever is thrown by the lambda. Forces a rollback to the savepoint.
+     */
+    private <E> E nested(@NonNull SpecialEntityManager actual, @NonNull XSupplier<E> trans) throws Throwable {
+        actual.flush();
+        var connection = actual.getConnection();
+        Savepoint savepoint;
+        try {
+            savepoint = connection.setSavepoint();
+        } catch (SQLException e) {
+            throw new PersistenceException("Can't set a savepoint in " + persistenceUnitName + ".", e);
+        }
+        actual.startNested();
+        E result;
+        try {
+            result = trans.getOrRethrow();
+            actual.flush();
+        } catch (Throwable e) {
+            // The providers mark the whole transaction for rollback when the database refuses a statement, and there is no
+            // portable way to undo that. Going on would only make the commit fail later, far from the cause.
+            var doomed = actual.getTransaction().getRollbackOnly();
+            try {
+                connection.rollback(savepoint);
+            } catch (SQLException x) {
+                e.addSuppressed(x);
+            } finally {
+                actual.finishNested(true);
+            }
+            if (doomed) {
+                throw new RollbackException("The nested transaction of " + persistenceUnitName + " failed and the whole transaction "
+                        + "was marked for rollback.", e);
             }
+            throw e;
+        }
+        actual.finishNested(false);
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            throw new PersistenceException("Can't release a savepoint in " + persistenceUnitName + ".", e);
+        }
+        return result;
+    }
+
+    /**
+     * Starts a transaction in the primary database that is only finished by {@link #finish(SpecialEntityManager, boolean)}.
+     * Used by {@link TransactionCoordinator} to control when each of its transactions commits.
+     * @return The {@link SpecialEntityManager} of the started transaction, which is also the one given by
+     *     {@link #getEntityManager()} in the current thread until the transaction is finished.
+     * @throws IllegalStateException If there is already an active transaction in the current thread.
+     */
+    SpecialEntityManager start() {
+        if (managers.get() != null) {
+            throw new IllegalStateException("There is already an active transaction for " + persistenceUnitName + ".");
+        }
+        Database.getListener().operationStarted(persistenceUnitName);
+        try {
+            var em = begin(engine(), false, Duration.ZERO);
+            managers.set(em);
+            return em;
+        } catch (RuntimeException e) {
+            Database.getListener().operationFinished(persistenceUnitName);
+            throw e;
+        }
+    }
+
+    /**
+     * Commits or rolls back a transaction started by {@link #start()} and closes its {@link SpecialEntityManager}.
+     * @param actual The {@link SpecialEntityManager} of the transaction.
+     * @param commit If the transaction should be committed instead of rolled back.
+     * @throws IllegalArgumentException If {@code actual} is {@code null}.
+     */
+    @SuppressFBWarnings(
+            value = "RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE",
+            justification = "try-with-resources - It's either SpotBugs fault or javac fault, but definitely not our fault."
+    )
+    void finish(@NonNull SpecialEntityManager actual, boolean commit) {
+        try (actual) {
+            end(actual, commit);
         } finally {
             managers.remove();
             Database.getListener().operationFinished(persistenceUnitName);
@@ -193,10 +905,19 @@ public final class Connector implements AutoCloseable {
 
     /**
      * Closes the {@code Connector} and its subjacent {@link EntityManagerFactory}.
+     * If this connector is {@linkplain #lazy(String, Supplier) lazy} and its {@link EntityManagerFactory} wasn't created yet,
+     * it won't ever be. If this connector has {@linkplain #withReplicas(Connector, List, ReplicaBalancing, Duration) replicas},
+     * they are closed too.
      */
     @Override
+    @Synchronized
     public void close() {
-        entityManagerFactory.close();
+        closed = true;
+        try {
+            if (engine != null) engine.closer.run();
+        } finally {
+            routing.close();
+        }
     }
 
     /**
@@ -1,5 +1,6 @@
 package ninja.javahacker.jpasimpletransactions;
 
+import java.time.Duration;
 import lombok.NonNull;
 
 /**
@@ -18,6 +19,16 @@ public interface ConnectorListener {
     public default void connectorRegistered(@NonNull String persistenceUnit, boolean defaultConnector) {
     }
 
+    /**
+     * Called when the {@link jakarta.persistence.EntityManagerFactory} of a {@linkplain Connector#lazy(String, java.util.function.Supplier)
+     * lazy connector} is created.
+     * @param persistenceUnit The name of the persistence unit of the connector.
+     * @param bootTime For how long the creation of the {@link jakarta.persistence.EntityManagerFactory} took.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public default void connectorMaterialized(@NonNull String persistenceUnit, @NonNull Duration bootTime) {
+    }
+
     /**
      * Called when an operation starts within a connector.
      * @param persistenceUnit The name of the persistence unit which the operation started.
@@ -42,6 +53,15 @@ public interface ConnectorListener {
     public default void renewedConnection(@NonNull String persistenceUnit) {
     }
 
+    /**
+     * Called right before a transaction is committed or rolled back, while it still holds its connection to the database.
+     * This is the last chance to release whatever depends on that connection, like statements prepared on it.
+     * @param persistenceUnit The name of the persistence unit of the transaction.
+     * @throws IllegalArgumentException If {@code persistenceUnit} is {@code null}.
+     */
+    public default void finishingTransaction(@NonNull String persistenceUnit) {
+    }
+
     /**
      * Called when a transaction finished with a commit.
      * @param persistenceUnit The name of the persistence unit that commited.
@@ -66,6 +86,114 @@ public interface ConnectorListener {
     public default void operationFinished(@NonNull String persistenceUnit) {
     }
 
+    /**
+     * Called when a connection is taken from the pool of some persistence unit.
+     * @param persistenceUnit The name of the persistence unit which the connection was taken from.
+     * @param waited For how long the thread waited for the connection.
+     * @param statistics The state of the pool after the connection was taken.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public default void connectionAcquired(@NonNull String persistenceUnit, @NonNull Duration waited, @NonNull PoolStatistics statistics) {
+    }
+
+    /**
+     * Called when a connection is given back to the pool of some persistence unit.
+     * @param persistenceUnit The name of the persistence unit which the connection was given back to.
+     * @param held For how long the connection was held.
+     * @param statistics The state of the pool after the connection was given back.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public default void connectionReleased(@NonNull String persistenceUnit, @NonNull Duration held, @NonNull PoolStatistics statistics) {
+    }
+
+    /**
+     * Called when a thread gives up waiting for a connection from the pool of some persistence unit.
+     * @param persistenceUnit The name of the persistence unit whose pool is exhausted.
+     * @param statistics The state of the pool when the thread gave up.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public default void connectionAcquisitionTimedOut(@NonNull String persistenceUnit, @NonNull PoolStatistics statistics) {
+    }
+
+    /**
+     * Called when a connection from the pool of some persistence unit is held for longer than the leak detection threshold.
+     * The connection might still be given back later.
+     * @param persistenceUnit The name of the persistence unit which the connection was taken from.
+     * @param held For how long the connection was held so far.
+     * @param statistics The state of the pool when the probable leak was detected.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public default void connectionLeakSuspected(
+            @NonNull String persistenceUnit,
+            @NonNull Duration held,
+            @NonNull PoolStatistics statistics)
+    {
+    }
+
+    /**
+     * Called when a read-only transaction couldn't be started in a replica of some persistence unit.
+     * The replica won't be used for a while and the transaction is started in the primary database instead.
+     * @param persistenceUnit The name of the persistence unit of the replica.
+     * @param replica The index of the replica.
+     * @param cause What made the transaction fail to start.
+     * @throws IllegalArgumentException If {@code persistenceUnit} or {@code cause} are {@code null}.
+     * @see Connector#withReplicas(Connector, java.util.List, ReplicaBalancing, Duration)
+     */
+    public default void replicaFailed(@NonNull String persistenceUnit, int replica, @NonNull Throwable cause) {
+    }
+
+    /**
+     * Called when a transaction is started again in a replica of some persistence unit that had failed before.
+     * @param persistenceUnit The name of the persistence unit of the replica.
+     * @param replica The index of the replica.
+     * @throws IllegalArgumentException If {@code persistenceUnit} is {@code null}.
+     * @see Connector#withReplicas(Connector, java.util.List, ReplicaBalancing, Duration)
+     */
+    public default void replicaRecovered(@NonNull String persistenceUnit, int replica) {
+    }
+
+    /**
+     * Called when a transaction of some persistence unit is found to be over its timeout. It is marked for rollback.
+     * @param persistenceUnit The name of the persistence unit of the transaction.
+     * @param timeout The timeout of the transaction.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     * @see Connector#setTransactionTimeout(Duration)
+     * @see TransactionTimeout
+     */
+    public default void transactionTimedOut(@NonNull String persistenceUnit, @NonNull Duration timeout) {
+    }
+
+    /**
+     * Called after a query created through the {@link ExtendedEntityManager} of some persistence unit is executed, either
+     * successfully or not, if some registered listener is {@linkplain #isObservingQueries() observing queries}.
+     * @param persistenceUnit The name of the persistence unit of the query.
+     * @param execution The execution of the query.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public default void queryExecuted(@NonNull String persistenceUnit, @NonNull QueryExecution execution) {
+    }
+
+    /**
+     * Tells if this listener wants to be told about {@linkplain #queryExecuted(String, QueryExecution) executed queries}.
+     * Queries are only timed while some registered listener wants that, so they cost nothing otherwise.
+     * This is checked when the listener is registered.
+     * @implSpec If the implementer does not override this method, it always returns {@code false}.
+     * @return If this listener wants to be told about executed queries.
+     */
+    public default boolean isObservingQueries() {
+        return false;
+    }
+
+    /**
+     * Called when a transaction of some persistence unit issued the same SQL statement more times than the
+     * {@linkplain Connector#getRepeatedStatementThreshold() repeated statement threshold} of its {@link Connector}.
+     * @param persistenceUnit The name of the persistence unit of the transaction.
+     * @param report The SQL statements issued within the transaction.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public default void repeatedStatementsDetected(@NonNull String persistenceUnit, @NonNull StatementReport report) {
+    }
+
     /**
      * Called when a connector is unregistered for some persistence unit.
      * @param persistenceUnit The name of the persistence unit which the connector was registered.
@@ -0,0 +1,48 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.time.Duration;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * The outcome of starting up a {@link Connector} through {@link Database#connectAll(java.util.Collection)}.
+ * @author Victor Williams Stafusa da Silva
+ */
+@Value
+public class ConnectorStartup {
+
+    /**
+     * The name of the persistence unit.
+     * -- GETTER --
+     * Gives the name of the persistence unit.
+     * @return The name of the persistence unit.
+     */
+    @NonNull
+    String persistenceUnitName;
+
+    /**
+     * For how long the {@link Connector} took to start up or to fail.
+     * -- GETTER --
+     * Tells for how long the {@link Connector} took to start up or to fail.
+     * @return For how long the {@link Connector} took to start up or to fail.
+     */
+    @NonNull
+    Duration bootTime;
+
+    /**
+     * The started up {@link Connector} or whatever was thrown while trying to start it up.
+     * -- GETTER --
+     * Gives the started up {@link Connector} or whatever was thrown while trying to start it up.
+     * @return The started up {@link Connector} or whatever was thrown while trying to start it up.
+     */
+    @NonNull
+    Maybe<Connector> connector;
+
+    /**
+     * Tells if the {@link Connector} was successfully started up.
+     * @return If the {@link Connector} was successfully started up.
+     */
+    public boolean isSuccess() {
+        return connector.isSuccess();
+    }
+}
@@ -1,14 +1,22 @@
 package ninja.javahacker.jpasimpletransactions;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 import lombok.NonNull;
 import lombok.Synchronized;
 import lombok.experimental.UtilityClass;
+import ninja.javahacker.jpasimpletransactions.config.ConnectorFactory;
 
 /**
  * Centralizes the creation and acquisition of {@link Connector} instances.
@@ -137,6 +145,96 @@ public class Database {
         MASTER_LISTENER.connectorRegistered(pn, defaultConnector);
     }
 
+    /**
+     * Starts up the connectors of several persistence units concurrently, using up to as many threads as there are available
+     * processors, and registers the ones that were successfully started up as secondary connectors.
+     * @param factories The {@link ConnectorFactory}s used to start up each connector.
+     * @return The outcome of starting up each connector, in the same order of the given {@code factories}.
+     * @throws IllegalArgumentException If {@code factories} is {@code null} or contains {@code null}.
+     * @throws IllegalStateException If two factories have the same persistence unit name or if some of them was already registered.
+     * @see #connectAll(Collection, int)
+     */
+    public List<ConnectorStartup> connectAll(@NonNull Collection<? extends ConnectorFactory> factories) {
+        return connectAll(factories, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Starts up the connectors of several persistence units concurrently, using up to {@code parallelism} threads, and registers
+     * the ones that were successfully started up as secondary connectors.
+     * <p>The registration is atomic: either all the successfully started up connectors are registered at once or none of them
+     * is. If some other connector with the same persistence unit name of one of them is registered meanwhile, all of them are
+     * closed and an {@link IllegalStateException} is thrown.</p>
+     * <p>A failure on starting up some connector doesn't prevent the others from being started up and registered. Such failures
+     * are reported in the returned list instead of thrown.</p>
+     * @param factories The {@link ConnectorFactory}s used to start up each connector.
+     * @param parallelism The maximum number of connectors being started up at once.
+     * @return The outcome of starting up each connector, in the same order of the given {@code factories}.
+     * @throws IllegalArgumentException If {@code factories} is {@code null} or contains {@code null} or if {@code parallelism} is
+     *     not positive.
+     * @throws IllegalStateException If two factories have the same persistence unit name or if some of them was already registered.
+     */
+    public List<ConnectorStartup> connectAll(@NonNull Collection<? extends ConnectorFactory> factories, int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("The parallelism should be positive.");
+        List<ConnectorFactory> list;
+        try {
+            list = List.copyOf(factories);
+        } catch (NullPointerException e) {
+            throw new IllegalArgumentException("Null factory.", e);
+        }
+        if (list.isEmpty()) return List.of();
+        checkUnregistered(list.stream().map(ConnectorFactory::getPersistenceUnitName).collect(Collectors.toUnmodifiableList()));
+
+        var ccl = Thread.currentThread().getContextClassLoader();
+        var executor = Executors.newFixedThreadPool(Math.min(parallelism, list.size()), r -> {
+            var t = new Thread(r, "Connector startup");
+            t.setDaemon(true);
+            t.setContextClassLoader(ccl);
+            return t;
+        });
+        List<ConnectorStartup> results;
+        try {
+            var futures = list.stream()
+                    .map(f -> CompletableFuture.supplyAsync(() -> startup(f), executor))
+                    .collect(Collectors.toUnmodifiableList());
+            results = futures.stream().map(CompletableFuture::join).collect(Collectors.toUnmodifiableList());
+        } finally {
+            executor.shutdown();
+        }
+        registerAll(results);
+        return results;
+    }
+
+    private ConnectorStartup startup(ConnectorFactory factory) {
+        var start = System.nanoTime();
+        var conn = Maybe.wrap(factory::connect).get();
+        return new ConnectorStartup(factory.getPersistenceUnitName(), Duration.ofNanos(System.nanoTime() - start), conn);
+    }
+
+    @Synchronized
+    private void checkUnregistered(List<String> names) {
+        var seen = new HashSet<String>();
+        for (var name : names) {
+            if (!seen.add(name)) throw new IllegalStateException("Duplicated persistence unit " + name + ".");
+            if (CONNECTOR_MAP.containsKey(name)) throw new IllegalStateException("Connector " + name + " was already registered.");
+        }
+    }
+
+    @Synchronized
+    @SuppressWarnings("PMD.CloseResource")
+    private void registerAll(List<ConnectorStartup> results) {
+        var started = results.stream().flatMap(r -> r.getConnector().success().stream()).collect(Collectors.toUnmodifiableList());
+        if (started.stream().anyMatch(c -> CONNECTOR_MAP.containsKey(c.getPersistenceUnitName()))) {
+            started.forEach(Connector::close);
+            throw new IllegalStateException("Some connector was registered while starting up the others.");
+        }
+        for (var c : started) {
+            CONNECTOR_MAP.put(c.getPersistenceUnitName(), c);
+        }
+        for (var c : started) {
+            MASTER_LISTENER.connectorRegistered(c.getPersistenceUnitName(), false);
+        }
+    }
+
     /**
      * Obtains an {@link ExtendedEntityManager} for the default persistence unit.
      * @return An {@link ExtendedEntityManager} for the default persistence unit.
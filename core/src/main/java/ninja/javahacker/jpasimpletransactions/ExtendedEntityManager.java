@@ -11,6 +11,7 @@ import jakarta.persistence.TransactionRequiredException;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.metamodel.Attribute;
 import java.sql.Connection;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
@@ -400,4 +401,25 @@ public interface ExtendedEntityManager extends EntityManager, AutoCloseable, Per
      * @return The {@link Connection} used by this {@code EntityManager}.
      */
     public Connection getConnection();
+
+    /**
+     * Tells how much time is left until the transaction of this {@code EntityManager} times out, if it ever does. Queries and
+     * statements shouldn't be given a longer timeout than that.
+     * @implSpec The default implementation tells that there is no time limit.
+     * @return The time left until the transaction times out, or an empty {@link Optional} if there is no time limit.
+     * @throws TransactionTimedOutException If the transaction already timed out.
+     */
+    public default Optional<Duration> getRemainingTime() {
+        return Optional.empty();
+    }
+
+    /**
+     * Obtains the {@link ProviderAdapter} for the persistence provider behind this {@code EntityManager}.
+     * @implSpec The default implementation looks for it with {@link ProviderAdapter#findFor(EntityManager)}.
+     * @return The {@link ProviderAdapter} for the persistence provider behind this {@code EntityManager}.
+     * @throws UnsupportedOperationException If no known {@link ProviderAdapter} recognizes this {@code EntityManager}.
+     */
+    public default ProviderAdapter getProviderAdapter() {
+        return ProviderAdapter.findFor(this);
+    }
 }
@@ -0,0 +1,68 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import lombok.Value;
+
+/**
+ * A snapshot of the state of a JDBC connection pool, reported to the {@link ConnectorListener}s.
+ * @see ninja.javahacker.jpasimpletransactions.config.PoolSettings
+ * @author Victor Williams Stafusa da Silva
+ */
+@Value
+public class PoolStatistics {
+
+    /**
+     * How many connections are currently in use.
+     * -- GETTER --
+     * Tells how many connections are currently in use.
+     * @return How many connections are currently in use.
+     */
+    int active;
+
+    /**
+     * How many connections are currently open, but idle in the pool.
+     * -- GETTER --
+     * Tells how many connections are currently open, but idle in the pool.
+     * @return How many connections are currently open, but idle in the pool.
+     */
+    int idle;
+
+    /**
+     * How many threads are currently waiting for a connection.
+     * -- GETTER --
+     * Tells how many threads are currently waiting for a connection.
+     * @return How many threads are currently waiting for a connection.
+     */
+    int waiting;
+
+    /**
+     * How many connections were opened so far.
+     * -- GETTER --
+     * Tells how many connections were opened so far.
+     * @return How many connections were opened so far.
+     */
+    long created;
+
+    /**
+     * How many connections were closed due to being idle for too long or failing validation so far.
+     * -- GETTER --
+     * Tells how many connections were closed due to being idle for too long or failing validation so far.
+     * @return How many connections were closed due to being idle for too long or failing validation so far.
+     */
+    long evicted;
+
+    /**
+     * How many times a thread gave up waiting for a connection so far.
+     * -- GETTER --
+     * Tells how many times a thread gave up waiting for a connection so far.
+     * @return How many times a thread gave up waiting for a connection so far.
+     */
+    long timeouts;
+
+    /**
+     * How many connections were held for longer than the leak detection threshold so far.
+     * -- GETTER --
+     * Tells how many connections were held for longer than the leak detection threshold so far.
+     * @return How many connections were held for longer than the leak detection threshold so far.
+     */
+    long leaks;
+}
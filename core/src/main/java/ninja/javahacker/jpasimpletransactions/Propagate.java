@@ -0,0 +1,24 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Defines the {@link Propagation} of methods of interfaces given to {@link Connector#transact(Class, Object)}. When placed on
+ * the interface, it applies to all of its methods that don't have their own.
+ * @author Victor Williams Stafusa da Silva
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface Propagate {
+
+    /**
+     * The propagation of the transactions.
+     * @return The propagation of the transactions.
+     */
+    public Propagation value();
+}
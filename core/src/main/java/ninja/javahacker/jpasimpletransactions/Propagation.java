@@ -0,0 +1,58 @@
+package ninja.javahacker.jpasimpletransactions;
+
+/**
+ * How a method of an interface given to {@link Connector#transact(Class, Object)} relates to the active transaction of the same
+ * {@link Connector} in the current thread, if there is one.
+ * @see Propagate
+ * @see Connector#execute(Propagation, java.util.function.Supplier)
+ * @author Victor Williams Stafusa da Silva
+ */
+public enum Propagation {
+    /**
+     * Joins the active transaction, or starts a new one if there is none. A failure dooms the whole active transaction.
+     * This is the default.
+     */
+    REQUIRED,
+
+    /**
+     * Runs within a savepoint of the active transaction, or starts a new transaction if there is none. A failure rolls back only
+     * what was done since the savepoint, in the database and in the persistence context, so the outer transaction might go on:
+     * the entities that were already managed when the savepoint was set are refreshed from the database, the ones that became
+     * managed since then are detached, and so are the ones that were removed since then.
+     * <p>Pending changes are flushed before the savepoint is set and before it is released, so that database failures of the
+     * nested part surface within it. However, the JPA providers mark the whole transaction for rollback when the database refuses
+     * a statement, like on a constraint violation, which a savepoint can't undo. Such failures are given wrapped in a
+     * {@link jakarta.persistence.RollbackException} instead, which tells that the outer transaction can't go on. So this is only
+     * effective for failures thrown by the application code.</p>
+     * <p>Refreshing costs a query for each managed entity, but only when the nested part fails. That relies on
+     * {@link ProviderAdapter#managedEntities(jakarta.persistence.EntityManager)}. With persistence providers that can't tell their
+     * managed entities, only the entities that were persisted, merged, removed, found or referenced through the
+     * {@link ExtendedEntityManager} in the nested part are detached. Then, entities obtained before the savepoint, or by queries,
+     * that are changed in the nested part and not given to the {@link ExtendedEntityManager} meanwhile keep their changes in
+     * memory, although they are rolled back in the database, and are written again when the persistence context is flushed.</p>
+     */
+    REQUIRES_NESTED,
+
+    /**
+     * Always starts a new transaction, with its own persistence context. The active transaction, if there is one, is suspended
+     * until the new one finishes and isn't affected by its outcome.
+     */
+    REQUIRES_NEW,
+
+    /**
+     * Joins the active transaction, or runs without any transaction if there is none. In the latter case, no connection is
+     * acquired and {@link Connector#getEntityManager()} can't be used.
+     */
+    SUPPORTS,
+
+    /**
+     * Always runs without any transaction. The active transaction, if there is one, is suspended meanwhile. No connection is
+     * acquired and {@link Connector#getEntityManager()} can't be used.
+     */
+    NOT_SUPPORTED,
+
+    /**
+     * Joins the active transaction, or fails with a {@link jakarta.persistence.TransactionRequiredException} if there is none.
+     */
+    MANDATORY
+}
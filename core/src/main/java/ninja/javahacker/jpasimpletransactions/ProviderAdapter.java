@@ -4,6 +4,9 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.spi.PersistenceProvider;
 import java.sql.Connection;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -95,34 +98,70 @@ public interface ProviderAdapter {
         return false;
     }
 
+    /**
+     * Gives the name of the vendor-specific query hint that sets the JDBC fetch size, if the persistence provider has one.
+     * @return The name of the query hint that sets the JDBC fetch size or an empty {@link Optional} if there is no such hint.
+     */
+    public default Optional<String> fetchSizeHint() {
+        return Optional.empty();
+    }
+
+    /**
+     * Gives the vendor-specific properties that install an inspector which reports each SQL statement issued by the persistence
+     * provider to {@link StatementCounter#statementIssued(String)}.
+     * @implSpec If the implementer does not override this method, it always returns an empty map, so no statement is counted.
+     * @return The properties that install the statement inspector.
+     * @see ProviderConnectorFactory#withStatementInspection(boolean)
+     */
+    public default Map<String, String> statementInspectionProperties() {
+        return Map.of();
+    }
+
+    /**
+     * Gives the entities managed by the given {@link EntityManager}, if the persistence provider is able to tell them.
+     * @implSpec If the implementer does not override this method, it always returns an empty {@link Optional}, so a failed
+     *     {@linkplain Propagation#REQUIRES_NESTED nested transaction} can only detach the entities that were given to or obtained
+     *     from the {@link ExtendedEntityManager} meanwhile.
+     * @param em The {@link EntityManager} whose managed entities are wanted.
+     * @return A copy of the collection of the entities managed by the given {@link EntityManager} or an empty {@link Optional} if
+     *     the persistence provider can't tell them.
+     * @throws IllegalArgumentException If {@code em} is {@code null}.
+     */
+    public default Optional<Collection<Object>> managedEntities(@NonNull EntityManager em) {
+        return Optional.empty();
+    }
+
     /**
      * Finds a suitable {@link ProviderAdapter} for the given {@link EntityManagerFactory}.
-     * @implSpec The list of knows {@link ProviderAdapter} is reloaded in every call to this method.
+     * @implSpec The known {@link ProviderAdapter}s are loaded only once per context class loader and the one found for each
+     *     {@link EntityManagerFactory} class is remembered, so it is expected that recognition depends only on the class.
+     *     Those registered through {@link #register(ProviderAdapter)} are tried first.
      * @param emf The given {@link EntityManagerFactory}.
      * @return The {@link ProviderAdapter} found.
      * @throws UnsupportedOperationException No known {@link ProviderAdapter} recognized the given {@link EntityManagerFactory}.
      * @throws IllegalArgumentException If {@code emf} is {@code null}.
      */
     public static ProviderAdapter findFor(@NonNull EntityManagerFactory emf) {
-        for (ProviderAdapter impl : ServiceLoader.load(ProviderAdapter.class)) {
-            if (impl.recognizes(emf)) return impl;
-        }
+        var impl = AdapterRegistry.find(emf.getClass(), a -> a.recognizes(emf));
+        if (impl != null) return impl;
         var a = emf.getClass().getName();
         throw new UnsupportedOperationException("That EntityManagerFactory (" + a + ") is not recognized by any know ProviderAdapter.");
     }
 
     /**
      * Finds a suitable {@link ProviderAdapter} for the given {@link EntityManager}.
-     * @implSpec The list of knows {@link ProviderAdapter} is reloaded in every call to this method.
+     * @implSpec The known {@link ProviderAdapter}s are loaded only once per context class loader and the one found for each
+     *     undecorated {@link EntityManager} class is remembered, so it is expected that recognition depends only on the class.
+     *     Those registered through {@link #register(ProviderAdapter)} are tried first.
      * @param em The given {@link EntityManager}.
      * @return The {@link ProviderAdapter} found.
      * @throws UnsupportedOperationException No known {@link ProviderAdapter} recognized the given {@link EntityManager}.
      * @throws IllegalArgumentException If {@code em} is {@code null}.
      */
     public static ProviderAdapter findFor(@NonNull EntityManager em) {
-        for (ProviderAdapter impl : ServiceLoader.load(ProviderAdapter.class)) {
-            if (impl.recognizes(em)) return impl;
-        }
+        if (em instanceof SpecialEntityManager) return ((SpecialEntityManager) em).getProviderAdapter();
+        var impl = AdapterRegistry.find(ExtendedEntityManager.unwrap(em).getClass(), a -> a.recognizes(em));
+        if (impl != null) return impl;
         var a = em.getClass().getName();
         throw new UnsupportedOperationException("That EntityManager (" + a + ") is not recognized by any know ProviderAdapter.");
     }
@@ -131,10 +170,33 @@ public interface ProviderAdapter {
      * Streams all of the known {@link ProviderAdapter}s.
      * @return All the {@link ProviderAdapter}s found, wrapped inside {@code Supplier}s of {@code Maybe}s
      *     because some of them might fail to load.
-     * @implSpec The list of known {@link ProviderAdapter}s is reloaded in every call to this method.
+     * @implSpec The known {@link ProviderAdapter}s are loaded only once per context class loader. Those registered
+     *     through {@link #register(ProviderAdapter)} come first.
      */
     public static Stream<Supplier<Maybe<ProviderAdapter>>> all() {
-        return ServiceLoader.load(ProviderAdapter.class).stream().map(Maybe::wrap);
+        return AdapterRegistry.all().<Supplier<Maybe<ProviderAdapter>>>map(m -> () -> m);
+    }
+
+    /**
+     * Explicitly registers a {@link ProviderAdapter}, which is then tried before the ones found through the
+     * {@link ServiceLoader} mechanism. This is useful when the {@link ServiceLoader} mechanism is unable to find it,
+     * or to replace some adapter found by it.
+     * @param adapter The {@link ProviderAdapter} to be registered.
+     * @throws IllegalArgumentException If {@code adapter} is {@code null}.
+     */
+    public static void register(@NonNull ProviderAdapter adapter) {
+        AdapterRegistry.register(adapter);
+    }
+
+    /**
+     * Removes a {@link ProviderAdapter} previously registered with {@link #register(ProviderAdapter)}.
+     * Adapters found through the {@link ServiceLoader} mechanism are unaffected.
+     * @param adapter The {@link ProviderAdapter} to be unregistered.
+     * @return {@code true} if the adapter was registered, {@code false} otherwise.
+     * @throws IllegalArgumentException If {@code adapter} is {@code null}.
+     */
+    public static boolean unregister(@NonNull ProviderAdapter adapter) {
+        return AdapterRegistry.unregister(adapter);
     }
 
     /**
@@ -0,0 +1,142 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import jakarta.persistence.Parameter;
+import jakarta.persistence.TypedQuery;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * An execution of a query, reported to the {@link ConnectorListener}s.
+ * @see ConnectorListener#queryExecuted(String, QueryExecution)
+ * @author Victor Williams Stafusa da Silva
+ */
+public final class QueryExecution {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("(?<![\\w.:?])\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?[lLfFdD]?(?!\\w)");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * The executed query.
+     * -- GETTER --
+     * Gives the executed query. This is the JPQL for queries created from it, {@code "named:"} followed by the name for named
+     * queries and {@code "criteria:"} followed by the name of the result class for criteria queries, since these have no
+     * portable textual form.
+     * @return The executed query.
+     */
+    @Getter
+    private final String query;
+
+    /**
+     * How long the execution took.
+     * -- GETTER --
+     * Tells how long the execution took.
+     * @return How long the execution took.
+     */
+    @Getter
+    private final Duration elapsed;
+
+    /**
+     * If the execution succeeded.
+     * -- GETTER --
+     * Tells if the execution succeeded.
+     * @return If the execution succeeded.
+     */
+    @Getter
+    private final boolean successful;
+
+    /**
+     * How many rows were read or changed.
+     * -- GETTER --
+     * Tells how many rows were read or changed. It is unknown if the execution failed or if the results were given as a stream.
+     * @return How many rows were read or changed, if known.
+     */
+    @Getter
+    private final OptionalLong rowCount;
+
+    private final TypedQuery<?> source;
+
+    private List<String> parameterShapes;
+
+    private String normalizedQuery;
+
+    QueryExecution(
+            @NonNull String query,
+            @NonNull Duration elapsed,
+            boolean successful,
+            @NonNull OptionalLong rowCount,
+            @NonNull TypedQuery<?> source)
+    {
+        this.query = query;
+        this.elapsed = elapsed;
+        this.successful = successful;
+        this.rowCount = rowCount;
+        this.source = source;
+    }
+
+    /**
+     * Gives the {@linkplain #getQuery() query} with its string and numeric literals replaced by {@code ?} and its whitespace
+     * collapsed, so that queries that differ only by their literals are deemed the same.
+     * @return The normalized query.
+     */
+    public String getNormalizedQuery() {
+        if (normalizedQuery == null) normalizedQuery = normalize(query);
+        return normalizedQuery;
+    }
+
+    /**
+     * Replaces the string and numeric literals of some JPQL by {@code ?} and collapses its whitespace.
+     * @param query The JPQL.
+     * @return The normalized JPQL.
+     * @throws IllegalArgumentException If {@code query} is {@code null}.
+     */
+    public static String normalize(@NonNull String query) {
+        var noStrings = STRING_LITERAL.matcher(query).replaceAll("?");
+        var noNumbers = NUMERIC_LITERAL.matcher(noStrings).replaceAll("?");
+        return WHITESPACE.matcher(noNumbers).replaceAll(" ").trim();
+    }
+
+    /**
+     * Describes the parameters bound to the query without revealing their values, like {@code ":name=String"},
+     * {@code "?1=null"} or {@code ":ids=ArrayList[3]"}. They are only computed when this method is first called, which should be
+     * within the {@link ConnectorListener#queryExecuted(String, QueryExecution)} call, since the query might be changed later.
+     * @return The types of the values bound to each parameter of the query, sorted by parameter name or position.
+     */
+    public List<String> getParameterShapes() {
+        if (parameterShapes == null) parameterShapes = computeParameterShapes();
+        return parameterShapes;
+    }
+
+    private List<String> computeParameterShapes() {
+        try {
+            return source.getParameters()
+                    .stream()
+                    .sorted(Comparator.comparing(QueryExecution::label))
+                    .map(p -> label(p) + "=" + shape(p))
+                    .collect(Collectors.toUnmodifiableList());
+        } catch (RuntimeException e) {
+            return List.of(); // Some providers might not allow inspecting the parameters of some kinds of queries.
+        }
+    }
+
+    private static String label(Parameter<?> p) {
+        return p.getName() != null ? ":" + p.getName() : "?" + p.getPosition();
+    }
+
+    private String shape(Parameter<?> p) {
+        if (!source.isBound(p)) return "unbound";
+        var value = source.getParameterValue(p);
+        if (value == null) return "null";
+        if (value instanceof Collection) return value.getClass().getSimpleName() + "[" + ((Collection<?>) value).size() + "]";
+        return value.getClass().getSimpleName();
+    }
+}
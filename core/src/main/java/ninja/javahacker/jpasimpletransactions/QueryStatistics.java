@@ -0,0 +1,94 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.time.Duration;
+import java.util.NavigableMap;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * A snapshot of the aggregated executions of a query, as collected by a {@link QueryStatisticsCollector}.
+ * @author Victor Williams Stafusa da Silva
+ */
+@Value
+public class QueryStatistics {
+
+    /**
+     * The name of the persistence unit of the query.
+     * -- GETTER --
+     * Gives the name of the persistence unit of the query.
+     * @return The name of the persistence unit of the query.
+     */
+    @NonNull
+    String persistenceUnit;
+
+    /**
+     * The query.
+     * -- GETTER --
+     * Gives the query, as given by {@link QueryExecution#getNormalizedQuery()}.
+     * @return The query.
+     */
+    @NonNull
+    String query;
+
+    /**
+     * How many times the query was executed.
+     * -- GETTER --
+     * Tells how many times the query was executed.
+     * @return How many times the query was executed.
+     */
+    long count;
+
+    /**
+     * How many executions of the query failed.
+     * -- GETTER --
+     * Tells how many executions of the query failed.
+     * @return How many executions of the query failed.
+     */
+    long failures;
+
+    /**
+     * How many rows were read or changed by the query, considering only the executions where that is known.
+     * -- GETTER --
+     * Tells how many rows were read or changed by the query, considering only the executions where that is known.
+     * @return How many rows were read or changed by the query.
+     * @see QueryExecution#getRowCount()
+     */
+    long rows;
+
+    /**
+     * The time taken by all the executions of the query.
+     * -- GETTER --
+     * Gives the time taken by all the executions of the query.
+     * @return The time taken by all the executions of the query.
+     */
+    @NonNull
+    Duration totalTime;
+
+    /**
+     * The time taken by the slowest execution of the query.
+     * -- GETTER --
+     * Gives the time taken by the slowest execution of the query.
+     * @return The time taken by the slowest execution of the query.
+     */
+    @NonNull
+    Duration maxTime;
+
+    /**
+     * How many executions of the query took each range of time.
+     * -- GETTER --
+     * Tells how many executions of the query took each range of time. Each key is the exclusive upper bound of a range, whose
+     * inclusive lower bound is the previous key, or zero for the first one. The last key is {@link QueryStatisticsCollector#UNBOUNDED}.
+     * @return An immutable map with how many executions of the query took each range of time.
+     * @see QueryStatisticsCollector#BUCKETS
+     */
+    @NonNull
+    NavigableMap<Duration, Long> histogram;
+
+    /**
+     * Gives the average time taken by the executions of the query.
+     * @return The average time taken by the executions of the query, or zero if it was never executed.
+     */
+    public Duration getAverageTime() {
+        return count == 0 ? Duration.ZERO : totalTime.dividedBy(count);
+    }
+}
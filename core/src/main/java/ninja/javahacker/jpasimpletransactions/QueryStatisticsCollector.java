@@ -0,0 +1,178 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * A {@link ConnectorListener} that aggregates the executions of the queries by persistence unit and
+ * {@linkplain QueryExecution#getNormalizedQuery() normalized query}, in order to tell which queries are responsible for the load
+ * of the database.
+ * <p>To use it, register it with {@link Database#addListener(ConnectorListener)}. While no listener like this one is registered,
+ * queries are not even timed.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+public final class QueryStatisticsCollector implements ConnectorListener {
+
+    /**
+     * The upper bound of the last range of the {@linkplain QueryStatistics#getHistogram() histograms}, which has no upper bound.
+     */
+    public static final Duration UNBOUNDED = ChronoUnit.FOREVER.getDuration();
+
+    /**
+     * The exclusive upper bounds of the ranges of the {@linkplain QueryStatistics#getHistogram() histograms}.
+     */
+    public static final List<Duration> BUCKETS = List.of(
+            Duration.ofMillis(1),
+            Duration.ofMillis(2),
+            Duration.ofMillis(5),
+            Duration.ofMillis(10),
+            Duration.ofMillis(20),
+            Duration.ofMillis(50),
+            Duration.ofMillis(100),
+            Duration.ofMillis(200),
+            Duration.ofMillis(500),
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(2),
+            Duration.ofSeconds(5),
+            Duration.ofSeconds(10),
+            UNBOUNDED
+    );
+
+    private static final long[] BUCKET_NANOS = BUCKETS.stream().limit(BUCKETS.size() - 1L).mapToLong(Duration::toNanos).toArray();
+
+    // Queries with inlined literals might be countless, so they aren't all remembered.
+    private static final int MAX_REMEMBERED_NORMALIZATIONS = 10_000;
+
+    private final Map<Key, Aggregate> aggregates;
+
+    private final Map<String, String> normalizations;
+
+    /**
+     * Identifies the aggregated executions of a query.
+     */
+    @Value
+    private static class Key {
+        String persistenceUnit;
+        String query;
+    }
+
+    /**
+     * The aggregated executions of a query, updated concurrently.
+     */
+    private static final class Aggregate {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS.size());
+
+        public void add(@NonNull QueryExecution execution) {
+            var nanos = execution.getElapsed().toNanos();
+            count.increment();
+            if (!execution.isSuccessful()) failures.increment();
+            execution.getRowCount().ifPresent(rows::add);
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            int bucket = 0;
+            while (bucket < BUCKET_NANOS.length && nanos >= BUCKET_NANOS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+        }
+
+        public QueryStatistics snapshot(@NonNull Key key) {
+            var histogram = new TreeMap<Duration, Long>();
+            for (int i = 0; i < BUCKETS.size(); i++) {
+                histogram.put(BUCKETS.get(i), buckets.get(i));
+            }
+            return new QueryStatistics(
+                    key.getPersistenceUnit(),
+                    key.getQuery(),
+                    count.sum(),
+                    failures.sum(),
+                    rows.sum(),
+                    Duration.ofNanos(totalNanos.sum()),
+                    Duration.ofNanos(maxNanos.get()),
+                    Collections.unmodifiableNavigableMap(histogram)
+            );
+        }
+    }
+
+    /**
+     * Sole constructor.
+     */
+    public QueryStatisticsCollector() {
+        this.aggregates = new ConcurrentHashMap<>();
+        this.normalizations = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gives the statistics of all the executed queries, from the one that took the most time in total to the one that took the least.
+     * @return An immutable list with the statistics of all the executed queries.
+     */
+    public List<QueryStatistics> getStatistics() {
+        return aggregates.entrySet()
+                .stream()
+                .map(e -> e.getValue().snapshot(e.getKey()))
+                .sorted(Comparator.comparing(QueryStatistics::getTotalTime).reversed())
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * Gives the statistics of some query.
+     * @param persistenceUnit The name of the persistence unit of the query.
+     * @param query The query. It doesn't need to be normalized.
+     * @return The statistics of the query, or an empty {@link Optional} if it was never executed.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public Optional<QueryStatistics> getStatistics(@NonNull String persistenceUnit, @NonNull String query) {
+        var key = new Key(persistenceUnit, QueryExecution.normalize(query));
+        return Optional.ofNullable(aggregates.get(key)).map(a -> a.snapshot(key));
+    }
+
+    /**
+     * Forgets all the collected statistics.
+     */
+    public void clear() {
+        aggregates.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@code true}, always.
+     */
+    @Override
+    public boolean isObservingQueries() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param execution {@inheritDoc}
+     */
+    @Override
+    public void queryExecuted(@NonNull String persistenceUnit, @NonNull QueryExecution execution) {
+        var raw = execution.getQuery();
+        var normalized = normalizations.get(raw);
+        if (normalized == null) {
+            normalized = execution.getNormalizedQuery();
+            if (normalizations.size() < MAX_REMEMBERED_NORMALIZATIONS) normalizations.put(raw, normalized);
+        }
+        aggregates.computeIfAbsent(new Key(persistenceUnit, normalized), k -> new Aggregate()).add(execution);
+    }
+}
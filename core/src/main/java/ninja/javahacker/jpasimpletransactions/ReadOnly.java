@@ -0,0 +1,20 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks methods of interfaces given to {@link Connector#transact(Class, Object)} whose transactions only read data, so they
+ * might be sent to a replica database when the {@link Connector} has {@linkplain Connector#withReplicas replicas}. When placed
+ * on the interface itself, all of its methods are considered read-only.
+ * <p>A method called within an already active transaction always joins it, regardless of this annotation.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface ReadOnly {
+}
@@ -0,0 +1,19 @@
+package ninja.javahacker.jpasimpletransactions;
+
+/**
+ * Defines how read-only transactions are spread among the replicas of a {@link Connector}.
+ * @see Connector#withReplicas(Connector, java.util.List, ReplicaBalancing, java.time.Duration)
+ * @author Victor Williams Stafusa da Silva
+ */
+public enum ReplicaBalancing {
+
+    /**
+     * Used to represent that the healthy replicas are used one after the other.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Used to represent that the healthy replica with the fewest transactions currently running is used.
+     */
+    LEAST_IN_FLIGHT
+}
@@ -0,0 +1,19 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the parameter of a method of an interface given to {@link ShardedConnector#transact(Class, Object)} whose value decides
+ * in which shard the transaction of that method runs. Each method of such interface should have exactly one parameter with this
+ * annotation.
+ * @author Victor Williams Stafusa da Silva
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface ShardKey {
+}
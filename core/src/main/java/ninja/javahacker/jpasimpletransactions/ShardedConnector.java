@@ -0,0 +1,459 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.NonNull;
+import ninja.javahacker.reifiedgeneric.ReifiedGeneric;
+
+/**
+ * Spreads transactions across several {@link Connector}s, each one for a database (a shard) with the same schema but holding
+ * a different part of the data. Each transaction runs entirely in a single shard, chosen from a key.
+ *
+ * <p>The key either is given explicitly to {@link #transact(Object, Class, Object)} or is the argument of the parameter annotated
+ * with {@link ShardKey} of the called method of an interface given to {@link #transact(Class, Object)}. How keys are mapped to
+ * shards is defined when the {@code ShardedConnector} is created, through {@link #consistentHashing(List)},
+ * {@link #consistentHashing(Map)} or {@link #byRange(NavigableMap)}.</p>
+ *
+ * <p>Queries that need data from all the shards can be run with {@link #scatterGather(Function)}.</p>
+ *
+ * @author Victor Williams Stafusa da Silva
+ */
+public final class ShardedConnector implements AutoCloseable {
+
+    /**
+     * How many points of the hash ring each shard gets in {@link #consistentHashing(Map)}.
+     */
+    private static final int VIRTUAL_NODES = 128;
+
+    private final List<Connector> shards;
+
+    private final Function<Object, Connector> router;
+
+    private final ThreadLocal<Connector> current;
+
+    private ShardedConnector(@NonNull List<Connector> shards, @NonNull Function<Object, Connector> router) {
+        this.shards = shards;
+        this.router = router;
+        this.current = new ThreadLocal<>();
+    }
+
+    private static List<Connector> distinct(@NonNull Collection<Connector> shards) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("No shards.");
+        var seen = new IdentityHashMap<Connector, Boolean>();
+        var list = new ArrayList<Connector>(shards.size());
+        for (var c : shards) {
+            if (c == null) throw new IllegalArgumentException("Null shard.");
+            if (seen.put(c, Boolean.TRUE) == null) list.add(c);
+        }
+        return List.copyOf(list);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Creates a {@code ShardedConnector} that maps keys to shards by consistent hashing, identifying each shard by the
+     * {@linkplain Connector#getPersistenceUnitName() name of its persistence unit}.
+     * @param shards The connectors of each shard.
+     * @return A {@code ShardedConnector} that maps keys to shards by consistent hashing.
+     * @throws IllegalArgumentException If {@code shards} is {@code null}, is empty, contains {@code null}, contains the same
+     *     connector twice or contains two connectors with the same persistence unit name.
+     * @see #consistentHashing(Map)
+     */
+    public static ShardedConnector consistentHashing(@NonNull List<Connector> shards) {
+        var list = distinct(shards);
+        if (list.size() != shards.size()) throw new IllegalArgumentException("Duplicated shard.");
+        var ids = list.stream().map(Connector::getPersistenceUnitName).collect(Collectors.toUnmodifiableList());
+        return ring(ids, list);
+    }
+
+    /**
+     * Creates a {@code ShardedConnector} that maps keys to shards by consistent hashing. Each shard gets several points in a hash
+     * ring and each key goes to the shard of the first point at or after the key's hash. Adding or removing a shard moves only
+     * the keys that were or will be in it.
+     * <p>The {@link Object#hashCode()} of the keys must be the same across JVMs, like the ones of {@link String}, {@link Long},
+     * {@link Integer} and {@link java.util.UUID}. The points of each shard in the ring depend only on its identity, so the
+     * identities must be kept the same, but the order in which the shards are given doesn't matter.</p>
+     * @param shards The connectors of each shard, mapped by the identities of the shards.
+     * @return A {@code ShardedConnector} that maps keys to shards by consistent hashing. Its {@linkplain #getShards() shards} are
+     *     sorted by their identities.
+     * @throws IllegalArgumentException If {@code shards} is {@code null}, is empty, contains {@code null} as a key or as a value or
+     *     contains the same connector twice.
+     */
+    public static ShardedConnector consistentHashing(@NonNull Map<String, Connector> shards) {
+        var sorted = new TreeMap<String, Connector>();
+        for (var e : shards.entrySet()) {
+            if (e.getKey() == null) throw new IllegalArgumentException("Null shard identity.");
+            sorted.put(e.getKey(), e.getValue());
+        }
+        var list = distinct(sorted.values());
+        if (list.size() != sorted.size()) throw new IllegalArgumentException("Duplicated shard.");
+        return ring(List.copyOf(sorted.keySet()), list);
+    }
+
+    private static ShardedConnector ring(@NonNull List<String> ids, @NonNull List<Connector> list) {
+        if (new HashSet<>(ids).size() != ids.size()) throw new IllegalArgumentException("Duplicated shard identity.");
+
+        // When two points collide, the shard with the lowest identity keeps it, so the ring doesn't depend on the order of the shards.
+        var ring = new TreeMap<Integer, Integer>();
+        for (var i = 0; i < list.size(); i++) {
+            for (var v = 0; v < VIRTUAL_NODES; v++) {
+                ring.merge(mix((ids.get(i) + "#" + v).hashCode()), i, (a, b) -> ids.get(a).compareTo(ids.get(b)) <= 0 ? a : b);
+            }
+        }
+        Function<Object, Connector> router = key -> {
+            var e = ring.ceilingEntry(mix(key.hashCode()));
+            return list.get((e == null ? ring.firstEntry() : e).getValue());
+        };
+        return new ShardedConnector(list, router);
+    }
+
+    /**
+     * Creates a {@code ShardedConnector} that maps keys to shards by ranges. Each key of the given map is the lowest key that goes
+     * to its shard, so each key goes to the shard of the greatest key of the map that is lower than or equal to it. The same
+     * shard might appear several times in the map.
+     * @param <K> The type of the keys.
+     * @param lowerBounds The lowest key that goes to each shard.
+     * @return A {@code ShardedConnector} that maps keys to shards by ranges.
+     * @throws IllegalArgumentException If {@code lowerBounds} is {@code null}, is empty or contains {@code null}.
+     */
+    public static <K extends Comparable<? super K>> ShardedConnector byRange(@NonNull NavigableMap<K, Connector> lowerBounds) {
+        var ranges = new TreeMap<K, Connector>(lowerBounds);
+        var list = distinct(ranges.values());
+        Function<Object, Connector> router = key -> {
+            Map.Entry<K, Connector> e;
+            try {
+                @SuppressWarnings("unchecked")
+                var k = (K) key;
+                e = ranges.floorEntry(k);
+            } catch (ClassCastException x) {
+                throw new IllegalArgumentException("Wrong shard key type: " + key.getClass().getName() + ".", x);
+            }
+            if (e == null) throw new IllegalArgumentException("No shard for the key " + key + ".");
+            return e.getValue();
+        };
+        return new ShardedConnector(list, router);
+    }
+
+    /**
+     * Gives the connectors of all the shards, without repetitions.
+     * @return An immutable list with the connectors of all the shards.
+     */
+    public List<Connector> getShards() {
+        return shards;
+    }
+
+    /**
+     * Gives the connector of the shard of some key.
+     * @param key The shard key.
+     * @return The connector of the shard of the given key.
+     * @throws IllegalArgumentException If {@code key} is {@code null} or doesn't belong to any shard.
+     */
+    public Connector shardFor(@NonNull Object key) {
+        return router.apply(key);
+    }
+
+    /**
+     * Gives the connector of the shard whose transaction is active in the current thread, if there is one.
+     * @return The connector of the shard whose transaction is active in the current thread or an empty {@link Optional} if
+     *     there is none.
+     */
+    public Optional<Connector> getCurrentShard() {
+        return Optional.ofNullable(current.get());
+    }
+
+    /**
+     * Obtains the {@link ExtendedEntityManager} of the shard whose transaction is active in the current thread.
+     * @return The {@link ExtendedEntityManager} of the shard whose transaction is active in the current thread.
+     * @throws IllegalStateException If there is no active transaction started by this {@code ShardedConnector}.
+     */
+    public ExtendedEntityManager getEntityManager() {
+        var c = current.get();
+        if (c == null) throw new IllegalStateException("Can't get the EntityManager outside of a transaction.");
+        return c.getEntityManager();
+    }
+
+    /**
+     * Some work that might throw anything.
+     * @param <E> The type of the result of the work.
+     */
+    @FunctionalInterface
+    private static interface Work<E> {
+        public E run() throws Throwable;
+    }
+
+    private static Object invoke(@NonNull Method m, @NonNull Object target, Object[] args) throws Throwable {
+        try {
+            return m.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private <E> E within(@NonNull Connector shard, @NonNull Work<E> work) throws Throwable {
+        var previous = current.get();
+        current.set(shard);
+        try {
+            return work.run();
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    private static int shardKeyIndex(@NonNull Method m) {
+        var found = -1;
+        var annotations = m.getParameterAnnotations();
+        for (var i = 0; i < annotations.length; i++) {
+            for (var a : annotations[i]) {
+                if (!(a instanceof ShardKey)) continue;
+                if (found != -1) throw new IllegalArgumentException("The method " + m + " has more than one @ShardKey parameter.");
+                found = i;
+            }
+        }
+        if (found == -1) throw new IllegalArgumentException("The method " + m + " has no @ShardKey parameter.");
+        return found;
+    }
+
+    private static <A> A proxy(@NonNull Class<A> iface, @NonNull InvocationHandler ih) {
+        ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+        return iface.cast(Proxy.newProxyInstance(ccl, new Class<?>[] {iface}, ih));
+    }
+
+    /**
+     * Given an interface {@code iface} of type {@code <A>} and an implementation called {@code impl}, returns a new implementation
+     * that wraps the given one by running each of its methods in a transaction in the shard of the argument of the method's
+     * parameter annotated with {@link ShardKey}. Within that transaction, the persistence context is provided by the
+     * {@link #getEntityManager()} method or by the {@link Connector#getEntityManager()} method of the shard.
+     * <p>Like in {@link Connector#transact(Class, Object)}, the transactions are reentrant. Calls made within an already active
+     * transaction of the same shard join it.</p>
+     * @param <A> The type of the interface to be wrapped.
+     * @param iface The actual class object representing the interface to be wrapped.
+     * @param impl The implementation to be wrapped.
+     * @return The wrapped implementation.
+     * @throws IllegalArgumentException If any parameter is {@code null} or if {@code iface} is not an interface or has some
+     *     method without exactly one parameter annotated with {@link ShardKey}. The wrapped implementation also throws it when a
+     *     shard key is {@code null} or doesn't belong to any shard.
+     */
+    public <A> A transact(@NonNull Class<A> iface, @NonNull A impl) {
+        if (!iface.isInterface()) throw new IllegalArgumentException();
+        var keys = new HashMap<Method, Integer>();
+        for (var m : iface.getMethods()) {
+            if (!Modifier.isStatic(m.getModifiers())) keys.put(m, shardKeyIndex(m));
+        }
+        var targets = new IdentityHashMap<Connector, A>();
+        shards.forEach(s -> targets.put(s, s.transact(iface, impl)));
+        InvocationHandler ih = (p, m, args) -> {
+            var index = keys.get(m);
+            if (index == null) return invoke(m, impl, args);
+            var key = args[index];
+            if (key == null) throw new IllegalArgumentException("Null shard key.");
+            var shard = shardFor(key);
+            return within(shard, () -> invoke(m, targets.get(shard), args));
+        };
+        return proxy(iface, ih);
+    }
+
+    /**
+     * Given an interface {@code iface} of type {@code <A>} and an implementation called {@code impl}, returns a new implementation
+     * that wraps the given one by running each of its methods in a transaction in the shard of the argument of the method's
+     * parameter annotated with {@link ShardKey}.
+     * @param <A> The type of the interface to be wrapped.
+     * @param type The generic type containing the {@code iface} class object representing the interface to be wrapped.
+     * @param impl The implementation to be wrapped.
+     * @return The wrapped implementation.
+     * @throws IllegalArgumentException If any parameter is {@code null} or if the interface has some method without exactly one
+     *     parameter annotated with {@link ShardKey}.
+     * @see #transact(Class, Object)
+     */
+    public <A> A transact(@NonNull ReifiedGeneric<A> type, @NonNull A impl) {
+        return transact(type.asClass(), impl);
+    }
+
+    /**
+     * Given an interface {@code iface} of type {@code <A>} and an implementation called {@code impl}, returns a new implementation
+     * that wraps the given one by running each of its methods in a transaction in the shard of the given key. Within that
+     * transaction, the persistence context is provided by the {@link #getEntityManager()} method or by the
+     * {@link Connector#getEntityManager()} method of the shard.
+     * @param <A> The type of the interface to be wrapped.
+     * @param key The shard key.
+     * @param iface The actual class object representing the interface to be wrapped.
+     * @param impl The implementation to be wrapped.
+     * @return The wrapped implementation.
+     * @throws IllegalArgumentException If any parameter is {@code null}, if {@code key} doesn't belong to any shard or if
+     *     {@code iface} is not an interface.
+     */
+    public <A> A transact(@NonNull Object key, @NonNull Class<A> iface, @NonNull A impl) {
+        var shard = shardFor(key);
+        var target = shard.transact(iface, impl);
+        InvocationHandler ih = (p, m, args) -> {
+            if (m.getDeclaringClass() == Object.class) return invoke(m, impl, args);
+            return within(shard, () -> invoke(m, target, args));
+        };
+        return proxy(iface, ih);
+    }
+
+    /**
+     * Given an interface {@code iface} of type {@code <A>} and an implementation called {@code impl}, returns a new implementation
+     * that wraps the given one by running each of its methods in a transaction in the shard of the given key.
+     * @param <A> The type of the interface to be wrapped.
+     * @param key The shard key.
+     * @param type The generic type containing the {@code iface} class object representing the interface to be wrapped.
+     * @param impl The implementation to be wrapped.
+     * @return The wrapped implementation.
+     * @throws IllegalArgumentException If any parameter is {@code null} or if {@code key} doesn't belong to any shard.
+     * @see #transact(Object, Class, Object)
+     */
+    public <A> A transact(@NonNull Object key, @NonNull ReifiedGeneric<A> type, @NonNull A impl) {
+        return transact(key, type.asClass(), impl);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T runOn(@NonNull Connector shard, @NonNull Function<? super ExtendedEntityManager, ? extends T> query) {
+        Supplier<T> trans = shard.transact(Supplier.class, () -> query.apply(shard.getEntityManager()));
+        try {
+            return within(shard, trans::get);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Runs a query in all the shards at once, each one in its own transaction and in its own thread, and gives the result of each
+     * shard. Up to one thread per shard is used.
+     * @param <T> The type of the result of the query.
+     * @param query The query, which receives the {@link ExtendedEntityManager} of the shard.
+     * @return An unmodifiable list with the result of the query in each shard, in the same order of {@link #getShards()}.
+     * @throws IllegalArgumentException If {@code query} is {@code null}.
+     * @throws RuntimeException Whatever the query threw in the first shard where it failed, with the failures of the other
+     *     shards added as {@linkplain Throwable#getSuppressed() suppressed}. The queries of the other shards are still waited for.
+     */
+    public <T> List<T> scatterGather(@NonNull Function<? super ExtendedEntityManager, ? extends T> query) {
+        var ccl = Thread.currentThread().getContextClassLoader();
+        var executor = Executors.newFixedThreadPool(shards.size(), r -> {
+            var t = new Thread(r, "Shard query");
+            t.setDaemon(true);
+            t.setContextClassLoader(ccl);
+            return t;
+        });
+        try {
+            return scatterGather(query, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Runs a query in all the shards at once, each one in its own transaction and in a thread of the given {@link Executor}, and
+     * gives the result of each shard.
+     * @param <T> The type of the result of the query.
+     * @param query The query, which receives the {@link ExtendedEntityManager} of the shard.
+     * @param executor The {@link Executor} that runs the query in each shard.
+     * @return An unmodifiable list with the result of the query in each shard, in the same order of {@link #getShards()}.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     * @throws RuntimeException Whatever the query threw in the first shard where it failed, with the failures of the other
+     *     shards added as {@linkplain Throwable#getSuppressed() suppressed}. The queries of the other shards are still waited for.
+     */
+    public <T> List<T> scatterGather(
+            @NonNull Function<? super ExtendedEntityManager, ? extends T> query,
+            @NonNull Executor executor)
+    {
+        var futures = shards.stream()
+                .map(s -> CompletableFuture.supplyAsync(() -> runOn(s, query), executor))
+                .collect(Collectors.toUnmodifiableList());
+        var results = new ArrayList<T>(futures.size());
+        RuntimeException failure = null;
+        for (var f : futures) {
+            try {
+                results.add(f.join());
+            } catch (CompletionException e) {
+                var cause = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) throw failure;
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Runs a query in all the shards at once, each one in its own transaction and in its own thread, and merges the results of
+     * all the shards in a single list. Up to one thread per shard is used.
+     * @param <T> The type of the elements of the results of the query.
+     * @param query The query, which receives the {@link ExtendedEntityManager} of the shard.
+     * @return An unmodifiable list with the results of the query in all the shards, in the same order of {@link #getShards()}.
+     * @throws IllegalArgumentException If {@code query} is {@code null}.
+     * @throws RuntimeException Whatever the query threw in the first shard where it failed.
+     * @see #scatterGather(Function)
+     */
+    public <T> List<T> scatterGatherAll(@NonNull Function<? super ExtendedEntityManager, ? extends Collection<? extends T>> query) {
+        return merge(scatterGather(query));
+    }
+
+    /**
+     * Runs a query in all the shards at once, each one in its own transaction and in a thread of the given {@link Executor}, and
+     * merges the results of all the shards in a single list.
+     * @param <T> The type of the elements of the results of the query.
+     * @param query The query, which receives the {@link ExtendedEntityManager} of the shard.
+     * @param executor The {@link Executor} that runs the query in each shard.
+     * @return An unmodifiable list with the results of the query in all the shards, in the same order of {@link #getShards()}.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     * @throws RuntimeException Whatever the query threw in the first shard where it failed.
+     * @see #scatterGather(Function, Executor)
+     */
+    public <T> List<T> scatterGatherAll(
+            @NonNull Function<? super ExtendedEntityManager, ? extends Collection<? extends T>> query,
+            @NonNull Executor executor)
+    {
+        return merge(scatterGather(query, executor));
+    }
+
+    private static <T> List<T> merge(@NonNull List<? extends Collection<? extends T>> parts) {
+        var all = new ArrayList<T>();
+        parts.forEach(all::addAll);
+        return Collections.unmodifiableList(all);
+    }
+
+    /**
+     * Closes the connectors of all the shards.
+     */
+    @Override
+    public void close() {
+        shards.forEach(Connector::close);
+    }
+}
@@ -0,0 +1,306 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Synchronized;
+import lombok.Value;
+
+/**
+ * A {@link ConnectorListener} that records the transactions and the queries that took longer than some thresholds, in order
+ * to tell where the slowness comes from. Only the most recent ones are kept, up to a given capacity.
+ * <p>Each record has the duration, the persistence unit, the query and the shapes of its parameters (but not their values)
+ * and the innermost frames of the call stack of the code that used the {@link Connector}, leaving out the frames of this
+ * library, of the persistence providers and of reflection. The stack is only walked for the operations that were slow.</p>
+ * <p>To use it, register it with {@link Database#addListener(ConnectorListener)}.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+public final class SlowOperationDetector implements ConnectorListener {
+
+    /**
+     * The minimum duration of the transactions that are recorded.
+     * -- GETTER --
+     * Gives the minimum duration of the transactions that are recorded.
+     * @return The minimum duration of the transactions that are recorded.
+     */
+    @Getter
+    private final Duration transactionThreshold;
+
+    /**
+     * The minimum duration of the queries that are recorded.
+     * -- GETTER --
+     * Gives the minimum duration of the queries that are recorded.
+     * @return The minimum duration of the queries that are recorded.
+     */
+    @Getter
+    private final Duration queryThreshold;
+
+    /**
+     * The maximum number of frames of the call stack kept in each record.
+     * -- GETTER --
+     * Gives the maximum number of frames of the call stack kept in each record.
+     * @return The maximum number of frames of the call stack kept in each record.
+     */
+    @Getter
+    private final int stackDepth;
+
+    private final SlowOperation[] buffer;
+
+    private int next;
+
+    private int size;
+
+    private final ThreadLocal<ArrayDeque<Started>> started;
+
+    /**
+     * What kind of operation was slow.
+     */
+    public static enum Kind {
+        /**
+         * A whole transaction, from its beginning to its end.
+         */
+        TRANSACTION,
+
+        /**
+         * The execution of a query.
+         */
+        QUERY;
+    }
+
+    /**
+     * A transaction or query that was slow.
+     */
+    @Value
+    public static class SlowOperation {
+
+        /**
+         * What kind of operation was slow.
+         * -- GETTER --
+         * Tells what kind of operation was slow.
+         * @return What kind of operation was slow.
+         */
+        @NonNull
+        Kind kind;
+
+        /**
+         * The name of the persistence unit of the operation.
+         * -- GETTER --
+         * Gives the name of the persistence unit of the operation.
+         * @return The name of the persistence unit of the operation.
+         */
+        @NonNull
+        String persistenceUnit;
+
+        /**
+         * When the operation finished.
+         * -- GETTER --
+         * Tells when the operation finished.
+         * @return When the operation finished.
+         */
+        @NonNull
+        Instant finishedAt;
+
+        /**
+         * How long the operation took.
+         * -- GETTER --
+         * Tells how long the operation took.
+         * @return How long the operation took.
+         */
+        @NonNull
+        Duration elapsed;
+
+        /**
+         * The query, if the operation is one.
+         * -- GETTER --
+         * Gives the query, if the operation is one.
+         * @return The query, as given by {@link QueryExecution#getQuery()}, if the operation is one.
+         */
+        @NonNull
+        Optional<String> query;
+
+        /**
+         * The shapes of the parameters of the query.
+         * -- GETTER --
+         * Gives the shapes of the parameters of the query, as given by {@link QueryExecution#getParameterShapes()}.
+         * @return The shapes of the parameters of the query. Empty for transactions.
+         */
+        @NonNull
+        List<String> parameterShapes;
+
+        /**
+         * The innermost frames of the call stack of the code that used the {@link Connector}.
+         * -- GETTER --
+         * Gives the innermost frames of the call stack of the code that used the {@link Connector}.
+         * @return The innermost frames of the call stack of the code that used the {@link Connector}.
+         */
+        @NonNull
+        List<StackTraceElement> stack;
+
+        /**
+         * Describes this operation in a few lines, fit for a log.
+         * @return A description of this operation.
+         */
+        @Override
+        public String toString() {
+            var sb = new StringBuilder(128)
+                    .append("Slow ").append(kind.name().toLowerCase(Locale.ROOT))
+                    .append(" in ").append(persistenceUnit)
+                    .append(" took ").append(elapsed.toMillis()).append(" ms at ").append(finishedAt);
+            query.ifPresent(q -> sb.append(": ").append(q).append(' ').append(parameterShapes));
+            stack.forEach(e -> sb.append(System.lineSeparator()).append("\tat ").append(e));
+            return sb.toString();
+        }
+    }
+
+    /**
+     * When a transaction in the current thread started.
+     */
+    @Value
+    private static class Started {
+        String persistenceUnit;
+        long start;
+    }
+
+    /**
+     * Creates an instance with the given settings.
+     * @param transactionThreshold The minimum duration of the transactions that are recorded.
+     * @param queryThreshold The minimum duration of the queries that are recorded.
+     * @param capacity How many of the most recent slow operations are kept.
+     * @param stackDepth The maximum number of frames of the call stack kept in each record. Zero means that no call stack is kept.
+     * @throws IllegalArgumentException If any threshold is {@code null} or negative, if {@code capacity} isn't positive or if
+     *     {@code stackDepth} is negative.
+     */
+    public SlowOperationDetector(@NonNull Duration transactionThreshold, @NonNull Duration queryThreshold, int capacity, int stackDepth) {
+        if (transactionThreshold.isNegative() || queryThreshold.isNegative()) throw new IllegalArgumentException("Negative threshold.");
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity should be positive.");
+        if (stackDepth < 0) throw new IllegalArgumentException("Negative stack depth.");
+        this.transactionThreshold = transactionThreshold;
+        this.queryThreshold = queryThreshold;
+        this.stackDepth = stackDepth;
+        this.buffer = new SlowOperation[capacity];
+        this.started = ThreadLocal.withInitial(ArrayDeque::new);
+    }
+
+    /**
+     * Gives how many of the most recent slow operations are kept.
+     * @return How many of the most recent slow operations are kept.
+     */
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Gives the recorded slow operations, from the oldest to the most recent one.
+     * @return An immutable list with the recorded slow operations.
+     */
+    @Synchronized
+    public List<SlowOperation> getSlowOperations() {
+        var list = new ArrayList<SlowOperation>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(buffer[Math.floorMod(next - size + i, buffer.length)]);
+        }
+        return List.copyOf(list);
+    }
+
+    /**
+     * Forgets all the recorded slow operations.
+     */
+    @Synchronized
+    public void clear() {
+        Arrays.fill(buffer, null);
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * Writes all the recorded slow operations, from the oldest to the most recent one, to the given logger.
+     * @param logger Where the slow operations are written.
+     * @param level The level of the log entries.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public void export(@NonNull System.Logger logger, @NonNull System.Logger.Level level) {
+        getSlowOperations().forEach(op -> logger.log(level, op.toString()));
+    }
+
+    /**
+     * Writes all the recorded slow operations, from the oldest to the most recent one, as warnings to the
+     * {@linkplain System#getLogger(String) system logger} named after this class.
+     */
+    public void export() {
+        export(System.getLogger(SlowOperationDetector.class.getName()), System.Logger.Level.WARNING);
+    }
+
+    @Synchronized
+    private void record(@NonNull SlowOperation op) {
+        buffer[next] = op;
+        next = (next + 1) % buffer.length;
+        if (size < buffer.length) size++;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     */
+    @Override
+    public void operationStarted(@NonNull String persistenceUnit) {
+        started.get().push(new Started(persistenceUnit, System.nanoTime()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     */
+    @Override
+    public void operationFinished(@NonNull String persistenceUnit) {
+        var end = System.nanoTime();
+        var pending = started.get();
+
+        // Transactions of different persistence units in the same thread might not finish in the reverse order that they started.
+        Started s = null;
+        for (var it = pending.iterator(); it.hasNext();) {
+            var e = it.next();
+            if (e.getPersistenceUnit().equals(persistenceUnit)) {
+                it.remove();
+                s = e;
+                break;
+            }
+        }
+        if (pending.isEmpty()) started.remove();
+        if (s == null) return; // Started before this was registered.
+
+        var elapsed = Duration.ofNanos(end - s.getStart());
+        if (elapsed.compareTo(transactionThreshold) < 0) return;
+        var stack = CallSites.capture(stackDepth);
+        record(new SlowOperation(Kind.TRANSACTION, persistenceUnit, Instant.now(), elapsed, Optional.empty(), List.of(), stack));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@code true}, always.
+     */
+    @Override
+    public boolean isObservingQueries() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     * @param execution {@inheritDoc}
+     */
+    @Override
+    public void queryExecuted(@NonNull String persistenceUnit, @NonNull QueryExecution execution) {
+        var elapsed = execution.getElapsed();
+        if (elapsed.compareTo(queryThreshold) < 0) return;
+        var query = Optional.of(execution.getQuery());
+        var stack = CallSites.capture(stackDepth);
+        record(new SlowOperation(Kind.QUERY, persistenceUnit, Instant.now(), elapsed, query, execution.getParameterShapes(), stack));
+    }
+}
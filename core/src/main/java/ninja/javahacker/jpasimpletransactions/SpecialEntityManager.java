@@ -1,13 +1,29 @@
 package ninja.javahacker.jpasimpletransactions;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.FindOption;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceException;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaQuery;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.experimental.Delegate;
@@ -21,32 +37,144 @@ import lombok.experimental.PackagePrivate;
 @PackagePrivate
 final class SpecialEntityManager implements ExtendedEntityManager {
 
-    @Getter
-    @Delegate(types = EntityManager.class, excludes = DoNotDelegateEntityManager.class)
     private EntityManager wrapped;
 
     @NonNull
-    private final ProviderAdapter adapter;
+    private ProviderAdapter adapter;
 
     @NonNull
     private final String persistenceUnitName;
 
     @NonNull
-    private final EntityManagerFactory emf;
+    private EntityManagerFactory emf;
 
     @NonNull
     private Optional<SpecialEntityTransaction> trans;
 
+    private boolean pendingBegin;
+
+    private boolean readOnly;
+
+    @Nullable
+    private Failover failover;
+
+    /**
+     * When the transaction times out, as given by {@link System#nanoTime()}, if it ever does.
+     * -- GETTER --
+     * Tells when the transaction times out, as given by {@link System#nanoTime()}, if it ever does.
+     * @return When the transaction times out, if it ever does.
+     */
+    @Getter
+    @NonNull
+    private OptionalLong deadline = OptionalLong.empty();
+
+    /**
+     * The timeout that led to the {@link #getDeadline() deadline}.
+     * -- GETTER --
+     * Gives the timeout that led to the {@link #getDeadline() deadline}, or zero if there is none.
+     * @return The timeout that led to the deadline.
+     */
+    @Getter
+    @NonNull
+    private Duration timeout = Duration.ZERO;
+
+    private boolean timedOut;
+
+    /**
+     * The innermost {@linkplain #startNested() nested transaction}, or {@code null} if there is none.
+     */
+    @Nullable
+    private NestedScope nested;
+
+    /**
+     * What is needed for undoing in memory what a failed nested transaction did.
+     */
+    private static final class NestedScope {
+        @Nullable
+        private final NestedScope enclosing;
+
+        /**
+         * The entities that went through the {@code SpecialEntityManager} since the nested transaction started.
+         */
+        private final List<Object> touched;
+
+        /**
+         * The entities that were managed when the nested transaction started, or {@code null} if the persistence provider can't
+         * tell them.
+         */
+        @Nullable
+        private final Set<Object> managed;
+
+        public NestedScope(@Nullable NestedScope enclosing, @NonNull Optional<Collection<Object>> managed) {
+            this.enclosing = enclosing;
+            this.touched = new ArrayList<>();
+            this.managed = managed.map(m -> {
+                Set<Object> set = Collections.newSetFromMap(new IdentityHashMap<>());
+                set.addAll(m);
+                return set;
+            }).orElse(null);
+        }
+    }
+
     public SpecialEntityManager(
             @NonNull ProviderAdapter adapter,
             @NonNull String persistenceUnitName,
             @NonNull EntityManagerFactory emf)
+    {
+        this(adapter, persistenceUnitName, emf, false);
+    }
+
+    /**
+     * Creates an instance which might postpone the creation of the wrapped {@link EntityManager}.
+     * @param adapter The persistence provider.
+     * @param persistenceUnitName The name of the persistence unit.
+     * @param emf The {@link EntityManagerFactory} that creates the wrapped {@link EntityManager}.
+     * @param lazy If the wrapped {@link EntityManager} should only be created and have its transaction begun when it is first
+     *     needed, which is when some method other than {@link #close()} is called.
+     */
+    public SpecialEntityManager(
+            @NonNull ProviderAdapter adapter,
+            @NonNull String persistenceUnitName,
+            @NonNull EntityManagerFactory emf,
+            boolean lazy)
     {
         this.persistenceUnitName = persistenceUnitName;
         this.adapter = adapter;
         this.trans = Optional.empty();
         this.emf = emf;
-        recreateEntityManager();
+        this.pendingBegin = lazy;
+        if (!lazy) recreateEntityManager();
+    }
+
+    /**
+     * What a lazy {@code SpecialEntityManager} of a replica does about the outcome of beginning its transaction there.
+     */
+    public static interface Failover {
+        /**
+         * Tells that the transaction was begun in the replica.
+         */
+        public void begun();
+
+        /**
+         * Tells that the transaction couldn't be begun in the replica and gives where it should be begun instead.
+         * @param failure Why the transaction couldn't be begun in the replica.
+         * @return A lazy {@code SpecialEntityManager} that was never used, whose persistence provider and
+         *     {@link EntityManagerFactory} are taken over to begin the transaction instead.
+         */
+        public SpecialEntityManager failed(@NonNull RuntimeException failure);
+    }
+
+    /**
+     * Makes this lazy instance begin a read-only transaction in a replica when it is first needed, as
+     * {@link #enforceReadOnly()} does, and fall over somewhere else if that fails.
+     * @param failover Told about the outcome of beginning the transaction in the replica.
+     * @throws IllegalArgumentException If {@code failover} is {@code null}.
+     * @throws IllegalStateException If this isn't lazy or was already used.
+     */
+    public void beginInReplica(@NonNull Failover failover) {
+        if (!pendingBegin || wrapped != null) throw new IllegalStateException();
+        this.readOnly = true;
+        this.failover = failover;
     }
 
     private void recreateEntityManager() {
@@ -54,14 +182,230 @@ final class SpecialEntityManager implements ExtendedEntityManager {
         this.wrapped = emf.createEntityManager();
     }
 
+    /**
+     * Gives the wrapped {@link EntityManager}, creating it and beginning its transaction if this is lazy and that wasn't done yet.
+     * @return The wrapped {@link EntityManager}.
+     */
+    @Delegate(types = EntityManager.class, excludes = DoNotDelegateEntityManager.class)
+    public EntityManager getWrapped() {
+        if (wrapped == null) {
+            if (pendingBegin) {
+                beginLazily();
+                pendingBegin = false;
+            } else {
+                recreateEntityManager();
+            }
+        }
+        return wrapped;
+    }
+
+    private void beginLazily() {
+        var f = failover;
+        failover = null;
+        try {
+            recreateEntityManager();
+            getTransaction().begin();
+            if (readOnly) enforceReadOnly();
+        } catch (RuntimeException e) {
+            if (f == null) throw e;
+            if (wrapped != null) {
+                try {
+                    if (wrapped.getTransaction().isActive()) wrapped.getTransaction().rollback();
+                    wrapped.close();
+                } catch (RuntimeException x) {
+                    e.addSuppressed(x);
+                }
+                wrapped = null;
+            }
+            var other = f.failed(e);
+            adapter = other.adapter;
+            emf = other.emf;
+            readOnly = false;
+            recreateEntityManager();
+            getTransaction().begin();
+            return;
+        }
+        if (f != null) f.begun();
+    }
+
+    /**
+     * Tells if the wrapped {@link EntityManager} was already created. It always was unless this is lazy.
+     * @return If the wrapped {@link EntityManager} was already created.
+     */
+    public boolean isTouched() {
+        return wrapped != null;
+    }
+
+    @Override
+    public void close() {
+        if (wrapped != null) wrapped.close();
+    }
+
+    /**
+     * Defines when the transaction times out.
+     * @param deadline When the transaction times out, as given by {@link System#nanoTime()}, if it ever does.
+     * @param timeout The timeout that led to the deadline, reported to the {@link ConnectorListener} when it is over.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public void setDeadline(@NonNull OptionalLong deadline, @NonNull Duration timeout) {
+        this.deadline = deadline;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Checks if the {@linkplain #getDeadline() deadline} is over. The first time that it is found over, the transaction is
+     * marked for rollback and the {@link ConnectorListener#transactionTimedOut(String, Duration)} event is fired.
+     * @return The remaining time in nanoseconds, or {@link Long#MAX_VALUE} if there is no deadline.
+     * @throws TransactionTimedOutException If the deadline is over.
+     */
+    public long checkDeadline() {
+        if (deadline.isEmpty()) return Long.MAX_VALUE;
+        var remaining = deadline.getAsLong() - System.nanoTime();
+        if (remaining > 0) return remaining;
+        if (!timedOut) {
+            timedOut = true;
+            if (wrapped != null && wrapped.getTransaction().isActive()) wrapped.getTransaction().setRollbackOnly();
+            Database.getListener().transactionTimedOut(persistenceUnitName, timeout);
+        }
+        throw new TransactionTimedOutException("The transaction of " + persistenceUnitName + " exceeded its timeout of " + timeout + ".");
+    }
+
+    /**
+     * Starts a nested transaction, taking note of the entities managed now, if the persistence provider can tell them, and
+     * recording the entities that are persisted, merged, removed, found or referenced through this from now on, so that what
+     * the nested transaction does to them in memory can be undone if it fails. Should be called right after the persistence
+     * context is flushed and the savepoint is set.
+     */
+    public void startNested() {
+        nested = new NestedScope(nested, adapter.managedEntities(getWrapped()));
+    }
+
+    /**
+     * Finishes the nested transaction started by the matching {@link #startNested()}.
+     * <p>If it failed, the persistence context is brought back to how it was when the nested transaction started, as far as
+     * possible. If the persistence provider can tell the managed entities, the ones that were already managed are refreshed from
+     * the database, which was rolled back to the savepoint, and the others are detached. Otherwise, only the entities that went
+     * through this since it started are detached. Either way, entities removed by the nested transaction are detached, since
+     * they can't be managed again. Nothing is done if the whole transaction was marked for rollback.</p>
+     * @param failed If the nested transaction failed.
+     * @throws IllegalStateException If there is no nested transaction.
+     */
+    public void finishNested(boolean failed) {
+        var scope = nested;
+        if (scope == null) throw new IllegalStateException("There is no nested transaction.");
+        nested = scope.enclosing;
+        if (!failed) {
+            if (nested != null) nested.touched.addAll(scope.touched);
+            return;
+        }
+        if (wrapped.getTransaction().getRollbackOnly()) return;
+        if (scope.managed == null) {
+            scope.touched.forEach(this::detach);
+            return;
+        }
+        for (var entity : scope.managed) {
+            if (!wrapped.contains(entity)) detach(entity);
+        }
+        for (var entity : adapter.managedEntities(wrapped).orElseGet(List::of)) {
+            if (!scope.managed.contains(entity)) {
+                detach(entity);
+                continue;
+            }
+            try {
+                wrapped.refresh(entity);
+            } catch (PersistenceException | IllegalArgumentException e) {
+                // Its row is gone or it can't be refreshed, so at least don't let its state be written back.
+                detach(entity);
+            }
+        }
+    }
+
+    private void detach(Object entity) {
+        try {
+            wrapped.detach(entity);
+        } catch (IllegalArgumentException e) {
+            // Not an entity, so there is nothing to detach.
+        }
+    }
+
+    @Nullable
+    private <T> T touch(@Nullable T entity) {
+        if (entity != null && nested != null) nested.touched.add(entity);
+        return entity;
+    }
+
+    /**
+     * Wraps the given query, so its executions are reported and limited to the time remaining until the
+     * {@linkplain #getDeadline() deadline}, if there is one.
+     * @param <T> The type of the results of the query.
+     * @param query The query.
+     * @param description The description of the query, as given by {@link QueryExecution#getQuery()}.
+     * @return The wrapped query.
+     * @throws TransactionTimedOutException If the deadline is already over.
+     */
+    private <T> ExtendedTypedQuery<T> observed(TypedQuery<T> query, String description) {
+        return new SpecialTypedQuery<>(query, persistenceUnitName, description, this::checkDeadline);
+    }
+
     @Override
     public void remove(Object obj) {
-        if (obj != null && !isNew(obj)) wrapped.remove(obj);
+        if (obj != null && !isNew(obj)) getWrapped().remove(touch(obj));
+    }
+
+    @Override
+    public void persist(Object entity) {
+        getWrapped().persist(entity);
+        touch(entity);
+    }
+
+    @Override
+    public <T> T merge(T entity) {
+        return touch(getWrapped().merge(entity));
+    }
+
+    @Override
+    public <T> T find(Class<T> entityClass, Object primaryKey) {
+        return touch(getWrapped().find(entityClass, primaryKey));
+    }
+
+    @Override
+    public <T> T find(Class<T> entityClass, Object primaryKey, Map<String, Object> properties) {
+        return touch(getWrapped().find(entityClass, primaryKey, properties));
+    }
+
+    @Override
+    public <T> T find(Class<T> entityClass, Object primaryKey, LockModeType lockMode) {
+        return touch(getWrapped().find(entityClass, primaryKey, lockMode));
+    }
+
+    @Override
+    public <T> T find(Class<T> entityClass, Object primaryKey, LockModeType lockMode, Map<String, Object> properties) {
+        return touch(getWrapped().find(entityClass, primaryKey, lockMode, properties));
+    }
+
+    @Override
+    public <T> T find(Class<T> entityClass, Object primaryKey, FindOption... options) {
+        return touch(getWrapped().find(entityClass, primaryKey, options));
+    }
+
+    @Override
+    public <T> T find(EntityGraph<T> entityGraph, Object primaryKey, FindOption... options) {
+        return touch(getWrapped().find(entityGraph, primaryKey, options));
+    }
+
+    @Override
+    public <T> T getReference(Class<T> entityClass, Object primaryKey) {
+        return touch(getWrapped().getReference(entityClass, primaryKey));
+    }
+
+    @Override
+    public <T> T getReference(T entity) {
+        return touch(getWrapped().getReference(entity));
     }
 
     @Override
     public <T extends Object> ExtendedTypedQuery<T> createQuery(CriteriaQuery<T> criteriaQuery) {
-        return ExtendedTypedQuery.wrap(wrapped.createQuery(criteriaQuery));
+        return observed(getWrapped().createQuery(criteriaQuery), "criteria:" + criteriaQuery.getResultType().getName());
     }
 
     @Override
@@ -70,23 +414,51 @@ final class SpecialEntityManager implements ExtendedEntityManager {
             justification = "False alarm, we're just delegating it untouched."
     )
     public <T extends Object> ExtendedTypedQuery<T> createQuery(String qlString, Class<T> resultClass) {
-        return ExtendedTypedQuery.wrap(wrapped.createQuery(qlString, resultClass));
+        return observed(getWrapped().createQuery(qlString, resultClass), qlString);
     }
 
     @Override
     public <T extends Object> ExtendedTypedQuery<T> createNamedQuery(String name, Class<T> resultClass) {
-        return ExtendedTypedQuery.wrap(wrapped.createNamedQuery(name, resultClass));
+        return observed(getWrapped().createNamedQuery(name, resultClass), "named:" + name);
+    }
+
+    @Override
+    public Optional<Duration> getRemainingTime() {
+        var remaining = checkDeadline();
+        return remaining == Long.MAX_VALUE ? Optional.empty() : Optional.of(Duration.ofNanos(remaining));
     }
 
     @Override
     public Connection getConnection() {
-        return adapter.getConnection(wrapped);
+        return adapter.getConnection(getWrapped());
+    }
+
+    /**
+     * Makes the JDBC connection of the transaction read-only, so the database refuses any write made by mistake instead of
+     * committing it, and stops flushing before queries, so such writes only fail when the transaction ends. Should be called
+     * right after the transaction is begun.
+     * @throws PersistenceException If the connection can't be made read-only.
+     */
+    public void enforceReadOnly() {
+        var em = getWrapped();
+        em.setFlushMode(FlushModeType.COMMIT);
+        try {
+            adapter.getConnection(em).setReadOnly(true);
+        } catch (SQLException e) {
+            throw new PersistenceException("Can't make the connection of " + persistenceUnitName + " read-only.", e);
+        }
+    }
+
+    @Override
+    @SuppressFBWarnings("EI_EXPOSE_REP")
+    public ProviderAdapter getProviderAdapter() {
+        return adapter;
     }
 
     @Override
     @SuppressWarnings("PMD.CompareObjectsWithEquals")
     public EntityTransaction getTransaction() {
-        var inner = wrapped.getTransaction(); // Relays exceptions.
+        var inner = getWrapped().getTransaction(); // Relays exceptions.
         if (inner == null) throw new IllegalStateException(); // Should never happen with a sane wrapped EntityManager.
 
         // Return the cached transaction.
@@ -107,6 +479,26 @@ final class SpecialEntityManager implements ExtendedEntityManager {
     private static interface DoNotDelegateEntityManager {
         public void remove(Object obj);
 
+        public void persist(Object entity);
+
+        public <T> T merge(T entity);
+
+        public <T> T find(Class<T> entityClass, Object primaryKey);
+
+        public <T> T find(Class<T> entityClass, Object primaryKey, Map<String, Object> properties);
+
+        public <T> T find(Class<T> entityClass, Object primaryKey, LockModeType lockMode);
+
+        public <T> T find(Class<T> entityClass, Object primaryKey, LockModeType lockMode, Map<String, Object> properties);
+
+        public <T> T find(Class<T> entityClass, Object primaryKey, FindOption... options);
+
+        public <T> T find(EntityGraph<T> entityGraph, Object primaryKey, FindOption... options);
+
+        public <T> T getReference(Class<T> entityClass, Object primaryKey);
+
+        public <T> T getReference(T entity);
+
         public <T extends Object> TypedQuery<T> createQuery(CriteriaQuery<T> cq);
 
         public <T extends Object> TypedQuery<T> createQuery(String string, Class<T> type);
@@ -114,6 +506,8 @@ final class SpecialEntityManager implements ExtendedEntityManager {
         public <T extends Object> TypedQuery<T> createNamedQuery(String string, Class<T> type);
 
         public EntityTransaction getTransaction();
+
+        public void close();
     }
 
     /**
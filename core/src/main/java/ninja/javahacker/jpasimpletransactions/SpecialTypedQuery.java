@@ -1,5 +1,6 @@
 package ninja.javahacker.jpasimpletransactions;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import jakarta.persistence.CacheRetrieveMode;
 import jakarta.persistence.CacheStoreMode;
@@ -8,11 +9,16 @@ import jakarta.persistence.LockModeType;
 import jakarta.persistence.Parameter;
 import jakarta.persistence.TemporalType;
 import jakarta.persistence.TypedQuery;
+import java.time.Duration;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Stream;
 import lombok.NonNull;
 import lombok.experimental.Delegate;
@@ -30,31 +36,137 @@ import lombok.experimental.PackagePrivate;
 @PackagePrivate
 class SpecialTypedQuery<X> implements ExtendedTypedQuery<X> {
 
+    private static final String TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+
     @Delegate(types = DelegatedParts.class)
     private final TypedQuery<X> delegate;
 
+    private final String persistenceUnitName;
+
+    private final String query;
+
+    /**
+     * Gives the nanoseconds remaining until the transaction times out, or {@link Long#MAX_VALUE} if it never does.
+     */
+    @Nullable
+    private final LongSupplier remaining;
+
+    /**
+     * The timeout in milliseconds asked through {@link #setTimeout(Integer)} or through the {@value #TIMEOUT_HINT} hint.
+     */
+    @Nullable
+    private Integer requested;
+
+    /**
+     * The timeout in milliseconds last given to the wrapped query for the time remaining until the transaction times out.
+     */
+    @Nullable
+    private Integer given;
+
     public SpecialTypedQuery(@NonNull TypedQuery<X> query) {
         this.delegate = query;
+        this.persistenceUnitName = null;
+        this.query = null;
+        this.remaining = null;
+    }
+
+    /**
+     * Creates an instance whose executions are reported to the {@link ConnectorListener}s and limited to the time remaining until
+     * the transaction times out.
+     * @param delegate The wrapped query.
+     * @param persistenceUnitName The name of the persistence unit of the query.
+     * @param query The description of the query, as given by {@link QueryExecution#getQuery()}.
+     * @param remaining Gives the nanoseconds remaining until the transaction times out, or {@link Long#MAX_VALUE} if it never
+     *     does, throwing {@link TransactionTimedOutException} if it already did.
+     * @throws TransactionTimedOutException If the transaction already timed out.
+     */
+    public SpecialTypedQuery(
+            @NonNull TypedQuery<X> delegate,
+            @NonNull String persistenceUnitName,
+            @NonNull String query,
+            @NonNull LongSupplier remaining)
+    {
+        this.delegate = delegate;
+        this.persistenceUnitName = persistenceUnitName;
+        this.query = query;
+        this.remaining = remaining;
+        limit();
+    }
+
+    /**
+     * Limits the wrapped query to the time remaining until the transaction times out, if it ever does, unless a shorter timeout
+     * was asked. Called before each execution, since the remaining time keeps shrinking. The remaining time is rounded up to
+     * milliseconds, so it isn't taken as no timeout at all when shorter than that.
+     * @throws TransactionTimedOutException If the transaction already timed out.
+     */
+    private void limit() {
+        if (remaining == null) return;
+        var nanos = remaining.getAsLong();
+        if (nanos == Long.MAX_VALUE) return;
+        var millis = (int) Math.min(Integer.MAX_VALUE, nanos / 1_000_000L + (nanos % 1_000_000L == 0 ? 0 : 1));
+        given = requested == null || requested <= 0 ? millis : Math.min(requested, millis);
+        delegate.setTimeout(given);
+    }
+
+    private boolean isObserved() {
+        return persistenceUnitName != null && Database.getListener().isObservingQueries();
+    }
+
+    private <R> R observe(Supplier<R> execution, ToLongFunction<R> rows) {
+        var start = System.nanoTime();
+        var ok = false;
+        var rowCount = -1L;
+        try {
+            var result = execution.get();
+            ok = true;
+            rowCount = rows.applyAsLong(result);
+            return result;
+        } finally {
+            var elapsed = Duration.ofNanos(System.nanoTime() - start);
+            var count = rowCount < 0 ? OptionalLong.empty() : OptionalLong.of(rowCount);
+            Database.getListener().queryExecuted(persistenceUnitName, new QueryExecution(query, elapsed, ok, count, delegate));
+        }
     }
 
     @Override
     public X getSingleResultOrNull() {
-        return delegate.getSingleResultOrNull();
+        limit();
+        if (!isObserved()) return delegate.getSingleResultOrNull();
+        return observe(delegate::getSingleResultOrNull, r -> r == null ? 0 : 1);
     }
 
     @Override
     public List<X> getResultList() {
-        return delegate.getResultList();
+        limit();
+        if (!isObserved()) return delegate.getResultList();
+        return observe(delegate::getResultList, List::size);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>Only the time taken to get the stream is reported to the {@link ConnectorListener}s, not the time taken to consume it,
+     * and the number of rows is unknown.</p>
+     * @return {@inheritDoc}
+     */
     @Override
     public Stream<X> getResultStream() {
-        return delegate.getResultStream();
+        limit();
+        if (!isObserved()) return delegate.getResultStream();
+        return observe(delegate::getResultStream, r -> -1);
     }
 
     @Override
     public X getSingleResult() {
-        return delegate.getSingleResult();
+        limit();
+        if (!isObserved()) return delegate.getSingleResult();
+        return observe(delegate::getSingleResult, r -> 1);
+    }
+
+    @Override
+    public int executeUpdate() {
+        limit();
+        if (!isObserved()) return delegate.executeUpdate();
+        return observe(delegate::executeUpdate, Integer::longValue);
     }
 
     @Override
@@ -72,6 +184,14 @@ class SpecialTypedQuery<X> implements ExtendedTypedQuery<X> {
     @Override
     public SpecialTypedQuery<X> setHint(String hintName, Object value) {
         delegate.setHint(hintName, value);
+        if (TIMEOUT_HINT.equals(hintName) && value != null) {
+            try {
+                requested = value instanceof Number n ? n.intValue() : Integer.valueOf(value.toString());
+                given = null;
+            } catch (NumberFormatException e) {
+                // Accepted by the persistence provider in some way that isn't understood here, so it is left to it.
+            }
+        }
         return this;
     }
 
@@ -150,9 +270,23 @@ class SpecialTypedQuery<X> implements ExtendedTypedQuery<X> {
     @Override
     public SpecialTypedQuery<X> setTimeout(Integer timeout) {
         delegate.setTimeout(timeout);
+        requested = timeout;
+        given = null;
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>Within a transaction that might time out, this is the timeout given to the query for the time remaining until then,
+     * as computed when the query was created or last executed, unless a shorter one was asked. A timeout asked since then is
+     * given as is until the next execution.</p>
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Integer getTimeout() {
+        return given != null ? given : delegate.getTimeout();
+    }
+
     @Override
     public SpecialTypedQuery<X> setCacheStoreMode(CacheStoreMode mode) {
         delegate.setCacheStoreMode(mode);
@@ -169,14 +303,10 @@ class SpecialTypedQuery<X> implements ExtendedTypedQuery<X> {
      * Exists only to tell lombok which methods should be delegated.
      */
     private static interface DelegatedParts {
-        public int executeUpdate();
-
         public int getMaxResults();
 
         public int getFirstResult();
 
-        public Integer getTimeout();
-
         public CacheStoreMode getCacheStoreMode();
 
         public CacheRetrieveMode getCacheRetrieveMode();
@@ -0,0 +1,104 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Counts the SQL statements issued by the persistence providers within the outermost transaction of the current thread,
+ * in order to detect N+1 query problems.
+ * <p>The statements are reported by provider-specific inspectors, which are only installed when the
+ * {@link ninja.javahacker.jpasimpletransactions.config.ProviderConnectorFactory#isStatementInspection() statement inspection}
+ * is turned on, and they are only counted while the transaction of some {@link Connector} with a
+ * {@linkplain Connector#getRepeatedStatementThreshold() repeated statement threshold} is active.</p>
+ * @see ProviderAdapter#statementInspectionProperties()
+ * @author Victor Williams Stafusa da Silva
+ */
+@UtilityClass
+public class StatementCounter {
+    private static final int CALL_SITE_DEPTH = 8;
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final ThreadLocal<Scope> SCOPES = new ThreadLocal<>();
+
+    /**
+     * The statements counted within a transaction.
+     */
+    private static final class Scope {
+        private final int threshold;
+        private final Map<String, Shape> shapes = new HashMap<>();
+        private int statements;
+
+        public Scope(int threshold) {
+            this.threshold = threshold;
+        }
+    }
+
+    /**
+     * How many times some statement was issued and where it was issued once too many.
+     */
+    private static final class Shape {
+        private int count;
+        private List<StackTraceElement> callSite = List.of();
+    }
+
+    /**
+     * Called by the provider-specific inspectors for each SQL statement issued in the current thread. Does nothing unless some
+     * transaction whose statements are being counted is active in the current thread.
+     * @param sql The SQL statement.
+     * @throws IllegalArgumentException If {@code sql} is {@code null}.
+     */
+    public void statementIssued(@NonNull String sql) {
+        var scope = SCOPES.get();
+        if (scope == null) return;
+        scope.statements++;
+        var shape = scope.shapes.computeIfAbsent(normalize(sql), k -> new Shape());
+        shape.count++;
+        if (shape.count == scope.threshold + 1) shape.callSite = CallSites.capture(CALL_SITE_DEPTH);
+    }
+
+    /**
+     * Replaces the literals of some SQL statement by {@code ?}, collapses its lists of parameters into a single one, like in
+     * {@code IN (?, ?, ?)}, and collapses its whitespace, so statements that differ only by those are deemed the same.
+     * @param sql The SQL statement.
+     * @return The normalized SQL statement.
+     * @throws IllegalArgumentException If {@code sql} is {@code null}.
+     */
+    public String normalize(@NonNull String sql) {
+        return PARAMETER_LIST.matcher(QueryExecution.normalize(sql)).replaceAll("(?)");
+    }
+
+    /**
+     * Starts counting the statements of the current thread, unless that is already being done.
+     * @param threshold How many times the same statement might be issued without being reported.
+     * @return If the counting was started, so {@link #finish()} should be called later.
+     */
+    boolean start(int threshold) {
+        if (SCOPES.get() != null) return false;
+        SCOPES.set(new Scope(threshold));
+        return true;
+    }
+
+    /**
+     * Stops counting the statements of the current thread.
+     * @return What was counted, if some statement was issued more times than allowed.
+     */
+    Optional<StatementReport> finish() {
+        var scope = SCOPES.get();
+        SCOPES.remove();
+        if (scope == null) return Optional.empty();
+        var repeated = scope.shapes.entrySet()
+                .stream()
+                .filter(e -> e.getValue().count > scope.threshold)
+                .map(e -> new StatementReport.RepeatedStatement(e.getKey(), e.getValue().count, e.getValue().callSite))
+                .sorted(Comparator.comparingInt(StatementReport.RepeatedStatement::getCount).reversed())
+                .collect(Collectors.toUnmodifiableList());
+        if (repeated.isEmpty()) return Optional.empty();
+        return Optional.of(new StatementReport(scope.statements, repeated));
+    }
+}
@@ -0,0 +1,67 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.util.List;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * The SQL statements issued within a transaction, reported to the {@link ConnectorListener}s when some of them were repeated
+ * too many times, which is the mark of N+1 query problems.
+ * @see Connector#setRepeatedStatementThreshold(int)
+ * @see ConnectorListener#repeatedStatementsDetected(String, StatementReport)
+ * @author Victor Williams Stafusa da Silva
+ */
+@Value
+public class StatementReport {
+
+    /**
+     * How many SQL statements were issued within the transaction.
+     * -- GETTER --
+     * Tells how many SQL statements were issued within the transaction.
+     * @return How many SQL statements were issued within the transaction.
+     */
+    int statements;
+
+    /**
+     * The SQL statements that were repeated too many times.
+     * -- GETTER --
+     * Gives the SQL statements that were repeated too many times, from the most repeated to the least.
+     * @return An immutable list with the SQL statements that were repeated too many times.
+     */
+    @NonNull
+    List<RepeatedStatement> repeated;
+
+    /**
+     * A SQL statement that was repeated too many times within a transaction.
+     */
+    @Value
+    public static class RepeatedStatement {
+
+        /**
+         * The SQL statement.
+         * -- GETTER --
+         * Gives the SQL statement, with its literals replaced by {@code ?}, its lists of parameters collapsed into a single one
+         * and its whitespace collapsed.
+         * @return The SQL statement.
+         */
+        @NonNull
+        String sql;
+
+        /**
+         * How many times the SQL statement was issued.
+         * -- GETTER --
+         * Tells how many times the SQL statement was issued.
+         * @return How many times the SQL statement was issued.
+         */
+        int count;
+
+        /**
+         * The innermost frames of the call stack of the application code that issued the SQL statement once too many.
+         * -- GETTER --
+         * Gives the innermost frames of the call stack of the application code that issued the SQL statement once too many.
+         * @return The innermost frames of the call stack of the application code that issued the SQL statement once too many.
+         */
+        @NonNull
+        List<StackTraceElement> callSite;
+    }
+}
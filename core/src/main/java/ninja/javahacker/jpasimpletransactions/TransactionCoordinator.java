@@ -0,0 +1,211 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import ninja.javahacker.reifiedgeneric.ReifiedGeneric;
+
+/**
+ * Runs work that spans several persistence units as a single scope, with a transaction in each of their {@link Connector}s,
+ * without the overhead of XA (two-phase commit).
+ *
+ * <p>Within the scope, the {@link Connector#getEntityManager()} of each connector gives the persistence context of its
+ * transaction. When the work finishes, all the persistence contexts are flushed before anything is committed, so most failures
+ * (constraint violations, optimistic locking conflicts, unreachable databases) still roll back every transaction. Then the
+ * transactions are committed one by one in the given order. The last one is the last resource: when it commits, the whole scope
+ * is done.</p>
+ *
+ * <p>This is a best-effort protocol. If some commit fails after others succeeded, the remaining transactions are rolled back
+ * and the ones already committed are undone, in reverse order, by the compensations given to
+ * {@link #compensateWith(Connector, Runnable)} within the scope. Each compensation runs in a new transaction of its connector.
+ * Failures of the compensations are added as {@linkplain Throwable#getSuppressed() suppressed} to the failure of the commit.
+ * Put the units that are most likely to fail on commit or that are hardest to compensate last.</p>
+ *
+ * @author Victor Williams Stafusa da Silva
+ */
+public final class TransactionCoordinator {
+
+    private final List<Connector> commitOrder;
+
+    private final ThreadLocal<Scope> scopes;
+
+    /**
+     * The state of a running scope.
+     */
+    private static final class Scope {
+        private final Map<Connector, List<Runnable>> compensations;
+
+        public Scope() {
+            this.compensations = new IdentityHashMap<>();
+        }
+    }
+
+    /**
+     * Some work that might throw anything.
+     * @param <E> The type of the result of the work.
+     */
+    @FunctionalInterface
+    private static interface Work<E> {
+        public E run() throws Throwable;
+    }
+
+    private TransactionCoordinator(@NonNull List<Connector> commitOrder) {
+        this.commitOrder = commitOrder;
+        this.scopes = new ThreadLocal<>();
+    }
+
+    /**
+     * Creates a {@code TransactionCoordinator} that commits the transactions of the given connectors in the given order.
+     * @param commitOrder The connectors, in the order that their transactions are committed.
+     * @return A {@code TransactionCoordinator} for the given connectors.
+     * @throws IllegalArgumentException If {@code commitOrder} is {@code null}, is empty, contains {@code null} or contains the
+     *     same connector twice.
+     */
+    public static TransactionCoordinator of(@NonNull List<Connector> commitOrder) {
+        if (commitOrder.isEmpty()) throw new IllegalArgumentException("No connectors.");
+        var seen = new IdentityHashMap<Connector, Boolean>();
+        for (var c : commitOrder) {
+            if (c == null) throw new IllegalArgumentException("Null connector.");
+            if (seen.put(c, Boolean.TRUE) != null) throw new IllegalArgumentException("Duplicated connector.");
+        }
+        return new TransactionCoordinator(List.copyOf(commitOrder));
+    }
+
+    /**
+     * Creates a {@code TransactionCoordinator} that commits the transactions of the given connectors in the given order.
+     * @param commitOrder The connectors, in the order that their transactions are committed.
+     * @return A {@code TransactionCoordinator} for the given connectors.
+     * @throws IllegalArgumentException If {@code commitOrder} is {@code null}, is empty, contains {@code null} or contains the
+     *     same connector twice.
+     */
+    public static TransactionCoordinator of(@NonNull Connector... commitOrder) {
+        return of(List.of(commitOrder));
+    }
+
+    /**
+     * Gives the connectors, in the order that their transactions are committed.
+     * @return An immutable list with the connectors, in the order that their transactions are committed.
+     */
+    public List<Connector> getCommitOrder() {
+        return commitOrder;
+    }
+
+    /**
+     * Registers a compensation that undoes what the running scope did in the given connector. It only runs if the transaction of
+     * that connector is committed and some transaction after it fails to commit.
+     * @param connector The connector whose committed work is undone by the compensation.
+     * @param compensation The compensation.
+     * @throws IllegalArgumentException If any parameter is {@code null} or if {@code connector} is not coordinated by this.
+     * @throws IllegalStateException If there is no scope of this {@code TransactionCoordinator} running in the current thread.
+     */
+    public void compensateWith(@NonNull Connector connector, @NonNull Runnable compensation) {
+        var scope = scopes.get();
+        if (scope == null) throw new IllegalStateException("Can't register a compensation outside of a transaction.");
+        if (!commitOrder.contains(connector)) throw new IllegalArgumentException("Unknown connector.");
+        scope.compensations.computeIfAbsent(connector, c -> new ArrayList<>()).add(compensation);
+    }
+
+    /**
+     * Given an interface {@code iface} of type {@code <A>} and an implementation called {@code impl}, returns a new implementation
+     * that wraps the given one by running each of its methods in a scope with a transaction in each of the coordinated
+     * connectors. This scope is reentrant, so nested calls of the methods don't create additional scopes.
+     * @param <A> The type of the interface to be wrapped.
+     * @param iface The actual class object representing the interface to be wrapped.
+     * @param impl The implementation to be wrapped.
+     * @return The wrapped implementation.
+     * @throws IllegalArgumentException If any parameter is {@code null} or if {@code iface} is not an interface.
+     */
+    public <A> A transact(@NonNull Class<A> iface, @NonNull A impl) {
+        if (!iface.isInterface()) throw new IllegalArgumentException();
+        InvocationHandler ih = (p, m, args) -> {
+            if (m.getDeclaringClass() == Object.class) return invoke(m, impl, args);
+            return execute(() -> invoke(m, impl, args));
+        };
+        ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+        return iface.cast(Proxy.newProxyInstance(ccl, new Class<?>[] {iface}, ih));
+    }
+
+    /**
+     * Given an interface {@code iface} of type {@code <A>} and an implementation called {@code impl}, returns a new implementation
+     * that wraps the given one by running each of its methods in a scope with a transaction in each of the coordinated
+     * connectors. This scope is reentrant, so nested calls of the methods don't create additional scopes.
+     * @param <A> The type of the interface to be wrapped.
+     * @param type The generic type containing the {@code iface} class object representing the interface to be wrapped.
+     * @param impl The implementation to be wrapped.
+     * @return The wrapped implementation.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    public <A> A transact(@NonNull ReifiedGeneric<A> type, @NonNull A impl) {
+        return transact(type.asClass(), impl);
+    }
+
+    private static Object invoke(@NonNull Method m, @NonNull Object target, Object[] args) throws Throwable {
+        try {
+            return m.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private <E> E execute(@NonNull Work<E> work) throws Throwable {
+        if (scopes.get() != null) return work.run();
+        var scope = new Scope();
+        scopes.set(scope);
+        try {
+            var started = new ArrayList<SpecialEntityManager>(commitOrder.size());
+            E result;
+            try {
+                for (var c : commitOrder) {
+                    started.add(c.start());
+                }
+                result = work.run();
+                started.forEach(SpecialEntityManager::flush);
+            } catch (Throwable e) {
+                rollback(started, 0, e);
+                throw e;
+            }
+            for (var i = 0; i < started.size(); i++) {
+                try {
+                    commitOrder.get(i).finish(started.get(i), true);
+                } catch (RuntimeException e) {
+                    rollback(started, i + 1, e);
+                    compensate(scope, i, e);
+                    throw e;
+                }
+            }
+            return result;
+        } finally {
+            scopes.remove();
+        }
+    }
+
+    private void rollback(@NonNull List<SpecialEntityManager> started, int from, @NonNull Throwable failure) {
+        for (var i = from; i < started.size(); i++) {
+            try {
+                commitOrder.get(i).finish(started.get(i), false);
+            } catch (RuntimeException x) {
+                failure.addSuppressed(x);
+            }
+        }
+    }
+
+    private void compensate(@NonNull Scope scope, int failed, @NonNull Throwable failure) {
+        for (var i = failed - 1; i >= 0; i--) {
+            var c = commitOrder.get(i);
+            var list = scope.compensations.getOrDefault(c, List.of());
+            for (var j = list.size() - 1; j >= 0; j--) {
+                try {
+                    c.transact(Runnable.class, list.get(j)).run();
+                } catch (RuntimeException x) {
+                    failure.addSuppressed(x);
+                }
+            }
+        }
+    }
+}
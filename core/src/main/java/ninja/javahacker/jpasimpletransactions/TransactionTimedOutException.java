@@ -0,0 +1,21 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Thrown when a transaction is used after its timeout is over. The transaction is marked for rollback.
+ * @see Connector#setTransactionTimeout(java.time.Duration)
+ * @see TransactionTimeout
+ * @author Victor Williams Stafusa da Silva
+ */
+public class TransactionTimedOutException extends PersistenceException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Sole constructor.
+     * @param message The detail message.
+     */
+    public TransactionTimedOutException(String message) {
+        super(message);
+    }
+}
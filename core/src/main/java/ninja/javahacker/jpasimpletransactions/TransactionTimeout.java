@@ -0,0 +1,35 @@
+package ninja.javahacker.jpasimpletransactions;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines the maximum time that the transactions of methods of interfaces given to {@link Connector#transact(Class, Object)}
+ * might take, overriding the {@linkplain Connector#getTransactionTimeout() timeout of the connector}. When placed on the
+ * interface, it applies to all of its methods that don't have their own.
+ * <p>A method called within an already active transaction can only shorten its deadline, never extend it, and only while the
+ * method runs.</p>
+ * @see Connector#setTransactionTimeout(java.time.Duration)
+ * @author Victor Williams Stafusa da Silva
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface TransactionTimeout {
+
+    /**
+     * The maximum time that the transactions might take, in the given {@link #unit()}.
+     * @return The maximum time that the transactions might take.
+     */
+    public long value();
+
+    /**
+     * The unit of the {@link #value()}.
+     * @return The unit of the {@link #value()}.
+     */
+    public TimeUnit unit() default TimeUnit.SECONDS;
+}
@@ -0,0 +1,618 @@
+package ninja.javahacker.jpasimpletransactions.config;
+
+import jakarta.persistence.PersistenceConfiguration;
+import jakarta.persistence.PersistenceException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import lombok.NonNull;
+import lombok.experimental.PackagePrivate;
+import ninja.javahacker.jpasimpletransactions.Database;
+import ninja.javahacker.jpasimpletransactions.PoolStatistics;
+
+/**
+ * A minimalist pool of JDBC connections, handed to the JPA providers as their non-JTA {@link DataSource}.
+ *
+ * <p>The number of connections is bounded by a {@link Semaphore}. Idle connections are kept in a stack, so the most recently used
+ * ones are reused first and the others become idle long enough to be evicted. Eviction and validation happen lazily, whenever
+ * connections are taken or given back, so no background thread is needed for that. A background thread is only used for detecting
+ * leaks, and only if a leak detection threshold is defined.</p>
+ *
+ * <p>The connections handed out are proxies, and so are the statements created through them. Statements left open
+ * are closed when the connection is given back, and any change to its read-only flag, transaction isolation, holdability,
+ * catalog, schema or network timeout made through the proxies is reverted to the value that it had when it was opened.
+ * {@link Statement#getConnection()} gives the proxy back, and so does {@link Connection#unwrap(Class)} when asked for a JDBC
+ * interface.</p>
+ *
+ * <p>However, the physical objects are still reachable: {@link Connection#unwrap(Class)} and {@link Statement#unwrap(Class)}
+ * give them when asked for the driver's own types, and so do {@link java.sql.ResultSet#getStatement()} and
+ * {@link java.sql.DatabaseMetaData#getConnection()}. They may be used for driver-specific features, but must not be closed nor
+ * have their settings changed, since the pool neither sees nor reverts what is done through them, and the connection would be
+ * handed out again in that state.</p>
+ *
+ * @author Victor Williams Stafusa da Silva
+ */
+@PackagePrivate
+final class ConnectionPool implements DataSource, AutoCloseable {
+
+    /**
+     * The property used to give a {@link DataSource} to the JPA providers.
+     */
+    public static final String NON_JTA_DATASOURCE = "jakarta.persistence.nonJtaDataSource";
+
+    private final String persistenceUnitName;
+
+    private final PoolSettings settings;
+
+    private final ConnectionOpener opener;
+
+    private final Semaphore permits;
+
+    private final Deque<Idle> idle;
+
+    private final AtomicInteger active;
+
+    private final AtomicInteger waiting;
+
+    private final AtomicLong created;
+
+    private final AtomicLong evicted;
+
+    private final AtomicLong timeouts;
+
+    private final AtomicLong leaks;
+
+    private final ScheduledExecutorService leakDetector;
+
+    private volatile boolean closed;
+
+    @FunctionalInterface
+    private static interface ConnectionOpener {
+        public Connection open() throws SQLException;
+    }
+
+    private ConnectionPool(@NonNull String persistenceUnitName, @NonNull PoolSettings settings, @NonNull ConnectionOpener opener) {
+        this.persistenceUnitName = persistenceUnitName;
+        this.settings = settings;
+        this.opener = opener;
+        this.permits = new Semaphore(settings.getMaxSize(), true);
+        this.idle = new ConcurrentLinkedDeque<>();
+        this.active = new AtomicInteger();
+        this.waiting = new AtomicInteger();
+        this.created = new AtomicLong();
+        this.evicted = new AtomicLong();
+        this.timeouts = new AtomicLong();
+        this.leaks = new AtomicLong();
+        this.leakDetector = settings.getLeakDetectionThreshold().isZero() ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "Connection leak detector - " + persistenceUnitName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Creates a pool for the given {@link StandardConnectorFactory} if its {@linkplain StandardConnectorFactory#getPoolSettings()
+     * pool settings} are enabled. The pool is filled up to its minimum size before being returned.
+     * @param factory The {@link StandardConnectorFactory} which defines the pool.
+     * @return An {@link Optional} containing the pool, or an empty {@link Optional} if pooling is disabled.
+     * @throws PersistenceException If the connections can't be opened.
+     */
+    public static Optional<ConnectionPool> of(@NonNull StandardConnectorFactory<?> factory) {
+        var settings = factory.getPoolSettings();
+        if (!settings.isEnabled()) return Optional.empty();
+        var pool = new ConnectionPool(factory.getPersistenceUnitName(), settings, opener(factory));
+        try {
+            pool.fill();
+        } catch (SQLException e) {
+            pool.close();
+            throw new PersistenceException("Could not open the pooled connections.", e);
+        }
+        return Optional.of(pool);
+    }
+
+    private static ConnectionOpener opener(StandardConnectorFactory<?> factory) {
+        var url = factory.getUrl();
+        var props = new Properties();
+        if (!factory.getUser().isEmpty()) props.put("user", factory.getUser());
+        if (!factory.getPassword().isEmpty()) props.put("password", factory.getPassword());
+        var driverClass = factory.getDriver();
+        if (driverClass == Driver.class) return () -> DriverManager.getConnection(url, props);
+        Driver driver;
+        try {
+            driver = driverClass.getConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            throw new PersistenceException("Could not instantiate the JDBC driver.", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new PersistenceException("Could not instantiate the JDBC driver.", e);
+        }
+        return () -> {
+            var c = driver.connect(url, props);
+            if (c == null) throw new SQLException("The driver " + driverClass.getName() + " does not accept the URL " + url + ".");
+            return c;
+        };
+    }
+
+    /**
+     * Removes the properties used for opening connections, since the pool opens them instead of the JPA provider.
+     * @param properties The properties that would be handed to the JPA provider.
+     * @return The properties without the ones used for opening connections.
+     */
+    public static Map<String, String> withoutConnectionProperties(@NonNull Map<String, String> properties) {
+        var props = new HashMap<>(properties);
+        props.remove(PersistenceConfiguration.JDBC_DRIVER);
+        props.remove(PersistenceConfiguration.JDBC_URL);
+        props.remove(PersistenceConfiguration.JDBC_USER);
+        props.remove(PersistenceConfiguration.JDBC_PASSWORD);
+        return Map.copyOf(props);
+    }
+
+    private void fill() throws SQLException {
+        while (idle.size() < settings.getMinSize()) {
+            idle.push(new Idle(open()));
+        }
+    }
+
+    private Pooled open() throws SQLException {
+        var c = opener.open();
+        try {
+            var pooled = new Pooled(c);
+            created.incrementAndGet();
+            return pooled;
+        } catch (SQLException | RuntimeException e) {
+            quietlyClose(c);
+            throw e;
+        }
+    }
+
+    private PoolStatistics statistics() {
+        return new PoolStatistics(
+                active.get(),
+                idle.size(),
+                waiting.get(),
+                created.get(),
+                evicted.get(),
+                timeouts.get(),
+                leaks.get()
+        );
+    }
+
+    private boolean expired(Idle i, long now) {
+        var timeout = settings.getIdleTimeout();
+        return !timeout.isZero() && now - i.since > timeout.toNanos();
+    }
+
+    private void evict(Pooled p) {
+        evicted.incrementAndGet();
+        quietlyClose(p.connection);
+    }
+
+    private static void quietlyClose(Connection c) {
+        try {
+            c.close();
+        } catch (SQLException e) {
+            // Nothing to do. The connection is being discarded anyway.
+        }
+    }
+
+    private void evictExpired() {
+        var now = System.nanoTime();
+        for (var it = idle.descendingIterator(); it.hasNext();) {
+            var i = it.next();
+            if (active.get() + idle.size() <= settings.getMinSize()) return;
+            if (expired(i, now) && idle.removeLastOccurrence(i)) evict(i.pooled);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws SQLException {@inheritDoc}
+     * @throws SQLTransientConnectionException If no connection could be taken within the acquire timeout.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("The connection pool is closed.");
+        var start = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(settings.getAcquireTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection.", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            Database.getListener().connectionAcquisitionTimedOut(persistenceUnitName, statistics());
+            throw new SQLTransientConnectionException("No connection available within " + settings.getAcquireTimeout() + ".");
+        }
+        Pooled pooled;
+        try {
+            pooled = take();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        active.incrementAndGet();
+        var handle = new Handle(pooled);
+        Database.getListener().connectionAcquired(persistenceUnitName, Duration.ofNanos(handle.since - start), statistics());
+        return handle.proxy;
+    }
+
+    private Pooled take() throws SQLException {
+        var now = System.nanoTime();
+        for (var i = idle.poll(); i != null; i = idle.poll()) {
+            if (expired(i, now)) {
+                evict(i.pooled);
+            } else if (settings.isValidateOnBorrow() && !isValid(i.pooled.connection)) {
+                evict(i.pooled);
+            } else {
+                return i.pooled;
+            }
+        }
+        return open();
+    }
+
+    private boolean isValid(Connection c) {
+        try {
+            return c.isValid((int) Math.max(1, settings.getAcquireTimeout().toSeconds()));
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void giveBack(Handle handle) {
+        var held = Duration.ofNanos(System.nanoTime() - handle.since);
+        if (handle.leakCheck != null) handle.leakCheck.cancel(false);
+        var pooled = handle.pooled;
+        var reusable = !closed;
+        try {
+            if (reusable) pooled.reset(handle.changed);
+        } catch (SQLException e) {
+            reusable = false;
+        }
+        if (reusable) {
+            idle.push(new Idle(pooled));
+        } else {
+            quietlyClose(pooled.connection);
+        }
+        active.decrementAndGet();
+        permits.release();
+        evictExpired();
+        Database.getListener().connectionReleased(persistenceUnitName, held, statistics());
+    }
+
+    /**
+     * Closes every idle connection. Connections in use are closed when given back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (leakDetector != null) leakDetector.shutdownNow();
+        for (var i = idle.poll(); i != null; i = idle.poll()) {
+            quietlyClose(i.pooled.connection);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param username {@inheritDoc}
+     * @param password {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws SQLFeatureNotSupportedException Always, since pooled connections are all opened with the same credentials.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("Pooled connections are all opened with the same credentials.");
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param out {@inheritDoc}
+     */
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param seconds {@inheritDoc}
+     */
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws SQLFeatureNotSupportedException Always.
+     */
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param <T> {@inheritDoc}
+     * @param iface {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws SQLException {@inheritDoc}
+     */
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("Not a wrapper for " + iface.getName() + ".");
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param iface {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * A physical connection, along with the state that it had when it was opened.
+     */
+    private static final class Pooled {
+        private final Connection connection;
+        private final boolean readOnly;
+        private final int isolation;
+        private final int holdability;
+        private final String catalog;
+        private final String schema;
+        private final int networkTimeout;
+
+        public Pooled(@NonNull Connection connection) throws SQLException {
+            this.connection = connection;
+            this.readOnly = connection.isReadOnly();
+            this.isolation = connection.getTransactionIsolation();
+            this.holdability = connection.getHoldability();
+            this.catalog = connection.getCatalog();
+            this.schema = connection.getSchema();
+            this.networkTimeout = connection.getNetworkTimeout();
+        }
+
+        /**
+         * Rolls back whatever is pending and reverts the given changes, so the connection can be reused.
+         * Only the changed settings are reverted, since querying them might cost a round trip to the database.
+         * @param changed The names of the setters of {@link Connection} that were called.
+         * @throws SQLException If the connection couldn't be reset, in which case it should be discarded.
+         */
+        public void reset(@NonNull Set<String> changed) throws SQLException {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (changed.contains("setReadOnly") && connection.isReadOnly() != readOnly) connection.setReadOnly(readOnly);
+            if (changed.contains("setTransactionIsolation") && connection.getTransactionIsolation() != isolation) {
+                connection.setTransactionIsolation(isolation);
+            }
+            if (changed.contains("setHoldability") && connection.getHoldability() != holdability) connection.setHoldability(holdability);
+            if (changed.contains("setCatalog") && !Objects.equals(connection.getCatalog(), catalog)) connection.setCatalog(catalog);
+            if (changed.contains("setSchema") && !Objects.equals(connection.getSchema(), schema)) connection.setSchema(schema);
+            if (changed.contains("setNetworkTimeout") && connection.getNetworkTimeout() != networkTimeout) {
+                connection.setNetworkTimeout(Runnable::run, networkTimeout);
+            }
+            connection.clearWarnings();
+        }
+    }
+
+    /**
+     * A connection lying idle in the pool.
+     */
+    private static final class Idle {
+        private final Pooled pooled;
+        private final long since;
+
+        public Idle(@NonNull Pooled pooled) {
+            this.pooled = pooled;
+            this.since = System.nanoTime();
+        }
+    }
+
+    private static Object invokeRaw(Object raw, Method m, Object[] args) throws Throwable {
+        try {
+            return m.invoke(raw, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A connection taken from the pool. Closing it closes the statements left open and gives the underlying connection back to
+     * the pool.
+     */
+    private final class Handle implements InvocationHandler {
+        private final Pooled pooled;
+        private final Connection raw;
+        private final Connection proxy;
+        private final long since;
+        private final ScheduledFuture<?> leakCheck;
+        private final Set<String> changed;
+        private final Set<Statement> statements;
+        private boolean released;
+
+        public Handle(@NonNull Pooled pooled) {
+            this.pooled = pooled;
+            this.raw = pooled.connection;
+            this.since = System.nanoTime();
+            this.changed = new HashSet<>(8);
+            this.statements = ConcurrentHashMap.newKeySet();
+            var ccl = Thread.currentThread().getContextClassLoader();
+            this.proxy = (Connection) Proxy.newProxyInstance(ccl, new Class<?>[] {Connection.class}, this);
+            var threshold = settings.getLeakDetectionThreshold();
+            this.leakCheck = leakDetector == null ? null : leakDetector.schedule(this::leaked, threshold.toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        private void leaked() {
+            leaks.incrementAndGet();
+            var held = Duration.ofNanos(System.nanoTime() - since);
+            Database.getListener().connectionLeakSuspected(persistenceUnitName, held, statistics());
+        }
+
+        @Override
+        @SuppressWarnings("PMD.CompareObjectsWithEquals")
+        public Object invoke(Object p, Method m, Object[] args) throws Throwable {
+            switch (m.getName()) {
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return "Pooled-" + raw;
+                default:
+                    break;
+            }
+            synchronized (this) {
+                switch (m.getName()) {
+                    case "close":
+                        if (!released) {
+                            released = true;
+                            closeStatements();
+                            giveBack(this);
+                        }
+                        return null;
+                    case "isClosed":
+                        return released || raw.isClosed();
+                    default:
+                        if (released) throw new SQLException("The connection is closed.");
+                        break;
+                }
+                switch (m.getName()) {
+                    case "setReadOnly":
+                    case "setTransactionIsolation":
+                    case "setHoldability":
+                    case "setCatalog":
+                    case "setSchema":
+                    case "setNetworkTimeout":
+                        changed.add(m.getName());
+                        break;
+                    case "unwrap":
+                        // Asking for the driver's own types gives the physical connection, as told in the class documentation.
+                        if (((Class<?>) args[0]).isInstance(p)) return p;
+                        break;
+                    case "isWrapperFor":
+                        if (((Class<?>) args[0]).isInstance(p)) return true;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            var result = invokeRaw(raw, m, args);
+            if (!(result instanceof Statement)) return result;
+            var st = (Statement) result;
+            statements.add(st);
+            return new TrackedStatement(this, st).proxy(m.getReturnType());
+        }
+
+        private void closeStatements() {
+            for (var st : statements) {
+                try {
+                    st.close();
+                } catch (SQLException e) {
+                    // Nothing to do. The connection is being given back anyway.
+                }
+            }
+            statements.clear();
+        }
+    }
+
+    /**
+     * A statement created through a connection taken from the pool. It is forgotten by the connection when closed.
+     */
+    private static final class TrackedStatement implements InvocationHandler {
+        private final Handle owner;
+        private final Statement raw;
+
+        public TrackedStatement(@NonNull Handle owner, @NonNull Statement raw) {
+            this.owner = owner;
+            this.raw = raw;
+        }
+
+        public Object proxy(@NonNull Class<?> type) {
+            var ccl = Thread.currentThread().getContextClassLoader();
+            return Proxy.newProxyInstance(ccl, new Class<?>[] {type}, this);
+        }
+
+        @Override
+        @SuppressWarnings("PMD.CompareObjectsWithEquals")
+        public Object invoke(Object p, Method m, Object[] args) throws Throwable {
+            switch (m.getName()) {
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return "Pooled-" + raw;
+                case "getConnection":
+                    return owner.proxy;
+                case "close":
+                    owner.statements.remove(raw);
+                    break;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(p)) return p;
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(p)) return true;
+                    break;
+                default:
+                    break;
+            }
+            return invokeRaw(raw, m, args);
+        }
+    }
+}
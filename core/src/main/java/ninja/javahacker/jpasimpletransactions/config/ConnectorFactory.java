@@ -21,6 +21,15 @@ public interface ConnectorFactory {
      */
     public Connector connect() throws WrongProviderException;
 
+    /**
+     * Creates a new {@link Connector} that only {@linkplain #connect() connects} when it is first needed.
+     * @return A new {@link Connector} that only connects when it is first needed.
+     * @see Connector#lazy(String, java.util.function.Supplier)
+     */
+    public default Connector connectLazily() {
+        return Connector.lazy(getPersistenceUnitName(), this::connect);
+    }
+
     /**
      * Thrown when a provider is not capable of instantiating a connector.
      * @author Victor Williams Stafusa da Silva
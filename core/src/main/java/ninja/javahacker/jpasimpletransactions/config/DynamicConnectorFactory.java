@@ -3,6 +3,7 @@ package ninja.javahacker.jpasimpletransactions.config;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
 import java.sql.Driver;
+import java.util.HashMap;
 import java.util.Map;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -219,6 +220,19 @@ public class DynamicConnectorFactory implements StandardConnectorFactory<Dynamic
      */
     @NonNull String databaseMinorVersion;
 
+    /**
+     * How the JDBC connections should be pooled.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param poolSettings {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    @NonNull PoolSettings poolSettings;
+
     /**
      * The set of extra custom properties.
      * -- GETTER --
@@ -252,6 +266,7 @@ public class DynamicConnectorFactory implements StandardConnectorFactory<Dynamic
         this.databaseProductName = "";
         this.databaseMajorVersion = "";
         this.databaseMinorVersion = "";
+        this.poolSettings = PoolSettings.disabled();
         this.extras = Map.of();
     }
 
@@ -262,7 +277,20 @@ public class DynamicConnectorFactory implements StandardConnectorFactory<Dynamic
     @Override
     public Connector connect() {
         String pu = getPersistenceUnitName();
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory(pu, getProperties());
-        return Connector.create(pu, emf, ProviderAdapter.findFor(emf));
+        var pool = ConnectionPool.of(this);
+        if (pool.isEmpty()) {
+            EntityManagerFactory emf = Persistence.createEntityManagerFactory(pu, getProperties());
+            return Connector.create(pu, emf, ProviderAdapter.findFor(emf));
+        }
+        var properties = new HashMap<String, Object>(ConnectionPool.withoutConnectionProperties(getProperties()));
+        properties.put(ConnectionPool.NON_JTA_DATASOURCE, pool.get());
+        EntityManagerFactory emf;
+        try {
+            emf = Persistence.createEntityManagerFactory(pu, properties);
+        } catch (RuntimeException e) {
+            pool.get().close();
+            throw e;
+        }
+        return Connector.create(pu, emf, ProviderAdapter.findFor(emf), pool.get()::close);
     }
 }
@@ -0,0 +1,154 @@
+package ninja.javahacker.jpasimpletransactions.config;
+
+import java.time.Duration;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.With;
+
+/**
+ * Specifies how the JDBC connections used by a {@link ninja.javahacker.jpasimpletransactions.Connector} should be pooled.
+ * <p>When pooling is {@linkplain #isEnabled() enabled}, the {@link StandardConnectorFactory} opens the JDBC connections itself
+ * using its driver, URL, user and password and hands a pooled {@link javax.sql.DataSource} to the JPA provider, regardless of which
+ * provider is used. When pooling is disabled, the connection properties are handed to the provider, which manages the connections
+ * by its own means.</p>
+ * <p>The pool statistics are reported through the {@link ninja.javahacker.jpasimpletransactions.ConnectorListener}s.</p>
+ * @see StandardConnectorFactory#getPoolSettings()
+ * @see StandardConnectorFactory#withPoolSettings(PoolSettings)
+ * @see #disabled()
+ * @see #defaults()
+ * @author Victor Williams Stafusa da Silva
+ */
+@Value
+@With
+public class PoolSettings {
+
+    private static final PoolSettings DISABLED = new PoolSettings(0, 0, Duration.ZERO, Duration.ZERO, false, Duration.ZERO);
+
+    private static final PoolSettings DEFAULTS =
+            new PoolSettings(0, 10, Duration.ofSeconds(30), Duration.ofMinutes(10), true, Duration.ZERO);
+
+    /**
+     * The number of connections that are kept open even if idle.
+     * -- GETTER --
+     * Gives the number of connections that are kept open even if idle.
+     * @return The number of connections that are kept open even if idle.
+     * -- WITH --
+     * Defines the number of connections that are kept open even if idle.
+     * @param minSize The number of connections that are kept open even if idle.
+     * @return A new instance of this class which is similar to {@code this}, but with the given minimum size.
+     * @throws IllegalArgumentException If {@code minSize} is negative or greater than the {@linkplain #getMaxSize() maximum size}.
+     */
+    int minSize;
+
+    /**
+     * The maximum number of connections that might be open at once. Zero means that pooling is disabled.
+     * -- GETTER --
+     * Gives the maximum number of connections that might be open at once. Zero means that pooling is disabled.
+     * @return The maximum number of connections that might be open at once.
+     * -- WITH --
+     * Defines the maximum number of connections that might be open at once. Zero means that pooling is disabled.
+     * @param maxSize The maximum number of connections that might be open at once.
+     * @return A new instance of this class which is similar to {@code this}, but with the given maximum size.
+     * @throws IllegalArgumentException If {@code maxSize} is negative or smaller than the {@linkplain #getMinSize() minimum size}.
+     */
+    int maxSize;
+
+    /**
+     * For how long a thread waits for a connection when all of them are in use before giving up.
+     * -- GETTER --
+     * Tells for how long a thread waits for a connection when all of them are in use before giving up.
+     * @return For how long a thread waits for a connection when all of them are in use before giving up.
+     * -- WITH --
+     * Defines for how long a thread waits for a connection when all of them are in use before giving up.
+     * @param acquireTimeout For how long a thread waits for a connection when all of them are in use before giving up.
+     * @return A new instance of this class which is similar to {@code this}, but with the given acquire timeout.
+     * @throws IllegalArgumentException If {@code acquireTimeout} is {@code null} or negative.
+     */
+    @NonNull
+    Duration acquireTimeout;
+
+    /**
+     * For how long a connection might stay idle in the pool before being closed. Zero means forever.
+     * -- GETTER --
+     * Tells for how long a connection might stay idle in the pool before being closed. Zero means forever.
+     * @return For how long a connection might stay idle in the pool before being closed.
+     * -- WITH --
+     * Defines for how long a connection might stay idle in the pool before being closed. Zero means forever.
+     * @param idleTimeout For how long a connection might stay idle in the pool before being closed.
+     * @return A new instance of this class which is similar to {@code this}, but with the given idle timeout.
+     * @throws IllegalArgumentException If {@code idleTimeout} is {@code null} or negative.
+     */
+    @NonNull
+    Duration idleTimeout;
+
+    /**
+     * If idle connections should be validated before being handed out.
+     * -- GETTER --
+     * Tells if idle connections should be validated before being handed out.
+     * @return If idle connections should be validated before being handed out.
+     * -- WITH --
+     * Defines if idle connections should be validated before being handed out.
+     * @param validateOnBorrow If idle connections should be validated before being handed out.
+     * @return A new instance of this class which is similar to {@code this}, but with the given validation setting.
+     */
+    boolean validateOnBorrow;
+
+    /**
+     * For how long a connection might be held before being reported as a probable leak. Zero disables leak detection.
+     * -- GETTER --
+     * Tells for how long a connection might be held before being reported as a probable leak. Zero disables leak detection.
+     * @return For how long a connection might be held before being reported as a probable leak.
+     * -- WITH --
+     * Defines for how long a connection might be held before being reported as a probable leak. Zero disables leak detection.
+     * @param leakDetectionThreshold For how long a connection might be held before being reported as a probable leak.
+     * @return A new instance of this class which is similar to {@code this}, but with the given leak detection threshold.
+     * @throws IllegalArgumentException If {@code leakDetectionThreshold} is {@code null} or negative.
+     */
+    @NonNull
+    Duration leakDetectionThreshold;
+
+    private PoolSettings(
+            int minSize,
+            int maxSize,
+            @NonNull Duration acquireTimeout,
+            @NonNull Duration idleTimeout,
+            boolean validateOnBorrow,
+            @NonNull Duration leakDetectionThreshold)
+    {
+        if (minSize < 0 || maxSize < minSize) throw new IllegalArgumentException("Bad pool size: " + minSize + " to " + maxSize + ".");
+        if (acquireTimeout.isNegative()) throw new IllegalArgumentException("Negative acquire timeout.");
+        if (idleTimeout.isNegative()) throw new IllegalArgumentException("Negative idle timeout.");
+        if (leakDetectionThreshold.isNegative()) throw new IllegalArgumentException("Negative leak detection threshold.");
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeout = acquireTimeout;
+        this.idleTimeout = idleTimeout;
+        this.validateOnBorrow = validateOnBorrow;
+        this.leakDetectionThreshold = leakDetectionThreshold;
+    }
+
+    /**
+     * Gives settings which disable the pooling, leaving the connection management to the JPA provider.
+     * @return Settings which disable the pooling.
+     */
+    public static PoolSettings disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Gives reasonable settings for a small pool: up to 10 connections, waiting up to 30 seconds for one of them, closing
+     * connections idle for more than 10 minutes and validating them before use.
+     * @return Reasonable settings for a small pool.
+     */
+    public static PoolSettings defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Tells if pooling is enabled, which means that the {@linkplain #getMaxSize() maximum size} is positive.
+     * @return If pooling is enabled.
+     */
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+}
@@ -1,5 +1,7 @@
 package ninja.javahacker.jpasimpletransactions.config;
 
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.SharedCacheMode;
 import jakarta.persistence.spi.PersistenceProvider;
 import java.lang.annotation.Annotation;
 import java.net.MalformedURLException;
@@ -7,13 +9,16 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
+import javax.sql.DataSource;
 import lombok.NonNull;
 import ninja.javahacker.jpasimpletransactions.Connector;
 import ninja.javahacker.jpasimpletransactions.ProviderAdapter;
+import ninja.javahacker.jpasimpletransactions.StatementCounter;
 
 /**
  * A collection of properties used to instantiate a {@link Connector}.
@@ -122,6 +127,114 @@ public interface ProviderConnectorFactory<E extends ProviderConnectorFactory<E>>
      */
     public E withScopedAnnotation(@NonNull Class<? extends Annotation> scopedAnnotation) throws IllegalArgumentException;
 
+    /**
+     * Tells if the persistence provider should scan the classpath for entity classes that were not explicitly declared.
+     * @return {@link OptionalBoolean#TRUE} if the classpath should be scanned, {@link OptionalBoolean#FALSE} if not
+     *     and {@link OptionalBoolean#UNSPECIFIED} if it should be scanned only when no entity class is explicitly declared.
+     * @see #isScanningClasspath()
+     */
+    public OptionalBoolean getClasspathScanning();
+
+    /**
+     * Defines if the persistence provider should scan the classpath for entity classes that were not explicitly declared.
+     * Scanning the classpath might take a few seconds in applications with large classpaths.
+     * @param classpathScanning {@link OptionalBoolean#TRUE} if the classpath should be scanned, {@link OptionalBoolean#FALSE} if not
+     *     and {@link OptionalBoolean#UNSPECIFIED} if it should be scanned only when no entity class is explicitly declared.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition of whether the classpath should be scanned.
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    public E withClasspathScanning(@NonNull OptionalBoolean classpathScanning) throws IllegalArgumentException;
+
+    /**
+     * Defines if the persistence provider should scan the classpath for entity classes that were not explicitly declared.
+     * Scanning the classpath might take a few seconds in applications with large classpaths.
+     * @param newValue {@code true} if the classpath should be scanned, {@code false} if not.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition of whether the classpath should be scanned.
+     */
+    public default E withClasspathScanning(boolean newValue) {
+        return withClasspathScanning(OptionalBoolean.from(newValue));
+    }
+
+    /**
+     * Tells if the persistence provider will scan the classpath for entity classes that were not explicitly declared.
+     * @return {@code true} if the {@linkplain #getClasspathScanning() classpath scanning} is {@link OptionalBoolean#TRUE} or if it
+     *     is {@link OptionalBoolean#UNSPECIFIED} and no entity class is {@linkplain #getEntities() explicitly declared},
+     *     {@code false} otherwise.
+     */
+    public default boolean isScanningClasspath() {
+        var scanning = getClasspathScanning();
+        return scanning == OptionalBoolean.TRUE || (scanning == OptionalBoolean.UNSPECIFIED && getEntities().isEmpty());
+    }
+
+    /**
+     * Tells how the entity classes are enhanced (or woven) for the persistence provider.
+     * @return How the entity classes are enhanced (or woven) for the persistence provider.
+     */
+    public Weaving getWeaving();
+
+    /**
+     * Defines how the entity classes are enhanced (or woven) for the persistence provider.
+     * @param weaving How the entity classes are enhanced (or woven) for the persistence provider.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition of how the entity classes are enhanced.
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    public E withWeaving(@NonNull Weaving weaving) throws IllegalArgumentException;
+
+    /**
+     * Tells how the second-level (shared) cache of the persistence unit is configured.
+     * @return How the second-level (shared) cache of the persistence unit is configured.
+     */
+    public SecondLevelCache getSecondLevelCache();
+
+    /**
+     * Defines how the second-level (shared) cache of the persistence unit is configured.
+     * Each persistence provider translates this into its own properties.
+     * @param secondLevelCache How the second-level (shared) cache of the persistence unit is configured.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     configuration of the second-level cache.
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    public E withSecondLevelCache(@NonNull SecondLevelCache secondLevelCache) throws IllegalArgumentException;
+
+    /**
+     * Tells if the SQL statements issued by the persistence provider are reported to the {@link StatementCounter}.
+     * @return If the SQL statements issued by the persistence provider are reported to the {@link StatementCounter}.
+     * @see Connector#setRepeatedStatementThreshold(int)
+     */
+    public boolean isStatementInspection();
+
+    /**
+     * Defines if the SQL statements issued by the persistence provider are reported to the {@link StatementCounter}, which is
+     * needed to detect N+1 query problems with {@link Connector#setRepeatedStatementThreshold(int)}. This installs a
+     * provider-specific statement inspector, replacing any other that is configured through the same property.
+     * @param statementInspection If the SQL statements issued by the persistence provider are reported to the
+     *     {@link StatementCounter}.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition of whether the SQL statements are inspected.
+     * @see ProviderAdapter#statementInspectionProperties()
+     */
+    public E withStatementInspection(boolean statementInspection);
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * @implNote This adds the {@linkplain SecondLevelCache#getSharedCacheMode() shared cache mode} and the
+     *     {@linkplain ProviderAdapter#statementInspectionProperties() statement inspection properties}, if
+     *     {@linkplain #isStatementInspection() turned on}, to the standard properties.
+     *     Translating the remaining {@linkplain #getSecondLevelCache() second-level cache settings} is up to the implementations.
+     */
+    @Override
+    public default Map<String, String> getStandardProperties() {
+        var props = new HashMap<>(StandardConnectorFactory.super.getStandardProperties());
+        var mode = getSecondLevelCache().getSharedCacheMode();
+        if (mode != SharedCacheMode.UNSPECIFIED) props.put(SimplePersistenceUnitInfo.SHARED_CACHE_MODE, mode.name());
+        if (isStatementInspection()) props.putAll(getProviderAdapter().statementInspectionProperties());
+        return Map.copyOf(props);
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
@@ -130,19 +243,35 @@ public interface ProviderConnectorFactory<E extends ProviderConnectorFactory<E>>
     @Override
     public default Connector connect() throws WrongProviderException {
         String pu = getPersistenceUnitName();
-        Map<String, String> properties = getProperties();
         ProviderAdapter pa = getProviderAdapter();
         PersistenceProvider pp = pa.getJpaProvider();
+        var pool = ConnectionPool.of(this);
+        Map<String, String> properties = pool.isPresent() ? ConnectionPool.withoutConnectionProperties(getProperties()) : getProperties();
         var spui = new SimplePersistenceUnitInfo(
                 getPersistenceUnitUrl(),
                 pp.getClass(),
                 pu,
                 getEntities(),
                 getScopedAnnotation(),
-                properties
+                properties,
+                pool.map(DataSource.class::cast),
+                isScanningClasspath()
         );
-        var emf = pp.createContainerEntityManagerFactory(spui, properties);
-        if (emf == null) throw new WrongProviderException();
-        return Connector.create(pu, emf, pa);
+        Runnable release = () -> {
+            spui.removeTransformers();
+            pool.ifPresent(ConnectionPool::close);
+        };
+        EntityManagerFactory emf;
+        try {
+            emf = pp.createContainerEntityManagerFactory(spui, properties);
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+        if (emf == null) {
+            release.run();
+            throw new WrongProviderException();
+        }
+        return Connector.create(pu, emf, pa, release);
     }
-}
\ No newline at end of file
+}
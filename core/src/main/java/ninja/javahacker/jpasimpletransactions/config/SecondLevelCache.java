@@ -0,0 +1,204 @@
+package ninja.javahacker.jpasimpletransactions.config;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.SharedCacheMode;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.With;
+
+/**
+ * Provider-neutral definition of the second-level (shared) cache of a persistence unit.
+ * <p>Each JPA provider translates this into its own properties. Settings that some provider can't honor are ignored by it,
+ * as documented in the provider-specific {@link ProviderConnectorFactory} implementations.</p>
+ * @see ProviderConnectorFactory#getSecondLevelCache()
+ * @see ProviderConnectorFactory#withSecondLevelCache(SecondLevelCache)
+ * @see #unspecified()
+ * @see #of(SharedCacheMode)
+ * @author Victor Williams Stafusa da Silva
+ */
+@Value
+@With
+public class SecondLevelCache {
+
+    private static final SecondLevelCache UNSPECIFIED =
+            new SecondLevelCache(SharedCacheMode.UNSPECIFIED, OptionalBoolean.UNSPECIFIED, 0, Duration.ZERO, Map.of());
+
+    /**
+     * Which entities are cached.
+     * -- GETTER --
+     * Tells which entities are cached.
+     * @return Which entities are cached.
+     * -- WITH --
+     * Defines which entities are cached.
+     * @param sharedCacheMode Which entities are cached.
+     * @return A new instance of this class which is similar to {@code this}, but with the given shared cache mode.
+     * @throws IllegalArgumentException If {@code sharedCacheMode} is {@code null}.
+     */
+    @NonNull
+    SharedCacheMode sharedCacheMode;
+
+    /**
+     * If the results of queries are cached.
+     * -- GETTER --
+     * Tells if the results of queries are cached.
+     * @return If the results of queries are cached.
+     * -- WITH --
+     * Defines if the results of queries are cached.
+     * @param queryCache If the results of queries are cached.
+     * @return A new instance of this class which is similar to {@code this}, but with the given query cache setting.
+     * @throws IllegalArgumentException If {@code queryCache} is {@code null}.
+     */
+    @NonNull
+    OptionalBoolean queryCache;
+
+    /**
+     * The default maximum number of entries kept for each cached entity. Zero means the provider default.
+     * -- GETTER --
+     * Gives the default maximum number of entries kept for each cached entity. Zero means the provider default.
+     * @return The default maximum number of entries kept for each cached entity.
+     * -- WITH --
+     * Defines the default maximum number of entries kept for each cached entity. Zero means the provider default.
+     * @param maxEntries The default maximum number of entries kept for each cached entity.
+     * @return A new instance of this class which is similar to {@code this}, but with the given maximum number of entries.
+     * @throws IllegalArgumentException If {@code maxEntries} is negative.
+     */
+    int maxEntries;
+
+    /**
+     * For how long cached entries stay valid by default. Zero means the provider default.
+     * -- GETTER --
+     * Tells for how long cached entries stay valid by default. Zero means the provider default.
+     * @return For how long cached entries stay valid by default.
+     * -- WITH --
+     * Defines for how long cached entries stay valid by default. Zero means the provider default.
+     * @param timeToLive For how long cached entries stay valid by default.
+     * @return A new instance of this class which is similar to {@code this}, but with the given time to live.
+     * @throws IllegalArgumentException If {@code timeToLive} is {@code null} or negative.
+     */
+    @NonNull
+    Duration timeToLive;
+
+    /**
+     * The entities which are always cached, each one with its own settings.
+     * -- GETTER --
+     * Gives the entities which are always cached, each one with its own settings.
+     * @return An immutable map with the entities which are always cached, each one with its own settings.
+     * -- WITH --
+     * Defines the entities which are always cached, each one with its own settings.
+     * @param regions The entities which are always cached, each one with its own settings.
+     * @return A new instance of this class which is similar to {@code this}, but with the given entities' settings.
+     * @throws IllegalArgumentException If {@code regions} is {@code null}.
+     */
+    @NonNull
+    Map<Class<?>, Region> regions;
+
+    private SecondLevelCache(
+            @NonNull SharedCacheMode sharedCacheMode,
+            @NonNull OptionalBoolean queryCache,
+            int maxEntries,
+            @NonNull Duration timeToLive,
+            @NonNull Map<Class<?>, Region> regions)
+    {
+        if (maxEntries < 0) throw new IllegalArgumentException("Negative cache size.");
+        if (timeToLive.isNegative()) throw new IllegalArgumentException("Negative time to live.");
+        this.sharedCacheMode = sharedCacheMode;
+        this.queryCache = queryCache;
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.regions = Map.copyOf(regions);
+    }
+
+    /**
+     * Settings of the cache for a single entity.
+     */
+    @Value
+    public static class Region {
+
+        /**
+         * The maximum number of entries kept for the entity. Zero means the cache default.
+         * -- GETTER --
+         * Gives the maximum number of entries kept for the entity. Zero means the cache default.
+         * @return The maximum number of entries kept for the entity.
+         */
+        int maxEntries;
+
+        /**
+         * For how long cached entries of the entity stay valid. Zero means the cache default.
+         * -- GETTER --
+         * Tells for how long cached entries of the entity stay valid. Zero means the cache default.
+         * @return For how long cached entries of the entity stay valid.
+         */
+        @NonNull
+        Duration timeToLive;
+
+        /**
+         * Sole constructor.
+         * @param maxEntries The maximum number of entries kept for the entity. Zero means the cache default.
+         * @param timeToLive For how long cached entries of the entity stay valid. Zero means the cache default.
+         * @throws IllegalArgumentException If {@code maxEntries} is negative or {@code timeToLive} is {@code null} or negative.
+         */
+        public Region(int maxEntries, @NonNull Duration timeToLive) {
+            if (maxEntries < 0) throw new IllegalArgumentException("Negative cache size.");
+            if (timeToLive.isNegative()) throw new IllegalArgumentException("Negative time to live.");
+            this.maxEntries = maxEntries;
+            this.timeToLive = timeToLive;
+        }
+    }
+
+    /**
+     * Gives settings which leave the second-level cache to the provider defaults.
+     * @return Settings which leave the second-level cache to the provider defaults.
+     */
+    public static SecondLevelCache unspecified() {
+        return UNSPECIFIED;
+    }
+
+    /**
+     * Gives settings with the given shared cache mode and the provider defaults for everything else.
+     * @param sharedCacheMode Which entities are cached.
+     * @return Settings with the given shared cache mode.
+     * @throws IllegalArgumentException If {@code sharedCacheMode} is {@code null}.
+     */
+    public static SecondLevelCache of(@NonNull SharedCacheMode sharedCacheMode) {
+        return UNSPECIFIED.withSharedCacheMode(sharedCacheMode);
+    }
+
+    /**
+     * Adds or replaces the settings of some entity, which will be always cached unless the {@linkplain #getSharedCacheMode()
+     * shared cache mode} is {@link SharedCacheMode#NONE}.
+     * @param entity The entity class.
+     * @param maxEntries The maximum number of entries kept for the entity. Zero means the cache default.
+     * @param timeToLive For how long cached entries of the entity stay valid. Zero means the cache default.
+     * @return A new instance of this class which is similar to {@code this}, but with the given entity's settings.
+     * @throws IllegalArgumentException If {@code entity} or {@code timeToLive} are {@code null} or if {@code maxEntries} or
+     *     {@code timeToLive} are negative.
+     */
+    public SecondLevelCache withRegion(@NonNull Class<?> entity, int maxEntries, @NonNull Duration timeToLive) {
+        var m = new HashMap<>(regions);
+        m.put(entity, new Region(maxEntries, timeToLive));
+        return withRegions(m);
+    }
+
+    /**
+     * Tells if the second-level cache is explicitly turned on, which means that the {@linkplain #getSharedCacheMode() shared cache
+     * mode} is neither {@link SharedCacheMode#NONE} nor {@link SharedCacheMode#UNSPECIFIED}.
+     * @return If the second-level cache is explicitly turned on.
+     */
+    public boolean isEnabled() {
+        return sharedCacheMode != SharedCacheMode.NONE && sharedCacheMode != SharedCacheMode.UNSPECIFIED;
+    }
+
+    /**
+     * Gives the name of an entity, as defined in its {@link Entity} annotation or the simple name of its class otherwise.
+     * @param entity The entity class.
+     * @return The name of the entity.
+     * @throws IllegalArgumentException If {@code entity} is {@code null}.
+     */
+    public static String entityName(@NonNull Class<?> entity) {
+        var e = entity.getAnnotation(Entity.class);
+        return e == null || e.name().isEmpty() ? entity.getSimpleName() : e.name();
+    }
+}
@@ -8,9 +8,11 @@ import jakarta.persistence.spi.ClassTransformer;
 import jakarta.persistence.spi.PersistenceProvider;
 import jakarta.persistence.spi.PersistenceUnitInfo;
 import jakarta.persistence.spi.PersistenceUnitTransactionType;
+import jakarta.persistence.spi.TransformerException;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.lang.annotation.Annotation;
+import java.lang.instrument.ClassFileTransformer;
 import java.net.URL;
 import java.util.Collection;
 import java.util.Collections;
@@ -19,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 import javax.sql.DataSource;
 import lombok.AccessLevel;
@@ -34,12 +37,21 @@ import lombok.experimental.FieldDefaults;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public final class SimplePersistenceUnitInfo implements PersistenceUnitInfo {
 
+    /**
+     * The property that defines the value returned by the {@link #getSharedCacheMode()} method.
+     */
+    public static final String SHARED_CACHE_MODE = "jakarta.persistence.sharedCache.mode";
+
     @NonNull Optional<URL> url;
     @NonNull Class<? extends PersistenceProvider> providerClass;
     @NonNull String persistenceUnitName;
     @NonNull List<String> classes;
     @NonNull Class<? extends Annotation> scopeAnnotation;
     @NonNull Map<String, String> properties;
+    @NonNull Optional<DataSource> nonJtaDataSource;
+    boolean scanClasspath;
+    @NonNull List<ClassTransformer> transformers;
+    @NonNull @ToString.Exclude List<ClassFileTransformer> installed;
 
     /**
      * Creates an instance of a {@code SimplePersistenceUnitInfo} with a minimal set of needed data for that.
@@ -52,7 +64,7 @@ public final class SimplePersistenceUnitInfo implements PersistenceUnitInfo {
      * @param scopeAnnotation The annotation for denoting this scope, to be returned by the {@link #getScopeAnnotationName()} method.
      * @throws IllegalArgumentException If any parameter is {@code null}.
      */
-    @SuppressFBWarnings({"OI_OPTIONAL_ISSUES_CHECKING_REFERENCE", "EI_EXPOSE_REP2"})
+    @SuppressFBWarnings("OI_OPTIONAL_ISSUES_CHECKING_REFERENCE")
     public SimplePersistenceUnitInfo(
             @NonNull Optional<URL> url,
             @NonNull Class<? extends PersistenceProvider> providerClass,
@@ -62,6 +74,70 @@ public final class SimplePersistenceUnitInfo implements PersistenceUnitInfo {
             @NonNull Map<String, String> properties)
             throws IllegalArgumentException
     {
+        this(url, providerClass, persistenceUnitName, classes, scopeAnnotation, properties, Optional.empty(), true);
+    }
+
+    /**
+     * Creates an instance of a {@code SimplePersistenceUnitInfo} with a minimal set of needed data for that and a non-JTA
+     * {@link DataSource}.
+     * @param url An {@link Optional} containing the {@link URL} that should be returned by the {@link #getPersistenceUnitRootUrl()} method.
+     *     If there is no such  {@link URL}, an empty {@link Optional}.
+     * @param providerClass The class to be returned by the {@link #getPersistenceProviderClassName()} method.
+     * @param persistenceUnitName The name to be returned by the {@link #getPersistenceUnitName()} method.
+     * @param classes The class to be returned by the {@link #getManagedClassNames()} method.
+     * @param properties The properties to be returned by the {@link #getProperties()} method.
+     * @param scopeAnnotation The annotation for denoting this scope, to be returned by the {@link #getScopeAnnotationName()} method.
+     * @param nonJtaDataSource An {@link Optional} containing the {@link DataSource} that should be returned by the
+     *     {@link #getNonJtaDataSource()} method. If there is no such {@link DataSource}, an empty {@link Optional}.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    @SuppressFBWarnings("OI_OPTIONAL_ISSUES_CHECKING_REFERENCE")
+    public SimplePersistenceUnitInfo(
+            @NonNull Optional<URL> url,
+            @NonNull Class<? extends PersistenceProvider> providerClass,
+            @NonNull String persistenceUnitName,
+            @NonNull Collection<Class<?>> classes,
+            @NonNull Class<? extends Annotation> scopeAnnotation,
+            @NonNull Map<String, String> properties,
+            @NonNull Optional<DataSource> nonJtaDataSource)
+            throws IllegalArgumentException
+    {
+        this(url, providerClass, persistenceUnitName, classes, scopeAnnotation, properties, nonJtaDataSource, true);
+    }
+
+    /**
+     * Creates an instance of a {@code SimplePersistenceUnitInfo} with a minimal set of needed data for that, a non-JTA
+     * {@link DataSource} and a definition of whether the classpath should be scanned for entities.
+     * @param url An {@link Optional} containing the {@link URL} that should be returned by the {@link #getPersistenceUnitRootUrl()} method.
+     *     If there is no such  {@link URL}, an empty {@link Optional}.
+     * @param providerClass The class to be returned by the {@link #getPersistenceProviderClassName()} method.
+     * @param persistenceUnitName The name to be returned by the {@link #getPersistenceUnitName()} method.
+     * @param classes The class to be returned by the {@link #getManagedClassNames()} method.
+     * @param properties The properties to be returned by the {@link #getProperties()} method.
+     * @param scopeAnnotation The annotation for denoting this scope, to be returned by the {@link #getScopeAnnotationName()} method.
+     * @param nonJtaDataSource An {@link Optional} containing the {@link DataSource} that should be returned by the
+     *     {@link #getNonJtaDataSource()} method. If there is no such {@link DataSource}, an empty {@link Optional}.
+     * @param scanClasspath If the persistence provider should scan the classpath for entities not given in {@code classes}.
+     *     If {@code false}, the {@link #getJarFileUrls()} method gives an empty list and the {@link #excludeUnlistedClasses()} method
+     *     gives {@code true}, so the persistence provider won't spend time scanning the classpath.
+     * @throws IllegalArgumentException If any parameter is {@code null}.
+     */
+    @SuppressFBWarnings({"OI_OPTIONAL_ISSUES_CHECKING_REFERENCE", "EI_EXPOSE_REP2"})
+    public SimplePersistenceUnitInfo(
+            @NonNull Optional<URL> url,
+            @NonNull Class<? extends PersistenceProvider> providerClass,
+            @NonNull String persistenceUnitName,
+            @NonNull Collection<Class<?>> classes,
+            @NonNull Class<? extends Annotation> scopeAnnotation,
+            @NonNull Map<String, String> properties,
+            @NonNull Optional<DataSource> nonJtaDataSource,
+            boolean scanClasspath)
+            throws IllegalArgumentException
+    {
+        this.nonJtaDataSource = nonJtaDataSource;
+        this.scanClasspath = scanClasspath;
+        this.transformers = new CopyOnWriteArrayList<>();
+        this.installed = new CopyOnWriteArrayList<>();
         this.url = url;
         this.providerClass = providerClass;
         this.persistenceUnitName = persistenceUnitName;
@@ -134,12 +210,12 @@ public final class SimplePersistenceUnitInfo implements PersistenceUnitInfo {
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
-     * @implSpec This implementation always returns {@code null} in this method.
+     * @implSpec This implementation returns the {@link DataSource} given at the constructor, or {@code null} if none was given.
      */
     @Override
     @Nullable
     public DataSource getNonJtaDataSource() {
-        return null;
+        return nonJtaDataSource.orElse(null);
     }
 
     /**
@@ -156,9 +232,12 @@ public final class SimplePersistenceUnitInfo implements PersistenceUnitInfo {
      * {@inheritDoc}
      * @return {@inheritDoc}
      * @throws UncheckedIOException If an {@link IOException} happens when trying to read the data from the JARs in the classpath.
+     * @implSpec This implementation gives every root of the classpath, unless the classpath scanning was disabled at the
+     *     constructor, in which case it gives an empty list.
      */
     @Override
     public List<URL> getJarFileUrls() throws UncheckedIOException {
+        if (!scanClasspath) return List.of();
         ClassLoader cl = getClassLoader();
         if (cl == null) return List.of();
         try {
@@ -190,21 +269,24 @@ public final class SimplePersistenceUnitInfo implements PersistenceUnitInfo {
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
-     * @implSpec This implementation always returns {@code false} in this method.
+     * @implSpec This implementation returns {@code false} unless the classpath scanning was disabled at the constructor.
      */
     @Override
     public boolean excludeUnlistedClasses() {
-        return false;
+        return !scanClasspath;
     }
 
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
-     * @implSpec This implementation always returns {@link SharedCacheMode#UNSPECIFIED} in this method.
+     * @implSpec This implementation returns the value of the {@value #SHARED_CACHE_MODE} property, if it is
+     *     defined, or {@link SharedCacheMode#UNSPECIFIED} otherwise.
+     * @throws IllegalArgumentException If the {@value #SHARED_CACHE_MODE} property has an invalid value.
      */
     @Override
     public SharedCacheMode getSharedCacheMode() {
-        return SharedCacheMode.UNSPECIFIED;
+        var mode = properties.get(SHARED_CACHE_MODE);
+        return mode == null ? SharedCacheMode.UNSPECIFIED : SharedCacheMode.valueOf(mode);
     }
 
     /**
@@ -252,20 +334,69 @@ public final class SimplePersistenceUnitInfo implements PersistenceUnitInfo {
     /**
      * {@inheritDoc}
      * @param transformer {@inheritDoc}
-     * @implSpec This implementation does nothing in this method.
+     * @throws IllegalArgumentException If {@code transformer} is {@code null}.
+     * @implSpec This implementation keeps the transformer, so it might be applied later through the
+     *     {@link #transform(ClassLoader, String, byte[])} method. If the {@link WeavingAgent} is installed, the transformer is also
+     *     applied by it to the classes loaded from now on, until {@link #removeTransformers()} is called.
      */
     @Override
-    public void addTransformer(ClassTransformer transformer) {
+    public void addTransformer(@NonNull ClassTransformer transformer) {
+        transformers.add(transformer);
+        WeavingAgent.install(transformer).ifPresent(installed::add);
+    }
+
+    /**
+     * Stops the {@link WeavingAgent} from applying the transformers added by the persistence provider, which should be done
+     * when the {@link jakarta.persistence.EntityManagerFactory} is closed. Does nothing if the agent isn't installed.
+     */
+    public void removeTransformers() {
+        for (var t : installed) {
+            WeavingAgent.uninstall(t);
+        }
+        installed.clear();
+    }
+
+    /**
+     * Gives the transformers that were {@linkplain #addTransformer(ClassTransformer) added} by the persistence provider so far.
+     * @return An immutable list with the transformers added by the persistence provider so far.
+     */
+    public List<ClassTransformer> getTransformers() {
+        return List.copyOf(transformers);
+    }
+
+    /**
+     * Applies all the {@linkplain #getTransformers() transformers} added by the persistence provider to the bytecode of a class that
+     * is about to be defined. Each transformer receives the output of the previous one.
+     * <p>The classes which are already loaded can't be changed anymore, so this is intended to be called from an instrumentation
+     * agent or from a class loader that defines the entity classes.</p>
+     * @param loader The class loader that will define the class.
+     * @param className The name of the class in the internal form of fully qualified class names, like {@code "com/example/Fruit"}.
+     * @param classfileBuffer The bytecode of the class.
+     * @return The transformed bytecode, which is {@code classfileBuffer} itself if no transformer changed it.
+     * @throws IllegalArgumentException If {@code className} or {@code classfileBuffer} are {@code null}.
+     * @throws TransformerException If some transformer fails.
+     */
+    public byte[] transform(@Nullable ClassLoader loader, @NonNull String className, @NonNull byte[] classfileBuffer)
+            throws TransformerException
+    {
+        var bytes = classfileBuffer;
+        for (var t : transformers) {
+            var changed = t.transform(loader, className, null, null, bytes);
+            if (changed != null) bytes = changed;
+        }
+        return bytes;
     }
 
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
-     * @implSpec This implementation always returns {@code null} in this method.
+     * @implSpec This implementation returns a new class loader that defines its own copies of the
+     *     {@linkplain #getManagedClassNames() managed classes} found through the {@linkplain #getClassLoader() context class loader},
+     *     delegating every other class to it.
      */
     @Override
-    @Nullable
     public ClassLoader getNewTempClassLoader() {
-        return null;
+        var cl = getClassLoader();
+        return new TempClassLoader(cl == null ? ClassLoader.getSystemClassLoader() : cl, classes);
     }
 }
@@ -2,12 +2,16 @@ package ninja.javahacker.jpasimpletransactions.config;
 
 import jakarta.persistence.PersistenceConfiguration;
 import java.sql.Driver;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 import lombok.NonNull;
 import ninja.javahacker.jpasimpletransactions.Connector;
+import ninja.javahacker.jpasimpletransactions.ReadOnly;
+import ninja.javahacker.jpasimpletransactions.ReplicaBalancing;
 
 /**
  * A collection of properties used to instantiate a {@link Connector}.
@@ -92,6 +96,43 @@ public interface StandardConnectorFactory<E extends StandardConnectorFactory<E>>
      */
     public E withPassword(@NonNull String password) throws IllegalArgumentException;
 
+    /**
+     * Creates a new {@link Connector} that sends {@linkplain ReadOnly read-only} transactions to replica databases and everything
+     * else to the database of this factory's {@linkplain #getUrl() URL}. Each replica is {@linkplain #connect() connected} with
+     * the same settings of this factory, except for the URL and for the schema generation and load script, which are turned off
+     * for the replicas, since they are read-only copies of the primary database.
+     * @param replicaUrls The URLs of the replica databases.
+     * @param balancing How the read-only transactions are spread among the replicas.
+     * @return A new {@link Connector} with the given replicas.
+     * @throws IllegalArgumentException If any parameter is {@code null} or if {@code replicaUrls} contains {@code null}.
+     * @throws WrongProviderException If the provider is not capable of instantiating a connector.
+     * @see Connector#withReplicas(Connector, List, ReplicaBalancing, java.time.Duration)
+     */
+    public default Connector connectWithReplicas(
+            @NonNull List<String> replicaUrls,
+            @NonNull ReplicaBalancing balancing)
+            throws WrongProviderException
+    {
+        if (replicaUrls.contains(null)) throw new IllegalArgumentException("Null replica URL.");
+        var opened = new ArrayList<Connector>(replicaUrls.size() + 1);
+        try {
+            opened.add(connect());
+            for (var url : replicaUrls) {
+                var replica = withUrl(url)
+                        .withSchemaGenerationAction(SchemaGenerationAction.NONE)
+                        .withLoadScript("")
+                        .withCreateDatabaseSchemas(OptionalBoolean.UNSPECIFIED)
+                        .removeExtra(PersistenceConfiguration.SCHEMAGEN_DATABASE_ACTION)
+                        .removeExtra("jakarta.persistence.sql-load-script-source");
+                opened.add(replica.connect());
+            }
+            return Connector.withReplicas(opened.get(0), opened.subList(1, opened.size()), balancing, Connector.DEFAULT_REPLICA_RETRY);
+        } catch (RuntimeException e) {
+            opened.forEach(Connector::close);
+            throw e;
+        }
+    }
+
     /**
      * Gets the strategy used for automatic schema generation or validation.
      * @return The strategy used for automatic schema generation or validation.
@@ -256,6 +297,23 @@ public interface StandardConnectorFactory<E extends StandardConnectorFactory<E>>
      */
     public E withDatabaseMinorVersion(@NonNull String databaseMinorVersion) throws IllegalArgumentException;
 
+    /**
+     * Retrieves how the JDBC connections should be pooled.
+     * @return How the JDBC connections should be pooled.
+     */
+    public PoolSettings getPoolSettings();
+
+    /**
+     * Defines how the JDBC connections should be pooled. If the pooling is {@linkplain PoolSettings#isEnabled() enabled}, the
+     * connections are opened through the {@linkplain #getDriver() driver}, {@linkplain #getUrl() URL}, {@linkplain #getUser() user}
+     * and {@linkplain #getPassword() password} and pooled by this library instead of the JPA provider.
+     * @param poolSettings How the JDBC connections should be pooled.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition of how the JDBC connections should be pooled.
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    public E withPoolSettings(@NonNull PoolSettings poolSettings) throws IllegalArgumentException;
+
     /**
      * Retrieves the set of extra custom properties.
      * @implSpec The returned map should be immutable. Those properties have priority over the standard ones and might override them.
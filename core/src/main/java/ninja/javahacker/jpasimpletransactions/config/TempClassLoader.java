@@ -0,0 +1,67 @@
+package ninja.javahacker.jpasimpletransactions.config;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import lombok.NonNull;
+import lombok.experimental.PackagePrivate;
+
+/**
+ * A throwaway class loader given to the JPA providers through {@link SimplePersistenceUnitInfo#getNewTempClassLoader()}.
+ *
+ * <p>It defines its own copies of the managed classes and of their nested classes, reading them from its parent, so the
+ * providers can introspect the entity classes before their transformers are applied without forcing the real classes to be loaded.
+ * Everything else, including the annotations of the providers and of the libraries, is delegated to the parent, so the
+ * annotations found in the copies are the same ones that the providers look for.</p>
+ *
+ * @author Victor Williams Stafusa da Silva
+ */
+@PackagePrivate
+final class TempClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Set<String> managed;
+
+    public TempClassLoader(@NonNull ClassLoader parent, @NonNull Collection<String> managed) {
+        super("jpa-temp", parent);
+        this.managed = Set.copyOf(managed);
+    }
+
+    private boolean isCopied(String name) {
+        if (managed.contains(name)) return true;
+        var nested = name.lastIndexOf('$');
+        return nested > 0 && isCopied(name.substring(0, nested));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param name {@inheritDoc}
+     * @param resolve {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws ClassNotFoundException {@inheritDoc}
+     */
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        synchronized (getClassLoadingLock(name)) {
+            var c = findLoadedClass(name);
+            if (c == null && isCopied(name)) c = defineCopy(name);
+            if (c == null) return super.loadClass(name, resolve);
+            if (resolve) resolveClass(c);
+            return c;
+        }
+    }
+
+    private Class<?> defineCopy(String name) {
+        try (var in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+            if (in == null) return null;
+            var bytes = in.readAllBytes();
+            return defineClass(name, bytes, 0, bytes.length);
+        } catch (IOException | LinkageError e) {
+            // Can't copy it, so let the parent load it.
+            return null;
+        }
+    }
+}
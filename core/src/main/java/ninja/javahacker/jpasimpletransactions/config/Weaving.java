@@ -0,0 +1,55 @@
+package ninja.javahacker.jpasimpletransactions.config;
+
+import java.util.Locale;
+
+/**
+ * Defines how the entity classes are enhanced (or woven) in order to allow the JPA provider to track changes on them
+ * and to lazily load their attributes.
+ * <p>Each JPA provider translates this into its own properties.</p>
+ * @see ProviderConnectorFactory#getWeaving()
+ * @see ProviderConnectorFactory#withWeaving(Weaving)
+ * @author Victor Williams Stafusa da Silva
+ */
+public enum Weaving {
+
+    /**
+     * Used to represent that no setting about weaving should be defined, so the provider defaults are used.
+     */
+    UNSPECIFIED,
+
+    /**
+     * Used to represent that the entity classes are not enhanced, so the provider should track changes by comparing snapshots.
+     */
+    DISABLED,
+
+    /**
+     * Used to represent that the entity classes should be enhanced at runtime by the transformers that the JPA provider registers
+     * into the {@link jakarta.persistence.spi.PersistenceUnitInfo}.
+     * <p>Note that the transformers can only change classes that were not loaded yet, so they are only effective if the entity classes
+     * are loaded afterwards through the {@link WeavingAgent} or through a class loader that applies them by calling
+     * {@link SimplePersistenceUnitInfo#transform(ClassLoader, String, byte[])}.</p>
+     */
+    RUNTIME,
+
+    /**
+     * Used to represent that the entity classes were already enhanced at build time by the JPA provider's own tools, so no runtime
+     * enhancement should happen.
+     */
+    BUILD_TIME;
+
+    private final String asString;
+
+    private Weaving() {
+        this.asString = name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Returns {@code "unspecified"}, {@code "disabled"}, {@code "runtime"} or {@code "build-time"}
+     * depending on which elements of the enum {@code this} is.
+     * @return {@code "unspecified"}, {@code "disabled"}, {@code "runtime"} or {@code "build-time"}.
+     */
+    @Override
+    public String toString() {
+        return asString;
+    }
+}
@@ -0,0 +1,115 @@
+package ninja.javahacker.jpasimpletransactions.config;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import jakarta.persistence.spi.ClassTransformer;
+import jakarta.persistence.spi.TransformerException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.lang.instrument.Instrumentation;
+import java.security.ProtectionDomain;
+import java.util.Optional;
+import lombok.NonNull;
+
+/**
+ * An instrumentation agent that applies the transformers registered by the JPA providers into the
+ * {@link SimplePersistenceUnitInfo}s to the classes loaded afterwards. This is what makes {@link Weaving#RUNTIME} effective.
+ *
+ * <p>The jar of this module declares this class as its {@code Premain-Class} and {@code Agent-Class}, so it is installed by
+ * starting the JVM with {@code -javaagent:} followed by the path of that jar. The entity classes must not be loaded before their
+ * persistence unit is {@linkplain ProviderConnectorFactory#connect() connected}, since classes already loaded aren't transformed.</p>
+ *
+ * @author Victor Williams Stafusa da Silva
+ */
+public final class WeavingAgent {
+
+    @Nullable
+    private static volatile Instrumentation instrumentation;
+
+    private WeavingAgent() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Installs the agent when the JVM starts with the {@code -javaagent:} option.
+     * @param agentArgs The arguments of the agent, which are ignored.
+     * @param inst The instrumentation services given by the JVM.
+     * @throws IllegalArgumentException If {@code inst} is {@code null}.
+     */
+    public static void premain(@Nullable String agentArgs, @NonNull Instrumentation inst) {
+        instrumentation = inst;
+    }
+
+    /**
+     * Installs the agent when it is attached to a JVM that is already running.
+     * @param agentArgs The arguments of the agent, which are ignored.
+     * @param inst The instrumentation services given by the JVM.
+     * @throws IllegalArgumentException If {@code inst} is {@code null}.
+     */
+    public static void agentmain(@Nullable String agentArgs, @NonNull Instrumentation inst) {
+        premain(agentArgs, inst);
+    }
+
+    /**
+     * Tells if the agent is installed.
+     * @return {@code true} if the agent is installed, {@code false} otherwise.
+     */
+    public static boolean isInstalled() {
+        return instrumentation != null;
+    }
+
+    /**
+     * Makes the given transformer apply to the classes loaded from now on, if the agent is installed.
+     * @param transformer The transformer registered by the JPA provider.
+     * @return The transformer registered into the JVM, which should be given to {@link #uninstall(ClassFileTransformer)} when
+     *     the persistence unit is closed, or an empty {@link Optional} if the agent isn't installed.
+     */
+    static Optional<ClassFileTransformer> install(@NonNull ClassTransformer transformer) {
+        var inst = instrumentation;
+        if (inst == null) return Optional.empty();
+        ClassFileTransformer installed = new Transformer(transformer);
+        inst.addTransformer(installed);
+        return Optional.of(installed);
+    }
+
+    /**
+     * Stops applying a transformer given by {@link #install(ClassTransformer)}.
+     * @param installed The transformer registered into the JVM.
+     */
+    static void uninstall(@NonNull ClassFileTransformer installed) {
+        var inst = instrumentation;
+        if (inst != null) inst.removeTransformer(installed);
+    }
+
+    /**
+     * Adapts a transformer registered by a JPA provider to the JVM.
+     */
+    private static final class Transformer implements ClassFileTransformer {
+        private final ClassTransformer transformer;
+
+        public Transformer(@NonNull ClassTransformer transformer) {
+            this.transformer = transformer;
+        }
+
+        @Override
+        @Nullable
+        @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
+        public byte[] transform(
+                @Nullable ClassLoader loader,
+                @Nullable String className,
+                @Nullable Class<?> classBeingRedefined,
+                @Nullable ProtectionDomain protectionDomain,
+                @NonNull byte[] classfileBuffer)
+                throws IllegalClassFormatException
+        {
+            // The copies defined by the temporary class loaders are only for introspection.
+            if (className == null || loader instanceof TempClassLoader) return null;
+            try {
+                return transformer.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+            } catch (TransformerException e) {
+                var x = new IllegalClassFormatException(e.getMessage());
+                x.initCause(e);
+                throw x;
+            }
+        }
+    }
+}
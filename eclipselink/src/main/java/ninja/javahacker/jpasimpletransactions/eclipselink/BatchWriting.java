@@ -0,0 +1,62 @@
+package ninja.javahacker.jpasimpletransactions.eclipselink;
+
+import java.util.Locale;
+
+/**
+ * Enum for the values of the Eclipselink property {@code eclipselink.jdbc.batch-writing}.
+ * @author Victor Williams Stafusa da Silva
+ */
+public enum BatchWriting {
+
+    /**
+     * Used to represent that no setting about batch writing should be defined.
+     */
+    UNSPECIFIED(""),
+
+    /**
+     * Used to represent that statements should not be batched.
+     */
+    NONE("None"),
+
+    /**
+     * Used to represent that statements should be batched through the standard JDBC batch API.
+     */
+    JDBC("JDBC"),
+
+    /**
+     * Used to represent that statements should be batched by Eclipselink itself, for drivers that don't support JDBC batches.
+     */
+    BUFFERED("Buffered"),
+
+    /**
+     * Used to represent that statements should be batched through Oracle's own JDBC batch API.
+     */
+    ORACLE_JDBC("Oracle-JDBC");
+
+    private final String asString;
+    private final String code;
+
+    private BatchWriting(String code) {
+        this.asString = name().toLowerCase(Locale.ROOT).replace('_', '-');
+        this.code = code;
+    }
+
+    /**
+     * Returns {@code "unspecified"}, {@code "none"}, {@code "jdbc"}, {@code "buffered"} or {@code "oracle-jdbc"},
+     * depending on which elements of the enum {@code this} is.
+     * @return {@code "unspecified"}, {@code "none"}, {@code "jdbc"}, {@code "buffered"} or {@code "oracle-jdbc"}.
+     */
+    @Override
+    public String toString() {
+        return asString;
+    }
+
+    /**
+     * Returns {@code ""}, {@code "None"}, {@code "JDBC"}, {@code "Buffered"} or {@code "Oracle-JDBC"},
+     * depending on which elements of the enum {@code this} is.
+     * @return {@code ""}, {@code "None"}, {@code "JDBC"}, {@code "Buffered"} or {@code "Oracle-JDBC"}.
+     */
+    public String getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,33 @@
+package ninja.javahacker.jpasimpletransactions.eclipselink;
+
+import ninja.javahacker.jpasimpletransactions.StatementCounter;
+import org.eclipse.persistence.internal.databaseaccess.DatabaseCall;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+/**
+ * An Eclipselink session event listener that reports the SQL statement of each database call to the {@link StatementCounter}.
+ * <p>This is what the {@link EclipselinkConnectorFactory} installs when its statement inspection is turned on.</p>
+ * @see EclipselinkAdapter#statementInspectionProperties()
+ * @author Victor Williams Stafusa da Silva
+ */
+public class CountingSessionEventListener extends SessionEventAdapter {
+
+    /**
+     * Sole public constructor, used by Eclipselink.
+     */
+    public CountingSessionEventListener() {
+    }
+
+    /**
+     * Reports the SQL statement of the database call to the {@link StatementCounter}.
+     * @param event The event of the database call.
+     */
+    @Override
+    public void preExecuteCall(SessionEvent event) {
+        var call = event.getCall();
+        if (!(call instanceof DatabaseCall)) return;
+        var sql = ((DatabaseCall) call).getSQLString();
+        if (sql != null) StatementCounter.statementIssued(sql);
+    }
+}
@@ -6,11 +6,17 @@ import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.spi.PersistenceProvider;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
 import lombok.NonNull;
 import ninja.javahacker.jpasimpletransactions.ExtendedEntityManager;
 import ninja.javahacker.jpasimpletransactions.ProviderAdapter;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
 import org.eclipse.persistence.jpa.JpaEntityManager;
 import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.sessions.UnitOfWork;
 
 /**
  * Implementation of {@link ProviderAdapter} for Eclipselink.
@@ -75,6 +81,35 @@ public final class EclipselinkAdapter implements ProviderAdapter {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * @param em {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Optional<Collection<Object>> managedEntities(@NonNull EntityManager em) {
+        var uow = (UnitOfWorkImpl) ExtendedEntityManager.unwrap(ensureRecognition(em)).unwrap(UnitOfWork.class);
+        return Optional.of(new ArrayList<>(uow.getCloneMapping().keySet()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Optional<String> fetchSizeHint() {
+        return Optional.of("eclipselink.jdbc.fetch-size");
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> statementInspectionProperties() {
+        return Map.of("eclipselink.session-event-listener", CountingSessionEventListener.class.getName());
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
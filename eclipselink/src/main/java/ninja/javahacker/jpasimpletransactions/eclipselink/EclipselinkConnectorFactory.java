@@ -3,21 +3,28 @@ package ninja.javahacker.jpasimpletransactions.eclipselink;
 import java.lang.annotation.Annotation;
 import java.net.URL;
 import java.sql.Driver;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.With;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.Tolerate;
 import ninja.javahacker.jpasimpletransactions.SimpleScope;
 import ninja.javahacker.jpasimpletransactions.config.OptionalBoolean;
+import ninja.javahacker.jpasimpletransactions.config.PoolSettings;
 import ninja.javahacker.jpasimpletransactions.config.ProviderConnectorFactory;
 import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationAction;
 import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationActionTarget;
 import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationSource;
+import ninja.javahacker.jpasimpletransactions.config.SecondLevelCache;
+import ninja.javahacker.jpasimpletransactions.config.Weaving;
 
 /**
  * Implementation of {@link ProviderConnectorFactory} for Eclipselink.
@@ -268,6 +275,22 @@ public class EclipselinkConnectorFactory implements ProviderConnectorFactory<Ecl
     @NonNull
     String databaseMinorVersion;
 
+    /**
+     * How the JDBC connections should be pooled.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param poolSettings {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    PoolSettings poolSettings;
+
     /**
      * The set of extra custom properties.
      * -- GETTER --
@@ -316,6 +339,300 @@ public class EclipselinkConnectorFactory implements ProviderConnectorFactory<Ecl
     @NonNull
     Class<? extends Annotation> scopedAnnotation;
 
+    /**
+     * If the classpath should be scanned for entity classes that were not explicitly declared.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param classpathScanning {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    OptionalBoolean classpathScanning;
+
+    /**
+     * How the entity classes are enhanced (or woven) for the persistence provider.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param weaving {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    Weaving weaving;
+
+    /**
+     * How the second-level (shared) cache of the persistence unit is configured.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param secondLevelCache {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    SecondLevelCache secondLevelCache;
+
+    /**
+     * If the SQL statements issued by the persistence provider are reported to the statement counter.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param statementInspection {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    boolean statementInspection;
+
+    /**
+     * How Eclipselink batches the statements sent to the database.
+     * -- GETTER --
+     * Tells how Eclipselink batches the statements sent to the database.
+     * @return How Eclipselink batches the statements sent to the database.
+     * -- WITH --
+     * Defines how Eclipselink batches the statements sent to the database.
+     * @param batchWriting How Eclipselink batches the statements sent to the database.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition of how Eclipselink batches the statements sent to the database.
+     * @throws IllegalArgumentException If {@code batchWriting} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    BatchWriting batchWriting;
+
+    /**
+     * The maximum number of statements in a batch. Zero means the Eclipselink default.
+     * -- GETTER --
+     * Gives the maximum number of statements in a batch. Zero means the Eclipselink default.
+     * @return The maximum number of statements in a batch.
+     * -- WITH --
+     * Defines the maximum number of statements in a batch. Zero means the Eclipselink default.
+     * <p>Invalid values are only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param batchWritingSize The maximum number of statements in a batch.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     maximum number of statements in a batch.
+     */
+    @With
+    @Getter
+    int batchWritingSize;
+
+    /**
+     * Defines if Eclipselink should keep a cache of prepared statements.
+     * -- GETTER --
+     * Tells if Eclipselink should keep a cache of prepared statements.
+     * @return If Eclipselink should keep a cache of prepared statements.
+     * -- WITH --
+     * Defines if Eclipselink should keep a cache of prepared statements.
+     * @param cacheStatements If Eclipselink should keep a cache of prepared statements.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether Eclipselink should keep a cache of prepared statements.
+     * @throws IllegalArgumentException If {@code cacheStatements} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean cacheStatements;
+
+    /**
+     * The maximum number of prepared statements kept in the cache. Zero means the Eclipselink default.
+     * -- GETTER --
+     * Gives the maximum number of prepared statements kept in the cache. Zero means the Eclipselink default.
+     * @return The maximum number of prepared statements kept in the cache.
+     * -- WITH --
+     * Defines the maximum number of prepared statements kept in the cache. Zero means the Eclipselink default.
+     * <p>Invalid values are only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param cacheStatementsSize The maximum number of prepared statements kept in the cache.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     maximum number of prepared statements kept in the cache.
+     */
+    @With
+    @Getter
+    int cacheStatementsSize;
+
+    /**
+     * How many rows the JDBC driver fetches from the database at once. Zero means the JDBC driver default.
+     * -- GETTER --
+     * Gives how many rows the JDBC driver fetches from the database at once. Zero means the JDBC driver default.
+     * @return How many rows the JDBC driver fetches from the database at once.
+     * -- WITH --
+     * Defines how many rows the JDBC driver fetches from the database at once. Zero means the JDBC driver default.
+     * <p>Invalid values are only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param jdbcFetchSize How many rows the JDBC driver fetches from the database at once.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     number of rows that the JDBC driver fetches from the database at once.
+     */
+    @With
+    @Getter
+    int jdbcFetchSize;
+
+    /**
+     * Defines if entities are kept in the shared cache unless configured otherwise.
+     * -- GETTER --
+     * Tells if entities are kept in the shared cache unless configured otherwise.
+     * @return If entities are kept in the shared cache unless configured otherwise.
+     * -- WITH --
+     * Defines if entities are kept in the shared cache unless configured otherwise.
+     * @param sharedCacheDefault If entities are kept in the shared cache unless configured otherwise.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether entities are kept in the shared cache unless configured otherwise.
+     * @throws IllegalArgumentException If {@code sharedCacheDefault} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean sharedCacheDefault;
+
+    /**
+     * Defines if woven entities should load their single-valued relationships lazily.
+     * -- GETTER --
+     * Tells if woven entities should load their single-valued relationships lazily.
+     * @return If woven entities should load their single-valued relationships lazily.
+     * -- WITH --
+     * Defines if woven entities should load their single-valued relationships lazily.
+     * @param weavingLazy If woven entities should load their single-valued relationships lazily.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether woven entities should load their single-valued relationships lazily.
+     * @throws IllegalArgumentException If {@code weavingLazy} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean weavingLazy;
+
+    /**
+     * Defines if woven entities should track their own changes, instead of being compared to snapshots.
+     * -- GETTER --
+     * Tells if woven entities should track their own changes, instead of being compared to snapshots.
+     * @return If woven entities should track their own changes, instead of being compared to snapshots.
+     * -- WITH --
+     * Defines if woven entities should track their own changes, instead of being compared to snapshots.
+     * @param weavingChangeTracking If woven entities should track their own changes, instead of being compared to snapshots.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether woven entities should track their own changes, instead of being compared to snapshots.
+     * @throws IllegalArgumentException If {@code weavingChangeTracking} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean weavingChangeTracking;
+
+    /**
+     * Defines if woven entities should support fetch groups, so their attributes can be partially loaded.
+     * -- GETTER --
+     * Tells if woven entities should support fetch groups, so their attributes can be partially loaded.
+     * @return If woven entities should support fetch groups, so their attributes can be partially loaded.
+     * -- WITH --
+     * Defines if woven entities should support fetch groups, so their attributes can be partially loaded.
+     * @param weavingFetchGroups If woven entities should support fetch groups, so their attributes can be partially loaded.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether woven entities should support fetch groups, so their attributes can be partially loaded.
+     * @throws IllegalArgumentException If {@code weavingFetchGroups} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean weavingFetchGroups;
+
+    /**
+     * Defines if woven entities should get internal optimizations, such as cloning without reflection.
+     * -- GETTER --
+     * Tells if woven entities should get internal optimizations, such as cloning without reflection.
+     * @return If woven entities should get internal optimizations, such as cloning without reflection.
+     * -- WITH --
+     * Defines if woven entities should get internal optimizations, such as cloning without reflection.
+     * @param weavingInternal If woven entities should get internal optimizations, such as cloning without reflection.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether woven entities should get internal optimizations, such as cloning without reflection.
+     * @throws IllegalArgumentException If {@code weavingInternal} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean weavingInternal;
+
+    /**
+     * Defines if woven entities should load their eager relationships through indirection.
+     * -- GETTER --
+     * Tells if woven entities should load their eager relationships through indirection.
+     * @return If woven entities should load their eager relationships through indirection.
+     * -- WITH --
+     * Defines if woven entities should load their eager relationships through indirection.
+     * @param weavingEager If woven entities should load their eager relationships through indirection.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether woven entities should load their eager relationships through indirection.
+     * @throws IllegalArgumentException If {@code weavingEager} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean weavingEager;
+
+    /**
+     * The number of connections opened by Eclipselink's internal connection pool at startup. Zero means the Eclipselink default.
+     * -- GETTER --
+     * Gives the number of connections opened by Eclipselink's internal connection pool at startup. Zero means the Eclipselink default.
+     * @return The number of connections opened by Eclipselink's internal connection pool at startup.
+     * -- WITH --
+     * Defines the number of connections opened by Eclipselink's internal connection pool at startup. Zero means the Eclipselink default.
+     * <p>Invalid values are only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param connectionPoolInitial The number of connections opened by Eclipselink's internal connection pool at startup.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     number of connections opened by Eclipselink's internal connection pool at startup.
+     */
+    @With
+    @Getter
+    int connectionPoolInitial;
+
+    /**
+     * The minimum number of connections kept by Eclipselink's internal connection pool. Zero means the Eclipselink default.
+     * -- GETTER --
+     * Gives the minimum number of connections kept by Eclipselink's internal connection pool. Zero means the Eclipselink default.
+     * @return The minimum number of connections kept by Eclipselink's internal connection pool.
+     * -- WITH --
+     * Defines the minimum number of connections kept by Eclipselink's internal connection pool. Zero means the Eclipselink default.
+     * <p>Invalid values are only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param connectionPoolMin The minimum number of connections kept by Eclipselink's internal connection pool.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     minimum number of connections kept by Eclipselink's internal connection pool.
+     */
+    @With
+    @Getter
+    int connectionPoolMin;
+
+    /**
+     * The maximum number of connections kept by Eclipselink's internal connection pool. Zero means the Eclipselink default.
+     * -- GETTER --
+     * Gives the maximum number of connections kept by Eclipselink's internal connection pool. Zero means the Eclipselink default.
+     * @return The maximum number of connections kept by Eclipselink's internal connection pool.
+     * -- WITH --
+     * Defines the maximum number of connections kept by Eclipselink's internal connection pool. Zero means the Eclipselink default.
+     * <p>Invalid values are only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param connectionPoolMax The maximum number of connections kept by Eclipselink's internal connection pool.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     maximum number of connections kept by Eclipselink's internal connection pool.
+     */
+    @With
+    @Getter
+    int connectionPoolMax;
+
     /**
      * Sole public constructor. Creates an empty instance.
      * To be something useful, the instance should be built by further call to {@code withXXX} methods.
@@ -336,9 +653,108 @@ public class EclipselinkConnectorFactory implements ProviderConnectorFactory<Ecl
         this.databaseProductName = "";
         this.databaseMajorVersion = "";
         this.databaseMinorVersion = "";
+        this.poolSettings = PoolSettings.disabled();
         this.extras = Map.of();
         this.entities = Set.of();
         this.scopedAnnotation = SimpleScope.class;
+        this.classpathScanning = OptionalBoolean.UNSPECIFIED;
+        this.weaving = Weaving.UNSPECIFIED;
+        this.secondLevelCache = SecondLevelCache.unspecified();
+        this.statementInspection = false;
+
+        // Update more from:
+        // https://eclipse.dev/eclipselink/documentation/4.0/jpa/extensions/jpa-extensions.html
+        this.batchWriting = BatchWriting.UNSPECIFIED;
+        this.batchWritingSize = 0;
+        this.cacheStatements = OptionalBoolean.UNSPECIFIED;
+        this.cacheStatementsSize = 0;
+        this.jdbcFetchSize = 0;
+        this.sharedCacheDefault = OptionalBoolean.UNSPECIFIED;
+        this.weavingLazy = OptionalBoolean.UNSPECIFIED;
+        this.weavingChangeTracking = OptionalBoolean.UNSPECIFIED;
+        this.weavingFetchGroups = OptionalBoolean.UNSPECIFIED;
+        this.weavingInternal = OptionalBoolean.UNSPECIFIED;
+        this.weavingEager = OptionalBoolean.UNSPECIFIED;
+        this.connectionPoolInitial = 0;
+        this.connectionPoolMin = 0;
+        this.connectionPoolMax = 0;
+    }
+
+    /**
+     * Defines if Eclipselink should keep a cache of prepared statements.
+     * @param newValue If Eclipselink should keep a cache of prepared statements.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether Eclipselink should keep a cache of prepared statements.
+     */
+    @Tolerate
+    public EclipselinkConnectorFactory withCacheStatements(boolean newValue) {
+        return withCacheStatements(OptionalBoolean.from(newValue));
+    }
+
+    /**
+     * Defines if entities are kept in the shared cache unless configured otherwise.
+     * @param newValue If entities are kept in the shared cache unless configured otherwise.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether entities are kept in the shared cache unless configured otherwise.
+     */
+    @Tolerate
+    public EclipselinkConnectorFactory withSharedCacheDefault(boolean newValue) {
+        return withSharedCacheDefault(OptionalBoolean.from(newValue));
+    }
+
+    /**
+     * Defines if woven entities should load their single-valued relationships lazily.
+     * @param newValue If woven entities should load their single-valued relationships lazily.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether woven entities should load their single-valued relationships lazily.
+     */
+    @Tolerate
+    public EclipselinkConnectorFactory withWeavingLazy(boolean newValue) {
+        return withWeavingLazy(OptionalBoolean.from(newValue));
+    }
+
+    /**
+     * Defines if woven entities should track their own changes, instead of being compared to snapshots.
+     * @param newValue If woven entities should track their own changes, instead of being compared to snapshots.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether woven entities should track their own changes, instead of being compared to snapshots.
+     */
+    @Tolerate
+    public EclipselinkConnectorFactory withWeavingChangeTracking(boolean newValue) {
+        return withWeavingChangeTracking(OptionalBoolean.from(newValue));
+    }
+
+    /**
+     * Defines if woven entities should support fetch groups, so their attributes can be partially loaded.
+     * @param newValue If woven entities should support fetch groups, so their attributes can be partially loaded.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether woven entities should support fetch groups, so their attributes can be partially loaded.
+     */
+    @Tolerate
+    public EclipselinkConnectorFactory withWeavingFetchGroups(boolean newValue) {
+        return withWeavingFetchGroups(OptionalBoolean.from(newValue));
+    }
+
+    /**
+     * Defines if woven entities should get internal optimizations, such as cloning without reflection.
+     * @param newValue If woven entities should get internal optimizations, such as cloning without reflection.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether woven entities should get internal optimizations, such as cloning without reflection.
+     */
+    @Tolerate
+    public EclipselinkConnectorFactory withWeavingInternal(boolean newValue) {
+        return withWeavingInternal(OptionalBoolean.from(newValue));
+    }
+
+    /**
+     * Defines if woven entities should load their eager relationships through indirection.
+     * @param newValue If woven entities should load their eager relationships through indirection.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether woven entities should load their eager relationships through indirection.
+     */
+    @Tolerate
+    public EclipselinkConnectorFactory withWeavingEager(boolean newValue) {
+        return withWeavingEager(OptionalBoolean.from(newValue));
     }
 
     /**
@@ -351,6 +767,94 @@ public class EclipselinkConnectorFactory implements ProviderConnectorFactory<Ecl
         return Optional.of(NOWHERE);
     }
 
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalStateException If some of the sizes is negative, if some size or weaving feature is given for a feature
+     *     that is turned off, if the internal connection pool sizes are inconsistent or if they are given while the
+     *     {@linkplain #getPoolSettings() built-in connection pool} is enabled.
+     */
+    @Override
+    public Map<String, String> getStandardProperties() {
+        var props = new HashMap<>(ProviderConnectorFactory.super.getStandardProperties());
+        BiConsumer<String, String> f = (key, value) -> {
+            if (!value.isEmpty()) props.put(key, value);
+        };
+        BiConsumer<String, Integer> n = (key, value) -> {
+            if (value < 0) throw new IllegalStateException("The value of " + key + " can't be negative, but was " + value + ".");
+            if (value != 0) props.put(key, String.valueOf(value));
+        };
+        switch (getWeaving()) {
+            case DISABLED:
+                props.put("eclipselink.weaving", "false");
+                break;
+            case RUNTIME:
+                props.put("eclipselink.weaving", "true");
+                break;
+            case BUILD_TIME:
+                props.put("eclipselink.weaving", "static");
+                break;
+            default:
+                break;
+        }
+
+        // EclipseLink can't take the time to live nor the query cache from properties, only from annotations and query hints.
+        var cache = getSecondLevelCache();
+        if (cache.isEnabled()) {
+            if (cache.getMaxEntries() != 0) props.put("eclipselink.cache.size.default", String.valueOf(cache.getMaxEntries()));
+            cache.getRegions().forEach((entity, region) -> {
+                var name = SecondLevelCache.entityName(entity);
+                props.put("eclipselink.cache.shared." + name, "true");
+                if (region.getMaxEntries() != 0) props.put("eclipselink.cache.size." + name, String.valueOf(region.getMaxEntries()));
+            });
+        }
+
+        // The explicit settings below override what the second-level cache settings imply.
+        if (getBatchWriting() == BatchWriting.NONE && getBatchWritingSize() != 0) {
+            throw new IllegalStateException("A batch writing size was given, but batch writing is turned off.");
+        }
+        if (getCacheStatements() == OptionalBoolean.FALSE && getCacheStatementsSize() != 0) {
+            throw new IllegalStateException("A statement cache size was given, but the statement cache is turned off.");
+        }
+        if (getWeaving() == Weaving.DISABLED) {
+            var flags = Stream.of(
+                    getWeavingLazy(),
+                    getWeavingChangeTracking(),
+                    getWeavingFetchGroups(),
+                    getWeavingInternal(),
+                    getWeavingEager()
+            );
+            if (flags.anyMatch(OptionalBoolean.TRUE::equals)) {
+                throw new IllegalStateException("Some weaving feature was turned on, but weaving is disabled.");
+            }
+        }
+        f.accept("eclipselink.jdbc.batch-writing", getBatchWriting().getCode());
+        n.accept("eclipselink.jdbc.batch-writing.size", getBatchWritingSize());
+        f.accept("eclipselink.jdbc.cache-statements", getCacheStatements().getCode());
+        n.accept("eclipselink.jdbc.cache-statements.size", getCacheStatementsSize());
+        n.accept("eclipselink.jdbc.fetch-size", getJdbcFetchSize());
+        f.accept("eclipselink.cache.shared.default", getSharedCacheDefault().getCode());
+        f.accept("eclipselink.weaving.lazy", getWeavingLazy().getCode());
+        f.accept("eclipselink.weaving.changetracking", getWeavingChangeTracking().getCode());
+        f.accept("eclipselink.weaving.fetchgroups", getWeavingFetchGroups().getCode());
+        f.accept("eclipselink.weaving.internal", getWeavingInternal().getCode());
+        f.accept("eclipselink.weaving.eager", getWeavingEager().getCode());
+
+        var initial = getConnectionPoolInitial();
+        var min = getConnectionPoolMin();
+        var max = getConnectionPoolMax();
+        if ((initial != 0 || min != 0 || max != 0) && getPoolSettings().isEnabled()) {
+            throw new IllegalStateException("Eclipselink's internal connection pool can't be used with the built-in connection pool.");
+        }
+        if (max != 0 && (min > max || initial > max)) {
+            throw new IllegalStateException("The internal connection pool can't start or be kept bigger than its maximum size.");
+        }
+        n.accept("eclipselink.connection-pool.default.initial", initial);
+        n.accept("eclipselink.connection-pool.default.min", min);
+        n.accept("eclipselink.connection-pool.default.max", max);
+        return Map.copyOf(props);
+    }
+
     /**
      * {@inheritDoc}
      * @implNote This returns {@link EclipselinkAdapter#CANONICAL}.
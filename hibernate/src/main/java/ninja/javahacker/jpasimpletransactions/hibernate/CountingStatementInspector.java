@@ -0,0 +1,31 @@
+package ninja.javahacker.jpasimpletransactions.hibernate;
+
+import ninja.javahacker.jpasimpletransactions.StatementCounter;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * A Hibernate {@link StatementInspector} that reports each SQL statement to the {@link StatementCounter}, leaving it unchanged.
+ * <p>This is what the {@link HibernateConnectorFactory} installs when its statement inspection is turned on.</p>
+ * @see HibernateAdapter#statementInspectionProperties()
+ * @author Victor Williams Stafusa da Silva
+ */
+public class CountingStatementInspector implements StatementInspector {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Sole public constructor, used by Hibernate.
+     */
+    public CountingStatementInspector() {
+    }
+
+    /**
+     * Reports the given SQL statement to the {@link StatementCounter}.
+     * @param sql The SQL statement.
+     * @return The given SQL statement, unchanged.
+     */
+    @Override
+    public String inspect(String sql) {
+        if (sql != null) StatementCounter.statementIssued(sql);
+        return sql;
+    }
+}
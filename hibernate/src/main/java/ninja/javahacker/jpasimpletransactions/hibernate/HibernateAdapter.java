@@ -5,11 +5,17 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.spi.PersistenceProvider;
 import java.sql.Connection;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.NonNull;
 import ninja.javahacker.jpasimpletransactions.ExtendedEntityManager;
 import ninja.javahacker.jpasimpletransactions.ProviderAdapter;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.exception.JDBCConnectionException;
 import org.hibernate.jpa.HibernatePersistenceProvider;
 
@@ -70,6 +76,36 @@ public final class HibernateAdapter implements ProviderAdapter {
         return ((Session) ExtendedEntityManager.unwrap(ensureRecognition(em))).doReturningWork(c -> c);
     }
 
+    /**
+     * {@inheritDoc}
+     * @param em {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Optional<Collection<Object>> managedEntities(@NonNull EntityManager em) {
+        var session = ExtendedEntityManager.unwrap(ensureRecognition(em)).unwrap(SessionImplementor.class);
+        var entries = session.getPersistenceContextInternal().reentrantSafeEntityEntries();
+        return Optional.of(Stream.of(entries).map(Map.Entry::getKey).collect(Collectors.toList()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Optional<String> fetchSizeHint() {
+        return Optional.of("org.hibernate.fetchSize");
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> statementInspectionProperties() {
+        return Map.of("hibernate.session_factory.statement_inspector", CountingStatementInspector.class.getName());
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
@@ -1,5 +1,6 @@
 package ninja.javahacker.jpasimpletransactions.hibernate;
 
+import jakarta.persistence.SharedCacheMode;
 import java.lang.annotation.Annotation;
 import java.sql.Driver;
 import java.util.HashMap;
@@ -15,10 +16,13 @@ import lombok.experimental.FieldDefaults;
 import lombok.experimental.Tolerate;
 import ninja.javahacker.jpasimpletransactions.SimpleScope;
 import ninja.javahacker.jpasimpletransactions.config.OptionalBoolean;
+import ninja.javahacker.jpasimpletransactions.config.PoolSettings;
 import ninja.javahacker.jpasimpletransactions.config.ProviderConnectorFactory;
 import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationAction;
 import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationActionTarget;
 import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationSource;
+import ninja.javahacker.jpasimpletransactions.config.SecondLevelCache;
+import ninja.javahacker.jpasimpletransactions.config.Weaving;
 
 /**
  * Implementation of {@link ProviderConnectorFactory} for Hibernate.
@@ -269,6 +273,22 @@ public class HibernateConnectorFactory implements ProviderConnectorFactory<Hiber
     @NonNull
     String databaseMinorVersion;
 
+    /**
+     * How the JDBC connections should be pooled.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param poolSettings {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    PoolSettings poolSettings;
+
     /**
      * The set of extra custom properties.
      * -- GETTER --
@@ -317,6 +337,68 @@ public class HibernateConnectorFactory implements ProviderConnectorFactory<Hiber
     @NonNull
     Class<? extends Annotation> scopedAnnotation;
 
+    /**
+     * If the classpath should be scanned for entity classes that were not explicitly declared.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param classpathScanning {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    OptionalBoolean classpathScanning;
+
+    /**
+     * How the entity classes are enhanced (or woven) for the persistence provider.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param weaving {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    Weaving weaving;
+
+    /**
+     * How the second-level (shared) cache of the persistence unit is configured.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param secondLevelCache {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    SecondLevelCache secondLevelCache;
+
+    /**
+     * If the SQL statements issued by the persistence provider are reported to the statement counter.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param statementInspection {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    boolean statementInspection;
+
     /**
      * The class that represents the dialect that Hibernate should use.
      * -- GETTER --
@@ -457,6 +539,138 @@ public class HibernateConnectorFactory implements ProviderConnectorFactory<Hiber
     @NonNull
     OptionalBoolean newGeneratorMappings;
 
+    /**
+     * The maximum number of statements that Hibernate sends to the database in a single JDBC batch. Zero means no batching.
+     * -- GETTER --
+     * Gives the maximum number of statements that Hibernate sends to the database in a single JDBC batch. Zero means no batching.
+     * @return The maximum number of statements that Hibernate sends to the database in a single JDBC batch.
+     * -- WITH --
+     * Defines the maximum number of statements that Hibernate sends to the database in a single JDBC batch. Zero means no batching.
+     * <p>A negative value is only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param jdbcBatchSize The maximum number of statements that Hibernate sends to the database in a single JDBC batch.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     maximum number of statements that Hibernate sends to the database in a single JDBC batch.
+     */
+    @With
+    @Getter
+    int jdbcBatchSize;
+
+    /**
+     * Defines if inserts should be ordered by entity type, so more of them fit in the same JDBC batch.
+     * -- GETTER --
+     * Tells if inserts should be ordered by entity type, so more of them fit in the same JDBC batch.
+     * @return If inserts should be ordered by entity type, so more of them fit in the same JDBC batch.
+     * -- WITH --
+     * Defines if inserts should be ordered by entity type, so more of them fit in the same JDBC batch.
+     * @param orderInserts If inserts should be ordered by entity type, so more of them fit in the same JDBC batch.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether inserts should be ordered by entity type, so more of them fit in the same JDBC batch.
+     * @throws IllegalArgumentException If {@code orderInserts} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean orderInserts;
+
+    /**
+     * Defines if updates should be ordered by entity type and primary key, so more of them fit in the same JDBC batch.
+     * -- GETTER --
+     * Tells if updates should be ordered by entity type and primary key, so more of them fit in the same JDBC batch.
+     * @return If updates should be ordered by entity type and primary key, so more of them fit in the same JDBC batch.
+     * -- WITH --
+     * Defines if updates should be ordered by entity type and primary key, so more of them fit in the same JDBC batch.
+     * @param orderUpdates If updates should be ordered by entity type and primary key, so more of them fit in the same JDBC batch.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether updates should be ordered by entity type and primary key, so more of them fit in the same JDBC batch.
+     * @throws IllegalArgumentException If {@code orderUpdates} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean orderUpdates;
+
+    /**
+     * Defines if updates of versioned entities could be sent in JDBC batches.
+     * -- GETTER --
+     * Tells if updates of versioned entities could be sent in JDBC batches.
+     * @return If updates of versioned entities could be sent in JDBC batches.
+     * -- WITH --
+     * Defines if updates of versioned entities could be sent in JDBC batches.
+     * @param batchVersionedData If updates of versioned entities could be sent in JDBC batches.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether updates of versioned entities could be sent in JDBC batches.
+     * @throws IllegalArgumentException If {@code batchVersionedData} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean batchVersionedData;
+
+    /**
+     * How many rows the JDBC driver fetches from the database at once. Zero means the JDBC driver default.
+     * -- GETTER --
+     * Gives how many rows the JDBC driver fetches from the database at once. Zero means the JDBC driver default.
+     * @return How many rows the JDBC driver fetches from the database at once.
+     * -- WITH --
+     * Defines how many rows the JDBC driver fetches from the database at once. Zero means the JDBC driver default.
+     * <p>A negative value is only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param jdbcFetchSize How many rows the JDBC driver fetches from the database at once.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     number of rows that the JDBC driver fetches from the database at once.
+     */
+    @With
+    @Getter
+    int jdbcFetchSize;
+
+    /**
+     * How many lazy entities and collections are loaded together by a single query. Zero means loading them one by one.
+     * -- GETTER --
+     * Gives how many lazy entities and collections are loaded together by a single query. Zero means loading them one by one.
+     * @return How many lazy entities and collections are loaded together by a single query.
+     * -- WITH --
+     * Defines how many lazy entities and collections are loaded together by a single query. Zero means loading them one by one.
+     * <p>A negative value is only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param defaultBatchFetchSize How many lazy entities and collections are loaded together by a single query.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     number of lazy entities and collections that are loaded together by a single query.
+     */
+    @With
+    @Getter
+    int defaultBatchFetchSize;
+
+    /**
+     * The maximum number of compiled queries kept by Hibernate. Zero means the Hibernate default.
+     * -- GETTER --
+     * Gives the maximum number of compiled queries kept by Hibernate. Zero means the Hibernate default.
+     * @return The maximum number of compiled queries kept by Hibernate.
+     * -- WITH --
+     * Defines the maximum number of compiled queries kept by Hibernate. Zero means the Hibernate default.
+     * <p>A negative value is only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param queryPlanCacheMaxSize The maximum number of compiled queries kept by Hibernate.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     maximum number of compiled queries kept by Hibernate.
+     */
+    @With
+    @Getter
+    int queryPlanCacheMaxSize;
+
+    /**
+     * Defines if the parameters of {@code IN} clauses should be padded to powers of two.
+     * -- GETTER --
+     * Tells if the parameters of {@code IN} clauses should be padded to powers of two.
+     * @return If the parameters of {@code IN} clauses should be padded to powers of two.
+     * -- WITH --
+     * Defines if the parameters of {@code IN} clauses should be padded to powers of two.
+     * @param inClauseParameterPadding If the parameters of {@code IN} clauses should be padded to powers of two.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether the parameters of {@code IN} clauses should be padded to powers of two.
+     * @throws IllegalArgumentException If {@code inClauseParameterPadding} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean inClauseParameterPadding;
+
     /**
      * Sole public constructor. Creates an empty instance.
      * To be something useful, the instance should be built by further calls to {@code withXXX} methods.
@@ -477,9 +691,14 @@ public class HibernateConnectorFactory implements ProviderConnectorFactory<Hiber
         this.databaseProductName = "";
         this.databaseMajorVersion = "";
         this.databaseMinorVersion = "";
+        this.poolSettings = PoolSettings.disabled();
         this.extras = Map.of();
         this.entities = Set.of();
         this.scopedAnnotation = SimpleScope.class;
+        this.classpathScanning = OptionalBoolean.UNSPECIFIED;
+        this.weaving = Weaving.UNSPECIFIED;
+        this.secondLevelCache = SecondLevelCache.unspecified();
+        this.statementInspection = false;
 
         // Update more from:
         // https://docs.jboss.org/hibernate/orm/current/userguide/html_single/Hibernate_User_Guide.html#settings
@@ -491,6 +710,14 @@ public class HibernateConnectorFactory implements ProviderConnectorFactory<Hiber
         this.useSqlComments = OptionalBoolean.UNSPECIFIED;
         this.multipleLinesCommands = true;
         this.newGeneratorMappings = OptionalBoolean.UNSPECIFIED;
+        this.jdbcBatchSize = 0;
+        this.orderInserts = OptionalBoolean.UNSPECIFIED;
+        this.orderUpdates = OptionalBoolean.UNSPECIFIED;
+        this.batchVersionedData = OptionalBoolean.UNSPECIFIED;
+        this.jdbcFetchSize = 0;
+        this.defaultBatchFetchSize = 0;
+        this.queryPlanCacheMaxSize = 0;
+        this.inClauseParameterPadding = OptionalBoolean.UNSPECIFIED;
     }
 
     /**
@@ -564,9 +791,55 @@ public class HibernateConnectorFactory implements ProviderConnectorFactory<Hiber
         return withNewGeneratorMappings(OptionalBoolean.from(newValue));
     }
 
+    /**
+     * Defines if inserts should be ordered by entity type, so more of them fit in the same JDBC batch.
+     * @param newValue If inserts should be ordered by entity type, so more of them fit in the same JDBC batch.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether inserts should be ordered by entity type, so more of them fit in the same JDBC batch.
+     */
+    @Tolerate
+    public HibernateConnectorFactory withOrderInserts(boolean newValue) {
+        return withOrderInserts(OptionalBoolean.from(newValue));
+    }
+
+    /**
+     * Defines if updates should be ordered by entity type and primary key, so more of them fit in the same JDBC batch.
+     * @param newValue If updates should be ordered by entity type and primary key, so more of them fit in the same JDBC batch.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether updates should be ordered by entity type and primary key, so more of them fit in the same JDBC batch.
+     */
+    @Tolerate
+    public HibernateConnectorFactory withOrderUpdates(boolean newValue) {
+        return withOrderUpdates(OptionalBoolean.from(newValue));
+    }
+
+    /**
+     * Defines if updates of versioned entities could be sent in JDBC batches.
+     * @param newValue If updates of versioned entities could be sent in JDBC batches.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether updates of versioned entities could be sent in JDBC batches.
+     */
+    @Tolerate
+    public HibernateConnectorFactory withBatchVersionedData(boolean newValue) {
+        return withBatchVersionedData(OptionalBoolean.from(newValue));
+    }
+
+    /**
+     * Defines if the parameters of {@code IN} clauses should be padded to powers of two.
+     * @param newValue If the parameters of {@code IN} clauses should be padded to powers of two.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition about whether the parameters of {@code IN} clauses should be padded to powers of two.
+     */
+    @Tolerate
+    public HibernateConnectorFactory withInClauseParameterPadding(boolean newValue) {
+        return withInClauseParameterPadding(OptionalBoolean.from(newValue));
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
+     * @throws IllegalStateException If some of the JDBC batch size, the JDBC fetch size, the default batch fetch size or
+     *     the query plan cache maximum size is negative.
      */
     @Override
     public Map<String, String> getStandardProperties() {
@@ -590,6 +863,38 @@ public class HibernateConnectorFactory implements ProviderConnectorFactory<Hiber
         f.accept("hibernate.format_sql", getFormatSql().getCode());
         f.accept("hibernate.use_sql_comments", getUseSqlComments().getCode());
         f.accept("hibernate.id.new_generator_mappings", getNewGeneratorMappings().getCode());
+
+        BiConsumer<String, Integer> n = (key, value) -> {
+            if (value < 0) throw new IllegalStateException("The value of " + key + " can't be negative, but was " + value + ".");
+            if (value != 0) props.put(key, String.valueOf(value));
+        };
+        n.accept("hibernate.jdbc.batch_size", getJdbcBatchSize());
+        f.accept("hibernate.order_inserts", getOrderInserts().getCode());
+        f.accept("hibernate.order_updates", getOrderUpdates().getCode());
+        f.accept("hibernate.jdbc.batch_versioned_data", getBatchVersionedData().getCode());
+        n.accept("hibernate.jdbc.fetch_size", getJdbcFetchSize());
+        n.accept("hibernate.default_batch_fetch_size", getDefaultBatchFetchSize());
+        n.accept("hibernate.query.plan_cache_max_size", getQueryPlanCacheMaxSize());
+        f.accept("hibernate.query.in_clause_parameter_padding", getInClauseParameterPadding().getCode());
+
+        // Hibernate detects build-time enhanced classes by itself, so runtime enhancement is only turned on when asked for.
+        var w = getWeaving();
+        if (w != Weaving.UNSPECIFIED) {
+            var runtime = String.valueOf(w == Weaving.RUNTIME);
+            props.put("hibernate.enhancer.enableDirtyTracking", runtime);
+            props.put("hibernate.enhancer.enableLazyInitialization", runtime);
+        }
+
+        var cache = getSecondLevelCache();
+        if (cache.getSharedCacheMode() == SharedCacheMode.NONE) {
+            props.put("hibernate.cache.use_second_level_cache", "false");
+        } else if (cache.isEnabled()) {
+            props.put("hibernate.cache.use_second_level_cache", "true");
+            props.put("hibernate.cache.region.factory_class", InMemoryRegionFactory.class.getName());
+            f.accept("hibernate.cache.use_query_cache", cache.getQueryCache().getCode());
+            cache.getRegions().keySet().forEach(entity -> props.put("hibernate.classcache." + entity.getName(), "read-write"));
+            props.putAll(InMemoryRegionFactory.properties(cache));
+        }
         return Map.copyOf(props);
     }
 
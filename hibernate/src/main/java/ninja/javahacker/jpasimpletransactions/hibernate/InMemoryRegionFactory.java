@@ -0,0 +1,192 @@
+package ninja.javahacker.jpasimpletransactions.hibernate;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import ninja.javahacker.jpasimpletransactions.config.SecondLevelCache;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+/**
+ * A Hibernate second-level cache that lives in the memory of the JVM and needs no external service nor library.
+ * <p>Each region is a least-recently-used map, bounded by its maximum number of entries and with entries that expire after
+ * their time to live. Both are read from the {@link #MAX_ENTRIES} and {@link #TIME_TO_LIVE} properties, which might be suffixed
+ * by a dot and the region name to configure a single region. The timestamps region is never bounded nor expired, since
+ * losing its entries would make stale query results look valid.</p>
+ * <p>This is what the {@link HibernateConnectorFactory} uses when its {@link SecondLevelCache} is enabled. It isn't shared
+ * between JVMs, so it is not suitable for clusters.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+public class InMemoryRegionFactory extends RegionFactoryTemplate {
+
+    /**
+     * The property with the maximum number of entries of each region. Zero or absent means unbounded.
+     */
+    public static final String MAX_ENTRIES = "ninja.javahacker.jpasimpletransactions.cache.max_entries";
+
+    /**
+     * The property with the time to live of the entries of each region in milliseconds. Zero or absent means that they never expire.
+     */
+    public static final String TIME_TO_LIVE = "ninja.javahacker.jpasimpletransactions.cache.time_to_live";
+
+    private volatile Map<String, String> settings = Map.of();
+
+    /**
+     * Sole public constructor, used by Hibernate.
+     */
+    public InMemoryRegionFactory() {
+    }
+
+    /**
+     * Gives the properties that configure the sizes and times to live of the regions from a {@link SecondLevelCache}.
+     * @param cache The second-level cache settings.
+     * @return The properties that configure the sizes and times to live of the regions.
+     * @throws IllegalArgumentException If {@code cache} is {@code null}.
+     */
+    public static Map<String, String> properties(@NonNull SecondLevelCache cache) {
+        var props = new HashMap<String, String>();
+        if (cache.getMaxEntries() != 0) props.put(MAX_ENTRIES, String.valueOf(cache.getMaxEntries()));
+        if (!cache.getTimeToLive().isZero()) props.put(TIME_TO_LIVE, String.valueOf(cache.getTimeToLive().toMillis()));
+        cache.getRegions().forEach((entity, region) -> {
+            var suffix = "." + entity.getName();
+            if (region.getMaxEntries() != 0) props.put(MAX_ENTRIES + suffix, String.valueOf(region.getMaxEntries()));
+            if (!region.getTimeToLive().isZero()) props.put(TIME_TO_LIVE + suffix, String.valueOf(region.getTimeToLive().toMillis()));
+        });
+        return Map.copyOf(props);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    protected void prepareForUse(SessionFactoryOptions options, Map configValues) {
+        var copy = new HashMap<String, String>();
+        for (var e : ((Map<?, ?>) configValues).entrySet()) {
+            if (!(e.getKey() instanceof String) || e.getValue() == null) continue;
+            var key = (String) e.getKey();
+            if (key.startsWith(MAX_ENTRIES) || key.startsWith(TIME_TO_LIVE)) copy.put(key, e.getValue().toString());
+        }
+        settings = Map.copyOf(copy);
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        settings = Map.of();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(
+            DomainDataRegionConfig regionConfig,
+            DomainDataRegionBuildingContext buildingContext)
+    {
+        return storageFor(regionConfig.getRegionName());
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return storageFor(regionName);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return new InMemoryStorage(0, Duration.ZERO);
+    }
+
+    private InMemoryStorage storageFor(String regionName) {
+        var maxEntries = setting(MAX_ENTRIES, regionName);
+        var timeToLive = setting(TIME_TO_LIVE, regionName);
+        return new InMemoryStorage(Math.toIntExact(maxEntries), Duration.ofMillis(timeToLive));
+    }
+
+    private long setting(String property, String regionName) {
+        var s = settings;
+        var value = s.getOrDefault(property + "." + regionName, s.get(property));
+        return value == null ? 0L : Long.parseLong(value.trim());
+    }
+
+    @Value
+    private static class CachedValue {
+        Object value;
+        long expiresAt;
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static final class InMemoryStorage implements DomainDataStorageAccess {
+        long timeToLive;
+        Map<Object, CachedValue> entries;
+
+        InMemoryStorage(int maxEntries, @NonNull Duration timeToLive) {
+            if (maxEntries < 0) throw new IllegalArgumentException("Negative cache size.");
+            if (timeToLive.isNegative()) throw new IllegalArgumentException("Negative time to live.");
+            this.timeToLive = timeToLive.toNanos();
+            this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, CachedValue> eldest) {
+                    return maxEntries != 0 && size() > maxEntries;
+                }
+            });
+        }
+
+        private Object find(Object key) {
+            var cached = entries.get(key);
+            if (cached == null) return null;
+            if (timeToLive != 0 && System.nanoTime() - cached.getExpiresAt() > 0) {
+                entries.remove(key, cached);
+                return null;
+            }
+            return cached.getValue();
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            return find(key);
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            entries.put(key, new CachedValue(value, System.nanoTime() + timeToLive));
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return find(key) != null;
+        }
+
+        @Override
+        public void removeFromCache(Object key, SharedSessionContractImplementor session) {
+            entries.remove(key);
+        }
+
+        @Override
+        public void clearCache(SharedSessionContractImplementor session) {
+            entries.clear();
+        }
+
+        @Override
+        public void evictData() {
+            entries.clear();
+        }
+
+        @Override
+        public void evictData(Object key) {
+            entries.remove(key);
+        }
+
+        @Override
+        public void release() {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ninja.javahacker.ninjadao;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lombok.NonNull;
+import lombok.experimental.PackagePrivate;
+import ninja.javahacker.jpasimpletransactions.ConnectorListener;
+
+/**
+ * Listens for committed transactions in order to invalidate the {@link ResultCache}s that depend on
+ * entities touched by {@link Execute} methods.
+ *
+ * <p>Entities touched within a transaction are tracked per thread. While the outermost operation is
+ * still running, the caches depending on them are bypassed, so uncommitted data is never cached nor
+ * stale data is ever served to the thread that changed it. Every commit invalidates the caches
+ * depending on them. Outside such a transaction, the caches are invalidated right after the statement runs.</p>
+ *
+ * @author Victor Williams Stafusa da Silva
+ */
+@PackagePrivate
+final class CacheInvalidator implements ConnectorListener {
+
+    private final List<ResultCache> caches;
+
+    private final ThreadLocal<Scope> scopes;
+
+    public CacheInvalidator() {
+        this.caches = new CopyOnWriteArrayList<>();
+        this.scopes = new ThreadLocal<>();
+    }
+
+    public void add(@NonNull ResultCache cache) {
+        caches.add(cache);
+    }
+
+    public boolean isEmpty() {
+        return caches.isEmpty();
+    }
+
+    public boolean bypasses(@NonNull ResultCache cache) {
+        var s = scopes.get();
+        return s != null && !s.touched.isEmpty() && cache.dependsOn(s.touched);
+    }
+
+    /**
+     * Records that the given entities are about to be changed, so the caches depending on them are invalidated when
+     * the transaction commits.
+     * @param entities The entities about to be changed.
+     * @return {@code false} if not inside a transaction managed by a {@link ninja.javahacker.jpasimpletransactions.Connector},
+     *     in which case the caller should {@linkplain #invalidate(Set) invalidate} the caches itself after the change.
+     */
+    public boolean touched(@NonNull Set<Class<?>> entities) {
+        var s = scopes.get();
+        if (s == null) return false;
+        s.touched.addAll(entities);
+        return true;
+    }
+
+    public void invalidate(@NonNull Set<Class<?>> entities) {
+        for (var c : caches) {
+            if (c.dependsOn(entities)) c.invalidate();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     */
+    @Override
+    public void operationStarted(@NonNull String persistenceUnit) {
+        var s = scopes.get();
+        if (s == null) {
+            s = new Scope();
+            scopes.set(s);
+        }
+        s.depth++;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     */
+    @Override
+    public void finishedWithCommit(@NonNull String persistenceUnit) {
+        var s = scopes.get();
+        if (s != null && !s.touched.isEmpty()) invalidate(s.touched);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     */
+    @Override
+    public void operationFinished(@NonNull String persistenceUnit) {
+        var s = scopes.get();
+        if (s == null) return; // Started before this was registered.
+        s.depth--;
+        if (s.depth <= 0) scopes.remove();
+    }
+
+    /**
+     * Tracks the entities touched in the current thread.
+     */
+    private static final class Scope {
+        private int depth;
+        private final Set<Class<?>> touched = new HashSet<>();
+    }
+}
@@ -0,0 +1,31 @@
+package ninja.javahacker.ninjadao;
+
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Specifies how the JPQL query of the annotated {@link Select} method interacts with the second-level cache.
+ * <p>This is given to the persistence provider through the {@code jakarta.persistence.cache.retrieveMode} and
+ * {@code jakarta.persistence.cache.storeMode} hints.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheMode {
+
+    /**
+     * Whether the results should be read from the second-level cache.
+     * @return Whether the results should be read from the second-level cache.
+     */
+    public CacheRetrieveMode retrieve() default CacheRetrieveMode.USE;
+
+    /**
+     * Whether the results should be put in the second-level cache.
+     * @return Whether the results should be put in the second-level cache.
+     */
+    public CacheStoreMode store() default CacheStoreMode.USE;
+}
@@ -0,0 +1,46 @@
+package ninja.javahacker.ninjadao;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Specifies that the results of the annotated {@link Select} method should be memoized, keyed by the values of its parameters.
+ * <p>The cached results are invalidated when their time to live expires or when some {@link Execute} method which declares
+ * that it {@linkplain Execute#touches() touches} one of the {@linkplain #entities() cached entities} is run inside a transaction
+ * that is committed.</p>
+ * <p>Cached results are shared among every caller, so they should be treated as read-only. Entities returned from the cache are
+ * not managed by the caller's {@link jakarta.persistence.EntityManager}.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cached {
+
+    /**
+     * For how long some cached result stays valid.
+     * @return For how long some cached result stays valid, measured in {@link #unit()}s.
+     */
+    public long ttl() default 60;
+
+    /**
+     * The unit used to measure the {@link #ttl()}.
+     * @return The unit used to measure the {@link #ttl()}.
+     */
+    public TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * The maximum number of distinct parameter combinations whose results are kept in the cache.
+     * @return The maximum number of cached results.
+     */
+    public int maxEntries() default 1000;
+
+    /**
+     * The entities whose modification invalidates the cached results.
+     * If empty, the entity returned by the annotated method is used.
+     * @return The entities whose modification invalidates the cached results.
+     */
+    public Class<?>[] entities() default {};
+}
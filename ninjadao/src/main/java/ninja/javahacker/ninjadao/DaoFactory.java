@@ -3,21 +3,44 @@ package ninja.javahacker.ninjadao;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import jakarta.inject.Named;
+import jakarta.persistence.Entity;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.NoResultException;
+import jakarta.persistence.NonUniqueResultException;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Tuple;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.NonNull;
+import ninja.javahacker.jpasimpletransactions.Connector;
+import ninja.javahacker.jpasimpletransactions.Database;
 import ninja.javahacker.jpasimpletransactions.ExtendedEntityManager;
 import ninja.javahacker.jpasimpletransactions.ExtendedTypedQuery;
 import ninja.javahacker.reifiedgeneric.MalformedReifiedGenericException;
@@ -26,49 +49,205 @@ import ninja.javahacker.reifiedgeneric.ReifiedGeneric;
 /**
  * Factory object that receives references for interfaces specifying database operations with JPQL
  * and creates dynamic implementations of them.
+ * <p>A factory whose DAOs have {@link Cached} or native SQL methods registers listeners into {@link Database}, so it should be
+ * {@linkplain #close() closed} when it is no longer needed, or else it is kept alive by them.</p>
  * @author Victor Williams Stafusa da Silva
  */
-public final class DaoFactory {
+public final class DaoFactory implements AutoCloseable {
+
+    private static final List<Class<? extends Annotation>> OPERATIONS =
+            List.of(Select.class, Execute.class, NativeSelect.class, NativeExecute.class);
 
     private final Supplier<ExtendedEntityManager> giver;
 
+    @Nullable
+    private final Function<Supplier<?>, Object> inTransaction;
+
+    @Nullable
+    private final Executor executor;
+
+    private final Map<Method, ResultCache> caches;
+
+    private final Map<Method, RowMapper> mappers;
+
+    private final Map<Method, QueryOptions> options;
+
+    private final CacheInvalidator invalidator;
+
+    private final AtomicBoolean listening;
+
+    private final StatementCache statements;
+
+    private final AtomicBoolean listeningStatements;
+
+    private volatile boolean closed;
+
     /**
      * Produces an instance from something capable of supplying {@link EntityManager}s.
+     * <p>Instances created by this constructor can't implement methods returning {@link CompletableFuture}s, since they
+     * have no means to open transactions in other threads.</p>
      * @param giver Something capable of supplying {@link EntityManager}s.
      */
     public DaoFactory(@NonNull Supplier<ExtendedEntityManager> giver) {
+        this(giver, null, null);
+    }
+
+    /**
+     * Produces an instance that gets its {@link EntityManager}s from a {@link Connector}.
+     * <p>Methods returning {@link CompletableFuture}s are run by a default executor which uses virtual threads when
+     * they are available in the running JVM, or a pool of daemon threads otherwise.</p>
+     * @param connector The {@link Connector} used to supply {@link EntityManager}s and to open transactions.
+     */
+    public DaoFactory(@NonNull Connector connector) {
+        this(connector, DefaultExecutor.INSTANCE);
+    }
+
+    /**
+     * Produces an instance that gets its {@link EntityManager}s from a {@link Connector}.
+     * <p>Methods returning {@link CompletableFuture}s are run by the given {@link Executor}, each one
+     * in its own transaction.</p>
+     * @param connector The {@link Connector} used to supply {@link EntityManager}s and to open transactions.
+     * @param executor The {@link Executor} that runs methods returning {@link CompletableFuture}s.
+     */
+    public DaoFactory(@NonNull Connector connector, @NonNull Executor executor) {
+        this(giverFor(connector), inTransaction(connector), executor);
+    }
+
+    @SuppressFBWarnings("EI_EXPOSE_REP2")
+    private DaoFactory(
+            @NonNull Supplier<ExtendedEntityManager> giver,
+            @Nullable Function<Supplier<?>, Object> inTransaction,
+            @Nullable Executor executor)
+    {
         this.giver = giver;
+        this.inTransaction = inTransaction;
+        this.executor = executor;
+        this.caches = new ConcurrentHashMap<>();
+        this.mappers = new ConcurrentHashMap<>();
+        this.options = new ConcurrentHashMap<>();
+        this.invalidator = new CacheInvalidator();
+        this.listening = new AtomicBoolean();
+        this.statements = new StatementCache();
+        this.listeningStatements = new AtomicBoolean();
+    }
+
+    private static Supplier<ExtendedEntityManager> giverFor(@NonNull Connector connector) {
+        return connector::getEntityManager;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Supplier<?>, Object> inTransaction(@NonNull Connector connector) {
+        Function<Supplier<?>, Object> run = Supplier::get;
+        return connector.transact(Function.class, run);
+    }
+
+    private CompletableFuture<Object> executeAsync(@NonNull Method m, @NonNull Object... params) {
+        var work = inTransaction;
+        if (work == null) throw new AssertionError();
+        return CompletableFuture.supplyAsync(() -> work.apply(() -> {
+            var result = execute(m, params);
+
+            // The stream would be closed together with the transaction, so its contents are fetched before.
+            return result instanceof Stream ? ((Stream<?>) result).collect(Collectors.toList()).stream() : result;
+        }), executor);
     }
 
     @Nullable
     private Object execute(@NonNull Method m, @NonNull Object... params) {
-        return execute(ReifiedGeneric.of(m.getGenericReturnType()), m, params);
+        var touches = m.isAnnotationPresent(Execute.class) ? m.getAnnotation(Execute.class).touches()
+                : m.isAnnotationPresent(NativeExecute.class) ? m.getAnnotation(NativeExecute.class).touches()
+                : new Class<?>[0];
+        var touched = Set.copyOf(Arrays.asList(touches));
+        if (touched.isEmpty() || invalidator.touched(touched)) return executeCaching(m, params);
+
+        // Not inside a transaction managed by a Connector. Invalidating before the change would let a concurrent reader cache
+        // the old rows again, so it is done after it.
+        try {
+            return executeCaching(m, params);
+        } finally {
+            invalidator.invalidate(touched);
+        }
+    }
+
+    @Nullable
+    private Object executeCaching(@NonNull Method m, @NonNull Object... params) {
+        var ret = ReifiedGeneric.of(returnType(m));
+        var cache = caches.get(m);
+        if (cache == null || invalidator.bypasses(cache)) return execute(ret, m, params);
+
+        var key = Arrays.asList(params.clone());
+        boolean stream = ret.asClass() == Stream.class;
+        var hit = cache.get(key);
+        if (hit.isPresent()) {
+            Object value = hit.get();
+            return stream ? ((List<?>) value).stream() : value;
+        }
+
+        long generation = cache.generation();
+        Object result = execute(ret, m, params);
+        if (stream) {
+            var list = Collections.unmodifiableList(((Stream<?>) result).collect(Collectors.toList()));
+            cache.put(key, list, generation);
+            return list.stream();
+        }
+        if (result instanceof List) {
+            var list = Collections.unmodifiableList(new ArrayList<>((List<?>) result));
+            cache.put(key, list, generation);
+            return list;
+        }
+        if (result != null) cache.put(key, result, generation);
+        return result;
+    }
+
+    private static boolean isAsync(@NonNull Method m) {
+        return m.getReturnType() == CompletableFuture.class && isOperation(m);
+    }
+
+    /**
+     * Gives the type of the result produced by the database operation, which is the return type of the method,
+     * unless the method is asynchronous. In that case, it is the type of the result of the {@link CompletableFuture}.
+     * @param m The method.
+     * @return The type of the result produced by the database operation.
+     */
+    private static Type returnType(@NonNull Method m) {
+        var r = m.getGenericReturnType();
+        if (isAsync(m) && r instanceof ParameterizedType) return ((ParameterizedType) r).getActualTypeArguments()[0];
+        return r;
+    }
+
+    @Nullable
+    private static Class<?> elementClass(@NonNull Method m) {
+        var r = returnType(m);
+        if (r instanceof ParameterizedType) r = ((ParameterizedType) r).getActualTypeArguments()[0];
+        if (r instanceof ParameterizedType) r = ((ParameterizedType) r).getRawType();
+        return r instanceof Class<?> ? (Class<?>) r : null;
+    }
+
+    private static Set<Class<?>> cachedEntities(@NonNull Method m) {
+        var declared = m.getAnnotation(Cached.class).entities();
+        if (declared.length != 0) return Set.copyOf(Arrays.asList(declared));
+        var r = elementClass(m);
+        if (r != null && r.isAnnotationPresent(Entity.class)) return Set.of(r);
+        return Set.of();
     }
 
     @Nullable
     @SuppressWarnings({"unchecked", "UnnecessaryBoxing", "PMD.CloseResource"})
     @SuppressFBWarnings("URV_UNRELATED_RETURN_VALUES")
     private <X> X execute(@NonNull ReifiedGeneric<X> ret, @NonNull Method m, @NonNull Object... params) {
+        if (isNative(m)) return (X) executeNative(m, params);
         ExtendedEntityManager em = giver.get();
         boolean execute = m.isAnnotationPresent(Execute.class);
         String jpql = execute ? m.getAnnotation(Execute.class).value() : m.getAnnotation(Select.class).value();
-        ExtendedTypedQuery<X> q = em.createQuery(jpql, ret.asClass());
-
-        var idx = 0;
-        for (Parameter p : m.getParameters()) {
-            var name = p.isNamePresent() ? p.getName()
-                    : p.isAnnotationPresent(Named.class) ? p.getAnnotation(Named.class).value()
-                    : "" + idx;
-            q = p.isAnnotationPresent(FirstResult.class) ? q.setFirstResult((int) params[idx])
-                    : p.isAnnotationPresent(MaxResults.class) ? q.setMaxResults((int) params[idx])
-                    : q.setParameter(name, params[idx]);
-            idx++;
-        }
+        var opts = options.get(m);
+        var mapper = mappers.get(m);
+        if (mapper != null) return (X) project(mapper, opts.apply(bind(em.createQuery(jpql, Tuple.class), m, params), em), m);
+        ExtendedTypedQuery<X> q = opts.apply(bind(em.createQuery(jpql, ret.asClass()), m, params), em);
 
-        var r = m.getGenericReturnType();
+        var r = returnType(m);
         if (execute) {
             int result = q.executeUpdate();
-            if (r == void.class) return null;
+            if (r == void.class || r == Void.class) return null;
             if (r == int.class || r == Integer.class) return (X) Integer.valueOf(result);
             if (r == long.class || r == Long.class) return (X) Long.valueOf(result);
             if (r == OptionalInt.class) return (X) OptionalInt.of(result);
@@ -84,38 +263,109 @@ public final class DaoFactory {
         throw new AssertionError();
     }
 
-    @SuppressWarnings({"element-type-mismatch", "PMD.AvoidDuplicateLiterals"})
+    @Nullable
+    @SuppressWarnings("PMD.CloseResource")
+    private Object executeNative(@NonNull Method m, @NonNull Object... params) {
+        ExtendedEntityManager em = giver.get();
+        boolean execute = m.isAnnotationPresent(NativeExecute.class);
+        String sql = execute ? m.getAnnotation(NativeExecute.class).value() : m.getAnnotation(NativeSelect.class).value();
+        try {
+            return statements.withStatement(em.getConnection(), sql, ps -> {
+                options.get(m).apply(ps, em);
+                for (int i = 0; i < params.length; i++) {
+                    var p = params[i];
+                    ps.setObject(i + 1, p instanceof Enum<?> ? ((Enum<?>) p).name() : p);
+                }
+                if (!execute) return nativeSelect(mappers.get(m), ps, m);
+                int result = ps.executeUpdate();
+                var r = returnType(m);
+                return r == int.class || r == Integer.class ? Integer.valueOf(result)
+                        : r == long.class || r == Long.class ? Long.valueOf(result)
+                        : null;
+            });
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    @Nullable
+    private static Object nativeSelect(@NonNull RowMapper mapper, @NonNull PreparedStatement ps, @NonNull Method m) throws SQLException {
+        var r = returnType(m);
+        var raw = r instanceof ParameterizedType ? ((ParameterizedType) r).getRawType() : r;
+        boolean single = raw != List.class && raw != Stream.class;
+
+        // Statements are reused, so the limit must always be set.
+        ps.setMaxRows(single ? 2 : 0);
+        var rows = new ArrayList<Object>();
+        try (var rs = ps.executeQuery()) {
+            var row = RowMapper.Row.of(rs);
+            while (rs.next()) {
+                rows.add(mapper.map(row));
+            }
+        }
+        if (raw == List.class) return rows;
+        if (raw == Stream.class) return rows.stream();
+        if (rows.size() > 1) throw new NonUniqueResultException();
+        if (raw == Optional.class) return rows.isEmpty() ? Optional.empty() : Optional.ofNullable(rows.get(0));
+        if (rows.isEmpty()) throw new NoResultException();
+        return rows.get(0);
+    }
+
+    private static <T> ExtendedTypedQuery<T> bind(@NonNull ExtendedTypedQuery<T> query, @NonNull Method m, @NonNull Object... params) {
+        var q = query;
+        var idx = 0;
+        for (Parameter p : m.getParameters()) {
+            var name = p.isNamePresent() ? p.getName()
+                    : p.isAnnotationPresent(Named.class) ? p.getAnnotation(Named.class).value()
+                    : "" + idx;
+            q = p.isAnnotationPresent(FirstResult.class) ? q.setFirstResult((int) params[idx])
+                    : p.isAnnotationPresent(MaxResults.class) ? q.setMaxResults((int) params[idx])
+                    : q.setParameter(name, params[idx]);
+            idx++;
+        }
+        return q;
+    }
+
+    @Nullable
+    private static Object project(@NonNull RowMapper mapper, @NonNull ExtendedTypedQuery<Tuple> q, @NonNull Method m) {
+        var r = returnType(m);
+        if (r instanceof Class<?>) return mapper.map(RowMapper.Row.of(q.getSingleResult()));
+        var raw = ((ParameterizedType) r).getRawType();
+        if (raw == Stream.class) return q.getResultStream().map(t -> mapper.map(RowMapper.Row.of(t)));
+        if (raw == List.class) return q.getResultList().stream().map(t -> mapper.map(RowMapper.Row.of(t))).collect(Collectors.toList());
+        if (raw == Optional.class) return q.getOptionalResult().map(t -> mapper.map(RowMapper.Row.of(t)));
+        throw new AssertionError();
+    }
+
+    @SuppressWarnings({"element-type-mismatch", "PMD.AvoidDuplicateLiterals", "PMD.CompareObjectsWithEquals"})
     private static void validateMethod(Method m) {
-        var ret = m.getGenericReturnType();
-        ReifiedGeneric.of(ret); // Check for sanity.
+        ReifiedGeneric.of(m.getGenericReturnType()); // Check for sanity.
+        if (isAsync(m) && !(m.getGenericReturnType() instanceof ParameterizedType)) {
+            throw new UnsupportedOperationException("The method " + m.toGenericString()
+                    + " should specify the type of the result of its CompletableFuture.");
+        }
+        var ret = returnType(m);
 
         if (isClone(m) || isFinalize(m)) {
             throw new UnsupportedOperationException("The method " + m.toGenericString() + " is forbidden for this interface.");
         }
-        if (isEquals(m) || isHashCode(m) || isToString(m)) {
-            if (m.isAnnotationPresent(Select.class)) {
+        for (var a : OPERATIONS) {
+            if (!m.isAnnotationPresent(a)) continue;
+            if (isEquals(m) || isHashCode(m) || isToString(m)) {
                 throw new UnsupportedOperationException("The method " + m.toGenericString()
-                        + " shouldn't do database operations, so it shouldn't feature the @Select annotation.");
+                        + " shouldn't do database operations, so it shouldn't feature the @" + a.getSimpleName() + " annotation.");
             }
-            if (m.isAnnotationPresent(Execute.class)) {
-                throw new UnsupportedOperationException("The method " + m.toGenericString()
-                        + " shouldn't do database operations, so it shouldn't feature the @Execute annotation.");
-            }
-        }
-        if (isStatic(m)) {
-            if (m.isAnnotationPresent(Select.class)) {
-                throw new UnsupportedOperationException("The @Select annotation can't be applied to a static method, "
+            if (isStatic(m)) {
+                throw new UnsupportedOperationException("The @" + a.getSimpleName() + " annotation can't be applied to a static method, "
                         + "so it can't be applied to the method " + m.toGenericString() + ".");
             }
-            if (m.isAnnotationPresent(Execute.class)) {
-                throw new UnsupportedOperationException("The @Execute annotation can't be applied to a static method, "
-                        + "so it can't be applied to the method " + m.toGenericString() + ".");
+            for (var b : OPERATIONS) {
+                if (a != b && m.isAnnotationPresent(b)) {
+                    throw new UnsupportedOperationException("The method " + m.toGenericString()
+                            + " can't feature both the @" + a.getSimpleName() + " and the @" + b.getSimpleName() + " annotations.");
+                }
             }
         }
-        if (m.isAnnotationPresent(Select.class) && m.isAnnotationPresent(Execute.class)) {
-            throw new UnsupportedOperationException("The method " + m.toGenericString()
-                    + " can't feature both the @Select and the @Execute annotations.");
-        }
         if (isEquals(m)) {
             Parameter p1 = m.getParameters()[0];
             if (p1.isAnnotationPresent(FirstResult.class)) {
@@ -148,7 +398,7 @@ public final class DaoFactory {
                 }
                 maxResults = idx;
             }
-            if (!p.isNamePresent() && !p.isAnnotationPresent(Named.class)) {
+            if (!p.isNamePresent() && !p.isAnnotationPresent(Named.class) && !isNative(m)) {
                 throw new UnsupportedOperationException("The parameter " + idx + " has no name in the classfile the @Named annotation.");
             }
             idx++;
@@ -166,13 +416,38 @@ public final class DaoFactory {
                         + m.toGenericString() + ".");
             }
         }
+        if (m.isAnnotationPresent(Select.class)) {
+            var element = elementClass(m);
+            if (element != null && RowMapper.isProjection(element)) RowMapper.of(element); // Check for sanity.
+        }
+        if (isNative(m)) validateNativeMethod(m, firstResult, maxResults);
+        if (isOperation(m)) {
+            QueryOptions.of(m, !isNative(m), m.isAnnotationPresent(Select.class) || m.isAnnotationPresent(NativeSelect.class));
+        } else {
+            QueryOptions.forbidAll(m);
+        }
+        if (m.isAnnotationPresent(Cached.class)) {
+            var c = m.getAnnotation(Cached.class);
+            if (!m.isAnnotationPresent(Select.class) && !m.isAnnotationPresent(NativeSelect.class)) {
+                throw new UnsupportedOperationException("The @Cached annotation can only be applied to methods featuring the @Select "
+                        + "or the @NativeSelect annotation, so it can't be applied to the method " + m.toGenericString() + ".");
+            }
+            if (c.ttl() <= 0 || c.maxEntries() <= 0) {
+                throw new UnsupportedOperationException("The @Cached annotation must have positive ttl and maxEntries at the method "
+                        + m.toGenericString() + ".");
+            }
+            if (cachedEntities(m).isEmpty()) {
+                throw new UnsupportedOperationException("The @Cached annotation at the method " + m.toGenericString()
+                        + " must specify the entities it depends on, since they can't be inferred from the return type.");
+            }
+        }
         if (m.isAnnotationPresent(Execute.class)) {
-            if (!List.of(void.class, int.class).contains(ret)) {
+            if (!List.of(void.class, Void.class, int.class, Integer.class).contains(ret)) {
                 throw new UnsupportedOperationException("Don't know how to produce an instance of the given return type for method "
                         + m.toGenericString() + ".");
             }
         }
-        if (!m.isAnnotationPresent(Select.class) && !m.isAnnotationPresent(Execute.class)) {
+        if (!isOperation(m)) {
             if (firstResult != -1) {
                 throw new UnsupportedOperationException("The @FirstResult annotation does not makes sense for the method "
                         + m.toGenericString() + " which lacks a @Select or an @Execute annotation.");
@@ -188,6 +463,43 @@ public final class DaoFactory {
         }
     }
 
+    private static void validateNativeMethod(@NonNull Method m, int firstResult, int maxResults) {
+        if (firstResult != -1 || maxResults != -1) {
+            throw new UnsupportedOperationException("The @FirstResult and @MaxResults annotations are not supported by native SQL, "
+                    + "so they can't be used in the method " + m.toGenericString() + ".");
+        }
+        var ret = returnType(m);
+        if (m.isAnnotationPresent(NativeExecute.class)) {
+            if (!List.of(void.class, Void.class, int.class, Integer.class, long.class, Long.class).contains(ret)) {
+                throw new UnsupportedOperationException("Don't know how to produce an instance of the given return type for method "
+                        + m.toGenericString() + ".");
+            }
+            return;
+        }
+        var element = elementClass(m);
+        if (ret == void.class
+                || element == null
+                || (ret instanceof ParameterizedType
+                        && !List.of(Stream.class, List.class, Optional.class).contains(((ParameterizedType) ret).getRawType())))
+        {
+            throw new UnsupportedOperationException("Don't know how to produce an instance of the given return type for method "
+                    + m.toGenericString() + ".");
+        }
+        if (element.isAnnotationPresent(Entity.class)) {
+            throw new UnsupportedOperationException("The @NativeSelect annotation doesn't produce entities, "
+                    + "so it can't be applied to the method " + m.toGenericString() + ". Use @Select instead.");
+        }
+        RowMapper.forNative(element); // Check for sanity.
+    }
+
+    private static boolean isOperation(@NonNull Method m) {
+        return OPERATIONS.stream().anyMatch(m::isAnnotationPresent);
+    }
+
+    private static boolean isNative(@NonNull Method m) {
+        return m.isAnnotationPresent(NativeSelect.class) || m.isAnnotationPresent(NativeExecute.class);
+    }
+
     private static boolean is(@NonNull Method m, @NonNull String name, @NonNull Class<?>... params) {
         return name.equals(m.getName()) && Arrays.equals(m.getParameterTypes(), params);
     }
@@ -219,7 +531,8 @@ public final class DaoFactory {
     /**
      * Creates a dynamic implementation of Data Access Object implementation from a given interface.
      * The method implementations are entirely derived from the method annotations {@link Select}, {@link Execute},
-     * {@link MaxResults} and {@link FirstResult}.
+     * {@link NativeSelect}, {@link NativeExecute}, {@link MaxResults} and {@link FirstResult}, and are tuned by the
+     * annotations {@link Timeout}, {@link FetchSize}, {@link Hint}, {@link LockMode}, {@link FlushMode} and {@link CacheMode}.
      * @param <E> The type of the interface.
      * @param type The type of the interface.
      * @return An implementation of the interface.
@@ -235,7 +548,19 @@ public final class DaoFactory {
     /**
      * Creates a dynamic implementation of Data Access Object implementation from a given interface.
      * The method implementations are entirely derived from the method annotations {@link Select}, {@link Execute},
-     * {@link MaxResults} and {@link FirstResult}.
+     * {@link NativeSelect}, {@link NativeExecute}, {@link MaxResults} and {@link FirstResult}, and are tuned by the
+     * annotations {@link Timeout}, {@link FetchSize}, {@link Hint}, {@link LockMode}, {@link FlushMode} and {@link CacheMode}.
+     * <p>{@link Select} methods returning records or interfaces (or lists, streams or optionals of them) are treated as
+     * projections. The selected values are read as {@link Tuple}s and mapped into new instances of the projection type
+     * instead of entities, so they are never added to the persistence context. Records are filled by position through their
+     * canonical constructors and interfaces are filled by matching the selection aliases with their accessor names.</p>
+     * <p>Methods returning {@link CompletableFuture}s are run asynchronously, each one in its own transaction, as long as this
+     * factory was created from a {@link Connector}. The type of the result of the {@link CompletableFuture} follows the
+     * same rules of the return types of synchronous methods, except that streams are fully fetched before the transaction ends.
+     * </p>
+     * <p>Methods annotated with {@link Cached} have their results memoized. The caches are invalidated when transactions
+     * marked by a {@link Connector} are committed, so this registers a listener into
+     * {@link Database} the first time that such a method is found, until this factory is {@linkplain #close() closed}.</p>
      * @param <E> The type of the interface.
      * @param type The type of the interface as a {@link ReifiedGeneric}.
      * @return An implementation of the interface.
@@ -243,18 +568,55 @@ public final class DaoFactory {
      * @throws MalformedReifiedGenericException If {@code type} is not a {@link ParameterizedType} nor a {@link Class}.
      * @throws UnsupportedOperationException If some method can't be implemented for some reason, likely a bad combination of
      *     parameters, return type, modifiers, annotations and/or method name.
+     * @throws IllegalStateException If this factory is {@linkplain #close() closed}.
      */
     @SuppressWarnings("PMD.CompareObjectsWithEquals")
     public <E> E daoFor(@NonNull ReifiedGeneric<E> type) {
+        checkOpen();
         Class<E> targetInterface = type.asClass();
         if (!targetInterface.isInterface()) throw new IllegalArgumentException();
 
         for (Method m : targetInterface.getMethods()) {
             validateMethod(m);
+            if (isAsync(m) && inTransaction == null) {
+                throw new UnsupportedOperationException("The method " + m.toGenericString() + " returns a CompletableFuture, "
+                        + "which needs a DaoFactory created from a Connector.");
+            }
+        }
+        for (Method m : targetInterface.getMethods()) {
+            if (!isOperation(m)) continue;
+            boolean query = m.isAnnotationPresent(Select.class) || m.isAnnotationPresent(NativeSelect.class);
+            options.computeIfAbsent(m, k -> QueryOptions.of(k, !isNative(k), query));
+            var element = elementClass(m);
+            if (m.isAnnotationPresent(NativeSelect.class)) {
+                mappers.computeIfAbsent(m, k -> RowMapper.forNative(element));
+            } else if (m.isAnnotationPresent(Select.class) && element != null && RowMapper.isProjection(element)) {
+                mappers.computeIfAbsent(m, k -> RowMapper.of(element));
+            }
+        }
+        for (Method m : targetInterface.getMethods()) {
+            if (!m.isAnnotationPresent(Cached.class)) continue;
+            caches.computeIfAbsent(m, k -> {
+                var cache = new ResultCache(k.getAnnotation(Cached.class), cachedEntities(k));
+                invalidator.add(cache);
+                return cache;
+            });
+        }
+        if (!invalidator.isEmpty() && listening.compareAndSet(false, true)) Database.addListener(invalidator);
+        if (Arrays.stream(targetInterface.getMethods()).anyMatch(DaoFactory::isNative) && listeningStatements.compareAndSet(false, true)) {
+            Database.addListener(statements);
+        }
+
+        // Closed meanwhile, maybe after the listeners were removed.
+        if (closed) {
+            close();
+            checkOpen();
         }
 
         InvocationHandler ih = (p, m, a) -> {
-            if (m.isAnnotationPresent(Select.class) || m.isAnnotationPresent(Execute.class)) return execute(m, a);
+            if (isOperation(m)) checkOpen();
+            if (isAsync(m)) return executeAsync(m, a == null ? new Object[0] : a);
+            if (isOperation(m)) return execute(m, a == null ? new Object[0] : a);
             if (isToString(m)) return "Dao[" + type + "] from " + toString();
             if (isHashCode(m)) return System.identityHashCode(p);
             if (isEquals(m)) return a[0] == p;
@@ -266,6 +628,43 @@ public final class DaoFactory {
         return targetInterface.cast(proxy);
     }
 
+    private void checkOpen() {
+        if (closed) throw new IllegalStateException("The DaoFactory is closed.");
+    }
+
+    /**
+     * Unregisters the listeners that this factory registered into {@link Database}. Afterwards, it can't create DAOs anymore
+     * and the database operations of the DAOs that it created fail with an {@link IllegalStateException}, since their caches
+     * wouldn't be invalidated anymore. Closing it again does nothing.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (listening.get()) Database.removeListener(invalidator);
+        if (listeningStatements.get()) Database.removeListener(statements);
+    }
+
+    /**
+     * Holds the default {@link Executor} for asynchronous methods, which is created only when needed.
+     */
+    private static final class DefaultExecutor {
+        private static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Not available in this JVM.
+                var counter = new AtomicInteger();
+                return Executors.newCachedThreadPool(r -> {
+                    var t = new Thread(r, "ninjadao-async-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
@@ -18,4 +18,11 @@ public @interface Execute {
      * @return The JPQL instruction to be executed.
      */
     public String value();
+
+    /**
+     * The entities that might be modified by the JPQL instruction. Results of methods annotated with {@link Cached}
+     * that depend on any of those entities are invalidated once the transaction is committed.
+     * @return The entities that might be modified by the JPQL instruction.
+     */
+    public Class<?>[] touches() default {};
 }
@@ -0,0 +1,25 @@
+package ninja.javahacker.ninjadao;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import ninja.javahacker.jpasimpletransactions.ProviderAdapter;
+
+/**
+ * Specifies how many rows should be fetched from the database at once by the query of the annotated method.
+ * <p>For JPQL methods, this is given to the persistence provider through the hint given by
+ * {@link ProviderAdapter#fetchSizeHint()}, and is silently ignored if the provider has no such hint. For native
+ * SQL methods, this is given to {@link java.sql.Statement#setFetchSize(int)}.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FetchSize {
+
+    /**
+     * How many rows should be fetched from the database at once.
+     * @return How many rows should be fetched from the database at once.
+     */
+    public int value();
+}
@@ -0,0 +1,24 @@
+package ninja.javahacker.ninjadao;
+
+import jakarta.persistence.FlushModeType;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import ninja.javahacker.jpasimpletransactions.ExtendedTypedQuery;
+
+/**
+ * Specifies the flush mode of the JPQL query or instruction of the annotated method.
+ * @see ExtendedTypedQuery#setFlushMode(FlushModeType)
+ * @author Victor Williams Stafusa da Silva
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FlushMode {
+
+    /**
+     * The flush mode of the JPQL query or instruction.
+     * @return The flush mode of the JPQL query or instruction.
+     */
+    public FlushModeType value();
+}
@@ -0,0 +1,31 @@
+package ninja.javahacker.ninjadao;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import ninja.javahacker.jpasimpletransactions.ExtendedTypedQuery;
+
+/**
+ * Specifies a hint to be given to the JPQL query of the annotated method.
+ * @see ExtendedTypedQuery#setHint(String, Object)
+ * @author Victor Williams Stafusa da Silva
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(Hints.class)
+public @interface Hint {
+
+    /**
+     * The name of the hint.
+     * @return The name of the hint.
+     */
+    public String name();
+
+    /**
+     * The value of the hint.
+     * @return The value of the hint.
+     */
+    public String value();
+}
@@ -0,0 +1,21 @@
+package ninja.javahacker.ninjadao;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Container for repeated {@link Hint} annotations.
+ * @author Victor Williams Stafusa da Silva
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Hints {
+
+    /**
+     * The hints to be given to the JPQL query.
+     * @return The hints to be given to the JPQL query.
+     */
+    public Hint[] value();
+}
@@ -0,0 +1,24 @@
+package ninja.javahacker.ninjadao;
+
+import jakarta.persistence.LockModeType;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import ninja.javahacker.jpasimpletransactions.ExtendedTypedQuery;
+
+/**
+ * Specifies the lock mode of the JPQL query of the annotated {@link Select} method.
+ * @see ExtendedTypedQuery#setLockMode(LockModeType)
+ * @author Victor Williams Stafusa da Silva
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LockMode {
+
+    /**
+     * The lock mode of the JPQL query.
+     * @return The lock mode of the JPQL query.
+     */
+    public LockModeType value();
+}
@@ -0,0 +1,33 @@
+package ninja.javahacker.ninjadao;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Specifies that the annotated method executes a native SQL instruction directly through the JDBC
+ * {@link java.sql.Connection} of the current {@link ninja.javahacker.jpasimpletransactions.ExtendedEntityManager},
+ * bypassing the JPA provider.
+ * <p>The method parameters are bound, in order, to the positional {@code ?} placeholders of the instruction.
+ * Since the JPA provider is bypassed, pending changes in the persistence context are not flushed before and
+ * the persistence context is not aware of the changes made by the instruction.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeExecute {
+
+    /**
+     * SQL instruction to be executed.
+     * @return The SQL instruction to be executed.
+     */
+    public String value();
+
+    /**
+     * The entities that might be modified by the SQL instruction. Results of methods annotated with {@link Cached}
+     * that depend on any of those entities are invalidated once the transaction is committed.
+     * @return The entities that might be modified by the SQL instruction.
+     */
+    public Class<?>[] touches() default {};
+}
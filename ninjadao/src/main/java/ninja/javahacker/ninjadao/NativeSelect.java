@@ -0,0 +1,28 @@
+package ninja.javahacker.ninjadao;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Specifies that the annotated method executes a native SQL query directly through the JDBC
+ * {@link java.sql.Connection} of the current {@link ninja.javahacker.jpasimpletransactions.ExtendedEntityManager},
+ * bypassing the JPA provider.
+ * <p>The method parameters are bound, in order, to the positional {@code ?} placeholders of the query. Each row
+ * is mapped into the element type of the method, which might either be a record, an interface projection or, for
+ * single-column queries, a scalar type. Entities are not supported, use {@link Select} for those.</p>
+ * <p>Since the JPA provider is bypassed, pending changes in the persistence context are not flushed before running
+ * the query.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NativeSelect {
+
+    /**
+     * SQL query to be executed.
+     * @return The SQL query to be executed.
+     */
+    public String value();
+}
@@ -0,0 +1,169 @@
+package ninja.javahacker.ninjadao;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.LockModeType;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.NonNull;
+import lombok.experimental.PackagePrivate;
+import ninja.javahacker.jpasimpletransactions.ExtendedEntityManager;
+import ninja.javahacker.jpasimpletransactions.ExtendedTypedQuery;
+
+/**
+ * Settings given by the annotations {@link Timeout}, {@link FetchSize}, {@link Hint}, {@link LockMode},
+ * {@link FlushMode} and {@link CacheMode} to the query or instruction of a method.
+ * <p>The annotations are read and validated only once, when the DAO is created.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+@PackagePrivate
+final class QueryOptions {
+
+    private static final String TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+
+    private static final String RETRIEVE_MODE_HINT = "jakarta.persistence.cache.retrieveMode";
+
+    private static final String STORE_MODE_HINT = "jakarta.persistence.cache.storeMode";
+
+    private static final List<Class<? extends Annotation>> JPQL_ONLY =
+            List.of(Hint.class, Hints.class, LockMode.class, FlushMode.class, CacheMode.class);
+
+    private static final List<Class<? extends Annotation>> QUERY_ONLY = List.of(FetchSize.class, LockMode.class, CacheMode.class);
+
+    private final long timeoutMillis;
+
+    private final int fetchSize;
+
+    private final Map<String, Object> hints;
+
+    @Nullable
+    private final LockModeType lockMode;
+
+    @Nullable
+    private final FlushModeType flushMode;
+
+    private QueryOptions(@NonNull Method m) {
+        var timeout = m.getAnnotation(Timeout.class);
+        var fetch = m.getAnnotation(FetchSize.class);
+        var lock = m.getAnnotation(LockMode.class);
+        var flush = m.getAnnotation(FlushMode.class);
+        var cache = m.getAnnotation(CacheMode.class);
+        this.timeoutMillis = timeout == null ? 0 : toMillis(timeout);
+        this.fetchSize = fetch == null ? 0 : fetch.value();
+        this.lockMode = lock == null ? null : lock.value();
+        this.flushMode = flush == null ? null : flush.value();
+
+        var h = new LinkedHashMap<String, Object>();
+        if (cache != null) {
+            h.put(RETRIEVE_MODE_HINT, cache.retrieve());
+            h.put(STORE_MODE_HINT, cache.store());
+        }
+        for (var hint : m.getAnnotationsByType(Hint.class)) {
+            h.put(hint.name(), hint.value());
+        }
+        this.hints = Collections.unmodifiableMap(h);
+    }
+
+    /**
+     * Gives the value of the given {@link Timeout} in milliseconds, rounded up, so that a timeout shorter than a millisecond
+     * isn't taken as no timeout at all.
+     * @param timeout The annotation.
+     * @return The value of the given {@link Timeout} in milliseconds.
+     */
+    private static long toMillis(@NonNull Timeout timeout) {
+        var unit = timeout.unit();
+        long millis = unit.toMillis(timeout.value());
+        if (millis != Long.MAX_VALUE && unit.convert(millis, TimeUnit.MILLISECONDS) < timeout.value()) millis++;
+        return millis;
+    }
+
+    /**
+     * Reads the settings of the given method.
+     * @param m The method whose settings should be read.
+     * @param jpql If the method is a JPQL method. If {@code false}, it is a native SQL method.
+     * @param query If the method is a query. If {@code false}, it is an instruction.
+     * @return The settings of the given method.
+     * @throws UnsupportedOperationException If the settings are invalid or don't make sense for the given method.
+     */
+    public static QueryOptions of(@NonNull Method m, boolean jpql, boolean query) {
+        if (!jpql) forbid(m, JPQL_ONLY, "native SQL methods");
+        if (!query) forbid(m, QUERY_ONLY, "methods that are not queries");
+
+        var timeout = m.getAnnotation(Timeout.class);
+        if (timeout != null && timeout.value() <= 0) {
+            throw new UnsupportedOperationException("The @Timeout annotation must have a positive value at the method "
+                    + m.toGenericString() + ".");
+        }
+        var fetch = m.getAnnotation(FetchSize.class);
+        if (fetch != null && fetch.value() <= 0) {
+            throw new UnsupportedOperationException("The @FetchSize annotation must have a positive value at the method "
+                    + m.toGenericString() + ".");
+        }
+        return new QueryOptions(m);
+    }
+
+    /**
+     * Ensures that the given method doesn't feature any of the settings annotations.
+     * @param m The method to be checked.
+     * @throws UnsupportedOperationException If the method features some of the settings annotations.
+     */
+    public static void forbidAll(@NonNull Method m) {
+        forbid(m, List.of(Timeout.class, FetchSize.class), "methods lacking a database operation");
+        forbid(m, JPQL_ONLY, "methods lacking a database operation");
+    }
+
+    private static void forbid(@NonNull Method m, @NonNull List<Class<? extends Annotation>> forbidden, @NonNull String what) {
+        for (var a : forbidden) {
+            if (m.isAnnotationPresent(a)) {
+                throw new UnsupportedOperationException("The @" + a.getSimpleName() + " annotation does not makes sense for "
+                        + what + ", so it can't be applied to the method " + m.toGenericString() + ".");
+            }
+        }
+    }
+
+    /**
+     * Gives the timeout of the query, which is the one given by {@link Timeout} or the time left until the transaction times out,
+     * whichever is shorter.
+     * @param em Where the query runs.
+     * @return The timeout of the query in milliseconds, or zero if there is none.
+     * @throws ninja.javahacker.jpasimpletransactions.TransactionTimedOutException If the transaction already timed out.
+     */
+    private long timeoutMillis(@NonNull ExtendedEntityManager em) {
+        var remaining = em.getRemainingTime();
+        if (remaining.isEmpty()) return timeoutMillis;
+        var left = Math.max(1L, remaining.get().plusNanos(999_999L).toMillis());
+        return timeoutMillis == 0 ? left : Math.min(timeoutMillis, left);
+    }
+
+    public <X> ExtendedTypedQuery<X> apply(@NonNull ExtendedTypedQuery<X> query, @NonNull ExtendedEntityManager em) {
+        var q = query;
+
+        // Without @Timeout, the query already has the time left until the transaction times out.
+        if (timeoutMillis != 0) q = q.setHint(TIMEOUT_HINT, (int) Math.min(Integer.MAX_VALUE, timeoutMillis(em)));
+        if (fetchSize != 0) {
+            var hint = em.getProviderAdapter().fetchSizeHint();
+            if (hint.isPresent()) q = q.setHint(hint.get(), fetchSize);
+        }
+        for (var e : hints.entrySet()) {
+            q = q.setHint(e.getKey(), e.getValue());
+        }
+        if (lockMode != null) q = q.setLockMode(lockMode);
+        if (flushMode != null) q = q.setFlushMode(flushMode);
+        return q;
+    }
+
+    public void apply(@NonNull PreparedStatement ps, @NonNull ExtendedEntityManager em) throws SQLException {
+        // Statements are reused, so every setting must always be set, even when not specified.
+        var millis = timeoutMillis(em);
+        long seconds = millis / 1000 + (millis % 1000 == 0 ? 0 : 1);
+        ps.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, seconds));
+        ps.setFetchSize(fetchSize);
+    }
+}
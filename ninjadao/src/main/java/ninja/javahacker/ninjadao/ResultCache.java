@@ -0,0 +1,111 @@
+package ninja.javahacker.ninjadao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.NonNull;
+import lombok.experimental.PackagePrivate;
+
+/**
+ * Bounded concurrent cache holding the results of a method annotated with {@link Cached}.
+ * @author Victor Williams Stafusa da Silva
+ */
+@PackagePrivate
+final class ResultCache {
+
+    private final long ttlNanos;
+
+    private final int maxEntries;
+
+    private final Set<Class<?>> entities;
+
+    private final Map<List<Object>, Entry> entries;
+
+    private final Queue<Entry> insertionOrder;
+
+    private final AtomicInteger queued;
+
+    private final AtomicLong generation;
+
+    public ResultCache(@NonNull Cached config, @NonNull Set<Class<?>> entities) {
+        this.ttlNanos = config.unit().toNanos(config.ttl());
+        this.maxEntries = config.maxEntries();
+        this.entities = Set.copyOf(entities);
+        this.entries = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+        this.insertionOrder = new ConcurrentLinkedQueue<>();
+        this.queued = new AtomicInteger();
+        this.generation = new AtomicLong();
+    }
+
+    /**
+     * Gives the current generation of this cache, which changes whenever it is invalidated.
+     * Results computed before an invalidation should not be stored afterwards.
+     * @return The current generation of this cache.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public Optional<Object> get(@NonNull List<Object> key) {
+        var e = entries.get(key);
+        if (e == null) return Optional.empty();
+        if (System.nanoTime() - e.storedAt > ttlNanos) {
+            entries.remove(key, e);
+            return Optional.empty();
+        }
+        return Optional.of(e.value);
+    }
+
+    public void put(@NonNull List<Object> key, @NonNull Object value, long seenGeneration) {
+        if (generation.get() != seenGeneration) return;
+        var e = new Entry(key, value, System.nanoTime());
+        entries.put(key, e);
+        insertionOrder.add(e);
+        queued.incrementAndGet();
+
+        // Replaced entries linger in the queue, so it is also trimmed when it grows too much.
+        while (entries.size() > maxEntries || queued.get() > 2L * maxEntries) {
+            var oldest = insertionOrder.poll();
+            if (oldest == null) break;
+            queued.decrementAndGet();
+            entries.remove(oldest.key, oldest);
+        }
+    }
+
+    public boolean dependsOn(@NonNull Set<Class<?>> touched) {
+        for (var t : touched) {
+            for (var c : entities) {
+                if (c.isAssignableFrom(t) || t.isAssignableFrom(c)) return true;
+            }
+        }
+        return false;
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+        insertionOrder.clear();
+        queued.set(0);
+    }
+
+    /**
+     * A single cached result.
+     */
+    private static final class Entry {
+        private final List<Object> key;
+        private final Object value;
+        private final long storedAt;
+
+        public Entry(@NonNull List<Object> key, @NonNull Object value, long storedAt) {
+            this.key = key;
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+}
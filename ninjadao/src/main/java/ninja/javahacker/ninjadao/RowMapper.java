@@ -0,0 +1,410 @@
+package ninja.javahacker.ninjadao;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Tuple;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+import lombok.experimental.PackagePrivate;
+
+/**
+ * Maps rows of scalar values into instances of records or of interface projections.
+ * <p>Everything that depends only on the target type (constructor handles, accessor names and
+ * value types) is resolved once when the mapper is created, so mapping a row is only a matter
+ * of reading and converting its values.</p>
+ * <p>Records are mapped by position, i.e., the n-th selected value goes to the n-th record component.
+ * Interface projections are mapped by name, i.e., each selected value goes to the accessor named after
+ * its alias, either with or without the {@code get}/{@code is} prefix.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+@PackagePrivate
+abstract class RowMapper {
+
+    private static final Map<Class<?>, Class<?>> BOXES = Map.of(
+            boolean.class, Boolean.class,
+            byte.class, Byte.class,
+            short.class, Short.class,
+            char.class, Character.class,
+            int.class, Integer.class,
+            long.class, Long.class,
+            float.class, Float.class,
+            double.class, Double.class
+    );
+
+    /**
+     * A row of values to be mapped, accessible either by its position or by its name.
+     */
+    @PackagePrivate
+    interface Row {
+
+        public int size();
+
+        @Nullable
+        public Object get(int index);
+
+        /**
+         * Gives the value with the given name.
+         * @param name The name of the value.
+         * @return The value with the given name.
+         * @throws IllegalArgumentException If there is no value with the given name.
+         */
+        @Nullable
+        public Object get(@NonNull String name);
+
+        public static Row of(@NonNull Tuple tuple) {
+            return new Row() {
+                @Override
+                public int size() {
+                    return tuple.getElements().size();
+                }
+
+                @Nullable
+                @Override
+                public Object get(int index) {
+                    return tuple.get(index);
+                }
+
+                @Nullable
+                @Override
+                public Object get(@NonNull String name) {
+                    return tuple.get(name);
+                }
+            };
+        }
+
+        /**
+         * Gives a view of the current row of the given {@link ResultSet}. The view follows the cursor of the
+         * {@link ResultSet}, so a single view can be used to map every row.
+         * @param rs The {@link ResultSet} whose rows should be mapped.
+         * @return A view of the current row of the given {@link ResultSet}.
+         * @throws SQLException If the metadata of the {@link ResultSet} can't be read.
+         */
+        public static Row of(@NonNull ResultSet rs) throws SQLException {
+            int size = rs.getMetaData().getColumnCount();
+            return new Row() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Nullable
+                @Override
+                public Object get(int index) {
+                    try {
+                        return rs.getObject(index + 1);
+                    } catch (SQLException e) {
+                        throw new PersistenceException(e);
+                    }
+                }
+
+                @Nullable
+                @Override
+                public Object get(@NonNull String name) {
+                    int index;
+                    try {
+                        index = rs.findColumn(name);
+                    } catch (SQLException e) {
+                        throw new IllegalArgumentException("There is no column named " + name + ".", e);
+                    }
+                    return get(index - 1);
+                }
+            };
+        }
+    }
+
+    private final Class<?> type;
+
+    private RowMapper(@NonNull Class<?> type) {
+        this.type = type;
+    }
+
+    /**
+     * Tells if the given type is meant to be produced by a {@link RowMapper} instead of being directly
+     * produced by the persistence provider.
+     * @param type The type to be checked.
+     * @return {@code true} if the given type is a record or an interface that is neither from the JDK nor from Jakarta EE, like
+     *     {@link Tuple}, nor a managed type, which are all produced by the persistence provider.
+     */
+    public static boolean isProjection(@NonNull Class<?> type) {
+        if (type.isAnnotationPresent(Entity.class)
+                || type.isAnnotationPresent(Embeddable.class)
+                || type.isAnnotationPresent(MappedSuperclass.class))
+        {
+            return false;
+        }
+        if (type.isRecord()) return true;
+        var name = type.getName();
+        return type.isInterface() && !type.isAnnotation()
+                && !name.startsWith("java.") && !name.startsWith("javax.") && !name.startsWith("jakarta.");
+    }
+
+    /**
+     * Creates a mapper for the given record or interface projection.
+     * @param type The type of the objects produced by the mapper.
+     * @return A mapper that produces instances of the given type.
+     * @throws UnsupportedOperationException If the given type can't be used as a projection.
+     */
+    public static RowMapper of(@NonNull Class<?> type) {
+        if (type.isRecord()) return new RecordMapper(type);
+        if (isProjection(type)) return new InterfaceMapper(type);
+        throw new UnsupportedOperationException("The type " + type.getName() + " is neither a record nor an interface.");
+    }
+
+    /**
+     * Creates a mapper for rows of native SQL queries, which might be projections or single scalar values.
+     * @param type The type of the objects produced by the mapper.
+     * @return A mapper that produces instances of the given type.
+     * @throws UnsupportedOperationException If the given type can't be used as a projection.
+     */
+    public static RowMapper forNative(@NonNull Class<?> type) {
+        return isProjection(type) ? of(type) : new ScalarMapper(type);
+    }
+
+    @Nullable
+    public abstract Object map(@NonNull Row row);
+
+    public final Class<?> getType() {
+        return type;
+    }
+
+    @Nullable
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    private static Object convert(@Nullable Object value, @NonNull Class<?> target, @NonNull String what) {
+        if (value == null) {
+            if (target.isPrimitive()) throw new IllegalStateException("Can't put null into the primitive " + what + ".");
+            return null;
+        }
+        var boxed = BOXES.getOrDefault(target, target);
+        if (boxed.isInstance(value)) return value;
+        if (value instanceof Number) {
+            var n = (Number) value;
+            if (boxed == Long.class) return n.longValue();
+            if (boxed == Integer.class) return n.intValue();
+            if (boxed == Short.class) return n.shortValue();
+            if (boxed == Byte.class) return n.byteValue();
+            if (boxed == Double.class) return n.doubleValue();
+            if (boxed == Float.class) return n.floatValue();
+            if (boxed == BigDecimal.class) return new BigDecimal(n.toString());
+            if (boxed == BigInteger.class) return new BigDecimal(n.toString()).toBigInteger();
+        }
+        if (value instanceof Timestamp && boxed == LocalDateTime.class) return ((Timestamp) value).toLocalDateTime();
+        if (value instanceof Timestamp && boxed == Instant.class) return ((Timestamp) value).toInstant();
+        if (value instanceof Date && boxed == LocalDate.class) return ((Date) value).toLocalDate();
+        if (value instanceof Time && boxed == LocalTime.class) return ((Time) value).toLocalTime();
+        if (value instanceof String && boxed == Character.class && ((String) value).length() == 1) return ((String) value).charAt(0);
+        if (value instanceof String && boxed.isEnum()) return enumValue(boxed, (String) value);
+        throw new IllegalStateException("Can't convert a value of type " + value.getClass().getName() + " to " + what + ".");
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumValue(@NonNull Class<?> type, @NonNull String name) {
+        return Enum.valueOf((Class) type, name);
+    }
+
+    /**
+     * Maps rows featuring a single column into its value.
+     */
+    private static final class ScalarMapper extends RowMapper {
+        public ScalarMapper(@NonNull Class<?> type) {
+            super(type);
+        }
+
+        @Nullable
+        @Override
+        public Object map(@NonNull Row row) {
+            if (row.size() != 1) {
+                throw new IllegalStateException("A single column was expected in order to produce " + getType().getName()
+                        + ", but " + row.size() + " columns were selected.");
+            }
+            return convert(row.get(0), getType(), getType().getName());
+        }
+    }
+
+    /**
+     * Maps rows into records by calling their canonical constructors.
+     */
+    private static final class RecordMapper extends RowMapper {
+        private final Class<?>[] types;
+        private final String[] names;
+        private final MethodHandle constructor;
+
+        public RecordMapper(@NonNull Class<?> type) {
+            super(type);
+            RecordComponent[] components = type.getRecordComponents();
+            this.types = Arrays.stream(components).map(RecordComponent::getType).toArray(Class<?>[]::new);
+            this.names = Arrays.stream(components).map(RecordComponent::getName).toArray(String[]::new);
+            try {
+                var ctor = type.getDeclaredConstructor(types);
+                if (!ctor.trySetAccessible()) {
+                    throw new UnsupportedOperationException("The canonical constructor of the record " + type.getName()
+                            + " is not accessible.");
+                }
+                this.constructor = MethodHandles.lookup()
+                        .unreflectConstructor(ctor)
+                        .asSpreader(Object[].class, types.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new UnsupportedOperationException("Can't use the canonical constructor of the record " + type.getName() + ".", e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("PMD.AvoidCatchingThrowable")
+        public Object map(@NonNull Row row) {
+            if (row.size() != types.length) {
+                throw new IllegalStateException("The record " + getType().getName() + " has " + types.length
+                        + " components, but " + row.size() + " values were selected.");
+            }
+            var args = new Object[types.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = convert(row.get(i), types[i], "the component " + names[i] + " of " + getType().getName());
+            }
+            try {
+                return (Object) constructor.invokeExact(args);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Maps rows into dynamic implementations of interfaces featuring only accessors.
+     */
+    private static final class InterfaceMapper extends RowMapper {
+        private final List<Method> accessors;
+        private final Map<Method, Integer> indexes;
+        private final String[] names;
+        private final Class<?>[] types;
+
+        public InterfaceMapper(@NonNull Class<?> type) {
+            super(type);
+            this.accessors = new ArrayList<>();
+            this.indexes = new HashMap<>();
+            for (var m : type.getMethods()) {
+                if (!Modifier.isAbstract(m.getModifiers())) continue;
+                if (m.getParameterCount() != 0 || m.getReturnType() == void.class) {
+                    throw new UnsupportedOperationException("The projection interface " + type.getName()
+                            + " should feature only accessor methods, but " + m.toGenericString() + " isn't one.");
+                }
+                indexes.put(m, accessors.size());
+                accessors.add(m);
+            }
+            this.names = accessors.stream().map(m -> propertyName(m.getName())).toArray(String[]::new);
+            this.types = accessors.stream().map(Method::getReturnType).toArray(Class<?>[]::new);
+        }
+
+        private static String propertyName(@NonNull String name) {
+            int prefix = name.startsWith("get") ? 3 : name.startsWith("is") ? 2 : 0;
+            if (prefix == 0 || name.length() == prefix || !Character.isUpperCase(name.charAt(prefix))) return name;
+            return Character.toLowerCase(name.charAt(prefix)) + name.substring(prefix + 1);
+        }
+
+        @Nullable
+        private static Object get(@NonNull Row row, @NonNull String property, @NonNull String method) {
+            try {
+                return row.get(property);
+            } catch (IllegalArgumentException e) {
+                if (property.equals(method)) throw e;
+                return row.get(method);
+            }
+        }
+
+        @Override
+        public Object map(@NonNull Row row) {
+            var values = new Object[names.length];
+            for (int i = 0; i < values.length; i++) {
+                var m = accessors.get(i);
+                values[i] = convert(get(row, names[i], m.getName()), types[i], "the result of " + m.toGenericString());
+            }
+            var t = getType();
+            return Proxy.newProxyInstance(t.getClassLoader(), new Class<?>[] {t}, new ProjectionHandler(this, values));
+        }
+
+        private String toString(@NonNull Object[] values) {
+            var sb = new StringBuilder(getType().getSimpleName()).append('[');
+            for (int i = 0; i < values.length; i++) {
+                if (i != 0) sb.append(", ");
+                sb.append(names[i]).append('=').append(values[i]);
+            }
+            return sb.append(']').toString();
+        }
+
+        private static boolean isEquals(@NonNull Method m) {
+            return "equals".equals(m.getName()) && m.getParameterCount() == 1 && m.getParameterTypes()[0] == Object.class;
+        }
+
+        private static boolean isHashCode(@NonNull Method m) {
+            return "hashCode".equals(m.getName()) && m.getParameterCount() == 0;
+        }
+
+        private static boolean isToString(@NonNull Method m) {
+            return "toString".equals(m.getName()) && m.getParameterCount() == 0;
+        }
+    }
+
+    /**
+     * Answers the calls made to interface projections. Two projections are equal if they implement the same
+     * interface and hold the same values.
+     */
+    private static final class ProjectionHandler implements InvocationHandler {
+        private final InterfaceMapper mapper;
+        private final Object[] values;
+
+        public ProjectionHandler(@NonNull InterfaceMapper mapper, @NonNull Object[] values) {
+            this.mapper = mapper;
+            this.values = values;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] a) throws Throwable {
+            var idx = mapper.indexes.get(m);
+            if (idx != null) return values[idx];
+            if (InterfaceMapper.isEquals(m)) return a[0] != null && Proxy.isProxyClass(a[0].getClass())
+                    && this.equals(Proxy.getInvocationHandler(a[0]));
+            if (InterfaceMapper.isHashCode(m)) return hashCode();
+            if (InterfaceMapper.isToString(m)) return mapper.toString(values);
+            if (m.isDefault()) return InvocationHandler.invokeDefault(proxy, m, a);
+            throw new AssertionError();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ProjectionHandler)) return false;
+            var that = (ProjectionHandler) other;
+            return mapper.getType() == that.mapper.getType() && Arrays.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+}
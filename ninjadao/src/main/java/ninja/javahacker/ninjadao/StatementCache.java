@@ -0,0 +1,120 @@
+package ninja.javahacker.ninjadao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.NonNull;
+import lombok.experimental.PackagePrivate;
+import ninja.javahacker.jpasimpletransactions.ConnectorListener;
+
+/**
+ * Keeps the {@link PreparedStatement}s used by {@link NativeSelect} and {@link NativeExecute} methods, so they
+ * are prepared only once per transaction instead of once per call.
+ *
+ * <p>Statements are kept per thread and only while an operation of some
+ * {@link ninja.javahacker.jpasimpletransactions.Connector} is running. They are closed right before any transaction
+ * finishes, while its {@link Connection} is still held, so they are never left open after it is given back to its pool.
+ * They are also closed when a different {@link Connection} is used. Outside of such operations, statements are closed right
+ * after being used.</p>
+ *
+ * @author Victor Williams Stafusa da Silva
+ */
+@PackagePrivate
+final class StatementCache implements ConnectorListener {
+
+    /**
+     * Some work to be done with a {@link PreparedStatement}.
+     * @param <T> The type of the result of the work.
+     */
+    @FunctionalInterface
+    @PackagePrivate
+    interface StatementWork<T> {
+        public T run(@NonNull PreparedStatement ps) throws SQLException;
+    }
+
+    private final ThreadLocal<Scope> scopes;
+
+    public StatementCache() {
+        this.scopes = ThreadLocal.withInitial(Scope::new);
+    }
+
+    @SuppressWarnings({"PMD.CloseResource", "PMD.CompareObjectsWithEquals"})
+    public <T> T withStatement(@NonNull Connection c, @NonNull String sql, @NonNull StatementWork<T> work) throws SQLException {
+        var s = scopes.get();
+        if (s.depth <= 0) {
+            scopes.remove();
+            try (var ps = c.prepareStatement(sql)) {
+                return work.run(ps);
+            }
+        }
+        if (s.connection != c) {
+            s.closeAll();
+            s.connection = c;
+        }
+        var ps = s.statements.get(sql);
+        if (ps == null || ps.isClosed()) {
+            ps = c.prepareStatement(sql);
+            s.statements.put(sql, ps);
+        } else {
+            ps.clearParameters();
+        }
+        return work.run(ps);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     */
+    @Override
+    public void operationStarted(@NonNull String persistenceUnit) {
+        scopes.get().depth++;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     */
+    @Override
+    public void finishingTransaction(@NonNull String persistenceUnit) {
+        var s = scopes.get();
+        s.closeAll();
+        if (s.depth == 0) scopes.remove();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param persistenceUnit {@inheritDoc}
+     */
+    @Override
+    public void operationFinished(@NonNull String persistenceUnit) {
+        var s = scopes.get();
+
+        // This might have been registered while the operation was already running, so it might have missed its start.
+        if (s.depth > 0) s.depth--;
+        if (s.depth == 0) scopes.remove();
+    }
+
+    /**
+     * The statements prepared in the current thread.
+     */
+    private static final class Scope {
+        private int depth;
+        private Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        @SuppressWarnings("PMD.EmptyCatchBlock")
+        public void closeAll() {
+            for (var ps : statements.values()) {
+                try {
+                    ps.close();
+                } catch (SQLException e) {
+                    // The connection is likely gone already, so there is nothing left to release.
+                }
+            }
+            statements.clear();
+            connection = null;
+        }
+    }
+}
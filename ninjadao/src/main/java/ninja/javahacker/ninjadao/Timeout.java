@@ -0,0 +1,34 @@
+package ninja.javahacker.ninjadao;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Specifies the maximum time that the database operation of the annotated method might take.
+ * <p>For JPQL methods, this is given to the persistence provider through the {@code jakarta.persistence.query.timeout}
+ * hint. For native SQL methods, this is given to {@link java.sql.Statement#setQueryTimeout(int)}, which is
+ * measured in whole seconds, so the value is rounded up.</p>
+ * <p>If the transaction times out sooner, as told by
+ * {@link ninja.javahacker.jpasimpletransactions.ExtendedEntityManager#getRemainingTime()}, the time left is used instead.
+ * Native SQL methods get that time left even when they aren't annotated.</p>
+ * @author Victor Williams Stafusa da Silva
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Timeout {
+
+    /**
+     * The maximum time that the database operation might take.
+     * @return The maximum time that the database operation might take, measured in {@link #unit()}s.
+     */
+    public long value();
+
+    /**
+     * The unit used to measure the {@link #value()}.
+     * @return The unit used to measure the {@link #value()}.
+     */
+    public TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
@@ -0,0 +1,57 @@
+package ninja.javahacker.jpasimpletransactions.openjpa;
+
+import java.util.Locale;
+
+/**
+ * Enum for the values of the Open JPA property {@code openjpa.ConnectionRetainMode}.
+ * @author Victor Williams Stafusa da Silva
+ */
+public enum ConnectionRetainMode {
+
+    /**
+     * Used to represent that no setting about when connections are retained should be defined.
+     */
+    UNSPECIFIED(""),
+
+    /**
+     * Used to represent that a connection is obtained only when needed and released as soon as possible.
+     */
+    ON_DEMAND("on-demand"),
+
+    /**
+     * Used to represent that a connection is retained from its first use until the end of the transaction.
+     */
+    TRANSACTION("transaction"),
+
+    /**
+     * Used to represent that each entity manager retains a single connection for all of its lifetime.
+     */
+    ALWAYS("always");
+
+    private final String asString;
+    private final String code;
+
+    private ConnectionRetainMode(String code) {
+        this.asString = name().toLowerCase(Locale.ROOT).replace('_', '-');
+        this.code = code;
+    }
+
+    /**
+     * Returns {@code "unspecified"}, {@code "on-demand"}, {@code "transaction"} or {@code "always"},
+     * depending on which elements of the enum {@code this} is.
+     * @return {@code "unspecified"}, {@code "on-demand"}, {@code "transaction"} or {@code "always"}.
+     */
+    @Override
+    public String toString() {
+        return asString;
+    }
+
+    /**
+     * Returns {@code ""}, {@code "on-demand"}, {@code "transaction"} or {@code "always"},
+     * depending on which elements of the enum {@code this} is.
+     * @return {@code ""}, {@code "on-demand"}, {@code "transaction"} or {@code "always"}.
+     */
+    public String getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,30 @@
+package ninja.javahacker.jpasimpletransactions.openjpa;
+
+import ninja.javahacker.jpasimpletransactions.StatementCounter;
+import org.apache.openjpa.lib.jdbc.AbstractJDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCEvent;
+
+/**
+ * An OpenJPA JDBC listener that reports each executed SQL statement to the {@link StatementCounter}.
+ * <p>This is what the {@link OpenJpaConnectorFactory} installs when its statement inspection is turned on.</p>
+ * @see OpenJpaAdapter#statementInspectionProperties()
+ * @author Victor Williams Stafusa da Silva
+ */
+public class CountingJdbcListener extends AbstractJDBCListener {
+
+    /**
+     * Sole public constructor, used by OpenJPA.
+     */
+    public CountingJdbcListener() {
+    }
+
+    /**
+     * Reports the executed SQL statement to the {@link StatementCounter}.
+     * @param event The event of the SQL statement.
+     */
+    @Override
+    public void beforeExecuteStatement(JDBCEvent event) {
+        var sql = event.getSQL();
+        if (sql != null) StatementCounter.statementIssued(sql);
+    }
+}
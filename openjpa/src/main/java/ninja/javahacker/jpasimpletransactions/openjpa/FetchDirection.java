@@ -0,0 +1,57 @@
+package ninja.javahacker.jpasimpletransactions.openjpa;
+
+import java.util.Locale;
+
+/**
+ * Enum for the values of the Open JPA property {@code openjpa.jdbc.FetchDirection}.
+ * @author Victor Williams Stafusa da Silva
+ */
+public enum FetchDirection {
+
+    /**
+     * Used to represent that no setting about the direction in which the JDBC result sets are read should be defined.
+     */
+    UNSPECIFIED(""),
+
+    /**
+     * Used to represent that the JDBC result sets are read from the first row to the last.
+     */
+    FORWARD("forward"),
+
+    /**
+     * Used to represent that the JDBC result sets are read from the last row to the first.
+     */
+    REVERSE("reverse"),
+
+    /**
+     * Used to represent that the order in which the JDBC result sets are read is unknown.
+     */
+    UNKNOWN("unknown");
+
+    private final String asString;
+    private final String code;
+
+    private FetchDirection(String code) {
+        this.asString = name().toLowerCase(Locale.ROOT).replace('_', '-');
+        this.code = code;
+    }
+
+    /**
+     * Returns {@code "unspecified"}, {@code "forward"}, {@code "reverse"} or {@code "unknown"},
+     * depending on which elements of the enum {@code this} is.
+     * @return {@code "unspecified"}, {@code "forward"}, {@code "reverse"} or {@code "unknown"}.
+     */
+    @Override
+    public String toString() {
+        return asString;
+    }
+
+    /**
+     * Returns {@code ""}, {@code "forward"}, {@code "reverse"} or {@code "unknown"},
+     * depending on which elements of the enum {@code this} is.
+     * @return {@code ""}, {@code "forward"}, {@code "reverse"} or {@code "unknown"}.
+     */
+    public String getCode() {
+        return code;
+    }
+}
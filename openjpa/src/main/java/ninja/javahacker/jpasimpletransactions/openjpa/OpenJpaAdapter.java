@@ -5,6 +5,10 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.spi.PersistenceProvider;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
 import lombok.NonNull;
 import ninja.javahacker.jpasimpletransactions.ExtendedEntityManager;
 import ninja.javahacker.jpasimpletransactions.ProviderAdapter;
@@ -69,6 +73,35 @@ public final class OpenJpaAdapter implements ProviderAdapter {
         return (Connection) oem.getConnection();
     }
 
+    /**
+     * {@inheritDoc}
+     * @param em {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Optional<Collection<Object>> managedEntities(@NonNull EntityManager em) {
+        OpenJPAEntityManager oem = (OpenJPAEntityManager) ExtendedEntityManager.unwrap(ensureRecognition(em));
+        return Optional.of(new ArrayList<Object>(oem.getManagedObjects()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Optional<String> fetchSizeHint() {
+        return Optional.of("openjpa.FetchPlan.FetchBatchSize");
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> statementInspectionProperties() {
+        return Map.of("openjpa.jdbc.JDBCListeners", CountingJdbcListener.class.getName());
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
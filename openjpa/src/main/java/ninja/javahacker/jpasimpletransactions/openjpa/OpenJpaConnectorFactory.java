@@ -1,11 +1,15 @@
 package ninja.javahacker.jpasimpletransactions.openjpa;
 
+import jakarta.persistence.SharedCacheMode;
 import java.lang.annotation.Annotation;
 import java.sql.Driver;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -15,10 +19,13 @@ import lombok.experimental.FieldDefaults;
 import lombok.experimental.Tolerate;
 import ninja.javahacker.jpasimpletransactions.SimpleScope;
 import ninja.javahacker.jpasimpletransactions.config.OptionalBoolean;
+import ninja.javahacker.jpasimpletransactions.config.PoolSettings;
 import ninja.javahacker.jpasimpletransactions.config.ProviderConnectorFactory;
 import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationAction;
 import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationActionTarget;
 import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationSource;
+import ninja.javahacker.jpasimpletransactions.config.SecondLevelCache;
+import ninja.javahacker.jpasimpletransactions.config.Weaving;
 
 /**
  * Implementation of {@link ProviderConnectorFactory} for Open JPA.
@@ -269,6 +276,22 @@ public class OpenJpaConnectorFactory implements ProviderConnectorFactory<OpenJpa
     @NonNull
     String databaseMinorVersion;
 
+    /**
+     * How the JDBC connections should be pooled.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param poolSettings {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    PoolSettings poolSettings;
+
     /**
      * The set of extra custom properties.
      * -- GETTER --
@@ -317,6 +340,68 @@ public class OpenJpaConnectorFactory implements ProviderConnectorFactory<OpenJpa
     @NonNull
     Class<? extends Annotation> scopedAnnotation;
 
+    /**
+     * If the classpath should be scanned for entity classes that were not explicitly declared.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param classpathScanning {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    OptionalBoolean classpathScanning;
+
+    /**
+     * How the entity classes are enhanced (or woven) for the persistence provider.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param weaving {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    Weaving weaving;
+
+    /**
+     * How the second-level (shared) cache of the persistence unit is configured.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param secondLevelCache {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalArgumentException If the parameter is {@code null}.
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    @NonNull
+    SecondLevelCache secondLevelCache;
+
+    /**
+     * If the SQL statements issued by the persistence provider are reported to the statement counter.
+     * -- GETTER --
+     * {@inheritDoc}
+     * @return {@inheritDoc}
+     * -- WITH --
+     * {@inheritDoc}
+     * @param statementInspection {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @With(onMethod_ = @Override)
+    @Getter(onMethod_ = @Override)
+    boolean statementInspection;
+
     /**
      * Defines if a dynamic enhancement agent should be used at runtime.
      * -- GETTER --
@@ -385,6 +470,120 @@ public class OpenJpaConnectorFactory implements ProviderConnectorFactory<OpenJpa
     @NonNull
     OptionalBoolean queryCache;
 
+    /**
+     * How many rows are fetched from the database at once, if defined.
+     * The value {@code -1} means all of them and {@code 0} means the JDBC driver default.
+     * -- GETTER --
+     * Gives how many rows are fetched from the database at once, if defined.
+     * The value {@code -1} means all of them and {@code 0} means the JDBC driver default.
+     * @return How many rows are fetched from the database at once,
+     *     or an empty {@link OptionalInt} if it is left to the OpenJPA default.
+     * -- WITH --
+     * Defines how many rows are fetched from the database at once.
+     * The value {@code -1} means all of them and {@code 0} means the JDBC driver default.
+     * <p>Invalid values are only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param fetchBatchSize How many rows are fetched from the database at once,
+     *     or an empty {@link OptionalInt} if it is left to the OpenJPA default.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     number of rows fetched from the database at once.
+     * @throws IllegalArgumentException If {@code fetchBatchSize} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalInt fetchBatchSize;
+
+    /**
+     * The maximum number of statements in a JDBC batch, if defined.
+     * The value {@code -1} means no limit and {@code 0} turns batching off.
+     * -- GETTER --
+     * Gives the maximum number of statements in a JDBC batch, if defined.
+     * The value {@code -1} means no limit and {@code 0} turns batching off.
+     * @return The maximum number of statements in a JDBC batch,
+     *     or an empty {@link OptionalInt} if it is left to the OpenJPA default.
+     * -- WITH --
+     * Defines the maximum number of statements in a JDBC batch.
+     * The value {@code -1} means no limit and {@code 0} turns batching off.
+     * <p>Invalid values are only rejected when the properties are built by {@link #getStandardProperties()}.</p>
+     * @param batchLimit The maximum number of statements in a JDBC batch,
+     *     or an empty {@link OptionalInt} if it is left to the OpenJPA default.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     maximum number of statements in a JDBC batch.
+     * @throws IllegalArgumentException If {@code batchLimit} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalInt batchLimit;
+
+    /**
+     * If the SQL generated for JPQL queries should be cached, so it isn't generated again.
+     * -- GETTER --
+     * Tells if the SQL generated for JPQL queries should be cached, so it isn't generated again.
+     * @return If the SQL generated for JPQL queries should be cached, so it isn't generated again.
+     * -- WITH --
+     * Defines if the SQL generated for JPQL queries should be cached, so it isn't generated again.
+     * @param querySqlCache If the SQL generated for JPQL queries should be cached, so it isn't generated again.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     setting about whether the SQL generated for JPQL queries should be cached.
+     * @throws IllegalArgumentException If {@code querySqlCache} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    OptionalBoolean querySqlCache;
+
+    /**
+     * When the JDBC connections are obtained and released.
+     * -- GETTER --
+     * Tells when the JDBC connections are obtained and released.
+     * @return When the JDBC connections are obtained and released.
+     * -- WITH --
+     * Defines when the JDBC connections are obtained and released.
+     * @param connectionRetainMode When the JDBC connections are obtained and released.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition of when the JDBC connections are obtained and released.
+     * @throws IllegalArgumentException If {@code connectionRetainMode} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    ConnectionRetainMode connectionRetainMode;
+
+    /**
+     * The type of the JDBC result sets.
+     * -- GETTER --
+     * Tells the type of the JDBC result sets.
+     * @return The type of the JDBC result sets.
+     * -- WITH --
+     * Defines the type of the JDBC result sets.
+     * @param resultSetType The type of the JDBC result sets.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition of the type of the JDBC result sets.
+     * @throws IllegalArgumentException If {@code resultSetType} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    ResultSetType resultSetType;
+
+    /**
+     * The direction in which the JDBC result sets are read.
+     * -- GETTER --
+     * Tells the direction in which the JDBC result sets are read.
+     * @return The direction in which the JDBC result sets are read.
+     * -- WITH --
+     * Defines the direction in which the JDBC result sets are read.
+     * @param fetchDirection The direction in which the JDBC result sets are read.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     definition of the direction in which the JDBC result sets are read.
+     * @throws IllegalArgumentException If {@code fetchDirection} is {@code null}.
+     */
+    @With
+    @Getter
+    @NonNull
+    FetchDirection fetchDirection;
+
     /**
      * Sole public constructor. Creates an empty instance.
      * To be something useful, the instance should be built by further call to {@code withXXX} methods.
@@ -405,14 +604,25 @@ public class OpenJpaConnectorFactory implements ProviderConnectorFactory<OpenJpa
         this.databaseProductName = "";
         this.databaseMajorVersion = "";
         this.databaseMinorVersion = "";
+        this.poolSettings = PoolSettings.disabled();
         this.extras = Map.of();
         this.entities = Set.of();
         this.scopedAnnotation = SimpleScope.class;
+        this.classpathScanning = OptionalBoolean.UNSPECIFIED;
+        this.weaving = Weaving.UNSPECIFIED;
+        this.secondLevelCache = SecondLevelCache.unspecified();
+        this.statementInspection = false;
 
         this.dynamicEnhancementAgent = OptionalBoolean.UNSPECIFIED;
         this.runtimeUnenhancedClasses = Support.UNSUPPORTED;
         this.dataCache = OptionalBoolean.UNSPECIFIED;
         this.queryCache = OptionalBoolean.UNSPECIFIED;
+        this.fetchBatchSize = OptionalInt.empty();
+        this.batchLimit = OptionalInt.empty();
+        this.querySqlCache = OptionalBoolean.UNSPECIFIED;
+        this.connectionRetainMode = ConnectionRetainMode.UNSPECIFIED;
+        this.resultSetType = ResultSetType.UNSPECIFIED;
+        this.fetchDirection = FetchDirection.UNSPECIFIED;
     }
 
     /**
@@ -458,9 +668,45 @@ public class OpenJpaConnectorFactory implements ProviderConnectorFactory<OpenJpa
         return withQueryCache(OptionalBoolean.from(newValue));
     }
 
+    /**
+     * Defines how many rows are fetched from the database at once.
+     * @param newValue How many rows are fetched from the database at once. The value {@code -1} means all of them and {@code 0}
+     *     means the JDBC driver default.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     number of rows fetched from the database at once.
+     */
+    @Tolerate
+    public OpenJpaConnectorFactory withFetchBatchSize(int newValue) {
+        return withFetchBatchSize(OptionalInt.of(newValue));
+    }
+
+    /**
+     * Defines the maximum number of statements in a JDBC batch.
+     * @param newValue The maximum number of statements in a JDBC batch. The value {@code -1} means no limit and {@code 0} turns
+     *     batching off.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     maximum number of statements in a JDBC batch.
+     */
+    @Tolerate
+    public OpenJpaConnectorFactory withBatchLimit(int newValue) {
+        return withBatchLimit(OptionalInt.of(newValue));
+    }
+
+    /**
+     * Defines if the SQL generated for JPQL queries should be cached, so it isn't generated again.
+     * @param newValue If the SQL generated for JPQL queries should be cached, so it isn't generated again.
+     * @return A new instance of this class which is similar to {@code this}, but with the given
+     *     setting about whether the SQL generated for JPQL queries should be cached.
+     */
+    @Tolerate
+    public OpenJpaConnectorFactory withQuerySqlCache(boolean newValue) {
+        return withQuerySqlCache(OptionalBoolean.from(newValue));
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
+     * @throws IllegalStateException If the fetch batch size or the batch limit is lesser than {@code -1}.
      */
     @Override
     public Map<String, String> getStandardProperties() {
@@ -469,10 +715,56 @@ public class OpenJpaConnectorFactory implements ProviderConnectorFactory<OpenJpa
             if (!value.isEmpty()) props.put(key, value);
         };
 
+        // The explicit dynamic enhancement agent setting, if any, overrides what the weaving strategy implies.
+        var w = getWeaving();
+        if (w != Weaving.UNSPECIFIED) props.put("openjpa.DynamicEnhancementAgent", String.valueOf(w == Weaving.RUNTIME));
         f.accept("openjpa.DynamicEnhancementAgent", getDynamicEnhancementAgent().getCode());
         f.accept("openjpa.RuntimeUnenhancedClasses", getRuntimeUnenhancedClasses().getCode());
+
+        // The explicit data cache and query cache settings, if any, override what the second-level cache settings imply.
+        var cache = getSecondLevelCache();
+        if (cache.getSharedCacheMode() == SharedCacheMode.NONE) {
+            props.put("openjpa.DataCache", "false");
+        } else if (cache.isEnabled()) {
+            props.put("openjpa.DataCache", dataCachePlugin(cache));
+            props.put("openjpa.RemoteCommitProvider", "sjvm");
+            var ttl = cache.getTimeToLive();
+            if (!ttl.isZero()) props.put("openjpa.DataCacheTimeout", String.valueOf(ttl.toMillis()));
+        }
+        f.accept("openjpa.QueryCache", cache.getQueryCache().getCode());
         f.accept("openjpa.DataCache", getDataCache().getCode());
         f.accept("openjpa.QueryCache", getQueryCache().getCode());
+
+        atLeastMinusOne("fetch batch size", getFetchBatchSize()).ifPresent(v -> props.put("openjpa.FetchBatchSize", String.valueOf(v)));
+        atLeastMinusOne("batch limit", getBatchLimit()).ifPresent(v -> props.put("openjpa.jdbc.DBDictionary", "batchLimit=" + v));
+        f.accept("openjpa.jdbc.QuerySQLCache", getQuerySqlCache().getCode());
+        f.accept("openjpa.ConnectionRetainMode", getConnectionRetainMode().getCode());
+        f.accept("openjpa.jdbc.ResultSetType", getResultSetType().getCode());
+        f.accept("openjpa.jdbc.FetchDirection", getFetchDirection().getCode());
         return Map.copyOf(props);
     }
+
+    /**
+     * Builds the plugin string of OpenJPA's data cache for the given second-level cache settings.
+     * OpenJPA has no per-entity size nor per-entity time to live in its properties, so the entities in the
+     * {@linkplain SecondLevelCache#getRegions() regions} are just added to the cached types.
+     * @param cache The second-level cache settings.
+     * @return The plugin string of OpenJPA's data cache.
+     */
+    private static String dataCachePlugin(@NonNull SecondLevelCache cache) {
+        var options = new ArrayList<String>(2);
+        if (cache.getMaxEntries() != 0) options.add("CacheSize=" + cache.getMaxEntries());
+        if (!cache.getRegions().isEmpty()) {
+            var types = cache.getRegions().keySet().stream().map(Class::getName).sorted().collect(Collectors.joining(";"));
+            options.add("Types=" + types);
+        }
+        return options.isEmpty() ? "true" : "true(" + String.join(", ", options) + ")";
+    }
+
+    private static OptionalInt atLeastMinusOne(@NonNull String what, @NonNull OptionalInt value) {
+        if (value.isPresent() && value.getAsInt() < -1) {
+            throw new IllegalStateException("The " + what + " can't be lesser than -1, but was " + value.getAsInt() + ".");
+        }
+        return value;
+    }
 }
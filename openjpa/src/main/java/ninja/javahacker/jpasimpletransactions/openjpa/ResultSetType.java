@@ -0,0 +1,57 @@
+package ninja.javahacker.jpasimpletransactions.openjpa;
+
+import java.util.Locale;
+
+/**
+ * Enum for the values of the Open JPA property {@code openjpa.jdbc.ResultSetType}.
+ * @author Victor Williams Stafusa da Silva
+ */
+public enum ResultSetType {
+
+    /**
+     * Used to represent that no setting about the type of the JDBC result sets should be defined.
+     */
+    UNSPECIFIED(""),
+
+    /**
+     * Used to represent that the JDBC result sets can only be read forward, which is the cheapest type.
+     */
+    FORWARD_ONLY("forward-only"),
+
+    /**
+     * Used to represent that the JDBC result sets are scrollable and see changes made by others.
+     */
+    SCROLL_SENSITIVE("scroll-sensitive"),
+
+    /**
+     * Used to represent that the JDBC result sets are scrollable, but don't see changes made by others.
+     */
+    SCROLL_INSENSITIVE("scroll-insensitive");
+
+    private final String asString;
+    private final String code;
+
+    private ResultSetType(String code) {
+        this.asString = name().toLowerCase(Locale.ROOT).replace('_', '-');
+        this.code = code;
+    }
+
+    /**
+     * Returns {@code "unspecified"}, {@code "forward-only"}, {@code "scroll-sensitive"} or {@code "scroll-insensitive"},
+     * depending on which elements of the enum {@code this} is.
+     * @return {@code "unspecified"}, {@code "forward-only"}, {@code "scroll-sensitive"} or {@code "scroll-insensitive"}.
+     */
+    @Override
+    public String toString() {
+        return asString;
+    }
+
+    /**
+     * Returns {@code ""}, {@code "forward-only"}, {@code "scroll-sensitive"} or {@code "scroll-insensitive"},
+     * depending on which elements of the enum {@code this} is.
+     * @return {@code ""}, {@code "forward-only"}, {@code "scroll-sensitive"} or {@code "scroll-insensitive"}.
+     */
+    public String getCode() {
+        return code;
+    }
+}
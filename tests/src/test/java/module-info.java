@@ -11,5 +11,6 @@ open module ninja.javahacker.test.jpasimpletransactions {
     requires org.junit.jupiter.api;
     requires org.junit.jupiter.params;
     requires org.hsqldb;
+    requires java.instrument;
     uses ninja.javahacker.jpasimpletransactions.ProviderAdapter;
 }
\ No newline at end of file
@@ -1,11 +1,18 @@
 package ninja.javahacker.test.jpasimpletransactions;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.spi.PersistenceProvider;
+import java.sql.Connection;
+import java.util.List;
 import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.ServiceLoader.Provider;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import ninja.javahacker.jpasimpletransactions.ExtendedEntityManager;
 import ninja.javahacker.jpasimpletransactions.ProviderAdapter;
+import ninja.javahacker.jpasimpletransactions.config.ProviderConnectorFactory;
 import ninja.javahacker.jpasimpletransactions.eclipselink.EclipselinkAdapter;
 import ninja.javahacker.jpasimpletransactions.hibernate.HibernateAdapter;
 import ninja.javahacker.jpasimpletransactions.openjpa.OpenJpaAdapter;
@@ -80,4 +87,65 @@ public class AdapterTest {
         Assertions.assertNotNull(provider);
         Assertions.assertSame(provider, adapter.getJpaProvider());
     }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testAdapterLookupIsCached(String t, JpaConfiguration config) throws Exception {
+        var adapter = config.getAdapter();
+        var con = config.connect();
+        con.transact(Runnable.class, () -> {
+            var em = ExtendedEntityManager.unwrap(con.getEntityManager());
+            var emf = em.getEntityManagerFactory();
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(adapter, ProviderAdapter.findFor(emf)),
+                    () -> Assertions.assertSame(ProviderAdapter.findFor(emf), ProviderAdapter.findFor(emf)),
+                    () -> Assertions.assertEquals(adapter, ProviderAdapter.findFor(em)),
+                    () -> Assertions.assertSame(ProviderAdapter.findFor(em), ProviderAdapter.findFor(em))
+            );
+
+            // Only the identity is kept, so nothing but the registry holds the adapter across the collection.
+            var before = System.identityHashCode(ProviderAdapter.findFor(emf));
+            System.gc();
+            Assertions.assertEquals(before, System.identityHashCode(ProviderAdapter.findFor(emf)));
+        }).run();
+    }
+
+    @Test
+    public void testAdapterRegistration() throws Exception {
+        var custom = new ProviderAdapter() {
+            @Override
+            public boolean recognizes(EntityManagerFactory emf) {
+                return false;
+            }
+
+            @Override
+            public Connection getConnection(EntityManager em) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public PersistenceProvider getJpaProvider() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ProviderConnectorFactory<?> config() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        Supplier<List<Object>> makeList = () -> ProviderAdapter.all().map(x -> x.get().content()).collect(Collectors.toList());
+
+        ProviderAdapter.register(custom);
+        var registered = makeList.get();
+        var removed = ProviderAdapter.unregister(custom);
+        var unregistered = makeList.get();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(4, registered.size()),
+                () -> Assertions.assertSame(custom, registered.get(0)),
+                () -> Assertions.assertTrue(removed),
+                () -> Assertions.assertFalse(ProviderAdapter.unregister(custom)),
+                () -> Assertions.assertEquals(3, unregistered.size()),
+                () -> Assertions.assertFalse(unregistered.contains(custom))
+        );
+    }
 }
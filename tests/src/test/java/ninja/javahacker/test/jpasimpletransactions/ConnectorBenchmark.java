@@ -0,0 +1,50 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import java.time.Duration;
+import java.util.Locale;
+import ninja.javahacker.jpasimpletransactions.config.ProviderConnectorFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Only runs with the {@code benchmark} task, since it just reports how long things take.
+ * @author Victor Williams Stafusa da Silva
+ */
+@Tag("benchmark")
+public class ConnectorBenchmark {
+
+    private static Duration timeToConnect(ProviderConnectorFactory<?> factory) {
+        var start = System.nanoTime();
+        try (var con = factory.connect()) {
+            con.transact(Runnable.class, () -> con.getEntityManager().save(new Fruit("fig", "purple"))).run();
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void benchmarkStartupWithoutClasspathScanning(String t, JpaConfiguration config) throws Exception {
+        var listed = (ProviderConnectorFactory<?>) config.prepare();
+        var scanning = listed.withClasspathScanning(true);
+
+        // Warm up, so the first measure doesn't pay for class loading and JIT alone.
+        timeToConnect(scanning);
+        timeToConnect(listed);
+
+        var rounds = 5;
+        var withScan = Duration.ZERO;
+        var withoutScan = Duration.ZERO;
+        for (var i = 0; i < rounds; i++) {
+            withScan = withScan.plus(timeToConnect(scanning));
+            withoutScan = withoutScan.plus(timeToConnect(listed));
+        }
+        System.out.printf(
+                Locale.ROOT,
+                "%s startup: %d ms scanning the classpath, %d ms without scanning.%n",
+                t,
+                withScan.dividedBy(rounds).toMillis(),
+                withoutScan.dividedBy(rounds).toMillis()
+        );
+    }
+}
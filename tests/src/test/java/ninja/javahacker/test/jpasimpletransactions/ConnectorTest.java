@@ -1,6 +1,44 @@
 package ninja.javahacker.test.jpasimpletransactions;
 
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.RollbackException;
+import jakarta.persistence.SharedCacheMode;
+import jakarta.persistence.TransactionRequiredException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import lombok.NonNull;
+import ninja.javahacker.jpasimpletransactions.Connector;
+import ninja.javahacker.jpasimpletransactions.ConnectorListener;
+import ninja.javahacker.jpasimpletransactions.ConnectorStartup;
+import ninja.javahacker.jpasimpletransactions.Database;
+import ninja.javahacker.jpasimpletransactions.PoolStatistics;
+import ninja.javahacker.jpasimpletransactions.Propagate;
+import ninja.javahacker.jpasimpletransactions.Propagation;
+import ninja.javahacker.jpasimpletransactions.ReadOnly;
+import ninja.javahacker.jpasimpletransactions.ReplicaBalancing;
+import ninja.javahacker.jpasimpletransactions.StatementReport;
+import ninja.javahacker.jpasimpletransactions.TransactionTimedOutException;
+import ninja.javahacker.jpasimpletransactions.TransactionTimeout;
+import ninja.javahacker.jpasimpletransactions.config.ConnectorFactory;
+import ninja.javahacker.jpasimpletransactions.config.PoolSettings;
+import ninja.javahacker.jpasimpletransactions.config.ProviderConnectorFactory;
+import ninja.javahacker.jpasimpletransactions.config.SecondLevelCache;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -53,4 +91,713 @@ public class ConnectorTest {
                 () -> Assertions.assertThrows(IllegalStateException.class, con::getEntityManager)
         );
     }
+
+    private static final class PoolWatcher implements ConnectorListener {
+        private final AtomicInteger acquired = new AtomicInteger();
+        private final AtomicInteger released = new AtomicInteger();
+        private final AtomicReference<PoolStatistics> last = new AtomicReference<>();
+
+        @Override
+        public void connectionAcquired(@NonNull String persistenceUnit, @NonNull Duration waited, @NonNull PoolStatistics statistics) {
+            acquired.incrementAndGet();
+        }
+
+        @Override
+        public void connectionReleased(@NonNull String persistenceUnit, @NonNull Duration held, @NonNull PoolStatistics statistics) {
+            released.incrementAndGet();
+            last.set(statistics);
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testPooledConnections(String t, JpaConfiguration config) throws Exception {
+        var watcher = new PoolWatcher();
+        Database.addListener(watcher);
+        try (var con = config.prepare().withPoolSettings(PoolSettings.defaults().withMaxSize(2)).connect()) {
+            for (var i = 0; i < 5; i++) {
+                con.transact(Runnable.class, () -> con.getEntityManager().save(new Fruit("pear", "green"))).run();
+            }
+        } finally {
+            Database.removeListener(watcher);
+        }
+        var stats = watcher.last.get();
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(watcher.acquired.get() >= 5),
+                () -> Assertions.assertEquals(watcher.acquired.get(), watcher.released.get()),
+                () -> Assertions.assertEquals(0, stats.getActive()),
+                () -> Assertions.assertTrue(stats.getCreated() <= 2),
+                () -> Assertions.assertEquals(0L, stats.getTimeouts())
+        );
+    }
+
+    @FunctionalInterface
+    public static interface ConnectionWork {
+        public void run() throws SQLException;
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testPooledConnectionsAreReset(String t, JpaConfiguration config) throws Exception {
+        var leftOpen = new AtomicReference<Statement>();
+        var schemas = new ArrayList<String>();
+        try (var con = config.prepare().withPoolSettings(PoolSettings.defaults().withMaxSize(2)).connect()) {
+            con.transact(ConnectionWork.class, () -> {
+                var c = con.getEntityManager().getConnection();
+                Assertions.assertSame(c, c.unwrap(Connection.class));
+                schemas.add(c.getSchema());
+                leftOpen.set(c.createStatement());
+                c.setSchema("INFORMATION_SCHEMA");
+            }).run();
+            con.transact(ConnectionWork.class, () -> schemas.add(con.getEntityManager().getConnection().getSchema())).run();
+        }
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(leftOpen.get().isClosed()),
+                () -> Assertions.assertEquals(schemas.get(0), schemas.get(1))
+        );
+    }
+
+    @Test
+    public void testBadPoolSettings() {
+        var d = PoolSettings.defaults();
+        Assertions.assertAll(
+                () -> Assertions.assertFalse(PoolSettings.disabled().isEnabled()),
+                () -> Assertions.assertTrue(d.isEnabled()),
+                () -> Assertions.assertThrows(IllegalArgumentException.class, () -> d.withMinSize(-1)),
+                () -> Assertions.assertThrows(IllegalArgumentException.class, () -> d.withMinSize(d.getMaxSize() + 1)),
+                () -> Assertions.assertThrows(IllegalArgumentException.class, () -> d.withAcquireTimeout(Duration.ofSeconds(-1)))
+        );
+    }
+
+    private static void connectAndSave(ProviderConnectorFactory<?> factory) {
+        try (var con = factory.connect()) {
+            Assertions.assertNotNull(con.getEntityManagerFactory().getMetamodel().entity(Fruit.class));
+            con.transact(Runnable.class, () -> con.getEntityManager().save(new Fruit("fig", "purple"))).run();
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testStartupWithoutClasspathScanning(String t, JpaConfiguration config) throws Exception {
+        var listed = (ProviderConnectorFactory<?>) config.prepare();
+        var scanning = listed.withClasspathScanning(true);
+        Assertions.assertAll(
+                () -> Assertions.assertFalse(listed.isScanningClasspath()),
+                () -> Assertions.assertTrue(scanning.isScanningClasspath()),
+                () -> Assertions.assertTrue(listed.clearEntities().isScanningClasspath()),
+                () -> Assertions.assertFalse(listed.clearEntities().withClasspathScanning(false).isScanningClasspath()),
+                () -> connectAndSave(scanning),
+                () -> connectAndSave(listed)
+        );
+    }
+
+    private static final class BrokenFactory implements ConnectorFactory {
+        @Override
+        public String getPersistenceUnitName() {
+            return "broken";
+        }
+
+        @Override
+        public Connector connect() {
+            throw new UnsupportedOperationException("Broken on purpose.");
+        }
+    }
+
+    @Test
+    public void testConnectAll() throws Exception {
+        var factories = new ArrayList<ConnectorFactory>();
+        JpaConfiguration.all().forEach(a -> {
+            var config = (JpaConfiguration) a.get()[1];
+            var name = "startup-" + config.getName();
+            factories.add(config.prepare().withPersistenceUnitName(name).withUrl("jdbc:hsqldb:mem:" + name));
+        });
+        factories.add(new BrokenFactory());
+
+        List<ConnectorStartup> results = Database.connectAll(factories, 2);
+        try {
+            Assertions.assertEquals(factories.size(), results.size());
+            for (var i = 0; i < factories.size(); i++) {
+                var r = results.get(i);
+                var name = factories.get(i).getPersistenceUnitName();
+                Assertions.assertAll(
+                        () -> Assertions.assertEquals(name, r.getPersistenceUnitName()),
+                        () -> Assertions.assertFalse(r.getBootTime().isNegative()),
+                        () -> Assertions.assertEquals(!"broken".equals(name), r.isSuccess())
+                );
+                if (r.isSuccess()) Assertions.assertSame(r.getConnector().success().get(), Database.getConnector(name));
+            }
+            var failure = results.get(results.size() - 1).getConnector().failure();
+            Assertions.assertAll(
+                    () -> Assertions.assertTrue(failure.orElseThrow() instanceof UnsupportedOperationException),
+                    () -> Assertions.assertThrows(IllegalStateException.class, () -> Database.connectAll(factories)),
+                    () -> Assertions.assertThrows(IllegalStateException.class, () -> Database.connectAll(List.of(factories.get(0))))
+            );
+        } finally {
+            for (var r : results) {
+                r.getConnector().success().ifPresent(c -> Database.removeConnector(c.getPersistenceUnitName()).ifPresent(Connector::close));
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testLazyConnector(String t, JpaConfiguration config) throws Exception {
+        var materialized = new AtomicInteger();
+        var listener = new ConnectorListener() {
+            @Override
+            public void connectorMaterialized(@NonNull String persistenceUnit, @NonNull Duration bootTime) {
+                materialized.incrementAndGet();
+            }
+        };
+        Database.addListener(listener);
+        try (var con = config.prepare().connectLazily()) {
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals("test-1", con.getPersistenceUnitName()),
+                    () -> Assertions.assertFalse(con.isMaterialized()),
+                    () -> Assertions.assertEquals(0, materialized.get())
+            );
+            con.transact(Runnable.class, () -> con.getEntityManager().save(new Fruit("date", "brown"))).run();
+            con.transact(Runnable.class, () -> con.getEntityManager().save(new Fruit("coconut", "brown"))).run();
+            Assertions.assertAll(
+                    () -> Assertions.assertTrue(con.isMaterialized()),
+                    () -> Assertions.assertEquals(1, materialized.get()),
+                    () -> Assertions.assertEquals(config.getAdapter(), con.getAdapter())
+            );
+        } finally {
+            Database.removeListener(listener);
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testLazyPrimaryWithReplicas(String t, JpaConfiguration config) throws Exception {
+        var materialized = new AtomicInteger();
+        var listener = new ConnectorListener() {
+            @Override
+            public void connectorMaterialized(@NonNull String persistenceUnit, @NonNull Duration bootTime) {
+                materialized.incrementAndGet();
+            }
+        };
+        Database.addListener(listener);
+        try (var con = Connector.withReplicas(config.prepare().connectLazily(), List.of(), ReplicaBalancing.ROUND_ROBIN, Duration.ZERO)) {
+            Assertions.assertFalse(con.isMaterialized());
+            con.transact(Runnable.class, () -> con.getEntityManager().save(new Fruit("fig", "purple"))).run();
+            Assertions.assertAll(
+                    () -> Assertions.assertTrue(con.isMaterialized()),
+                    () -> Assertions.assertEquals(1, materialized.get())
+            );
+        } finally {
+            Database.removeListener(listener);
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testPrewarmedLazyConnector(String t, JpaConfiguration config) throws Exception {
+        try (var con = config.prepare().connectLazily()) {
+            Assertions.assertSame(con, con.prewarm(ForkJoinPool.commonPool()).get());
+            Assertions.assertTrue(con.isMaterialized());
+        }
+        var closed = config.prepare().connectLazily();
+        closed.close();
+        Assertions.assertAll(
+                () -> Assertions.assertFalse(closed.isMaterialized()),
+                () -> Assertions.assertThrows(IllegalStateException.class, closed::getEntityManagerFactory)
+        );
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testSecondLevelCache(String t, JpaConfiguration config) throws Exception {
+        var cache = SecondLevelCache.of(SharedCacheMode.ALL).withMaxEntries(100).withTimeToLive(Duration.ofMinutes(5));
+        try (var con = ((ProviderConnectorFactory<?>) config.prepare()).withSecondLevelCache(cache).connect()) {
+            var id = new AtomicReference<Integer>();
+            con.transact(Runnable.class, () -> id.set(con.getEntityManager().save(new Fruit("kiwi", "brown")).getId())).run();
+            var shared = con.getEntityManagerFactory().getCache();
+            shared.evictAll();
+            Assertions.assertFalse(shared.contains(Fruit.class, id.get()));
+            con.transact(Runnable.class, () -> con.getEntityManager().find(Fruit.class, id.get())).run();
+            Assertions.assertTrue(shared.contains(Fruit.class, id.get()));
+            shared.evict(Fruit.class);
+            Assertions.assertFalse(shared.contains(Fruit.class, id.get()));
+        }
+    }
+
+    @FunctionalInterface
+    public static interface FruitCounter {
+        public long count();
+    }
+
+    @ReadOnly
+    @FunctionalInterface
+    public static interface ReplicaFruitCounter {
+        public long count();
+    }
+
+    @ReadOnly
+    @FunctionalInterface
+    public static interface ReplicaFruitSaver {
+        public void save(Fruit fruit);
+    }
+
+    private static String seedReplica(JpaConfiguration config, Fruit... fruits) {
+        var replicaUrl = "jdbc:hsqldb:mem:replica-" + UUID.randomUUID();
+        try (var seed = config.prepare().withUrl(replicaUrl).connect()) {
+            for (var f : fruits) {
+                seed.transact(Runnable.class, () -> seed.getEntityManager().save(f)).run();
+            }
+        }
+        return replicaUrl;
+    }
+
+    private static EntityManagerFactory brokenFactory() {
+        InvocationHandler broken = (p, m, args) -> {
+            throw new PersistenceException("Replica is down.");
+        };
+        return (EntityManagerFactory) Proxy.newProxyInstance(
+                EntityManagerFactory.class.getClassLoader(),
+                new Class<?>[] {EntityManagerFactory.class},
+                broken
+        );
+    }
+
+    private static long countFruits(Connector con) {
+        return con.getEntityManager().createQuery("SELECT COUNT(f) FROM Fruit f", Long.class).getSingleResult();
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testReadOnlyGoesToReplica(String t, JpaConfiguration config) throws Exception {
+        var replicaUrl = seedReplica(config);
+        try (var con = config.prepare().connectWithReplicas(List.of(replicaUrl), ReplicaBalancing.ROUND_ROBIN)) {
+            con.transact(Runnable.class, () -> con.getEntityManager().save(new Fruit("lime", "green"))).run();
+            var fromPrimary = con.transact(FruitCounter.class, () -> countFruits(con)).count();
+            var fromReplica = con.transact(ReplicaFruitCounter.class, () -> countFruits(con)).count();
+            var nested = con.transact(FruitCounter.class, () -> con.transact(ReplicaFruitCounter.class, () -> countFruits(con)).count());
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(1, con.getReplicaCount()),
+                    () -> Assertions.assertTrue(fromPrimary >= 1),
+                    () -> Assertions.assertEquals(0L, fromReplica),
+                    () -> Assertions.assertEquals(fromPrimary, nested.count())
+            );
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testReplicasAreNotWritten(String t, JpaConfiguration config) throws Exception {
+        var replicaUrl = seedReplica(config, new Fruit("kiwi", "brown"));
+        try (var con = config.prepare().connectWithReplicas(List.of(replicaUrl), ReplicaBalancing.ROUND_ROBIN)) {
+            var before = con.transact(ReplicaFruitCounter.class, () -> countFruits(con)).count();
+            var saver = con.transact(ReplicaFruitSaver.class, f -> con.getEntityManager().save(f));
+            Assertions.assertThrows(PersistenceException.class, () -> saver.save(new Fruit("mango", "yellow")));
+            var after = con.transact(ReplicaFruitCounter.class, () -> countFruits(con)).count();
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(1L, before),
+                    () -> Assertions.assertEquals(1L, after)
+            );
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testFallbackToPrimary(String t, JpaConfiguration config) throws Exception {
+        var failures = new AtomicInteger();
+        var listener = new ConnectorListener() {
+            @Override
+            public void replicaFailed(@NonNull String persistenceUnit, int replica, @NonNull Throwable cause) {
+                failures.incrementAndGet();
+            }
+        };
+        Database.addListener(listener);
+        try (var primary = config.connect()) {
+            var con = Connector.withReplicas(
+                    primary,
+                    List.of(Connector.create("test-1", brokenFactory(), config.getAdapter())),
+                    ReplicaBalancing.LEAST_IN_FLIGHT,
+                    Duration.ofMinutes(1)
+            );
+            con.transact(Runnable.class, () -> con.getEntityManager().save(new Fruit("orange", "orange"))).run();
+            var first = con.transact(ReplicaFruitCounter.class, () -> countFruits(con)).count();
+            var second = con.transact(ReplicaFruitCounter.class, () -> countFruits(con)).count();
+            Assertions.assertAll(
+                    () -> Assertions.assertTrue(first >= 1),
+                    () -> Assertions.assertEquals(first, second),
+                    () -> Assertions.assertEquals(1, failures.get())
+            );
+        } finally {
+            Database.removeListener(listener);
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testLazyFallbackToPrimary(String t, JpaConfiguration config) throws Exception {
+        var failures = new AtomicInteger();
+        var listener = new ConnectorListener() {
+            @Override
+            public void replicaFailed(@NonNull String persistenceUnit, int replica, @NonNull Throwable cause) {
+                failures.incrementAndGet();
+            }
+        };
+        Database.addListener(listener);
+        try (var primary = config.connect()) {
+            var con = Connector.withReplicas(
+                    primary,
+                    List.of(Connector.create("test-1", brokenFactory(), config.getAdapter())),
+                    ReplicaBalancing.ROUND_ROBIN,
+                    Duration.ofMinutes(1)
+            );
+            con.setLazyBegin(true);
+            con.transact(Runnable.class, () -> con.getEntityManager().save(new Fruit("orange", "orange"))).run();
+            con.transact(ReplicaFruitCounter.class, () -> 0L).count();
+            var untouched = failures.get();
+            var first = con.transact(ReplicaFruitCounter.class, () -> countFruits(con)).count();
+            var second = con.transact(ReplicaFruitCounter.class, () -> countFruits(con)).count();
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(0, untouched),
+                    () -> Assertions.assertEquals(1L, first),
+                    () -> Assertions.assertEquals(1L, second),
+                    () -> Assertions.assertEquals(1, failures.get())
+            );
+        } finally {
+            Database.removeListener(listener);
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testBadReplicas(String t, JpaConfiguration config) throws Exception {
+        try (var primary = config.connect()) {
+            var other = Connector.create("other", brokenFactory(), config.getAdapter());
+            var same = Connector.create("test-1", brokenFactory(), config.getAdapter());
+            var rr = ReplicaBalancing.ROUND_ROBIN;
+            var retry = Duration.ofSeconds(1);
+            Assertions.assertAll(
+                    () -> Assertions.assertThrows(IllegalArgumentException.class,
+                            () -> Connector.withReplicas(primary, List.of(other), rr, retry)),
+                    () -> Assertions.assertThrows(IllegalArgumentException.class,
+                            () -> Connector.withReplicas(primary, List.of(same), rr, retry.negated())),
+                    () -> Assertions.assertEquals(0, primary.getReplicaCount())
+            );
+        }
+    }
+
+    public static interface FruitImporter {
+        public void importFruit(String name);
+    }
+
+    @Propagate(Propagation.REQUIRES_NESTED)
+    public static interface NestedFruitImporter {
+        public void importFruit(String name);
+    }
+
+    @Propagate(Propagation.REQUIRES_NESTED)
+    public static interface NestedVegetableImporter {
+        public void importVegetable(int id, String name);
+    }
+
+    private static void importAll(Connector con, Consumer<String> importer) {
+        con.transact(Runnable.class, () -> {
+            for (var name : List.of("plum", "rotten", "quince")) {
+                try {
+                    importer.accept(name);
+                } catch (IllegalArgumentException e) {
+                    // Skip the bad record.
+                }
+            }
+        }).run();
+    }
+
+    private static void importFruit(Connector con, String name) {
+        con.getEntityManager().save(new Fruit(name, "purple"));
+        if (name.equals("rotten")) throw new IllegalArgumentException(name);
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testNestedPropagation(String t, JpaConfiguration config) throws Exception {
+        try (var con = config.connect()) {
+            var nested = con.transact(NestedFruitImporter.class, name -> importFruit(con, name));
+            importAll(con, nested::importFruit);
+            var afterNested = con.transact(FruitCounter.class, () -> countFruits(con)).count();
+            var joined = con.transact(FruitImporter.class, name -> importFruit(con, name));
+            importAll(con, joined::importFruit);
+            var afterJoined = con.transact(FruitCounter.class, () -> countFruits(con)).count();
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(2L, afterNested),
+                    () -> Assertions.assertEquals(5L, afterJoined)
+            );
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testNestedPropagationKeepsOuterEntities(String t, JpaConfiguration config) throws Exception {
+        try (var con = config.connect()) {
+            var nested = con.transact(NestedFruitImporter.class, name -> importFruit(con, name));
+            var plum = new Fruit("plum", "purple");
+            var rotten = new AtomicReference<Fruit>();
+            var kept = con.transact(FruitCounter.class, () -> {
+                var em = con.getEntityManager();
+                em.save(plum);
+                Assertions.assertThrows(IllegalArgumentException.class, () -> nested.importFruit("rotten"));
+                rotten.set(em.createQuery("SELECT f FROM Fruit f WHERE f.name = 'rotten'", Fruit.class).getSingleResultOrNull());
+                return em.contains(plum) ? 1L : 0L;
+            }).count();
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(1L, kept),
+                    () -> Assertions.assertNull(rotten.get()),
+                    () -> Assertions.assertEquals(1L, con.transact(FruitCounter.class, () -> countFruits(con)).count())
+            );
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testNestedRollbackRestoresOuterEntities(String t, JpaConfiguration config) throws Exception {
+        try (var con = config.connect()) {
+            var nested = con.transact(NestedFruitImporter.class, name -> {
+                var em = con.getEntityManager();
+                em.createQuery("SELECT f FROM Fruit f WHERE f.name = 'plum'", Fruit.class).getSingleResult().setColor("green");
+                importFruit(con, name);
+            });
+            var plum = new Fruit("plum", "purple");
+            var color = new AtomicReference<String>();
+            con.transact(Runnable.class, () -> {
+                con.getEntityManager().save(plum);
+                Assertions.assertThrows(IllegalArgumentException.class, () -> nested.importFruit("rotten"));
+                color.set(plum.getColor());
+            }).run();
+            var stored = new AtomicReference<String>();
+            con.transact(Runnable.class, () -> stored.set(con.getEntityManager()
+                    .createQuery("SELECT f.color FROM Fruit f WHERE f.name = 'plum'", String.class)
+                    .getSingleResult())).run();
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals("purple", color.get()),
+                    () -> Assertions.assertEquals("purple", stored.get()),
+                    () -> Assertions.assertEquals(1L, con.transact(FruitCounter.class, () -> countFruits(con)).count())
+            );
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testNestedConstraintViolation(String t, JpaConfiguration config) throws Exception {
+        try (var con = config.prepare().addEntity(Vegetable.class).connect()) {
+            con.transact(Runnable.class, () -> con.getEntityManager().persist(new Vegetable(1, "beet"))).run();
+            var nested = con.transact(NestedVegetableImporter.class, (id, name) -> con.getEntityManager().persist(new Vegetable(id, name)));
+            var caught = new AtomicReference<PersistenceException>();
+            Runnable work = () -> {
+                con.getEntityManager().save(new Fruit("plum", "purple"));
+                try {
+                    nested.importVegetable(1, "turnip");
+                } catch (PersistenceException e) {
+                    caught.set(e);
+                }
+            };
+            var committed = new AtomicReference<Boolean>(true);
+            try {
+                con.transact(Runnable.class, work).run();
+            } catch (PersistenceException e) {
+                committed.set(false);
+            }
+
+            // Either the provider doomed the whole transaction and that was told right away, or the savepoint undid the failure.
+            var doomed = caught.get() instanceof RollbackException;
+            var fruits = con.transact(FruitCounter.class, () -> countFruits(con)).count();
+            var vegetables = con.transact(FruitCounter.class,
+                    () -> con.getEntityManager().createQuery("SELECT COUNT(v) FROM Vegetable v", Long.class).getSingleResult()).count();
+            Assertions.assertAll(
+                    () -> Assertions.assertNotNull(caught.get()),
+                    () -> Assertions.assertEquals(!doomed, committed.get()),
+                    () -> Assertions.assertEquals(doomed ? 0L : 1L, fruits),
+                    () -> Assertions.assertEquals(1L, vegetables)
+            );
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testPropagation(String t, JpaConfiguration config) throws Exception {
+        try (var con = config.connect()) {
+            var separate = new AtomicReference<Boolean>();
+            var suspended = new AtomicReference<Boolean>();
+            var resumed = new AtomicReference<Boolean>();
+            var outer = con.transact(Runnable.class, () -> {
+                var em = con.getEntityManager();
+                separate.set(con.execute(Propagation.REQUIRES_NEW, () -> {
+                    con.getEntityManager().save(new Fruit("mango", "yellow"));
+                    return con.getEntityManager() != em;
+                }));
+                em.save(new Fruit("apricot", "orange"));
+                suspended.set(con.execute(Propagation.NOT_SUPPORTED, () -> {
+                    Assertions.assertThrows(IllegalStateException.class, con::getEntityManager);
+                    return true;
+                }));
+                resumed.set(con.execute(Propagation.MANDATORY, () -> con.getEntityManager() == em));
+                throw new UnsupportedOperationException();
+            });
+            Assertions.assertAll(
+                    () -> Assertions.assertThrows(UnsupportedOperationException.class, outer::run),
+                    () -> Assertions.assertEquals(true, separate.get()),
+                    () -> Assertions.assertEquals(true, suspended.get()),
+                    () -> Assertions.assertEquals(true, resumed.get()),
+                    () -> Assertions.assertEquals(1L, con.transact(FruitCounter.class, () -> countFruits(con)).count()),
+                    () -> Assertions.assertEquals(42, con.execute(Propagation.SUPPORTS, () -> 42)),
+                    () -> Assertions.assertThrows(IllegalStateException.class,
+                            () -> con.execute(Propagation.SUPPORTS, con::getEntityManager)),
+                    () -> Assertions.assertThrows(TransactionRequiredException.class,
+                            () -> con.execute(Propagation.MANDATORY, () -> 42))
+            );
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testLazyBegin(String t, JpaConfiguration config) throws Exception {
+        var started = new AtomicInteger();
+        var finished = new AtomicInteger();
+        var listener = new ConnectorListener() {
+            @Override
+            public void startedTransaction(@NonNull String persistenceUnit) {
+                started.incrementAndGet();
+            }
+
+            @Override
+            public void finishedWithCommit(@NonNull String persistenceUnit) {
+                finished.incrementAndGet();
+            }
+
+            @Override
+            public void finishedWithRollback(@NonNull String persistenceUnit) {
+                finished.incrementAndGet();
+            }
+        };
+        Database.addListener(listener);
+        try (var con = config.connect()) {
+            con.setLazyBegin(true);
+            var cached = con.transact(FruitCounter.class, () -> 7L).count();
+            var failed = con.transact(Runnable.class, () -> {
+                throw new UnsupportedOperationException();
+            });
+            Assertions.assertThrows(UnsupportedOperationException.class, failed::run);
+            var untouched = List.of(started.get(), finished.get());
+            con.transact(Runnable.class, () -> con.getEntityManager().save(new Fruit("papaya", "orange"))).run();
+            var touched = List.of(started.get(), finished.get());
+            con.setLazyBegin(false);
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(7L, cached),
+                    () -> Assertions.assertEquals(List.of(0, 0), untouched),
+                    () -> Assertions.assertEquals(List.of(1, 1), touched),
+                    () -> Assertions.assertEquals(1L, con.transact(FruitCounter.class, () -> countFruits(con)).count()),
+                    () -> Assertions.assertFalse(con.isLazyBegin())
+            );
+        } finally {
+            Database.removeListener(listener);
+        }
+    }
+
+    @TransactionTimeout(value = 50, unit = TimeUnit.MILLISECONDS)
+    public static interface SlowFruitImporter {
+        public void importFruit(String name) throws InterruptedException;
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testTransactionTimeout(String t, JpaConfiguration config) throws Exception {
+        var timeouts = new ArrayList<Duration>();
+        var listener = new ConnectorListener() {
+            @Override
+            public void transactionTimedOut(@NonNull String persistenceUnit, @NonNull Duration timeout) {
+                timeouts.add(timeout);
+            }
+        };
+        Database.addListener(listener);
+        try (var con = config.connect()) {
+            SlowFruitImporter slow = name -> {
+                con.getEntityManager().save(new Fruit(name, "red"));
+                Thread.sleep(200);
+                countFruits(con);
+            };
+            var importer = con.transact(SlowFruitImporter.class, slow);
+            Assertions.assertThrows(TransactionTimedOutException.class, () -> importer.importFruit("apple"));
+            con.setTransactionTimeout(Duration.ofMillis(50));
+            Assertions.assertThrows(TransactionTimedOutException.class, () -> con.execute(Propagation.REQUIRED, () -> {
+                con.getEntityManager().save(new Fruit("cherry", "red"));
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                return null;
+            }));
+            var fast = con.execute(Propagation.REQUIRED, Duration.ofMinutes(1), () -> countFruits(con));
+            var given = con.execute(Propagation.REQUIRED, Duration.ofMinutes(1), () -> {
+                var query = con.getEntityManager().createQuery("SELECT f FROM Fruit f", Fruit.class);
+                var created = query.getTimeout();
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                query.getResultList();
+                return List.of(created, query.getTimeout());
+            });
+            con.setTransactionTimeout(Duration.ZERO);
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(0L, fast),
+                    () -> Assertions.assertTrue(given.get(0) > 59_000 && given.get(0) <= 60_000, () -> "Created with " + given),
+                    () -> Assertions.assertTrue(given.get(1) > 0 && given.get(1) <= given.get(0) - 20, () -> "Executed with " + given),
+                    () -> Assertions.assertEquals(List.of(Duration.ofMillis(50), Duration.ofMillis(50)), timeouts),
+                    () -> Assertions.assertEquals(0L, con.transact(FruitCounter.class, () -> countFruits(con)).count()),
+                    () -> Assertions.assertThrows(IllegalArgumentException.class, () -> con.setTransactionTimeout(Duration.ofSeconds(-1))),
+                    () -> Assertions.assertEquals(Duration.ZERO, con.getTransactionTimeout())
+            );
+        } finally {
+            Database.removeListener(listener);
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testRepeatedStatements(String t, JpaConfiguration config) throws Exception {
+        var reports = new ArrayList<StatementReport>();
+        var listener = new ConnectorListener() {
+            @Override
+            public void repeatedStatementsDetected(@NonNull String persistenceUnit, @NonNull StatementReport report) {
+                reports.add(report);
+            }
+        };
+        Database.addListener(listener);
+        try (var con = ((ProviderConnectorFactory<?>) config.prepare()).withStatementInspection(true).connect()) {
+            var names = List.of("apple", "banana", "cherry", "date", "elderberry");
+            con.transact(Runnable.class, () -> names.forEach(n -> con.getEntityManager().save(new Fruit(n, "red")))).run();
+            var uncounted = reports.size();
+            con.setRepeatedStatementThreshold(3);
+            Runnable findEach = () -> names.forEach(n -> con.getEntityManager()
+                    .createQuery("SELECT f FROM Fruit f WHERE f.name = :name", Fruit.class)
+                    .setParameter("name", n)
+                    .getResultList());
+            con.transact(Runnable.class, findEach).run();
+            con.transact(FruitCounter.class, () -> countFruits(con)).count();
+            var found = List.copyOf(reports);
+            con.setRepeatedStatementThreshold(0);
+            con.transact(Runnable.class, findEach).run();
+            var repeated = found.get(0).getRepeated().get(0);
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(0, uncounted),
+                    () -> Assertions.assertEquals(1, found.size()),
+                    () -> Assertions.assertEquals(1, reports.size()),
+                    () -> Assertions.assertEquals(1, found.get(0).getRepeated().size()),
+                    () -> Assertions.assertEquals(5, found.get(0).getStatements()),
+                    () -> Assertions.assertEquals(5, repeated.getCount()),
+                    () -> Assertions.assertTrue(repeated.getSql().toUpperCase(Locale.ROOT).contains("FRUIT")),
+                    () -> Assertions.assertEquals(ConnectorTest.class.getName(), repeated.getCallSite().get(0).getClassName()),
+                    () -> Assertions.assertThrows(IllegalArgumentException.class, () -> con.setRepeatedStatementThreshold(-1))
+            );
+        } finally {
+            Database.removeListener(listener);
+        }
+    }
 }
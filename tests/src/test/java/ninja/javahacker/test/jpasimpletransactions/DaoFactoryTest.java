@@ -0,0 +1,522 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Tuple;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import ninja.javahacker.jpasimpletransactions.Connector;
+import ninja.javahacker.jpasimpletransactions.ConnectorListener;
+import ninja.javahacker.jpasimpletransactions.Database;
+import ninja.javahacker.jpasimpletransactions.ExtendedEntityManager;
+import ninja.javahacker.jpasimpletransactions.ExtendedTypedQuery;
+import ninja.javahacker.ninjadao.CacheMode;
+import ninja.javahacker.ninjadao.Cached;
+import ninja.javahacker.ninjadao.DaoFactory;
+import ninja.javahacker.ninjadao.Execute;
+import ninja.javahacker.ninjadao.FetchSize;
+import ninja.javahacker.ninjadao.FlushMode;
+import ninja.javahacker.ninjadao.Hint;
+import ninja.javahacker.ninjadao.LockMode;
+import ninja.javahacker.ninjadao.NativeExecute;
+import ninja.javahacker.ninjadao.NativeSelect;
+import ninja.javahacker.ninjadao.Select;
+import ninja.javahacker.ninjadao.Timeout;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * @author Victor Williams Stafusa da Silva
+ */
+public class DaoFactoryTest {
+
+    public static interface FruitDao {
+        @Cached(ttl = 1, unit = TimeUnit.MINUTES)
+        @Select("SELECT f FROM Fruit f WHERE f.color = :color")
+        public List<Fruit> byColor(String color);
+
+        @Execute(value = "UPDATE Fruit f SET f.color = :newColor WHERE f.color = :oldColor", touches = Fruit.class)
+        public int recolor(String oldColor, String newColor);
+    }
+
+    public static record FruitSummary(String name, String color) {
+    }
+
+    public static interface FruitName {
+        public String getName();
+    }
+
+    public static interface ProjectionDao {
+        @Select("SELECT f.name, f.color FROM Fruit f WHERE f.color = :color ORDER BY f.name")
+        public List<FruitSummary> summaries(String color);
+
+        @Select("SELECT f.name AS name FROM Fruit f WHERE f.name = :name")
+        public Optional<FruitName> named(String name);
+
+        @Select("SELECT COUNT(f), f.color FROM Fruit f GROUP BY f.color")
+        public List<FruitSummary> wrongArity();
+    }
+
+    public static interface TupleDao {
+        @Select("SELECT f.name AS name, f.color AS color FROM Fruit f WHERE f.color = :color ORDER BY f.name")
+        public List<Tuple> byColor(String color);
+
+        @Select("SELECT f.name AS name, f.color AS color FROM Fruit f WHERE f.name = :name")
+        public Tuple named(String name);
+    }
+
+    public static interface NativeDao {
+        @NativeSelect("SELECT name, color FROM fruits WHERE color = ? ORDER BY name")
+        public List<FruitSummary> summaries(String color);
+
+        @NativeSelect("SELECT COUNT(*) FROM fruits WHERE color = ?")
+        public long count(String color);
+
+        @NativeSelect("SELECT name FROM fruits WHERE name = ?")
+        public Optional<String> find(String name);
+
+        @NativeExecute(value = "UPDATE fruits SET color = ? WHERE color = ?", touches = Fruit.class)
+        public int recolor(String newColor, String oldColor);
+    }
+
+    public static interface AsyncDao {
+        @Select("SELECT f FROM Fruit f WHERE f.color = :color")
+        public CompletableFuture<List<Fruit>> byColor(String color);
+
+        @Select("SELECT f.name FROM Fruit f WHERE f.color = :color ORDER BY f.name")
+        public CompletableFuture<Stream<String>> namesByColor(String color);
+
+        @Execute("UPDATE Fruit f SET f.color = :newColor WHERE f.color = :oldColor")
+        public CompletableFuture<Integer> recolor(String oldColor, String newColor);
+    }
+
+    public static interface TunedDao {
+        @Timeout(value = 5, unit = TimeUnit.SECONDS)
+        @FetchSize(50)
+        @FlushMode(FlushModeType.COMMIT)
+        @CacheMode(retrieve = CacheRetrieveMode.BYPASS, store = CacheStoreMode.BYPASS)
+        @Select("SELECT f FROM Fruit f WHERE f.color = :color")
+        public List<Fruit> byColor(String color);
+
+        @Timeout(1500)
+        @FetchSize(50)
+        @NativeSelect("SELECT COUNT(*) FROM fruits WHERE color = ?")
+        public long count(String color);
+    }
+
+    public static interface MicroTimeoutDao {
+        @Timeout(value = 500, unit = TimeUnit.MICROSECONDS)
+        @Select("SELECT f FROM Fruit f WHERE f.color = :color")
+        public List<Fruit> byColor(String color);
+
+        @Timeout(value = 500, unit = TimeUnit.MICROSECONDS)
+        @NativeSelect("SELECT COUNT(*) FROM fruits WHERE color = ?")
+        public long count(String color);
+    }
+
+    public static interface LockedUpdateDao {
+        @LockMode(LockModeType.PESSIMISTIC_WRITE)
+        @Execute("UPDATE Fruit f SET f.color = :newColor WHERE f.color = :oldColor")
+        public int recolor(String oldColor, String newColor);
+    }
+
+    public static interface HintedNativeDao {
+        @Hint(name = "foo", value = "bar")
+        @NativeSelect("SELECT COUNT(*) FROM fruits")
+        public long count();
+    }
+
+    public static interface FruitListSupplier extends Supplier<List<Fruit>> {
+    }
+
+    private static int countColor(Connector con, FruitDao dao, String color) {
+        return con.transact(FruitListSupplier.class, () -> dao.byColor(color)).get().size();
+    }
+
+    private static void insert(Connector con, String name, String color) {
+        con.transact(Runnable.class, () -> con.getEntityManager().save(new Fruit(name, color))).run();
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testCachedSelect(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var dao = new DaoFactory(con::getEntityManager).daoFor(FruitDao.class);
+        insert(con, "apple", "red");
+        Assertions.assertEquals(1, countColor(con, dao, "red"));
+
+        // Not done through an @Execute method, so the cache does not see it.
+        insert(con, "cherry", "red");
+        Assertions.assertEquals(1, countColor(con, dao, "red"));
+
+        var changed = con.transact(IntSupplier.class, () -> dao.recolor("red", "green")).getAsInt();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(2, changed),
+                () -> Assertions.assertEquals(0, countColor(con, dao, "red")),
+                () -> Assertions.assertEquals(2, countColor(con, dao, "green"))
+        );
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testClose(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var factory = new DaoFactory(con::getEntityManager);
+        var dao = factory.daoFor(FruitDao.class);
+        insert(con, "apple", "red");
+        Assertions.assertEquals(1, countColor(con, dao, "red"));
+
+        factory.close();
+        factory.close();
+        Assertions.assertAll(
+                () -> Assertions.assertThrows(IllegalStateException.class, () -> factory.daoFor(FruitDao.class)),
+                () -> Assertions.assertThrows(IllegalStateException.class, () -> countColor(con, dao, "red")),
+                () -> Assertions.assertNotNull(dao.toString())
+        );
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testProjections(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var dao = new DaoFactory(con::getEntityManager).daoFor(ProjectionDao.class);
+        insert(con, "strawberry", "red");
+        insert(con, "apple", "red");
+        insert(con, "banana", "yellow");
+
+        con.transact(Runnable.class, () -> {
+            var summaries = dao.summaries("red");
+            var named = dao.named("banana");
+            var expected = List.of(new FruitSummary("apple", "red"), new FruitSummary("strawberry", "red"));
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(expected, summaries),
+                    () -> Assertions.assertEquals("banana", named.orElseThrow().getName()),
+                    () -> Assertions.assertEquals(named.orElseThrow(), dao.named("banana").orElseThrow()),
+                    () -> Assertions.assertTrue(dao.named("grape").isEmpty()),
+                    () -> Assertions.assertThrows(IllegalStateException.class, dao::wrongArity)
+            );
+        }).run();
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testTuplesAreNotProjections(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var dao = new DaoFactory(con::getEntityManager).daoFor(TupleDao.class);
+        insert(con, "cherry", "red");
+        insert(con, "apple", "red");
+
+        con.transact(Runnable.class, () -> {
+            var tuples = dao.byColor("red");
+            var named = dao.named("cherry");
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(2, tuples.size()),
+                    () -> Assertions.assertFalse(Proxy.isProxyClass(tuples.get(0).getClass())),
+                    () -> Assertions.assertEquals("apple", tuples.get(0).get("name")),
+                    () -> Assertions.assertEquals("cherry", tuples.get(1).get(0)),
+                    () -> Assertions.assertEquals("red", named.get("color", String.class))
+            );
+        }).run();
+    }
+
+    public static interface BadProjection {
+        public String name(int x);
+    }
+
+    public static interface BadProjectionDao {
+        @Select("SELECT f.name FROM Fruit f")
+        public List<BadProjection> all();
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testBadProjection(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var factory = new DaoFactory(con::getEntityManager);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> factory.daoFor(BadProjectionDao.class));
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testNativeQueries(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var dao = new DaoFactory(con::getEntityManager).daoFor(NativeDao.class);
+        insert(con, "lemon", "yellow");
+        insert(con, "banana", "yellow");
+        insert(con, "grape", "purple");
+
+        con.transact(Runnable.class, () -> {
+            var expected = List.of(new FruitSummary("banana", "yellow"), new FruitSummary("lemon", "yellow"));
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(expected, dao.summaries("yellow")),
+                    () -> Assertions.assertEquals(expected, dao.summaries("yellow")),
+                    () -> Assertions.assertEquals(2L, dao.count("yellow")),
+                    () -> Assertions.assertEquals(Optional.of("grape"), dao.find("grape")),
+                    () -> Assertions.assertEquals(Optional.empty(), dao.find("melon"))
+            );
+        }).run();
+
+        var changed = con.transact(IntSupplier.class, () -> dao.recolor("green", "yellow")).getAsInt();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(2, changed),
+                () -> Assertions.assertEquals(0L, con.transact(LongSupplier.class, () -> dao.count("yellow")).getAsLong()),
+                () -> Assertions.assertEquals(2L, con.transact(LongSupplier.class, () -> dao.count("green")).getAsLong())
+        );
+    }
+
+    @FunctionalInterface
+    private static interface Interceptor {
+        public Object intercept(Method m, Object[] args, Proceed proceed) throws Throwable;
+    }
+
+    @FunctionalInterface
+    private static interface Proceed {
+        public Object run() throws Throwable;
+    }
+
+    private static <T> T spy(Class<T> type, T target, Interceptor interceptor) {
+        InvocationHandler ih = (p, m, args) -> interceptor.intercept(m, args, () -> {
+            try {
+                return m.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+        return type.cast(Proxy.newProxyInstance(DaoFactoryTest.class.getClassLoader(), new Class<?>[] {type}, ih));
+    }
+
+    /**
+     * Counts the statements prepared through the connections given by the {@link ExtendedEntityManager}s which are not closed yet.
+     */
+    private static final class StatementSpy {
+        private final Map<Connection, Connection> connections = new IdentityHashMap<>();
+        private final AtomicInteger open = new AtomicInteger();
+
+        public ExtendedEntityManager wrap(ExtendedEntityManager em) {
+            return spy(ExtendedEntityManager.class, em, (m, args, proceed) -> {
+                if (!"getConnection".equals(m.getName())) return proceed.run();
+                synchronized (this) {
+                    return connections.computeIfAbsent((Connection) proceed.run(), this::wrap);
+                }
+            });
+        }
+
+        private Connection wrap(Connection c) {
+            return spy(Connection.class, c, (m, args, proceed) -> {
+                if (!"prepareStatement".equals(m.getName())) return proceed.run();
+                var ps = (PreparedStatement) proceed.run();
+                var closed = new AtomicBoolean();
+                open.incrementAndGet();
+                return spy(PreparedStatement.class, ps, (m2, args2, proceed2) -> {
+                    if ("close".equals(m2.getName()) && closed.compareAndSet(false, true)) open.decrementAndGet();
+                    return proceed2.run();
+                });
+            });
+        }
+
+        public int getOpen() {
+            return open.get();
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testNativeStatementsClosedBeforeCommit(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var spy = new StatementSpy();
+        var openWhenCommitted = new AtomicInteger(-1);
+        var listener = new ConnectorListener() {
+            @Override
+            public void finishedWithCommit(String persistenceUnit) {
+                openWhenCommitted.set(spy.getOpen());
+            }
+        };
+        insert(con, "lemon", "yellow");
+        var openWhileRunning = new AtomicInteger();
+        try (var factory = new DaoFactory(() -> spy.wrap(con.getEntityManager()))) {
+            var dao = factory.daoFor(NativeDao.class);
+            Database.addListener(listener);
+            con.transact(Runnable.class, () -> {
+                dao.count("yellow");
+                dao.count("yellow");
+                openWhileRunning.set(spy.getOpen());
+            }).run();
+        } finally {
+            Database.removeListener(listener);
+        }
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(openWhileRunning.get() > 0, "Not cached."),
+                () -> Assertions.assertEquals(0, openWhenCommitted.get()),
+                () -> Assertions.assertEquals(0, spy.getOpen())
+        );
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testAsync(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var dao = new DaoFactory(con).daoFor(AsyncDao.class);
+        insert(con, "lime", "green");
+        insert(con, "kiwi", "green");
+        insert(con, "orange", "orange");
+
+        var greens = dao.byColor("green");
+        var oranges = dao.byColor("orange");
+        var names = dao.namesByColor("green");
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(2, greens.get().size()),
+                () -> Assertions.assertEquals(1, oranges.get().size()),
+                () -> Assertions.assertEquals(List.of("kiwi", "lime"), names.get().collect(Collectors.toList()))
+        );
+        Assertions.assertEquals(2, dao.recolor("green", "yellow").get());
+        Assertions.assertEquals(0, dao.byColor("green").get().size());
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testAsyncNeedsConnector(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var factory = new DaoFactory(con::getEntityManager);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> factory.daoFor(AsyncDao.class));
+    }
+
+    /**
+     * Records the hints and settings given to the queries created through the {@link ExtendedEntityManager}s and to the
+     * statements prepared through their connections.
+     */
+    private static final class OptionsSpy {
+        private final Map<String, Object> hints = new ConcurrentHashMap<>();
+        private final Map<String, Object> settings = new ConcurrentHashMap<>();
+
+        public ExtendedEntityManager wrap(ExtendedEntityManager em) {
+            return spy(ExtendedEntityManager.class, em, (m, args, proceed) -> {
+                if ("createQuery".equals(m.getName())) return record(ExtendedTypedQuery.class, proceed.run());
+                if (!"getConnection".equals(m.getName())) return proceed.run();
+                return spy(Connection.class, (Connection) proceed.run(), (m2, args2, proceed2) ->
+                        "prepareStatement".equals(m2.getName()) ? record(PreparedStatement.class, proceed2.run()) : proceed2.run());
+            });
+        }
+
+        private <T> T record(Class<T> type, Object target) {
+            var self = new ArrayList<T>(1);
+            var proxy = spy(type, type.cast(target), (m, args, proceed) -> {
+                if ("setHint".equals(m.getName())) {
+                    hints.put((String) args[0], args[1]);
+                } else if (m.getName().startsWith("set") && args != null && args.length == 1) {
+                    settings.put(m.getName(), args[0]);
+                }
+                var result = proceed.run();
+
+                // Keeps recording through fluent calls.
+                return result == target ? self.get(0) : result;
+            });
+            self.add(proxy);
+            return proxy;
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testQueryTimeoutsWithinDeadline(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var spy = new OptionsSpy();
+        var factory = new DaoFactory(() -> spy.wrap(con.getEntityManager()));
+        var dao = factory.daoFor(TunedDao.class);
+        insert(con, "plum", "purple");
+        con.setTransactionTimeout(Duration.ofSeconds(1));
+
+        con.transact(Runnable.class, () -> {
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(1, dao.byColor("purple").size()),
+                    () -> Assertions.assertEquals(1L, dao.count("purple"))
+            );
+        }).run();
+        var hint = (Integer) spy.hints.get("jakarta.persistence.query.timeout");
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(hint > 0 && hint <= 1000, String.valueOf(hint)),
+                () -> Assertions.assertEquals(1, spy.settings.get("setQueryTimeout"))
+        );
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testSubMillisecondTimeout(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var spy = new OptionsSpy();
+        var dao = new DaoFactory(() -> spy.wrap(con.getEntityManager())).daoFor(MicroTimeoutDao.class);
+
+        // The queries might time out, but they must have been given some timeout either way.
+        Runnable byColor = () -> dao.byColor("purple");
+        Runnable count = () -> dao.count("purple");
+        for (var work : List.of(byColor, count)) {
+            try {
+                con.transact(Runnable.class, work).run();
+            } catch (RuntimeException e) {
+                // Timed out.
+            }
+        }
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(1, spy.hints.get("jakarta.persistence.query.timeout")),
+                () -> Assertions.assertEquals(1, spy.settings.get("setQueryTimeout"))
+        );
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testQueryOptions(String t, JpaConfiguration config) throws Exception {
+        var con = config.connect();
+        var spy = new OptionsSpy();
+        var factory = new DaoFactory(() -> spy.wrap(con.getEntityManager()));
+        var dao = factory.daoFor(TunedDao.class);
+        insert(con, "plum", "purple");
+
+        con.transact(Runnable.class, () -> {
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(1, dao.byColor("purple").size()),
+                    () -> Assertions.assertEquals(config.getAdapter().getClass(), con.getEntityManager().getProviderAdapter().getClass())
+            );
+        }).run();
+        var fetchSizeHint = config.getAdapter().fetchSizeHint();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(5000, spy.hints.get("jakarta.persistence.query.timeout")),
+                () -> Assertions.assertEquals(CacheRetrieveMode.BYPASS, spy.hints.get("jakarta.persistence.cache.retrieveMode")),
+                () -> Assertions.assertEquals(CacheStoreMode.BYPASS, spy.hints.get("jakarta.persistence.cache.storeMode")),
+                () -> Assertions.assertEquals(fetchSizeHint.isPresent() ? 50 : null, spy.hints.get(fetchSizeHint.orElse("none"))),
+                () -> Assertions.assertEquals(FlushModeType.COMMIT, spy.settings.get("setFlushMode"))
+        );
+
+        spy.settings.clear();
+        con.transact(Runnable.class, () -> Assertions.assertEquals(1L, dao.count("purple"))).run();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(2, spy.settings.get("setQueryTimeout")),
+                () -> Assertions.assertEquals(50, spy.settings.get("setFetchSize"))
+        );
+        Assertions.assertAll(
+                () -> Assertions.assertThrows(UnsupportedOperationException.class, () -> factory.daoFor(LockedUpdateDao.class)),
+                () -> Assertions.assertThrows(UnsupportedOperationException.class, () -> factory.daoFor(HintedNativeDao.class))
+        );
+    }
+}
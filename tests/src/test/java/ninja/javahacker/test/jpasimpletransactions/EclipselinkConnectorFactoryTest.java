@@ -0,0 +1,110 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import ninja.javahacker.jpasimpletransactions.config.PoolSettings;
+import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationAction;
+import ninja.javahacker.jpasimpletransactions.config.Weaving;
+import ninja.javahacker.jpasimpletransactions.eclipselink.BatchWriting;
+import ninja.javahacker.jpasimpletransactions.eclipselink.EclipselinkConnectorFactory;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Victor Williams Stafusa da Silva
+ */
+public class EclipselinkConnectorFactoryTest {
+
+    private static EclipselinkConnectorFactory prepare() {
+        return new EclipselinkConnectorFactory()
+                .withPersistenceUnitName("test-eclipselink")
+                .withDriver(JDBCDriver.class)
+                .withUrl("jdbc:hsqldb:mem:eclipselink")
+                .withUser("sa")
+                .withPassword("")
+                .withSchemaGenerationAction(SchemaGenerationAction.DROP_AND_CREATE)
+                .addEntity(Vegetable.class);
+    }
+
+    @Test
+    public void testPerformanceProperties() {
+        var props = prepare()
+                .withBatchWriting(BatchWriting.JDBC)
+                .withBatchWritingSize(100)
+                .withCacheStatements(true)
+                .withCacheStatementsSize(50)
+                .withJdbcFetchSize(200)
+                .withSharedCacheDefault(false)
+                .withWeavingLazy(true)
+                .withWeavingChangeTracking(false)
+                .withConnectionPoolInitial(2)
+                .withConnectionPoolMin(2)
+                .withConnectionPoolMax(8)
+                .getProperties();
+        var plain = prepare().getProperties();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals("JDBC", props.get("eclipselink.jdbc.batch-writing")),
+                () -> Assertions.assertEquals("100", props.get("eclipselink.jdbc.batch-writing.size")),
+                () -> Assertions.assertEquals("true", props.get("eclipselink.jdbc.cache-statements")),
+                () -> Assertions.assertEquals("50", props.get("eclipselink.jdbc.cache-statements.size")),
+                () -> Assertions.assertEquals("200", props.get("eclipselink.jdbc.fetch-size")),
+                () -> Assertions.assertEquals("false", props.get("eclipselink.cache.shared.default")),
+                () -> Assertions.assertEquals("true", props.get("eclipselink.weaving.lazy")),
+                () -> Assertions.assertEquals("false", props.get("eclipselink.weaving.changetracking")),
+                () -> Assertions.assertFalse(props.containsKey("eclipselink.weaving.eager")),
+                () -> Assertions.assertEquals("2", props.get("eclipselink.connection-pool.default.initial")),
+                () -> Assertions.assertEquals("2", props.get("eclipselink.connection-pool.default.min")),
+                () -> Assertions.assertEquals("8", props.get("eclipselink.connection-pool.default.max")),
+                () -> Assertions.assertFalse(plain.containsKey("eclipselink.jdbc.batch-writing")),
+                () -> Assertions.assertFalse(plain.containsKey("eclipselink.connection-pool.default.max"))
+        );
+    }
+
+    @Test
+    public void testInvalidPerformanceProperties() {
+        var base = prepare();
+        Assertions.assertAll(
+                () -> Assertions.assertThrows(IllegalStateException.class, base.withBatchWritingSize(-1)::getProperties),
+                () -> Assertions.assertThrows(IllegalStateException.class, base.withJdbcFetchSize(-1)::getProperties),
+                () -> Assertions.assertThrows(
+                        IllegalStateException.class,
+                        base.withBatchWriting(BatchWriting.NONE).withBatchWritingSize(10)::getProperties
+                ),
+                () -> Assertions.assertThrows(
+                        IllegalStateException.class,
+                        base.withCacheStatements(false).withCacheStatementsSize(10)::getProperties
+                ),
+                () -> Assertions.assertThrows(
+                        IllegalStateException.class,
+                        base.withWeaving(Weaving.DISABLED).withWeavingLazy(true)::getProperties
+                ),
+                () -> Assertions.assertThrows(
+                        IllegalStateException.class,
+                        base.withConnectionPoolMin(5).withConnectionPoolMax(2)::getProperties
+                ),
+                () -> Assertions.assertThrows(
+                        IllegalStateException.class,
+                        base.withPoolSettings(PoolSettings.defaults()).withConnectionPoolMax(2)::getProperties
+                )
+        );
+    }
+
+    @Test
+    public void testBatchWriting() {
+        var factory = prepare().withBatchWriting(BatchWriting.JDBC).withBatchWritingSize(25).withCacheStatements(true);
+        try (var con = factory.connect()) {
+            con.transact(Runnable.class, () -> {
+                var em = con.getEntityManager();
+                for (var i = 0; i < 100; i++) {
+                    em.persist(new Vegetable(i, "beet " + i));
+                }
+            }).run();
+            var count = new AtomicInteger();
+            con.transact(Runnable.class, () -> {
+                var q = con.getEntityManager().createQuery("SELECT COUNT(v) FROM Vegetable v", Long.class);
+                count.set(q.getSingleResult().intValue());
+            }).run();
+            Assertions.assertEquals(100, count.get());
+        }
+    }
+}
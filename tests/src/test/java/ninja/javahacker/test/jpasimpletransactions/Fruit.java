@@ -7,6 +7,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import java.io.Serializable;
 import lombok.Getter;
+import lombok.Setter;
 
 /**
  * @author Victor Williams Stafusa da Silva
@@ -24,6 +25,7 @@ public class Fruit implements Serializable {
 
     private String name;
 
+    @Setter
     private String color;
 
     public Fruit() {}
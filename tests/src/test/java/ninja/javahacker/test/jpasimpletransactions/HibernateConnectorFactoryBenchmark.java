@@ -0,0 +1,77 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationAction;
+import ninja.javahacker.jpasimpletransactions.hibernate.HibernateConnectorFactory;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Only runs with the {@code benchmark} task, since it just reports how long things take.
+ * @author Victor Williams Stafusa da Silva
+ */
+@Tag("benchmark")
+public class HibernateConnectorFactoryBenchmark {
+
+    private static final int INSERTS = 5000;
+
+    private static HibernateConnectorFactory prepare() {
+        return new HibernateConnectorFactory()
+                .withPersistenceUnitName("test-batch")
+                .withDriver(JDBCDriver.class)
+                .withUrl("jdbc:hsqldb:mem:batch")
+                .withUser("sa")
+                .withPassword("")
+                .withSchemaGenerationAction(SchemaGenerationAction.DROP_AND_CREATE)
+                .addEntity(Vegetable.class);
+    }
+
+    private static Duration timeToInsert(HibernateConnectorFactory factory) {
+        try (var con = factory.connect()) {
+            var start = System.nanoTime();
+            con.transact(Runnable.class, () -> {
+                var em = con.getEntityManager();
+                for (var i = 0; i < INSERTS; i++) {
+                    em.persist(new Vegetable(i, "carrot " + i));
+                }
+            }).run();
+            var time = Duration.ofNanos(System.nanoTime() - start);
+            var count = new AtomicInteger();
+            con.transact(Runnable.class, () -> {
+                var q = con.getEntityManager().createQuery("SELECT COUNT(v) FROM Vegetable v", Long.class);
+                count.set(q.getSingleResult().intValue());
+            }).run();
+            Assertions.assertEquals(INSERTS, count.get());
+            return time;
+        }
+    }
+
+    @Test
+    public void benchmarkInsertThroughput() {
+        var unbatched = prepare();
+        var batched = prepare().withJdbcBatchSize(50).withOrderInserts(true);
+
+        // Warm up, so the first measure doesn't pay for class loading and JIT alone.
+        timeToInsert(unbatched);
+        timeToInsert(batched);
+
+        var rounds = 3;
+        var withoutBatch = Duration.ZERO;
+        var withBatch = Duration.ZERO;
+        for (var i = 0; i < rounds; i++) {
+            withoutBatch = withoutBatch.plus(timeToInsert(unbatched));
+            withBatch = withBatch.plus(timeToInsert(batched));
+        }
+        System.out.printf(
+                Locale.ROOT,
+                "Hibernate inserting %d rows: %d ms without JDBC batching, %d ms with batches of 50.%n",
+                INSERTS,
+                withoutBatch.dividedBy(rounds).toMillis(),
+                withBatch.dividedBy(rounds).toMillis()
+        );
+    }
+}
@@ -0,0 +1,85 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationAction;
+import ninja.javahacker.jpasimpletransactions.hibernate.HibernateConnectorFactory;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Victor Williams Stafusa da Silva
+ */
+public class HibernateConnectorFactoryTest {
+
+    private static final int INSERTS = 500;
+
+    private static HibernateConnectorFactory prepare() {
+        return new HibernateConnectorFactory()
+                .withPersistenceUnitName("test-batch")
+                .withDriver(JDBCDriver.class)
+                .withUrl("jdbc:hsqldb:mem:batch")
+                .withUser("sa")
+                .withPassword("")
+                .withSchemaGenerationAction(SchemaGenerationAction.DROP_AND_CREATE)
+                .addEntity(Vegetable.class);
+    }
+
+    @Test
+    public void testThroughputProperties() {
+        var props = prepare()
+                .withJdbcBatchSize(50)
+                .withOrderInserts(true)
+                .withOrderUpdates(true)
+                .withBatchVersionedData(true)
+                .withJdbcFetchSize(200)
+                .withDefaultBatchFetchSize(16)
+                .withQueryPlanCacheMaxSize(512)
+                .withInClauseParameterPadding(true)
+                .getProperties();
+        var plain = prepare().getProperties();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals("50", props.get("hibernate.jdbc.batch_size")),
+                () -> Assertions.assertEquals("true", props.get("hibernate.order_inserts")),
+                () -> Assertions.assertEquals("true", props.get("hibernate.order_updates")),
+                () -> Assertions.assertEquals("true", props.get("hibernate.jdbc.batch_versioned_data")),
+                () -> Assertions.assertEquals("200", props.get("hibernate.jdbc.fetch_size")),
+                () -> Assertions.assertEquals("16", props.get("hibernate.default_batch_fetch_size")),
+                () -> Assertions.assertEquals("512", props.get("hibernate.query.plan_cache_max_size")),
+                () -> Assertions.assertEquals("true", props.get("hibernate.query.in_clause_parameter_padding")),
+                () -> Assertions.assertFalse(plain.containsKey("hibernate.jdbc.batch_size")),
+                () -> Assertions.assertFalse(plain.containsKey("hibernate.order_inserts")),
+                () -> Assertions.assertFalse(plain.containsKey("hibernate.query.plan_cache_max_size"))
+        );
+    }
+
+    @Test
+    public void testNegativeThroughputProperties() {
+        var base = prepare();
+        Assertions.assertAll(
+                () -> Assertions.assertThrows(IllegalStateException.class, base.withJdbcBatchSize(-1)::getProperties),
+                () -> Assertions.assertThrows(IllegalStateException.class, base.withJdbcFetchSize(-1)::getProperties),
+                () -> Assertions.assertThrows(IllegalStateException.class, base.withDefaultBatchFetchSize(-1)::getProperties),
+                () -> Assertions.assertThrows(IllegalStateException.class, base.withQueryPlanCacheMaxSize(-1)::getProperties),
+                () -> Assertions.assertThrows(IllegalStateException.class, base.withJdbcBatchSize(-1)::connect)
+        );
+    }
+
+    @Test
+    public void testBatchedInserts() {
+        try (var con = prepare().withJdbcBatchSize(50).withOrderInserts(true).connect()) {
+            con.transact(Runnable.class, () -> {
+                var em = con.getEntityManager();
+                for (var i = 0; i < INSERTS; i++) {
+                    em.persist(new Vegetable(i, "carrot " + i));
+                }
+            }).run();
+            var count = new AtomicInteger();
+            con.transact(Runnable.class, () -> {
+                var q = con.getEntityManager().createQuery("SELECT COUNT(v) FROM Vegetable v", Long.class);
+                count.set(q.getSingleResult().intValue());
+            }).run();
+            Assertions.assertEquals(INSERTS, count.get());
+        }
+    }
+}
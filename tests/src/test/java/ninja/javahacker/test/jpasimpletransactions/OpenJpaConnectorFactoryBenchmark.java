@@ -0,0 +1,95 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationAction;
+import ninja.javahacker.jpasimpletransactions.openjpa.ConnectionRetainMode;
+import ninja.javahacker.jpasimpletransactions.openjpa.FetchDirection;
+import ninja.javahacker.jpasimpletransactions.openjpa.OpenJpaConnectorFactory;
+import ninja.javahacker.jpasimpletransactions.openjpa.ResultSetType;
+import ninja.javahacker.jpasimpletransactions.openjpa.Support;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Only runs with the {@code benchmark} task, since it just reports how long things take.
+ * @author Victor Williams Stafusa da Silva
+ */
+@Tag("benchmark")
+public class OpenJpaConnectorFactoryBenchmark {
+
+    private static final int ROWS = 2000;
+
+    private static OpenJpaConnectorFactory prepare() {
+        return new OpenJpaConnectorFactory()
+                .withPersistenceUnitName("test-openjpa")
+                .withDynamicEnhancementAgent(true)
+                .withRuntimeUnenhancedClasses(Support.SUPPORTED)
+                .withDriver(JDBCDriver.class)
+                .withUrl("jdbc:hsqldb:mem:openjpa")
+                .withUser("sa")
+                .withPassword("")
+                .withSchemaGenerationAction(SchemaGenerationAction.DROP_AND_CREATE)
+                .addEntity(Vegetable.class);
+    }
+
+    private static OpenJpaConnectorFactory tuned() {
+        return prepare()
+                .withFetchBatchSize(500)
+                .withBatchLimit(100)
+                .withQuerySqlCache(true)
+                .withConnectionRetainMode(ConnectionRetainMode.TRANSACTION)
+                .withResultSetType(ResultSetType.FORWARD_ONLY)
+                .withFetchDirection(FetchDirection.FORWARD);
+    }
+
+    private static Duration timeToInsertAndRead(OpenJpaConnectorFactory factory) {
+        try (var con = factory.connect()) {
+            var start = System.nanoTime();
+            con.transact(Runnable.class, () -> {
+                var em = con.getEntityManager();
+                for (var i = 0; i < ROWS; i++) {
+                    em.persist(new Vegetable(i, "leek " + i));
+                }
+            }).run();
+            var read = new AtomicInteger();
+            for (var i = 0; i < 10; i++) {
+                con.transact(Runnable.class, () -> {
+                    var q = con.getEntityManager().createQuery("SELECT v FROM Vegetable v WHERE v.id >= :min", Vegetable.class);
+                    read.set(q.setParameter("min", 0).getResultList().size());
+                }).run();
+            }
+            var time = Duration.ofNanos(System.nanoTime() - start);
+            Assertions.assertEquals(ROWS, read.get());
+            return time;
+        }
+    }
+
+    @Test
+    public void benchmarkThroughput() {
+        var defaults = prepare();
+        var tuned = tuned();
+
+        // Warm up, so the first measure doesn't pay for class loading and JIT alone.
+        timeToInsertAndRead(defaults);
+        timeToInsertAndRead(tuned);
+
+        var rounds = 3;
+        var withDefaults = Duration.ZERO;
+        var withTuning = Duration.ZERO;
+        for (var i = 0; i < rounds; i++) {
+            withDefaults = withDefaults.plus(timeToInsertAndRead(defaults));
+            withTuning = withTuning.plus(timeToInsertAndRead(tuned));
+        }
+        System.out.printf(
+                Locale.ROOT,
+                "OpenJPA inserting %d rows and reading them 10 times: %d ms with defaults, %d ms tuned.%n",
+                ROWS,
+                withDefaults.dividedBy(rounds).toMillis(),
+                withTuning.dividedBy(rounds).toMillis()
+        );
+    }
+}
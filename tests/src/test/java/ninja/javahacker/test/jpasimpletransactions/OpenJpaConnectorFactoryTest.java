@@ -0,0 +1,88 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import ninja.javahacker.jpasimpletransactions.config.SchemaGenerationAction;
+import ninja.javahacker.jpasimpletransactions.openjpa.ConnectionRetainMode;
+import ninja.javahacker.jpasimpletransactions.openjpa.FetchDirection;
+import ninja.javahacker.jpasimpletransactions.openjpa.OpenJpaConnectorFactory;
+import ninja.javahacker.jpasimpletransactions.openjpa.ResultSetType;
+import ninja.javahacker.jpasimpletransactions.openjpa.Support;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Victor Williams Stafusa da Silva
+ */
+public class OpenJpaConnectorFactoryTest {
+
+    private static final int ROWS = 200;
+
+    private static OpenJpaConnectorFactory prepare() {
+        return new OpenJpaConnectorFactory()
+                .withPersistenceUnitName("test-openjpa")
+                .withDynamicEnhancementAgent(true)
+                .withRuntimeUnenhancedClasses(Support.SUPPORTED)
+                .withDriver(JDBCDriver.class)
+                .withUrl("jdbc:hsqldb:mem:openjpa")
+                .withUser("sa")
+                .withPassword("")
+                .withSchemaGenerationAction(SchemaGenerationAction.DROP_AND_CREATE)
+                .addEntity(Vegetable.class);
+    }
+
+    private static OpenJpaConnectorFactory tuned() {
+        return prepare()
+                .withFetchBatchSize(500)
+                .withBatchLimit(100)
+                .withQuerySqlCache(true)
+                .withConnectionRetainMode(ConnectionRetainMode.TRANSACTION)
+                .withResultSetType(ResultSetType.FORWARD_ONLY)
+                .withFetchDirection(FetchDirection.FORWARD);
+    }
+
+    @Test
+    public void testThroughputProperties() {
+        var props = tuned().getProperties();
+        var plain = prepare().getProperties();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals("500", props.get("openjpa.FetchBatchSize")),
+                () -> Assertions.assertEquals("batchLimit=100", props.get("openjpa.jdbc.DBDictionary")),
+                () -> Assertions.assertEquals("true", props.get("openjpa.jdbc.QuerySQLCache")),
+                () -> Assertions.assertEquals("transaction", props.get("openjpa.ConnectionRetainMode")),
+                () -> Assertions.assertEquals("forward-only", props.get("openjpa.jdbc.ResultSetType")),
+                () -> Assertions.assertEquals("forward", props.get("openjpa.jdbc.FetchDirection")),
+                () -> Assertions.assertEquals("-1", prepare().withFetchBatchSize(-1).getProperties().get("openjpa.FetchBatchSize")),
+                () -> Assertions.assertFalse(plain.containsKey("openjpa.FetchBatchSize")),
+                () -> Assertions.assertFalse(plain.containsKey("openjpa.jdbc.DBDictionary")),
+                () -> Assertions.assertFalse(plain.containsKey("openjpa.ConnectionRetainMode"))
+        );
+    }
+
+    @Test
+    public void testInvalidThroughputProperties() {
+        var base = prepare();
+        Assertions.assertAll(
+                () -> Assertions.assertThrows(IllegalStateException.class, base.withFetchBatchSize(-2)::getProperties),
+                () -> Assertions.assertThrows(IllegalStateException.class, base.withBatchLimit(-2)::getProperties)
+        );
+    }
+
+    @Test
+    public void testTunedInsertAndRead() {
+        try (var con = tuned().connect()) {
+            con.transact(Runnable.class, () -> {
+                var em = con.getEntityManager();
+                for (var i = 0; i < ROWS; i++) {
+                    em.persist(new Vegetable(i, "leek " + i));
+                }
+            }).run();
+            var read = new AtomicInteger();
+            con.transact(Runnable.class, () -> {
+                var q = con.getEntityManager().createQuery("SELECT v FROM Vegetable v WHERE v.id >= :min", Vegetable.class);
+                read.set(q.setParameter("min", 0).getResultList().size());
+            }).run();
+            Assertions.assertEquals(ROWS, read.get());
+        }
+    }
+}
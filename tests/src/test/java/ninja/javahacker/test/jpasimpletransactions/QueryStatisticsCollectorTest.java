@@ -0,0 +1,87 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.NonNull;
+import ninja.javahacker.jpasimpletransactions.ConnectorListener;
+import ninja.javahacker.jpasimpletransactions.Database;
+import ninja.javahacker.jpasimpletransactions.QueryExecution;
+import ninja.javahacker.jpasimpletransactions.QueryStatistics;
+import ninja.javahacker.jpasimpletransactions.QueryStatisticsCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * @author Victor Williams Stafusa da Silva
+ */
+public class QueryStatisticsCollectorTest {
+
+    @Test
+    public void testNormalize() {
+        var jpql = "SELECT f FROM Fruit f\n  WHERE f.name = 'it''s' AND f.id > 42 AND f.color = :color AND f.id <> ?1";
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(
+                        "SELECT f FROM Fruit f WHERE f.name = ? AND f.id > ? AND f.color = :color AND f.id <> ?1",
+                        QueryExecution.normalize(jpql)
+                ),
+                () -> Assertions.assertEquals(
+                        "SELECT f FROM Fruit2 f WHERE f.id = ?",
+                        QueryExecution.normalize(" SELECT f FROM Fruit2 f WHERE f.id = 1.5e3 ")
+                )
+        );
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testCollectStatistics(String t, JpaConfiguration config) throws Exception {
+        var collector = new QueryStatisticsCollector();
+        var counted = new AtomicInteger();
+        var blind = new ConnectorListener() {
+            @Override
+            public void queryExecuted(@NonNull String persistenceUnit, @NonNull QueryExecution execution) {
+                counted.incrementAndGet();
+            }
+        };
+        Database.addListener(blind);
+        try (var con = config.connect()) {
+            var byColor = "SELECT f FROM Fruit f WHERE f.color = 'red'";
+            var find = con.transact(Runnable.class, () -> {
+                var em = con.getEntityManager();
+                em.save(new Fruit("apple", "red"));
+                em.save(new Fruit("strawberry", "red"));
+                em.createQuery(byColor, Fruit.class).getResultList();
+                em.createQuery("SELECT f FROM Fruit f WHERE f.color = 'green'", Fruit.class).getResultList();
+                em.createQuery("SELECT COUNT(f) FROM Fruit f WHERE f.name = 'apple'", Long.class).getSingleResult();
+            });
+            find.run();
+            var unobserved = counted.get();
+            Database.addListener(collector);
+            find.run();
+            var stats = collector.getStatistics("test-1", byColor).orElseThrow();
+            var count = collector.getStatistics("test-1", "SELECT COUNT(f) FROM Fruit f WHERE f.name = 'banana'");
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(0, unobserved),
+                    () -> Assertions.assertEquals(3, counted.get()),
+                    () -> Assertions.assertEquals("SELECT f FROM Fruit f WHERE f.color = ?", stats.getQuery()),
+                    () -> Assertions.assertEquals(2, stats.getCount()),
+                    () -> Assertions.assertEquals(0, stats.getFailures()),
+                    () -> Assertions.assertEquals(4, stats.getRows()),
+                    () -> Assertions.assertTrue(stats.getMaxTime().compareTo(stats.getTotalTime()) <= 0),
+                    () -> Assertions.assertEquals(2L, stats.getHistogram().values().stream().mapToLong(Long::longValue).sum()),
+                    () -> Assertions.assertEquals(QueryStatisticsCollector.UNBOUNDED, stats.getHistogram().lastKey()),
+                    () -> Assertions.assertEquals(Optional.of(1L), count.map(QueryStatistics::getRows)),
+                    () -> Assertions.assertEquals(2, collector.getStatistics().size()),
+                    () -> Assertions.assertTrue(collector.getStatistics().get(0).getTotalTime().compareTo(Duration.ZERO) > 0)
+            );
+            collector.clear();
+            Assertions.assertEquals(List.of(), collector.getStatistics());
+        } finally {
+            Database.removeListener(collector);
+            Database.removeListener(blind);
+        }
+    }
+}
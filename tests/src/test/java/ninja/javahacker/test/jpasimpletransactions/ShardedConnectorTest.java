@@ -0,0 +1,149 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import ninja.javahacker.jpasimpletransactions.Connector;
+import ninja.javahacker.jpasimpletransactions.ShardKey;
+import ninja.javahacker.jpasimpletransactions.ShardedConnector;
+import ninja.javahacker.jpasimpletransactions.hibernate.HibernateAdapter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * @author Victor Williams Stafusa da Silva
+ */
+public class ShardedConnectorTest {
+
+    public static interface FruitStore {
+        public void save(@ShardKey String owner, String name);
+
+        public long count(@ShardKey String owner);
+    }
+
+    public static interface Unkeyed {
+        public void run();
+    }
+
+    private static Connector shard(JpaConfiguration config, String name) {
+        return config.prepare().withPersistenceUnitName(name).withUrl("jdbc:hsqldb:mem:" + name).connect();
+    }
+
+    private static Connector fake(String name) {
+        var emf = Proxy.newProxyInstance(
+                ShardedConnectorTest.class.getClassLoader(),
+                new Class<?>[] {EntityManagerFactory.class},
+                (p, m, args) -> null);
+        return Connector.create(name, (EntityManagerFactory) emf, HibernateAdapter.CANONICAL);
+    }
+
+    private static Map<String, String> placement(ShardedConnector sharded, List<String> keys) {
+        var map = new LinkedHashMap<String, String>();
+        keys.forEach(k -> map.put(k, sharded.shardFor(k).getPersistenceUnitName()));
+        return map;
+    }
+
+    private static FruitStore store(ShardedConnector sharded) {
+        return sharded.transact(FruitStore.class, new FruitStore() {
+            @Override
+            public void save(String owner, String name) {
+                sharded.getEntityManager().save(new Fruit(name, owner));
+            }
+
+            @Override
+            public long count(String owner) {
+                return sharded.getEntityManager()
+                        .createQuery("SELECT COUNT(f) FROM Fruit f WHERE f.color = :owner", Long.class)
+                        .setParameter("owner", owner)
+                        .getSingleResult();
+            }
+        });
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testConsistentHashing(String t, JpaConfiguration config) throws Exception {
+        try (var sharded = ShardedConnector.consistentHashing(List.of(shard(config, "shard-a"), shard(config, "shard-b")))) {
+            var store = store(sharded);
+            var owners = IntStream.range(0, 20).mapToObj(i -> "owner-" + i).collect(Collectors.toUnmodifiableList());
+            owners.forEach(o -> store.save(o, "grape"));
+            owners.forEach(o -> store.save(o, "melon"));
+            var perShard = sharded.scatterGather(em -> em.createQuery("SELECT COUNT(f) FROM Fruit f", Long.class).getSingleResult());
+            var names = sharded.scatterGatherAll(em -> em.createQuery("SELECT f.name FROM Fruit f", String.class).getResultList());
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(2, perShard.size()),
+                    () -> Assertions.assertEquals(40L, perShard.get(0) + perShard.get(1)),
+                    () -> Assertions.assertTrue(perShard.get(0) > 0 && perShard.get(1) > 0),
+                    () -> Assertions.assertEquals(40, names.size()),
+                    () -> owners.forEach(o -> Assertions.assertEquals(2L, store.count(o))),
+                    () -> owners.forEach(o -> Assertions.assertSame(sharded.shardFor(o), sharded.shardFor(o))),
+                    () -> Assertions.assertTrue(sharded.getCurrentShard().isEmpty()),
+                    () -> Assertions.assertThrows(IllegalArgumentException.class, () -> store.count(null)),
+                    () -> Assertions.assertThrows(IllegalStateException.class, sharded::getEntityManager)
+            );
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testRanges(String t, JpaConfiguration config) throws Exception {
+        var a = shard(config, "shard-a");
+        var b = shard(config, "shard-b");
+        var ranges = new TreeMap<String, Connector>();
+        ranges.put("a", a);
+        ranges.put("n", b);
+        try (var sharded = ShardedConnector.byRange(ranges)) {
+            var explicit = sharded.transact("zed", Runnable.class, () -> sharded.getEntityManager().save(new Fruit("fig", "zed")));
+            explicit.run();
+            Assertions.assertAll(
+                    () -> Assertions.assertSame(a, sharded.shardFor("alice")),
+                    () -> Assertions.assertSame(a, sharded.shardFor("mallory")),
+                    () -> Assertions.assertSame(b, sharded.shardFor("n")),
+                    () -> Assertions.assertSame(b, sharded.shardFor("zed")),
+                    () -> Assertions.assertEquals(List.of(a, b), sharded.getShards()),
+                    () -> Assertions.assertEquals(List.of(0L, 1L), sharded.scatterGather(
+                            em -> em.createQuery("SELECT COUNT(f) FROM Fruit f", Long.class).getSingleResult())),
+                    () -> Assertions.assertThrows(IllegalArgumentException.class, () -> sharded.shardFor("0")),
+                    () -> Assertions.assertThrows(IllegalArgumentException.class, () -> sharded.shardFor(42)),
+                    () -> Assertions.assertThrows(IllegalArgumentException.class, () -> sharded.transact(Unkeyed.class, () -> { }))
+            );
+        }
+    }
+
+    @Test
+    public void testRemovingShardMovesOnlyItsKeys() throws Exception {
+        var keys = IntStream.range(0, 1000).mapToObj(i -> "key-" + i).collect(Collectors.toUnmodifiableList());
+        var a = fake("shard-a");
+        var b = fake("shard-b");
+        var c = fake("shard-c");
+        var three = placement(ShardedConnector.consistentHashing(List.of(a, b, c)), keys);
+        var reordered = placement(ShardedConnector.consistentHashing(List.of(c, a, b)), keys);
+        var two = placement(ShardedConnector.consistentHashing(List.of(a, c)), keys);
+        var explicit = placement(ShardedConnector.consistentHashing(Map.of("shard-c", c, "shard-a", a)), keys);
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(three, reordered),
+                () -> Assertions.assertEquals(two, explicit),
+                () -> Assertions.assertTrue(three.containsValue("shard-a")),
+                () -> Assertions.assertTrue(three.containsValue("shard-b")),
+                () -> Assertions.assertTrue(three.containsValue("shard-c")),
+                () -> keys.forEach(k -> {
+                    if (three.get(k).equals("shard-b")) {
+                        Assertions.assertNotEquals("shard-b", two.get(k), k);
+                    } else {
+                        Assertions.assertEquals(three.get(k), two.get(k), k);
+                    }
+                }),
+                () -> Assertions.assertThrows(IllegalArgumentException.class,
+                        () -> ShardedConnector.consistentHashing(List.of(a, fake("shard-a")))),
+                () -> Assertions.assertThrows(IllegalArgumentException.class,
+                        () -> ShardedConnector.consistentHashing(Map.of("x", a, "y", a)))
+        );
+    }
+}
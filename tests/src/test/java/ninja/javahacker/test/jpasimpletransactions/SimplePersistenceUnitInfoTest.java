@@ -0,0 +1,211 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.SharedCacheMode;
+import jakarta.persistence.spi.ClassTransformer;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import ninja.javahacker.jpasimpletransactions.SimpleScope;
+import ninja.javahacker.jpasimpletransactions.config.OptionalBoolean;
+import ninja.javahacker.jpasimpletransactions.config.SecondLevelCache;
+import ninja.javahacker.jpasimpletransactions.config.SimplePersistenceUnitInfo;
+import ninja.javahacker.jpasimpletransactions.config.Weaving;
+import ninja.javahacker.jpasimpletransactions.config.WeavingAgent;
+import ninja.javahacker.jpasimpletransactions.eclipselink.EclipselinkConnectorFactory;
+import ninja.javahacker.jpasimpletransactions.hibernate.HibernateAdapter;
+import ninja.javahacker.jpasimpletransactions.hibernate.HibernateConnectorFactory;
+import ninja.javahacker.jpasimpletransactions.hibernate.InMemoryRegionFactory;
+import ninja.javahacker.jpasimpletransactions.openjpa.OpenJpaConnectorFactory;
+import org.hibernate.annotations.Immutable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Victor Williams Stafusa da Silva
+ */
+public class SimplePersistenceUnitInfoTest {
+
+    /**
+     * An entity with an annotation specific to a persistence provider.
+     */
+    @Entity
+    @Immutable
+    public static class Pepper {
+        @Id
+        private Integer id;
+    }
+
+    private static SimplePersistenceUnitInfo create(Class<?>... classes) {
+        return new SimplePersistenceUnitInfo(
+                Optional.empty(),
+                HibernateAdapter.CANONICAL.getJpaProvider().getClass(),
+                "test-info",
+                List.of(classes),
+                SimpleScope.class,
+                Map.of()
+        );
+    }
+
+    private static SimplePersistenceUnitInfo create() {
+        return create(Fruit.class);
+    }
+
+    @Test
+    public void testTransformers() throws Exception {
+        var spui = create();
+        var seen = new ArrayList<String>();
+        ClassTransformer first = (loader, name, redefined, domain, bytes) -> {
+            seen.add("first " + name);
+            return new byte[] {1, 2};
+        };
+        ClassTransformer second = (loader, name, redefined, domain, bytes) -> {
+            seen.add("second " + name + " " + bytes.length);
+            return null;
+        };
+        spui.addTransformer(first);
+        spui.addTransformer(second);
+
+        var result = spui.transform(null, "a/b/C", new byte[] {9});
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(List.of(first, second), spui.getTransformers()),
+                () -> Assertions.assertArrayEquals(new byte[] {1, 2}, result),
+                () -> Assertions.assertEquals(List.of("first a/b/C", "second a/b/C 2"), seen)
+        );
+    }
+
+    @Test
+    public void testTempClassLoader() throws Exception {
+        var temp = create().getNewTempClassLoader();
+        var copy = temp.loadClass(Fruit.class.getName());
+        Assertions.assertAll(
+                () -> Assertions.assertNotSame(Fruit.class, copy),
+                () -> Assertions.assertEquals(Fruit.class.getName(), copy.getName()),
+                () -> Assertions.assertSame(temp, copy.getClassLoader()),
+                () -> Assertions.assertSame(String.class, temp.loadClass(String.class.getName())),
+                () -> Assertions.assertSame(Vegetable.class, temp.loadClass(Vegetable.class.getName())),
+                () -> Assertions.assertNotSame(temp, create().getNewTempClassLoader())
+        );
+    }
+
+    @Test
+    public void testTempClassLoaderSharesProviderAnnotations() throws Exception {
+        var temp = create(Pepper.class).getNewTempClassLoader();
+        var copy = temp.loadClass(Pepper.class.getName());
+        Assertions.assertAll(
+                () -> Assertions.assertNotSame(Pepper.class, copy),
+                () -> Assertions.assertSame(Immutable.class, temp.loadClass(Immutable.class.getName())),
+                () -> Assertions.assertTrue(copy.isAnnotationPresent(Immutable.class)),
+                () -> Assertions.assertTrue(copy.isAnnotationPresent(Entity.class))
+        );
+    }
+
+    @Test
+    public void testWeavingAgent() throws Exception {
+        var added = Collections.synchronizedList(new ArrayList<ClassFileTransformer>());
+        var removed = Collections.synchronizedList(new ArrayList<ClassFileTransformer>());
+        InvocationHandler fake = (p, m, args) -> {
+            if ("addTransformer".equals(m.getName())) added.add((ClassFileTransformer) args[0]);
+            if ("removeTransformer".equals(m.getName())) return removed.add((ClassFileTransformer) args[0]);
+            return null;
+        };
+        var inst = (Instrumentation) Proxy.newProxyInstance(
+                Instrumentation.class.getClassLoader(),
+                new Class<?>[] {Instrumentation.class},
+                fake
+        );
+        WeavingAgent.premain(null, inst);
+
+        var spui = create();
+        ClassTransformer woven = (loader, name, redefined, domain, bytes) -> new byte[] {7};
+        spui.addTransformer(woven);
+        var jvm = added.get(added.size() - 1);
+        var loader = SimplePersistenceUnitInfoTest.class.getClassLoader();
+        var result = jvm.transform(loader, "a/b/C", null, null, new byte[] {9});
+        var temp = jvm.transform(spui.getNewTempClassLoader(), "a/b/C", null, null, new byte[] {9});
+        spui.removeTransformers();
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(WeavingAgent.isInstalled()),
+                () -> Assertions.assertArrayEquals(new byte[] {7}, result),
+                () -> Assertions.assertNull(temp),
+                () -> Assertions.assertEquals(List.of(jvm), removed)
+        );
+    }
+
+    @Test
+    public void testWeavingProperties() {
+        var hib = new HibernateConnectorFactory().withWeaving(Weaving.RUNTIME).getProperties();
+        var el = new EclipselinkConnectorFactory().withWeaving(Weaving.BUILD_TIME).getProperties();
+        var ojpa = new OpenJpaConnectorFactory().withWeaving(Weaving.BUILD_TIME).getProperties();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals("true", hib.get("hibernate.enhancer.enableDirtyTracking")),
+                () -> Assertions.assertEquals("true", hib.get("hibernate.enhancer.enableLazyInitialization")),
+                () -> Assertions.assertEquals("static", el.get("eclipselink.weaving")),
+                () -> Assertions.assertEquals("false", ojpa.get("openjpa.DynamicEnhancementAgent")),
+                () -> Assertions.assertFalse(new EclipselinkConnectorFactory().getProperties().containsKey("eclipselink.weaving"))
+        );
+    }
+
+    @Test
+    public void testSecondLevelCacheProperties() {
+        var cache = SecondLevelCache.of(SharedCacheMode.ENABLE_SELECTIVE)
+                .withQueryCache(OptionalBoolean.TRUE)
+                .withMaxEntries(500)
+                .withRegion(Fruit.class, 50, Duration.ofSeconds(30));
+        var hib = new HibernateConnectorFactory().withSecondLevelCache(cache).getProperties();
+        var el = new EclipselinkConnectorFactory().withSecondLevelCache(cache).getProperties();
+        var ojpa = new OpenJpaConnectorFactory().withSecondLevelCache(cache).getProperties();
+        var plain = new EclipselinkConnectorFactory().getProperties();
+        var off = new HibernateConnectorFactory().withSecondLevelCache(SecondLevelCache.of(SharedCacheMode.NONE)).getProperties();
+        var fruit = "." + Fruit.class.getName();
+        Assertions.assertAll(
+                () -> Assertions.assertEquals("ENABLE_SELECTIVE", hib.get(SimplePersistenceUnitInfo.SHARED_CACHE_MODE)),
+                () -> Assertions.assertEquals("true", hib.get("hibernate.cache.use_second_level_cache")),
+                () -> Assertions.assertEquals("true", hib.get("hibernate.cache.use_query_cache")),
+                () -> Assertions.assertEquals(InMemoryRegionFactory.class.getName(), hib.get("hibernate.cache.region.factory_class")),
+                () -> Assertions.assertEquals("read-write", hib.get("hibernate.classcache" + fruit)),
+                () -> Assertions.assertEquals("500", hib.get(InMemoryRegionFactory.MAX_ENTRIES)),
+                () -> Assertions.assertEquals("50", hib.get(InMemoryRegionFactory.MAX_ENTRIES + fruit)),
+                () -> Assertions.assertEquals("30000", hib.get(InMemoryRegionFactory.TIME_TO_LIVE + fruit)),
+                () -> Assertions.assertEquals("false", off.get("hibernate.cache.use_second_level_cache")),
+                () -> Assertions.assertEquals("500", el.get("eclipselink.cache.size.default")),
+                () -> Assertions.assertEquals("true", el.get("eclipselink.cache.shared.Fruit")),
+                () -> Assertions.assertEquals("50", el.get("eclipselink.cache.size.Fruit")),
+                () -> Assertions.assertEquals("true(CacheSize=500, Types=" + Fruit.class.getName() + ")", ojpa.get("openjpa.DataCache")),
+                () -> Assertions.assertEquals("true", ojpa.get("openjpa.QueryCache")),
+                () -> Assertions.assertEquals("false", new OpenJpaConnectorFactory()
+                        .withSecondLevelCache(cache)
+                        .withDataCache(false)
+                        .getProperties()
+                        .get("openjpa.DataCache")),
+                () -> Assertions.assertFalse(plain.containsKey("eclipselink.cache.size.default")),
+                () -> Assertions.assertFalse(plain.containsKey(SimplePersistenceUnitInfo.SHARED_CACHE_MODE))
+        );
+    }
+
+    @Test
+    public void testSharedCacheMode() {
+        var props = Map.of(SimplePersistenceUnitInfo.SHARED_CACHE_MODE, "DISABLE_SELECTIVE");
+        var spui = new SimplePersistenceUnitInfo(
+                Optional.empty(),
+                HibernateAdapter.CANONICAL.getJpaProvider().getClass(),
+                "test-info",
+                List.of(Fruit.class),
+                SimpleScope.class,
+                props
+        );
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(SharedCacheMode.DISABLE_SELECTIVE, spui.getSharedCacheMode()),
+                () -> Assertions.assertEquals(SharedCacheMode.UNSPECIFIED, create().getSharedCacheMode()),
+                () -> Assertions.assertThrows(IllegalArgumentException.class, () -> SecondLevelCache.unspecified().withMaxEntries(-1))
+        );
+    }
+}
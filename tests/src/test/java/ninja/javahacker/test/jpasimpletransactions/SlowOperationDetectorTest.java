@@ -0,0 +1,77 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import ninja.javahacker.jpasimpletransactions.Connector;
+import ninja.javahacker.jpasimpletransactions.Database;
+import ninja.javahacker.jpasimpletransactions.SlowOperationDetector;
+import ninja.javahacker.jpasimpletransactions.SlowOperationDetector.Kind;
+import ninja.javahacker.jpasimpletransactions.SlowOperationDetector.SlowOperation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * @author Victor Williams Stafusa da Silva
+ */
+public class SlowOperationDetectorTest {
+
+    private static void findApples(Connector con) {
+        con.transact(Runnable.class, () -> con.getEntityManager()
+                .createQuery("SELECT f FROM Fruit f WHERE f.name = :name", Fruit.class)
+                .setParameter("name", "apple")
+                .getResultList()).run();
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testRecordsSlowOperations(String t, JpaConfiguration config) throws Exception {
+        var everything = new SlowOperationDetector(Duration.ZERO, Duration.ZERO, 3, 2);
+        var nothing = new SlowOperationDetector(Duration.ofHours(1), Duration.ofHours(1), 3, 2);
+        Database.addListener(everything);
+        Database.addListener(nothing);
+        try (var con = config.connect()) {
+            findApples(con);
+            var first = everything.getSlowOperations();
+            findApples(con);
+            var second = everything.getSlowOperations();
+            var query = first.get(0);
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(List.of(Kind.QUERY, Kind.TRANSACTION), kinds(first)),
+                    () -> Assertions.assertEquals(List.of(Kind.TRANSACTION, Kind.QUERY, Kind.TRANSACTION), kinds(second)),
+                    () -> Assertions.assertEquals("test-1", query.getPersistenceUnit()),
+                    () -> Assertions.assertEquals(Optional.of("SELECT f FROM Fruit f WHERE f.name = :name"), query.getQuery()),
+                    () -> Assertions.assertEquals(List.of(":name=String"), query.getParameterShapes()),
+                    () -> Assertions.assertEquals(2, query.getStack().size()),
+                    () -> Assertions.assertEquals(SlowOperationDetectorTest.class.getName(), query.getStack().get(0).getClassName()),
+                    () -> Assertions.assertEquals(Optional.empty(), first.get(1).getQuery()),
+                    () -> Assertions.assertTrue(query.toString().contains(":name=String")),
+                    () -> Assertions.assertEquals(List.of(), nothing.getSlowOperations())
+            );
+            everything.clear();
+            Assertions.assertEquals(List.of(), everything.getSlowOperations());
+        } finally {
+            Database.removeListener(everything);
+            Database.removeListener(nothing);
+        }
+    }
+
+    private static List<Kind> kinds(List<SlowOperation> ops) {
+        return ops.stream().map(SlowOperation::getKind).collect(Collectors.toUnmodifiableList());
+    }
+
+    @Test
+    public void testBadSettings() {
+        Assertions.assertAll(
+                () -> Assertions.assertThrows(IllegalArgumentException.class,
+                        () -> new SlowOperationDetector(Duration.ofSeconds(-1), Duration.ZERO, 1, 0)),
+                () -> Assertions.assertThrows(IllegalArgumentException.class,
+                        () -> new SlowOperationDetector(Duration.ZERO, Duration.ZERO, 0, 0)),
+                () -> Assertions.assertThrows(IllegalArgumentException.class,
+                        () -> new SlowOperationDetector(Duration.ZERO, Duration.ZERO, 1, -1))
+        );
+    }
+}
@@ -0,0 +1,116 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.RollbackException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import ninja.javahacker.jpasimpletransactions.Connector;
+import ninja.javahacker.jpasimpletransactions.TransactionCoordinator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * @author Victor Williams Stafusa da Silva
+ */
+public class TransactionCoordinatorTest {
+
+    private static Connector connect(JpaConfiguration config, String name) {
+        return config.prepare().withPersistenceUnitName(name).withUrl("jdbc:hsqldb:mem:" + name).connect();
+    }
+
+    private static long count(Connector con) {
+        return con.transact(FruitCounter.class, () -> con.getEntityManager()
+                .createQuery("SELECT COUNT(f) FROM Fruit f", Long.class)
+                .getSingleResult()).count();
+    }
+
+    public static interface FruitCounter {
+        public long count();
+    }
+
+    private static Object delegate(Method m, Object target, Object[] args) throws Throwable {
+        try {
+            return m.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler ih) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, ih));
+    }
+
+    // Wraps a real EntityManagerFactory so that every commit is rolled back and fails instead.
+    private static EntityManagerFactory failingCommits(EntityManagerFactory real) {
+        return proxy(EntityManagerFactory.class, (p1, m1, a1) -> {
+            if (!m1.getName().equals("createEntityManager")) return delegate(m1, real, a1);
+            var em = (EntityManager) delegate(m1, real, a1);
+            return proxy(EntityManager.class, (p2, m2, a2) -> {
+                if (!m2.getName().equals("getTransaction")) return delegate(m2, em, a2);
+                var et = em.getTransaction();
+                return proxy(EntityTransaction.class, (p3, m3, a3) -> {
+                    if (!m3.getName().equals("commit")) return delegate(m3, et, a3);
+                    et.rollback();
+                    throw new RollbackException("Commit refused.");
+                });
+            });
+        });
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testCommitAll(String t, JpaConfiguration config) throws Exception {
+        try (var operational = connect(config, "operational"); var audit = connect(config, "audit")) {
+            var coordinator = TransactionCoordinator.of(operational, audit);
+            coordinator.transact(Runnable.class, () -> {
+                operational.getEntityManager().save(new Fruit("banana", "yellow"));
+                audit.getEntityManager().save(new Fruit("banana", "saved"));
+            }).run();
+            var failing = coordinator.transact(Runnable.class, () -> {
+                operational.getEntityManager().save(new Fruit("apple", "red"));
+                audit.getEntityManager().save(new Fruit("apple", "saved"));
+                throw new UnsupportedOperationException();
+            });
+            Assertions.assertAll(
+                    () -> Assertions.assertThrows(UnsupportedOperationException.class, failing::run),
+                    () -> Assertions.assertEquals(1L, count(operational)),
+                    () -> Assertions.assertEquals(1L, count(audit)),
+                    () -> Assertions.assertEquals(List.of(operational, audit), coordinator.getCommitOrder()),
+                    () -> Assertions.assertThrows(IllegalStateException.class, () -> coordinator.compensateWith(audit, () -> { })),
+                    () -> Assertions.assertThrows(IllegalArgumentException.class, () -> TransactionCoordinator.of(audit, audit))
+            );
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} - {0}")
+    @MethodSource("ninja.javahacker.test.jpasimpletransactions.JpaConfiguration#all")
+    public void testCompensation(String t, JpaConfiguration config) throws Exception {
+        try (var operational = connect(config, "operational"); var real = connect(config, "audit")) {
+            var audit = Connector.create("audit", failingCommits(real.getEntityManagerFactory()), real.getAdapter());
+            var coordinator = TransactionCoordinator.of(operational, audit);
+            var compensated = new ArrayList<String>();
+            var work = coordinator.transact(Runnable.class, () -> {
+                var fruit = operational.getEntityManager().save(new Fruit("cherry", "red"));
+                audit.getEntityManager().save(new Fruit("cherry", "saved"));
+                coordinator.compensateWith(operational, () -> {
+                    var em = operational.getEntityManager();
+                    em.remove(em.find(Fruit.class, fruit.getId()));
+                    compensated.add(fruit.getName());
+                });
+            });
+            Assertions.assertAll(
+                    () -> Assertions.assertThrows(RollbackException.class, work::run),
+                    () -> Assertions.assertEquals(List.of("cherry"), compensated),
+                    () -> Assertions.assertEquals(0L, count(operational)),
+                    () -> Assertions.assertEquals(0L, count(real))
+            );
+        }
+    }
+}
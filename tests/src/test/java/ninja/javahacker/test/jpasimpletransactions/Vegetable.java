@@ -0,0 +1,31 @@
+package ninja.javahacker.test.jpasimpletransactions;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import lombok.Getter;
+
+/**
+ * An entity with assigned identifiers, since Hibernate never batches inserts of entities with identity columns.
+ * @author Victor Williams Stafusa da Silva
+ */
+@Entity
+@Table(name = "vegetables")
+@Getter
+public class Vegetable implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private Integer id;
+
+    private String name;
+
+    public Vegetable() {}
+
+    public Vegetable(Integer id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+}